@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.click.MockContext;
+import org.apache.click.control.Column;
+import org.apache.click.control.Form;
+import org.apache.click.control.Submit;
+import org.apache.click.control.Table;
+import org.apache.click.control.TextField;
+import org.apache.click.util.HtmlStringBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Provides benchmarks of Form and Table rendering, and of Table Column
+ * sorting, at several sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ControlRenderBenchmark {
+
+    /** The number of form fields and table rows. */
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private Form form;
+
+    private Table table;
+
+    private List<SampleBean> rows;
+
+    /**
+     * Bind a mock request context to the benchmark thread and build the
+     * controls. The Context is thread local, so the setup runs per thread.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        MockContext.initContext();
+
+        form = new Form("form");
+        for (int i = 0; i < size; i++) {
+            TextField field = new TextField("field" + i, true);
+            field.setValue("value " + i + " <" + i + ">");
+            form.add(field);
+        }
+        form.add(new Submit("save"));
+
+        rows = SampleBean.createList(size);
+
+        table = new Table("table");
+        table.addColumn(new Column("name"));
+        table.addColumn(new Column("email"));
+        Column balance = new Column("balance");
+        balance.setFormat("{0,number,#,##0.00}");
+        table.addColumn(balance);
+        table.setRowList(rows);
+    }
+
+    @Benchmark
+    public String renderForm() {
+        HtmlStringBuffer buffer = new HtmlStringBuffer(form.getControlSizeEst());
+        form.render(buffer);
+        return buffer.toString();
+    }
+
+    @Benchmark
+    public String renderTable() {
+        HtmlStringBuffer buffer = new HtmlStringBuffer(table.getControlSizeEst());
+        table.render(buffer);
+        return buffer.toString();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<SampleBean> sortColumn() {
+        List<SampleBean> list = new ArrayList<SampleBean>(rows);
+        Collections.sort(list, table.getColumn("name").getComparator());
+        return list;
+    }
+}
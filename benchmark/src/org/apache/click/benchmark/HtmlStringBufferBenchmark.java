@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.click.util.ClickUtils;
+import org.apache.click.util.HtmlStringBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Provides benchmarks of HtmlStringBuffer escaping and attribute rendering,
+ * for text without markup and for markup heavy text.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class HtmlStringBufferBenchmark {
+
+    /** The escaped text length. */
+    @Param({"16", "256", "4096"})
+    public int length;
+
+    /** The percentage of characters requiring escaping. */
+    @Param({"0", "10"})
+    public int escapePercent;
+
+    private String text;
+
+    /** Realistic table cell values: names, emails, amounts and addresses. */
+    private String[] cells;
+
+    /**
+     * Build the text to escape.
+     */
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder(length);
+        int escapeEvery = (escapePercent == 0) ? Integer.MAX_VALUE : 100 / escapePercent;
+        for (int i = 0; i < length; i++) {
+            if (i % escapeEvery == escapeEvery - 1) {
+                builder.append((i % 2 == 0) ? '<' : '&');
+            } else {
+                builder.append((char) ('a' + (i % 26)));
+            }
+        }
+        text = builder.toString();
+
+        String[] samples = {
+            "John Smith", "john.smith@example.com", "Smith & Sons Pty Ltd",
+            "$1,234.50", "12 O'Connell Street", "2010-04-28", "42",
+            "Active", "Caf\u00e9 Ren\u00e9", "<b>VIP</b> customer", "\u20ac 99.00",
+            "NSW 2000"
+        };
+        cells = new String[100];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = samples[i % samples.length];
+        }
+    }
+
+    @Benchmark
+    public String appendEscaped() {
+        HtmlStringBuffer buffer = new HtmlStringBuffer(length + 32);
+        buffer.appendEscaped(text);
+        return buffer.toString();
+    }
+
+    @Benchmark
+    public String appendAttributeEscaped() {
+        HtmlStringBuffer buffer = new HtmlStringBuffer(length + 32);
+        buffer.elementStart("input");
+        buffer.appendAttributeEscaped("value", text);
+        buffer.elementEnd();
+        return buffer.toString();
+    }
+
+    @Benchmark
+    public String appendEscapedCells() {
+        HtmlStringBuffer buffer = new HtmlStringBuffer(2048);
+        for (String cell : cells) {
+            buffer.append("<td>");
+            buffer.appendEscaped(cell);
+            buffer.append("</td>");
+        }
+        return buffer.toString();
+    }
+
+    @Benchmark
+    public String escapeHtmlCells() {
+        HtmlStringBuffer buffer = new HtmlStringBuffer(2048);
+        for (String cell : cells) {
+            buffer.append("<td>");
+            buffer.append(ClickUtils.escapeHtml(cell));
+            buffer.append("</td>");
+        }
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.benchmark;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.click.MockContext;
+import org.apache.click.service.MVELPropertyService;
+import org.apache.click.service.OGNLPropertyService;
+import org.apache.click.service.PropertyService;
+import org.apache.click.util.PropertyUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Provides benchmarks of PropertyUtils and the PropertyService
+ * implementations reading and writing simple and nested bean properties.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class PropertyBenchmark {
+
+    private SampleBean bean;
+
+    private Map<Object, Object> cache;
+
+    private PropertyService ognlService;
+
+    private PropertyService mvelService;
+
+    /**
+     * Bind a mock request context to the benchmark thread, as PropertyUtils
+     * writes through the application PropertyService, then create the bean
+     * and initialize the property services.
+     *
+     * @throws Exception if a property service cannot be initialized
+     */
+    @Setup
+    public void setup() throws Exception {
+        MockContext.initContext();
+
+        bean = new SampleBean("Malcolm", "malcolm@example.com", new BigDecimal("10.50"));
+        bean.setParent(new SampleBean("Edgar", "edgar@example.com", BigDecimal.ONE));
+
+        cache = new HashMap<Object, Object>();
+
+        ognlService = new OGNLPropertyService();
+        ognlService.onInit(null);
+
+        mvelService = new MVELPropertyService();
+        mvelService.onInit(null);
+    }
+
+    @Benchmark
+    public Object propertyUtilsGetValue() {
+        return PropertyUtils.getValue(bean, "name");
+    }
+
+    @Benchmark
+    public Object propertyUtilsGetNestedValue() {
+        return PropertyUtils.getValue(bean, "parent.email");
+    }
+
+    @Benchmark
+    public Object propertyUtilsGetCachedValue() {
+        return PropertyUtils.getValue(bean, "parent.email", cache);
+    }
+
+    @Benchmark
+    public SampleBean propertyUtilsSetValue() {
+        PropertyUtils.setValue(bean, "name", "Malcolm");
+        return bean;
+    }
+
+    @Benchmark
+    public Object ognlGetNestedValue() {
+        return ognlService.getValue(bean, "parent.email");
+    }
+
+    @Benchmark
+    public Object ognlGetCachedValue() {
+        return ognlService.getValue(bean, "parent.email", cache);
+    }
+
+    @Benchmark
+    public SampleBean ognlSetNestedValue() {
+        ognlService.setValue(bean, "parent.name", "Edgar");
+        return bean;
+    }
+
+    @Benchmark
+    public Object mvelGetNestedValue() {
+        return mvelService.getValue(bean, "parent.email");
+    }
+
+    @Benchmark
+    public Object mvelGetCachedValue() {
+        return mvelService.getValue(bean, "parent.email", cache);
+    }
+
+    @Benchmark
+    public SampleBean mvelSetValue() {
+        mvelService.setValue(bean, "name", "Malcolm");
+        return bean;
+    }
+}
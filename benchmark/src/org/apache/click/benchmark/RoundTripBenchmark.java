@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.click.MockContainer;
+import org.apache.click.benchmark.pages.RoundTripPage;
+import org.apache.click.control.Form;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Provides benchmarks of full page request round trips through the
+ * MockContainer, covering page creation, binding, event processing and
+ * Velocity template rendering.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class RoundTripBenchmark {
+
+    private MockContainer container;
+
+    /**
+     * Start the mock container on the benchmark web application, which is
+     * found on the classpath.
+     */
+    @Setup
+    public void setup() {
+        container = new MockContainer("benchmark-web");
+        container.start();
+    }
+
+    /**
+     * Stop the mock container.
+     */
+    @TearDown
+    public void tearDown() {
+        container.stop();
+    }
+
+    @Benchmark
+    public String getPage() {
+        container.testPage(RoundTripPage.class);
+        return container.getHtml();
+    }
+
+    @Benchmark
+    public String postForm() {
+        container.setParameter(Form.FORM_NAME, "form");
+        container.setParameter("name", "Malcolm");
+        container.setParameter("email", "malcolm@example.com");
+        container.setParameter("save", "save");
+        container.getRequest().setMethod("POST");
+
+        container.testPage(RoundTripPage.class);
+        return container.getHtml();
+    }
+}
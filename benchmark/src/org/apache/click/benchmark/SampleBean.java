@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.benchmark;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Provides a simple JavaBean used as the data object of the benchmarks.
+ */
+public class SampleBean implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String name;
+
+    private String email;
+
+    private BigDecimal balance;
+
+    private Date created;
+
+    private SampleBean parent;
+
+    /**
+     * Create an empty SampleBean.
+     */
+    public SampleBean() {
+    }
+
+    /**
+     * Create a SampleBean with the given name, email and balance.
+     *
+     * @param name the name
+     * @param email the email address
+     * @param balance the account balance
+     */
+    public SampleBean(String name, String email, BigDecimal balance) {
+        this.name = name;
+        this.email = email;
+        this.balance = balance;
+        this.created = new Date();
+    }
+
+    /**
+     * Return a list of the given number of sample beans, named so that the
+     * list is not initially sorted.
+     *
+     * @param size the number of beans to create
+     * @return a list of sample beans
+     */
+    public static List<SampleBean> createList(int size) {
+        List<SampleBean> list = new ArrayList<SampleBean>(size);
+        for (int i = 0; i < size; i++) {
+            int key = (i * 7919) % size;
+            SampleBean bean = new SampleBean("Customer " + key,
+                "customer" + key + "@example.com", new BigDecimal(key * 13 % 1000));
+            list.add(bean);
+        }
+        return list;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public void setCreated(Date created) {
+        this.created = created;
+    }
+
+    public SampleBean getParent() {
+        return parent;
+    }
+
+    public void setParent(SampleBean parent) {
+        this.parent = parent;
+    }
+}
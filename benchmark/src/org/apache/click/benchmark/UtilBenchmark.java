@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.click.MockContext;
+import org.apache.click.Page;
+import org.apache.click.control.Form;
+import org.apache.click.util.Format;
+import org.apache.click.util.MessagesMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Provides benchmarks of MessagesMap creation and lookup and of the Format
+ * template helpers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class UtilBenchmark {
+
+    private Format format;
+
+    private Date date;
+
+    private BigDecimal amount;
+
+    private String markup;
+
+    /**
+     * Bind a mock request context to the benchmark thread and create the
+     * Format instance.
+     */
+    @Setup
+    public void setup() {
+        MockContext.initContext(Locale.US);
+        format = new Format();
+        date = new Date();
+        amount = new BigDecimal("12345.678");
+        markup = "<a href=\"page.htm?id=1&name=x\">O'Brien & Sons</a>";
+    }
+
+    @Benchmark
+    public Object createPageMessagesMap() {
+        Map<String, String> messages = new MessagesMap(Page.class, "click-control", Locale.US);
+        return messages.get("field-required-error");
+    }
+
+    @Benchmark
+    public Object createControlMessagesMap() {
+        Map<String, String> messages = new MessagesMap(Form.class, "click-control", Locale.US);
+        return messages.get("field-required-error");
+    }
+
+    @Benchmark
+    public String formatCurrency() {
+        return format.currency(amount);
+    }
+
+    @Benchmark
+    public String formatDate() {
+        return format.date(date, "dd MMM yyyy");
+    }
+
+    @Benchmark
+    public String formatDecimal() {
+        return format.decimal(amount, "#,##0.00");
+    }
+
+    @Benchmark
+    public String formatHtml() {
+        return format.html(markup);
+    }
+
+    @Benchmark
+    public String formatJavascript() {
+        return format.javascript(markup);
+    }
+
+    @Benchmark
+    public String formatUrl() {
+        return format.url(markup);
+    }
+}
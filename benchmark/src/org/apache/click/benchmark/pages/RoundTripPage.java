@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.benchmark.pages;
+
+import org.apache.click.Page;
+import org.apache.click.benchmark.SampleBean;
+import org.apache.click.control.Column;
+import org.apache.click.control.Form;
+import org.apache.click.control.Submit;
+import org.apache.click.control.Table;
+import org.apache.click.control.TextField;
+
+/**
+ * Provides a typical form and table page for the MockContainer round trip
+ * benchmark.
+ */
+public class RoundTripPage extends Page {
+
+    private static final long serialVersionUID = 1L;
+
+    private Form form = new Form("form");
+
+    private Table table = new Table("table");
+
+    private TextField nameField = new TextField("name", true);
+
+    /**
+     * Create the page controls.
+     */
+    public RoundTripPage() {
+        form.add(nameField);
+        form.add(new TextField("email"));
+        form.add(new Submit("save", this, "onSaveClick"));
+        addControl(form);
+
+        table.addColumn(new Column("name"));
+        table.addColumn(new Column("email"));
+        table.addColumn(new Column("balance"));
+        table.setPageSize(20);
+        table.setSortable(true);
+        addControl(table);
+    }
+
+    /**
+     * Load the table rows.
+     *
+     * @see Page#onRender()
+     */
+    @Override
+    public void onRender() {
+        table.setRowList(SampleBean.createList(100));
+    }
+
+    /**
+     * Handle the form submission.
+     *
+     * @return true to continue processing the page
+     */
+    public boolean onSaveClick() {
+        if (form.isValid()) {
+            addModel("saved", nameField.getValue());
+        }
+        return true;
+    }
+}
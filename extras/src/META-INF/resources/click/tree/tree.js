@@ -87,7 +87,7 @@ function stopPropagation(event) {
     if (window.event && window.event.cancelBubble !== null) {
         window.event.cancelBubble = true;
     }
-    else {
+    else if (event) {
         event.stopPropagation();
     }
 }
@@ -174,3 +174,52 @@ function isLeaf(objectArg) {
         return true;
     return false;
 }
+
+/* Tracks the nodes which children have been requested via Ajax */
+var ajaxLoadedNodes = {};
+
+/*
+ * Invoked when user expands a node which children are not loaded yet.
+ * Returns true if the children are present in the browser, so the node can
+ * be expanded as usual. Otherwise the node's subtree is requested from the
+ * server, and false is returned. Once the subtree is inserted, the node is
+ * expanded by invoking the onclick handler again.
+ */
+function handleAjaxNodeExpansion(objectArg, event, url, expandId) {
+    if (ajaxLoadedNodes[expandId] === true) {
+        return true;
+    }
+    stopPropagation(event);
+
+    //request already in progress
+    if (ajaxLoadedNodes[expandId] === false) {
+        return false;
+    }
+    ajaxLoadedNodes[expandId] = false;
+
+    var request = window.XMLHttpRequest ? new XMLHttpRequest() : new ActiveXObject("Microsoft.XMLHTTP");
+    request.open("GET", url.replace(/&amp;/g, '&'), true);
+    request.setRequestHeader("X-Requested-With", "XMLHttpRequest");
+    request.onreadystatechange = function() {
+        if (request.readyState != 4) {
+            return;
+        }
+        if (request.status != 200) {
+            delete ajaxLoadedNodes[expandId];
+            return;
+        }
+        var span = document.getElementById(expandId);
+        var holder = document.createElement("div");
+        holder.innerHTML = request.responseText;
+        var menuList = holder.getElementsByTagName("ul");
+        if (menuList.length > 0) {
+            var childMenu = menuList[0];
+            addClass(childMenu, visibilityArray[1]);
+            span.appendChild(childMenu);
+        }
+        ajaxLoadedNodes[expandId] = true;
+        objectArg.onclick();
+    };
+    request.send(null);
+    return false;
+}
@@ -18,9 +18,12 @@
  */
 package org.apache.click.extras.control;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TreeSet;
 import java.util.Map.Entry;
 
 import org.apache.click.Behavior;
@@ -51,7 +54,7 @@ import org.apache.commons.lang.StringUtils;
  * <h3>AutoCompleteTextField Example</h3>
  *
  * The example below shows how to a create an AutoCompleteTextField. Note how
- * the abstract method <tt>getAutoCompleteList()</tt> is implemented to provide
+ * the method <tt>getAutoCompleteList()</tt> is implemented to provide
  * the list of suggested values.
  *
  * <pre class="prettyprint">
@@ -62,6 +65,37 @@ import org.apache.commons.lang.StringUtils;
  * };
  * form.add(nameField); </pre>
  *
+ * <h3>Suggestion Sources and Caching</h3>
+ *
+ * Instead of implementing <tt>getAutoCompleteList()</tt>, which is called for
+ * every keystroke request, the suggested values can be provided by a shared
+ * {@link SuggestionSource} such as the in memory {@link PrefixIndex}. The
+ * rendered suggestion lists can also be cached in a shared
+ * {@link SuggestionCache}, keyed on the field, the normalized prefix and the
+ * request locale, so that bursts of typing are served from the cache:
+ *
+ * <pre class="prettyprint">
+ * private static final PrefixIndex NAME_INDEX = new PrefixIndex() {
+ *     protected Collection&lt;?&gt; loadValues() {
+ *         return getCustomerService().getCustomerNames();
+ *     }
+ * };
+ *
+ * private static final SuggestionCache NAME_CACHE = new SuggestionCache(500, 5 * 60 * 1000);
+ *
+ * public void onInit() {
+ *     AutoCompleteTextField nameField = new AutoCompleteTextField("name");
+ *     nameField.setSuggestionSource(NAME_INDEX);
+ *     nameField.setSuggestionCache(NAME_CACHE);
+ *     nameField.setMinLength(2);
+ *     nameField.setMaxResults(20);
+ *     form.add(nameField);
+ * } </pre>
+ *
+ * The {@link #setMinLength(int) minLength} and
+ * {@link #setMaxResults(int) maxResults} limits are enforced on the server,
+ * whatever the Autocompleter <tt>minChars</tt> option is set to.
+ *
  * <a name="resources"></a>
  * <h3>CSS and JavaScript resources</h3>
  *
@@ -86,7 +120,7 @@ import org.apache.commons.lang.StringUtils;
  * <a class="external" target="_blank" title="W3C HTML 4.01 Specification"
  *    href="http://www.w3.org/TR/html401/interact/forms.html#h-17.4">INPUT</a>
  */
-public abstract class AutoCompleteTextField extends TextField {
+public class AutoCompleteTextField extends TextField {
 
     // Constants --------------------------------------------------------------
 
@@ -110,6 +144,24 @@ public abstract class AutoCompleteTextField extends TextField {
     /** The Field Ajax Behavior provides autocomplete support. */
     protected Behavior behavior;
 
+    /** The source of suggested values, used if getAutoCompleteList is not overridden. */
+    protected SuggestionSource suggestionSource;
+
+    /** The shared cache of rendered suggestion lists. */
+    protected SuggestionCache suggestionCache;
+
+    /**
+     * The minimum search criteria length for which values are suggested,
+     * default value is 0.
+     */
+    protected int minLength;
+
+    /**
+     * The maximum number of suggested values, default value is 0 which
+     * means no limit.
+     */
+    protected int maxResults;
+
     // Constructors -----------------------------------------------------------
 
     /**
@@ -178,17 +230,109 @@ public abstract class AutoCompleteTextField extends TextField {
     public AutoCompleteTextField() {
     }
 
-    // Abstract Methods -------------------------------------------------------
+    // Public Methods ---------------------------------------------------------
 
     /**
      * Return the list of suggested values for the given search criteria.
+     * <p/>
+     * By default the values are returned by the field
+     * {@link #setSuggestionSource(SuggestionSource) suggestion source}.
+     * Override this method to provide the values another way.
      *
      * @param criteria the search criteria
      * @return the list of suggested values for the given search criteria
+     * @throws IllegalStateException if no suggestion source is defined
      */
-    abstract public List<?> getAutoCompleteList(String criteria);
+    public List<?> getAutoCompleteList(String criteria) {
+        if (suggestionSource == null) {
+            throw new IllegalStateException("AutoCompleteTextField suggestion"
+                + " source is not defined. Set the suggestion source or"
+                + " override getAutoCompleteList().");
+        }
+        int limit = (maxResults > 0) ? maxResults : Integer.MAX_VALUE;
+        return suggestionSource.getSuggestions(criteria, limit);
+    }
 
-    // Public Methods ---------------------------------------------------------
+    /**
+     * Return the source of suggested values.
+     *
+     * @return the source of suggested values
+     */
+    public SuggestionSource getSuggestionSource() {
+        return suggestionSource;
+    }
+
+    /**
+     * Set the source of suggested values, which is used by the default
+     * {@link #getAutoCompleteList(String)} implementation.
+     *
+     * @param suggestionSource the source of suggested values
+     */
+    public void setSuggestionSource(SuggestionSource suggestionSource) {
+        this.suggestionSource = suggestionSource;
+    }
+
+    /**
+     * Return the shared cache of rendered suggestion lists.
+     *
+     * @return the shared cache of rendered suggestion lists
+     */
+    public SuggestionCache getSuggestionCache() {
+        return suggestionCache;
+    }
+
+    /**
+     * Set the shared cache of rendered suggestion lists.
+     * <p/>
+     * <b>Please note</b>: cached lists are keyed on the normalized, lower
+     * case, search criteria. Only set a cache if the suggested values do not
+     * depend on the case of the criteria.
+     *
+     * @param suggestionCache the shared cache of rendered suggestion lists
+     */
+    public void setSuggestionCache(SuggestionCache suggestionCache) {
+        this.suggestionCache = suggestionCache;
+    }
+
+    /**
+     * Return the minimum search criteria length for which values are
+     * suggested.
+     *
+     * @return the minimum search criteria length
+     */
+    public int getMinLength() {
+        return minLength;
+    }
+
+    /**
+     * Set the minimum search criteria length for which values are suggested.
+     * Shorter criteria return an empty list without calling
+     * {@link #getAutoCompleteList(String)}.
+     *
+     * @param minLength the minimum search criteria length
+     */
+    public void setMinLength(int minLength) {
+        this.minLength = minLength;
+    }
+
+    /**
+     * Return the maximum number of suggested values, or 0 if there is no
+     * limit.
+     *
+     * @return the maximum number of suggested values
+     */
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * Set the maximum number of suggested values, or 0 for no limit.
+     *
+     * @param maxResults the maximum number of suggested values
+     */
+    public void setMaxResults(int maxResults) {
+        this.maxResults = maxResults;
+    }
 
     /**
      * Return the JavaScript 'script.aculo.us' Autocompleter initialization
@@ -451,11 +595,9 @@ public abstract class AutoCompleteTextField extends TextField {
                 actionResult.setContentType(getPage().getContentType());
                 actionResult.setCharacterEncoding(getPage().getCharacterEncoding());
 
-                List<?> autocompleteList = getAutoCompleteList(getValue());
-                if (autocompleteList != null) {
-                    HtmlStringBuffer buffer = new HtmlStringBuffer(10 + (autocompleteList.size() * 20));
-                    renderAutoCompleteList(buffer, autocompleteList);
-                    actionResult.setContent(buffer.toString());
+                String content = getSuggestionContent(getValue());
+                if (content != null) {
+                    actionResult.setContent(content);
                 }
                 return actionResult;
             }
@@ -464,6 +606,89 @@ public abstract class AutoCompleteTextField extends TextField {
         return internalBehavior;
     }
 
+    /**
+     * Return the rendered list of suggested values for the given search
+     * criteria, or null if {@link #getAutoCompleteList(String)} returns null.
+     * <p/>
+     * Criteria shorter than the {@link #getMinLength() minLength} return an
+     * empty list, and the list is truncated to the
+     * {@link #getMaxResults() maxResults}. If a
+     * {@link #getSuggestionCache() suggestion cache} is set the rendered list
+     * is returned from the cache when available.
+     *
+     * @param criteria the search criteria
+     * @return the rendered list of suggested values
+     */
+    protected String getSuggestionContent(String criteria) {
+        if (criteria == null) {
+            criteria = "";
+        }
+
+        if (criteria.trim().length() < getMinLength()) {
+            HtmlStringBuffer buffer = new HtmlStringBuffer(10);
+            renderAutoCompleteList(buffer, Collections.emptyList());
+            return buffer.toString();
+        }
+
+        SuggestionCache cache = getSuggestionCache();
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = getSuggestionCacheKey(criteria);
+            String content = cache.get(cacheKey);
+            if (content != null) {
+                return content;
+            }
+        }
+
+        List<?> autocompleteList = getAutoCompleteList(criteria);
+        if (autocompleteList == null) {
+            return null;
+        }
+        if (maxResults > 0 && autocompleteList.size() > maxResults) {
+            autocompleteList = autocompleteList.subList(0, maxResults);
+        }
+
+        HtmlStringBuffer buffer = new HtmlStringBuffer(10 + (autocompleteList.size() * 20));
+        renderAutoCompleteList(buffer, autocompleteList);
+        String content = buffer.toString();
+
+        if (cache != null) {
+            cache.put(cacheKey, content);
+        }
+        return content;
+    }
+
+    /**
+     * Return the suggestion cache key for the given search criteria. The key
+     * is made of the page class and field id, the request locale, the values
+     * of the additional {@link #getParameters() parameters} and the
+     * normalized criteria.
+     *
+     * @param criteria the search criteria
+     * @return the suggestion cache key for the given search criteria
+     */
+    protected String getSuggestionCacheKey(String criteria) {
+        Context context = getContext();
+        Locale locale = context.getLocale();
+
+        HtmlStringBuffer buffer = new HtmlStringBuffer(64);
+        if (getPage() != null) {
+            buffer.append(getPage().getClass().getName());
+        }
+        buffer.append('#').append(getId());
+        buffer.append('|').append(locale);
+
+        if (hasParameters()) {
+            for (String name : new TreeSet<String>(getParameters().keySet())) {
+                buffer.append('|').append(name).append('=');
+                buffer.append(context.getRequestParameter(name));
+            }
+        }
+
+        buffer.append('|').append(criteria.toLowerCase(locale));
+        return buffer.toString();
+    }
+
     /**
      * Render the suggested auto completion list to the servlet response.
      *
@@ -437,14 +437,16 @@ public class CreditCardField extends TextField {
             String cardType = getCardType();
 
             // Strip spaces and '-' chars
-            HtmlStringBuffer buffer = new HtmlStringBuffer(value.length());
-            for (int i = 0, size = value.length(); i < size; i++) {
-                char aChar = value.charAt(i);
-                if (aChar != '-' && aChar != ' ') {
-                    buffer.append(aChar);
+            if (value.indexOf('-') != -1 || value.indexOf(' ') != -1) {
+                HtmlStringBuffer buffer = new HtmlStringBuffer(value.length());
+                for (int i = 0, size = value.length(); i < size; i++) {
+                    char aChar = value.charAt(i);
+                    if (aChar != '-' && aChar != ' ') {
+                        buffer.append(aChar);
+                    }
                 }
+                value = buffer.toString();
             }
-            value = buffer.toString();
 
             final int length = value.length();
 
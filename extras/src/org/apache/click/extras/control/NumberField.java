@@ -30,6 +30,7 @@ import org.apache.click.control.TextField;
 import org.apache.click.element.Element;
 import org.apache.click.element.JsImport;
 import org.apache.click.util.ClickUtils;
+import org.apache.click.util.ValidatorRegistry;
 
 /**
  * Provides a Number Field control: &nbsp; &lt;input type='text'&gt;.
@@ -314,13 +315,7 @@ public class NumberField extends TextField {
         if (numberFormat == null) {
 
             Locale locale = getContext().getLocale();
-            numberFormat = NumberFormat.getInstance(locale);
-
-            if (getPattern() != null
-                && numberFormat instanceof DecimalFormat) {
-
-                ((DecimalFormat) numberFormat).applyPattern(getPattern());
-            }
+            numberFormat = ValidatorRegistry.getNumberFormat(locale, getPattern());
         }
 
         return numberFormat;
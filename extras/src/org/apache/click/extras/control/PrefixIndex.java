@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.extras.control;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Provides a thread safe in memory prefix index of suggested values, which
+ * avoids querying the database for every {@link AutoCompleteTextField}
+ * keystroke.
+ * <p/>
+ * The values are held in a sorted array and matched case insensitively by
+ * binary search, so a lookup costs O(log n) plus the number of results. The
+ * index is shared between requests, so it is typically held in a static
+ * field:
+ *
+ * <pre class="prettyprint">
+ * private static final PrefixIndex CITY_INDEX = new PrefixIndex() {
+ *     protected Collection&lt;?&gt; loadValues() {
+ *         return getCityService().getCityNames();
+ *     }
+ * };
+ *
+ * public void onInit() {
+ *     AutoCompleteTextField cityField = new AutoCompleteTextField("city");
+ *     cityField.setSuggestionSource(CITY_INDEX);
+ *     form.add(cityField);
+ * } </pre>
+ *
+ * The values are loaded by {@link #loadValues()} on the first lookup.
+ * Call {@link #refresh()} to load them again, or {@link #setValues(Collection)}
+ * to replace them. Lookups running during a refresh continue to use the
+ * previous values.
+ */
+public class PrefixIndex implements SuggestionSource {
+
+    // Instance Variables -----------------------------------------------------
+
+    /** The locale used to normalize values, defaults to English. */
+    protected final Locale locale;
+
+    /** The indexed values, replaced as a whole on refresh. */
+    private volatile Snapshot snapshot;
+
+    // Constructors -----------------------------------------------------------
+
+    /**
+     * Create an empty prefix index, which loads its values from
+     * {@link #loadValues()} on the first lookup.
+     */
+    public PrefixIndex() {
+        this.locale = Locale.ENGLISH;
+    }
+
+    /**
+     * Create a prefix index of the given values.
+     *
+     * @param values the values to index
+     */
+    public PrefixIndex(Collection<?> values) {
+        this(values, Locale.ENGLISH);
+    }
+
+    /**
+     * Create a prefix index of the given values, which are normalized with
+     * the given locale.
+     *
+     * @param values the values to index
+     * @param locale the locale used to normalize the values
+     */
+    public PrefixIndex(Collection<?> values, Locale locale) {
+        if (locale == null) {
+            throw new IllegalArgumentException("Null locale parameter");
+        }
+        this.locale = locale;
+        setValues(values);
+    }
+
+    // Public Methods ---------------------------------------------------------
+
+    /**
+     * Return the indexed values which start with the given prefix, ignoring
+     * case, in sort order.
+     *
+     * @see SuggestionSource#getSuggestions(String, int)
+     *
+     * @param prefix the prefix typed by the user
+     * @param maxResults the maximum number of values to return
+     * @return the indexed values which start with the given prefix
+     */
+    public List<?> getSuggestions(String prefix, int maxResults) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+                current = snapshot;
+            }
+        }
+
+        String[] currentKeys = current.keys;
+
+        String key = normalize(prefix != null ? prefix : "");
+
+        int index = Arrays.binarySearch(currentKeys, key);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            while (index > 0 && currentKeys[index - 1].equals(key)) {
+                index--;
+            }
+        }
+
+        List<Object> results = new ArrayList<Object>();
+        while (index < currentKeys.length
+            && results.size() < maxResults
+            && currentKeys[index].startsWith(key)) {
+
+            results.add(current.values[index]);
+            index++;
+        }
+
+        return results;
+    }
+
+    /**
+     * Replace the indexed values. Null values are ignored.
+     *
+     * @param values the values to index
+     */
+    public void setValues(Collection<?> values) {
+        List<Entry> entryList = new ArrayList<Entry>();
+        if (values != null) {
+            for (Object value : values) {
+                if (value != null) {
+                    entryList.add(new Entry(normalize(value.toString()), value));
+                }
+            }
+        }
+
+        Entry[] entries = entryList.toArray(new Entry[entryList.size()]);
+        Arrays.sort(entries);
+
+        String[] newKeys = new String[entries.length];
+        Object[] newValues = new Object[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            newKeys[i] = entries[i].key;
+            newValues[i] = entries[i].value;
+        }
+
+        snapshot = new Snapshot(newKeys, newValues);
+    }
+
+    /**
+     * Load the indexed values again from {@link #loadValues()}.
+     */
+    public void refresh() {
+        setValues(loadValues());
+    }
+
+    /**
+     * Return the number of indexed values.
+     *
+     * @return the number of indexed values
+     */
+    public int size() {
+        Snapshot current = snapshot;
+        return (current != null) ? current.keys.length : 0;
+    }
+
+    // Protected Methods ------------------------------------------------------
+
+    /**
+     * Return the values to index. This method is called on the first lookup
+     * and by {@link #refresh()}.
+     * <p/>
+     * This method returns an empty list by default, override it to load the
+     * values from a database or service.
+     *
+     * @return the values to index
+     */
+    protected Collection<?> loadValues() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Return the normalized form of the given value, which is used to match
+     * prefixes. By default the value is converted to lower case.
+     *
+     * @param value the value to normalize
+     * @return the normalized value
+     */
+    protected String normalize(String value) {
+        return value.toLowerCase(locale);
+    }
+
+    // Inner Classes ----------------------------------------------------------
+
+    /**
+     * Provides the sorted normalized values and the original values in the
+     * same order.
+     */
+    private static class Snapshot {
+
+        /** The sorted normalized values. */
+        final String[] keys;
+
+        /** The original values in the order of their keys. */
+        final Object[] values;
+
+        Snapshot(String[] keys, Object[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Provides an index entry sorted by its normalized key.
+     */
+    private static class Entry implements Comparable<Entry> {
+
+        /** The normalized value. */
+        final String key;
+
+        /** The original value. */
+        final Object value;
+
+        Entry(String key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public int compareTo(Entry entry) {
+            return key.compareTo(entry.key);
+        }
+    }
+}
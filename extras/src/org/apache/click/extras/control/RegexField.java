@@ -20,13 +20,13 @@ package org.apache.click.extras.control;
 
 import java.text.MessageFormat;
 import java.util.List;
-import java.util.regex.Pattern;
 import org.apache.click.Context;
 
 import org.apache.click.control.TextField;
 import org.apache.click.element.Element;
 import org.apache.click.element.JsImport;
 import org.apache.click.util.ClickUtils;
+import org.apache.click.util.ValidatorRegistry;
 
 /**
  * Provides a Regex Field control: &nbsp; &lt;input type='text'&gt;.
@@ -58,11 +58,11 @@ import org.apache.click.util.ClickUtils;
  * <a href="http://java.sun.com/j2se/1.4.2/docs/api/java/util/regex/Pattern.html">Pattern</a>
  * Javadoc.
  * <p/>
- * Note for performance reasons the regular expression pattern is compiled when
- * the field is processed not when its value is set. If you set an invalid
- * expression pattern a
+ * Note for performance reasons the compiled regular expression pattern is
+ * cached by the {@link ValidatorRegistry} and shared between all fields using
+ * the same expression. If you set an invalid expression pattern a
  * <a href="http://java.sun.com/j2se/1.4.2/docs/api/java/util/regex/PatternSyntaxException.html">PatternSyntaxException</a>
- * will be thrown by the {@link #onProcess()} method.
+ * will be thrown by the {@link #setPattern(String)} method.
  *
  * <a name="resources"></a>
  * <h3>CSS and JavaScript resources</h3>
@@ -206,7 +206,7 @@ public class RegexField extends TextField {
      * @throws java.util.regex.PatternSyntaxException if the regular expression pattern cannot be compiled
      */
     public void setPattern(String pattern) {
-        Pattern.compile(pattern);
+        ValidatorRegistry.getPattern(pattern);
         this.pattern = pattern;
     }
 
@@ -302,7 +302,7 @@ public class RegexField extends TextField {
             String value = getValue();
             String pattern = getPattern();
 
-            if (pattern != null && !Pattern.matches(pattern, value)) {
+            if (pattern != null && !ValidatorRegistry.matches(pattern, value)) {
                 setErrorMessage("field-pattern-error", pattern);
             }
         }
@@ -25,6 +25,7 @@ import javax.servlet.http.HttpServletRequest;
 import org.apache.click.Context;
 import org.apache.click.control.ActionLink;
 import org.apache.click.control.Form;
+import org.apache.click.control.LinkTemplate;
 import org.apache.click.element.Element;
 import org.apache.click.element.JsImport;
 import org.apache.click.util.ClickUtils;
@@ -492,6 +493,24 @@ public class SubmitLink extends ActionLink {
         super.render(buffer);
     }
 
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * This method returns null since the SubmitLink href parameters are
+     * prefixed when the SubmitLink is included inside a Form, which link
+     * templates do not support.
+     *
+     * @param context the request context
+     * @param variableParameters the names of the parameters to encode on
+     * every render
+     * @return null
+     */
+    @Override
+    protected LinkTemplate createLinkTemplate(Context context,
+        Set<String> variableParameters) {
+        return null;
+    }
+
     // -------------------------------------------------------- Private Methods
 
     /**
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.extras.control;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Provides a thread safe, bounded cache of rendered
+ * {@link AutoCompleteTextField} suggestion lists, so that repeated
+ * keystrokes of the same prefix are served without querying the
+ * suggestion source or rendering the list again.
+ * <p/>
+ * Fragments are keyed on the field, the normalized prefix and the request
+ * locale. The least recently used fragments are removed once the cache is
+ * full, and fragments older than the time to live are not returned. The cache
+ * is shared between requests, so it is typically held in a static field:
+ *
+ * <pre class="prettyprint">
+ * private static final SuggestionCache CITY_CACHE = new SuggestionCache(500, 5 * 60 * 1000);
+ *
+ * public void onInit() {
+ *     AutoCompleteTextField cityField = new AutoCompleteTextField("city");
+ *     cityField.setSuggestionSource(CITY_INDEX);
+ *     cityField.setSuggestionCache(CITY_CACHE);
+ *     form.add(cityField);
+ * } </pre>
+ *
+ * Call {@link #clear()} after the suggested values have changed, for example
+ * after a {@link PrefixIndex#refresh()}.
+ */
+public class SuggestionCache {
+
+    // Constants --------------------------------------------------------------
+
+    /** The default maximum number of cached fragments. */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    // Instance Variables -----------------------------------------------------
+
+    /** The maximum number of cached fragments. */
+    protected final int maxSize;
+
+    /** The fragment time to live in milliseconds, 0 if fragments do not expire. */
+    protected final long timeToLive;
+
+    /** The cached fragments in access order, guarded by this. */
+    private final Map<String, CacheEntry> cache;
+
+    /** The number of lookups which found a fragment, guarded by this. */
+    private long hits;
+
+    /** The number of lookups which found no fragment, guarded by this. */
+    private long misses;
+
+    // Constructors -----------------------------------------------------------
+
+    /**
+     * Create a suggestion cache with the default maximum size, whose
+     * fragments do not expire.
+     */
+    public SuggestionCache() {
+        this(DEFAULT_MAX_SIZE, 0);
+    }
+
+    /**
+     * Create a suggestion cache with the given maximum size and time to live.
+     *
+     * @param maxSize the maximum number of cached fragments
+     * @param timeToLive the fragment time to live in milliseconds, or 0 if
+     * fragments do not expire
+     */
+    public SuggestionCache(int maxSize, long timeToLive) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Invalid maxSize: " + maxSize);
+        }
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("Invalid timeToLive: " + timeToLive);
+        }
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        this.cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > SuggestionCache.this.maxSize;
+            }
+        };
+    }
+
+    // Public Methods ---------------------------------------------------------
+
+    /**
+     * Return the cached fragment for the given key, or null if none is cached
+     * or it has expired.
+     *
+     * @param key the fragment key
+     * @return the cached fragment, or null
+     */
+    public synchronized String get(String key) {
+        CacheEntry entry = cache.get(key);
+        if (entry != null && timeToLive > 0
+            && System.currentTimeMillis() - entry.created > timeToLive) {
+
+            cache.remove(key);
+            entry = null;
+        }
+        if (entry != null) {
+            hits++;
+            return entry.content;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Cache the fragment under the given key, removing the least recently
+     * used fragment if the cache is full.
+     *
+     * @param key the fragment key
+     * @param content the rendered fragment
+     */
+    public synchronized void put(String key, String content) {
+        cache.put(key, new CacheEntry(content, System.currentTimeMillis()));
+    }
+
+    /**
+     * Remove all cached fragments.
+     */
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Return the number of cached fragments.
+     *
+     * @return the number of cached fragments
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * Return the number of lookups which found a fragment.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Return the number of lookups which found no fragment.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    // Inner Classes ----------------------------------------------------------
+
+    /**
+     * Provides a cached fragment and its creation time.
+     */
+    private static class CacheEntry {
+
+        /** The rendered fragment. */
+        final String content;
+
+        /** The creation time in milliseconds. */
+        final long created;
+
+        CacheEntry(String content, long created) {
+            this.content = content;
+            this.created = created;
+        }
+    }
+}
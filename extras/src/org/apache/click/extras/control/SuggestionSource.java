@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.extras.control;
+
+import java.util.List;
+
+/**
+ * Provides the suggested values of an {@link AutoCompleteTextField}.
+ * <p/>
+ * A suggestion source is typically shared between requests, for example a
+ * {@link PrefixIndex} held in a static field, and must be thread safe.
+ *
+ * @see AutoCompleteTextField#setSuggestionSource(SuggestionSource)
+ */
+public interface SuggestionSource {
+
+    /**
+     * Return the suggested values starting with the given prefix.
+     *
+     * @param prefix the prefix typed by the user
+     * @param maxResults the maximum number of values to return
+     * @return the suggested values starting with the given prefix
+     */
+    public List<?> getSuggestions(String prefix, int maxResults);
+
+}
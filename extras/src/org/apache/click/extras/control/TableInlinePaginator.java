@@ -102,12 +102,12 @@ public class TableInlinePaginator extends TablePaginator {
         if (table.getPageNumber() > 0) {
             controlLink.setDisabled(false);
             controlLink.setImageSrc(paginatorMessages.getMessage("table-inline-first-image"));
-            controlLink.setParameter(Table.PAGE, String.valueOf(0));
+            setPageParameter(controlLink, 0);
             controlLink.setTitle(table.getMessage("table-first-title"));
             firstLabel = controlLink.toString();
 
             controlLink.setImageSrc(paginatorMessages.getMessage("table-inline-previous-image"));
-            controlLink.setParameter(Table.PAGE, String.valueOf(table.getPageNumber() - 1));
+            setPageParameter(controlLink, table.getPageNumber() - 1);
             controlLink.setTitle(table.getMessage("table-previous-title"));
             previousLabel = controlLink.toString();
 
@@ -129,11 +129,8 @@ public class TableInlinePaginator extends TablePaginator {
             new HtmlStringBuffer(table.getNumberPages() * 70);
 
         // Create sliding window of paging links
-        int lowerBound = Math.max(0, table.getPageNumber() - 5);
-        int upperBound = Math.min(lowerBound + 10, table.getNumberPages());
-        if (upperBound - lowerBound < 10) {
-            lowerBound = Math.max(upperBound - 10, 0);
-        }
+        int lowerBound = getLowerBound();
+        int upperBound = getUpperBound(lowerBound);
 
         controlLink.setImageSrc(null);
         controlLink.setDisabled(false);
@@ -146,7 +143,7 @@ public class TableInlinePaginator extends TablePaginator {
 
             } else {
                 controlLink.setLabel(pageNumber);
-                controlLink.setParameter(Table.PAGE, String.valueOf(i));
+                setPageParameter(controlLink, i);
                 controlLink.setTitle(gotoTitle + " " + pageNumber);
                 pagesBuffer.append(controlLink.toString());
             }
@@ -159,16 +156,25 @@ public class TableInlinePaginator extends TablePaginator {
         String nextLabel = "";
         String lastLabel = "";
 
-        if (table.getPageNumber() < table.getNumberPages() - 1) {
+        if (table.hasNextPage()) {
             controlLink.setDisabled(false);
             controlLink.setImageSrc(paginatorMessages.getMessage("table-inline-next-image"));
-            controlLink.setParameter(Table.PAGE, String.valueOf(table.getPageNumber() + 1));
+            setPageParameter(controlLink, table.getPageNumber() + 1);
             controlLink.setTitle(table.getMessage("table-next-title"));
             nextLabel = controlLink.toString();
 
-            controlLink.setImageSrc(paginatorMessages.getMessage("table-inline-last-image"));
-            controlLink.setParameter(Table.PAGE, String.valueOf(table.getNumberPages() - 1));
-            controlLink.setTitle(table.getMessage("table-last-title"));
+            // The last page cannot be sought without the total number of rows
+            if (table.isKeysetPaging()) {
+                controlLink.setDisabled(true);
+                controlLink.setImageSrc(paginatorMessages.getMessage("table-inline-last-disabled-image"));
+                controlLink.setParameter(Table.PAGE, null);
+                controlLink.setParameter(Table.KEY, null);
+                controlLink.setTitle(null);
+            } else {
+                controlLink.setImageSrc(paginatorMessages.getMessage("table-inline-last-image"));
+                setPageParameter(controlLink, table.getNumberPages() - 1);
+                controlLink.setTitle(table.getMessage("table-last-title"));
+            }
             lastLabel = controlLink.toString();
 
         } else {
@@ -188,6 +194,8 @@ public class TableInlinePaginator extends TablePaginator {
         controlLink.setDisabled(false);
         controlLink.setImageSrc(null);
         controlLink.setTitle(null);
+        controlLink.setParameter(Table.KEY, null);
+        controlLink.setParameter(Table.PREVIOUS, null);
 
         final String pageLinks = pagesBuffer.toString();
 
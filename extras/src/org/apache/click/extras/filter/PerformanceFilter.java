@@ -19,10 +19,17 @@
 package org.apache.click.extras.filter;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -37,6 +44,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.click.service.ConfigService;
 import org.apache.click.util.ClickUtils;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 
 /**
@@ -117,6 +125,35 @@ import org.apache.commons.lang.StringUtils;
  * When you increment the <tt>application version</tt>, the resource path will
  * change and the static resources will be requested again and cached by the
  * browser.
+ *
+ * <h3>Content Hash Versioning</h3>
+ * Incrementing the <tt>application version</tt> changes the path of every
+ * application resource, so all of them are requested again after each
+ * release. Setting the <tt>init-param</tt>
+ * <span class="blue">"content-hash-versioning"</span> to true versions each
+ * resource by a hash of its content instead:
+ *
+ * <pre class="codeConfig">
+ * &lt;init-param&gt;
+ *   &lt;param-name&gt;<font color="blue">content-hash-versioning</font>&lt;/param-name&gt;
+ *   &lt;param-value&gt;<font color="red">true</font>&lt;/param-value&gt;
+ * &lt;/init-param&gt; </pre>
+ *
+ * When the filter is first invoked it hashes the files which match the
+ * <span class="blue">"cacheable-paths"</span>, and registers the hashes
+ * through {@link ClickUtils#setApplicationResourceVersions(java.util.Map)}.
+ * {@link org.apache.click.element.JsImport JsImport} and
+ * {@link org.apache.click.element.CssImport CssImport} then render the path
+ * <tt>/assets/style.css</tt> as <tt>/assets/style_3f2a9c0b1d4e5f60.css</tt>.
+ * Only resources whose content changed get a new path in a new release.
+ * <p/>
+ * The filter serves these hashed paths from an in memory cache with an
+ * immutable, 1 year cache header. Files larger than the
+ * <span class="blue">"content-hash-max-cache-size"</span>, default 512 KB,
+ * are forwarded to the real resource path instead of being cached.
+ * Resources under <tt>/WEB-INF/</tt>, <tt>/META-INF/</tt> and
+ * <tt>/click/</tt> are never hashed. The files are hashed once, so changes
+ * made to the files while the application is running are not picked up.
  * <p/>
  * PerformanceFilter provides GZIP compression to compress HTML ServletResponse
  * content. The content will only be compressed if it is bigger than a
@@ -270,6 +307,9 @@ public class PerformanceFilter implements Filter {
     /** Minimum compress threshold: 384 bytes. */
     protected static final int MIN_COMPRESSION_THRESHOLD = 384;
 
+    /** Default content hash max cached file size: 512 KB. */
+    protected static final int DEFAULT_HASH_MAX_CACHE_SIZE = 512 * 1024;
+
     // ----------------------------------------------------- Instance Variables
 
     /** The configured cache max age in seconds, default value is 1 year. */
@@ -308,6 +348,19 @@ public class PerformanceFilter implements Filter {
     /** The application resource version indicator. */
     protected String applicationVersionIndicator = "";
 
+    /** Indicates if content hash versioning is enabled, default value is false. */
+    protected boolean contentHashVersioning;
+
+    /** The maximum file size cached by content hash versioning, default value is 512 KB. */
+    protected int contentHashMaxCacheSize = DEFAULT_HASH_MAX_CACHE_SIZE;
+
+    /**
+     * The content hashed resources, keyed on their versioned path. The map
+     * is unmodifiable and replaced when the resources are hashed.
+     */
+    protected volatile Map<String, HashedResource> hashedResources =
+        Collections.emptyMap();
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -368,7 +421,12 @@ public class PerformanceFilter implements Filter {
         // Enable resource versioning in Click
         request.setAttribute(ClickUtils.ENABLE_RESOURCE_VERSION, "true");
 
-        if (useForeverCacheHeader(path)) {
+        final HashedResource hashedResource = hashedResources.get(path);
+
+        if (hashedResource != null) {
+            setHeaderImmutableCache(response, DEFAULT_CACHE_MAX_AGE);
+
+        } else if (useForeverCacheHeader(path)) {
             setHeaderExpiresCache(response, FOREVER_CACHE_MAX_AGE);
 
         } else if (useConfiguredCacheHeader(path)) {
@@ -400,8 +458,12 @@ public class PerformanceFilter implements Filter {
             wrappedResponse.setCompressionThreshold(compressionThreshold);
 
             try {
+                // If a cached hashed resource, render it from memory
+                if (hashedResource != null && hashedResource.getContent() != null) {
+                    renderHashedResource(wrappedResponse, hashedResource);
+
                 // If a versioned resource path, forward request to real resource path
-                if (isVersionedResourcePath) {
+                } else if (isVersionedResourcePath) {
                     request.getRequestDispatcher(realPath).forward(request, wrappedResponse);
 
                 // Else chain filter
@@ -414,8 +476,12 @@ public class PerformanceFilter implements Filter {
             }
 
         } else {
+            // If a cached hashed resource, render it from memory
+            if (hashedResource != null && hashedResource.getContent() != null) {
+                renderHashedResource(response, hashedResource);
+
             // If a versioned resource path, forward request to real resource path
-            if (isVersionedResourcePath) {
+            } else if (isVersionedResourcePath) {
                 request.getRequestDispatcher(realPath).forward(request, response);
 
             // Else chain filter
@@ -576,11 +642,38 @@ public class PerformanceFilter implements Filter {
             }
         }
 
+        param = filterConfig.getInitParameter("content-hash-max-cache-size");
+        if (param != null) {
+            contentHashMaxCacheSize = Integer.parseInt(param);
+        }
+
+        param = filterConfig.getInitParameter("content-hash-versioning");
+        if (StringUtils.isNotBlank(param)) {
+            contentHashVersioning = Boolean.parseBoolean(param);
+        }
+
+        if (contentHashVersioning) {
+            try {
+                loadHashedResources(servletContext);
+
+            } catch (IOException ioe) {
+                String msg = "PerformanceFilter could not hash resources, "
+                    + "content hash versioning disabled";
+                getConfigService().getLogService().error(msg, ioe);
+                hashedResources = Collections.emptyMap();
+            }
+        }
+
         String message =
             "PerformanceFilter initialized with: cacheable-paths="
             + filterConfig.getInitParameter("cacheable-paths")
             + " and cacheable-max-age=" + cacheMaxAge;
 
+        if (contentHashVersioning) {
+            message += " and content-hash-versioning of "
+                + hashedResources.size() + " resources";
+        }
+
         getConfigService().getLogService().info(message);
 
         configured = true;
@@ -657,6 +750,11 @@ public class PerformanceFilter implements Filter {
      * @return path without the version indicator
      */
     protected String stripResourceVersionIndicator(String path) {
+        HashedResource hashedResource = hashedResources.get(path);
+        if (hashedResource != null) {
+            return hashedResource.getPath();
+        }
+
         String realPath = path;
 
         realPath = StringUtils.replace(realPath,
@@ -681,6 +779,105 @@ public class PerformanceFilter implements Filter {
         response.setHeader("Cache-Control", "max-age=" + maxAgeSeconds);
     }
 
+    /**
+     * Set the response "Expires" and "Cache-Control" headers for a resource
+     * whose content never changes under its path, with the given maximum
+     * cache duration age in seconds.
+     *
+     * @param response the response to set the headers in
+     * @param maxAgeSeconds the maximum cache duration in seconds
+     */
+    protected void setHeaderImmutableCache(HttpServletResponse response, long maxAgeSeconds) {
+        long expiresMs = System.currentTimeMillis() + (maxAgeSeconds * 1000);
+        response.setDateHeader("Expires", expiresMs);
+        response.setHeader("Cache-Control", "public, max-age=" + maxAgeSeconds + ", immutable");
+    }
+
+    /**
+     * Hash the cacheable application resources, registering their content
+     * hash versions with {@link ClickUtils#setApplicationResourceVersions(java.util.Map)}.
+     * Only resources matching the <tt>cacheable-paths</tt> and not matching
+     * the <tt>exclude-paths</tt> are hashed.
+     *
+     * @param servletContext the application servlet context
+     * @throws IOException if a resource could not be read
+     */
+    protected void loadHashedResources(ServletContext servletContext) throws IOException {
+        Set<String> resourcePaths = new TreeSet<String>();
+
+        if (includeFiles.isEmpty()) {
+            for (String dir : includeDirs) {
+                collectResourcePaths(servletContext,
+                    dir.substring(0, dir.lastIndexOf('/') + 1), resourcePaths);
+            }
+        } else {
+            collectResourcePaths(servletContext, "/", resourcePaths);
+        }
+
+        Map<String, HashedResource> resources = new HashMap<String, HashedResource>();
+        Map<String, String> versions = new HashMap<String, String>();
+
+        for (String path : resourcePaths) {
+            if (!useConfiguredCacheHeader(path) || isExcludePath(path)) {
+                continue;
+            }
+
+            int extensionIndex = path.lastIndexOf('.');
+            if (extensionIndex <= path.lastIndexOf('/')) {
+                continue;
+            }
+
+            InputStream inputStream = servletContext.getResourceAsStream(path);
+            if (inputStream == null) {
+                continue;
+            }
+
+            byte[] content = null;
+            try {
+                content = IOUtils.toByteArray(inputStream);
+            } finally {
+                ClickUtils.close(inputStream);
+            }
+
+            String hash = ClickUtils.toContentHash(content);
+
+            String versionedPath = path.substring(0, extensionIndex)
+                + ClickUtils.VERSION_INDICATOR_SEP + hash
+                + path.substring(extensionIndex);
+
+            if (content.length > contentHashMaxCacheSize) {
+                content = null;
+            }
+
+            resources.put(versionedPath, new HashedResource(path,
+                servletContext.getMimeType(path), content));
+
+            versions.put(path, hash);
+        }
+
+        hashedResources = Collections.unmodifiableMap(resources);
+        ClickUtils.setApplicationResourceVersions(versions);
+    }
+
+    /**
+     * Render the cached content of the given hashed resource to the response.
+     *
+     * @param response the response to render to
+     * @param hashedResource the hashed resource to render
+     * @throws IOException if an I/O error occurs
+     */
+    protected void renderHashedResource(HttpServletResponse response,
+            HashedResource hashedResource) throws IOException {
+
+        if (hashedResource.getContentType() != null) {
+            response.setContentType(hashedResource.getContentType());
+        }
+
+        OutputStream outputStream = response.getOutputStream();
+        outputStream.write(hashedResource.getContent());
+        outputStream.flush();
+    }
+
     /**
      * Return true if a path is a static versioned resource and should be
      * cached forever.
@@ -776,5 +973,95 @@ public class PerformanceFilter implements Filter {
         return false;
     }
 
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Add the file paths under the given directory path to the set,
+     * skipping the WEB-INF, META-INF and Click resource directories.
+     *
+     * @param servletContext the application servlet context
+     * @param dirPath the directory path to scan
+     * @param resourcePaths the set of file paths to add to
+     */
+    private void collectResourcePaths(ServletContext servletContext,
+            String dirPath, Set<String> resourcePaths) {
+
+        Set<?> paths = servletContext.getResourcePaths(dirPath);
+        if (paths == null) {
+            return;
+        }
+
+        for (Object value : paths) {
+            String path = (String) value;
+
+            if (path.endsWith("/")) {
+                if (!path.equals("/WEB-INF/") && !path.equals("/META-INF/")
+                    && !path.equals("/click/")) {
+                    collectResourcePaths(servletContext, path, resourcePaths);
+                }
+            } else {
+                resourcePaths.add(path);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Provides a content hashed application resource.
+     */
+    protected static class HashedResource {
+
+        /** The resource path, without the content hash. */
+        private final String path;
+
+        /** The resource content type. */
+        private final String contentType;
+
+        /** The cached resource content, or null if the resource is not cached. */
+        private final byte[] content;
+
+        /**
+         * Create a hashed resource.
+         *
+         * @param path the resource path, without the content hash
+         * @param contentType the resource content type
+         * @param content the cached resource content, or null if the
+         * resource is not cached
+         */
+        public HashedResource(String path, String contentType, byte[] content) {
+            this.path = path;
+            this.contentType = contentType;
+            this.content = content;
+        }
+
+        /**
+         * Return the resource path, without the content hash.
+         *
+         * @return the resource path
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Return the resource content type.
+         *
+         * @return the resource content type
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Return the cached resource content, or null if the resource is not
+         * cached.
+         *
+         * @return the cached resource content
+         */
+        public byte[] getContent() {
+            return content;
+        }
+    }
 }
 
@@ -20,6 +20,8 @@ package org.apache.click.extras.service;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.ServletContext;
@@ -29,6 +31,8 @@ import org.apache.click.service.ConfigService;
 import org.apache.click.service.LogService;
 import org.apache.click.service.TemplateException;
 import org.apache.click.service.TemplateService;
+import org.apache.click.service.TemplateWarmUp;
+import org.apache.click.service.XmlConfigService;
 import org.apache.click.util.ClickUtils;
 import org.apache.commons.lang.Validate;
 
@@ -68,6 +72,10 @@ import freemarker.template.TemplateExceptionHandler;
  * To ensure Click uses your template instead of the default one, copy/paste
  * the template below to the web application path <em>/click/error.htm</em>.
  * Click won't override your custom template.
+ * <p/>
+ * To parse all the application templates when the service is initialized,
+ * rather than on their first request, set the <tt>warmUp</tt> property, see
+ * {@link TemplateWarmUp} for details.
  *
  * <pre class="prettyprint">
  * &lt;html&gt;
@@ -145,6 +153,15 @@ public class FreemarkerTemplateService implements TemplateService {
     /** The /click/not-found.htm page template has been deployed. */
     protected boolean deployedNotFoundTemplate;
 
+    /** The parse all templates on initialization flag. */
+    protected boolean warmUp;
+
+    /** The parse templates on a background thread flag. */
+    protected boolean warmUpInBackground;
+
+    /** The template warm-up, if enabled. */
+    protected TemplateWarmUp templateWarmUp;
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -227,12 +244,20 @@ public class FreemarkerTemplateService implements TemplateService {
         } catch (IOException ioe) {
             /* ignore */
         }
+
+        if (warmUp) {
+            warmUpTemplates(servletContext);
+        }
     }
 
     /**
      * @see TemplateService#onDestroy()
      */
     public void onDestroy() {
+        if (templateWarmUp != null) {
+            templateWarmUp.stop();
+            templateWarmUp = null;
+        }
     }
 
     /**
@@ -312,4 +337,80 @@ public class FreemarkerTemplateService implements TemplateService {
         this.cacheDuration = cacheDuration;
     }
 
+    /**
+     * Return true if all templates are parsed when the service is initialized.
+     *
+     * @return true if all templates are parsed when the service is initialized
+     */
+    public boolean isWarmUp() {
+        return warmUp;
+    }
+
+    /**
+     * Set whether all templates are parsed when the service is initialized.
+     *
+     * @param warmUp true if all templates are parsed when the service is
+     * initialized
+     */
+    public void setWarmUp(boolean warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    /**
+     * Return true if the template warm-up runs on a background thread.
+     *
+     * @return true if the template warm-up runs on a background thread
+     */
+    public boolean isWarmUpInBackground() {
+        return warmUpInBackground;
+    }
+
+    /**
+     * Set whether the template warm-up runs on a background thread, so that
+     * the application starts before all templates are parsed.
+     *
+     * @param warmUpInBackground true if the template warm-up runs on a
+     * background thread
+     */
+    public void setWarmUpInBackground(boolean warmUpInBackground) {
+        this.warmUpInBackground = warmUpInBackground;
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Parse all the application templates, as listed by
+     * {@link XmlConfigService#getTemplatePathList()}, so they are cached
+     * before the first request. No templates are parsed with other
+     * ConfigService implementations.
+     *
+     * @param servletContext the application servlet context
+     * @throws InterruptedException if interrupted while parsing the templates
+     */
+    protected void warmUpTemplates(ServletContext servletContext)
+            throws InterruptedException {
+
+        final Configuration config = configuration;
+
+        TemplateWarmUp.Parser parser = new TemplateWarmUp.Parser() {
+            public void parse(String path) throws Exception {
+                config.getTemplate(path);
+            }
+        };
+
+        templateWarmUp =
+            new TemplateWarmUp(servletContext, configService.getLogService(), parser);
+
+        List<String> templatePaths = Collections.emptyList();
+        if (configService instanceof XmlConfigService) {
+            templatePaths = ((XmlConfigService) configService).getTemplatePathList();
+        }
+
+        if (warmUpInBackground) {
+            templateWarmUp.start(templatePaths);
+        } else {
+            templateWarmUp.run(templatePaths);
+        }
+    }
+
 }
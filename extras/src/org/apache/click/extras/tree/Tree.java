@@ -26,6 +26,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -33,9 +34,12 @@ import java.util.Set;
 import java.util.StringTokenizer;
 
 import org.apache.click.ActionListener;
+import org.apache.click.ActionResult;
+import org.apache.click.Behavior;
 import org.apache.click.Context;
 import org.apache.click.Control;
 import org.apache.click.ActionEventDispatcher;
+import org.apache.click.ajax.DefaultAjaxBehavior;
 import org.apache.click.control.AbstractControl;
 import org.apache.click.control.ActionLink;
 import org.apache.click.control.Decorator;
@@ -116,6 +120,44 @@ import org.apache.commons.lang.StringUtils;
  *     }
  * } </pre>
  *
+ * <a name="lazy-loading"></a>
+ * <h3>Lazy loading</h3>
+ *
+ * Large trees do not have to be built in memory up front. Nodes created with
+ * {@link TreeNode#setChildrenLoaded(boolean) childrenLoaded} set to false
+ * have their children loaded by the Tree's {@link #setNodeProvider(TreeNodeProvider)
+ * node provider} the first time the node is expanded. Since lazily loaded
+ * children are only known to the tree instance that loaded them, the tree
+ * should be kept between requests, for example in a stateful page or the
+ * session.
+ * <p/>
+ * When JavaScript is enabled, unloaded nodes are expanded through a server
+ * round trip, unless {@link #setAjaxExpansionEnabled(boolean) Ajax expansion}
+ * is enabled, in which case only the new subtree is requested and inserted
+ * into the page.
+ *
+ * <pre class="prettyprint">
+ * public Tree buildTree() {
+ *     Tree tree = new Tree("tree");
+ *     tree.setNodeProvider(new TreeNodeProvider() {
+ *         public List&lt;TreeNode&gt; getChildren(TreeNode parent) {
+ *             List&lt;TreeNode&gt; children = new ArrayList&lt;TreeNode&gt;();
+ *             for (Category category : getCategoryService().getChildren(parent.getId())) {
+ *                 TreeNode child = new TreeNode(category.getName(), category.getId());
+ *                 child.setChildrenLoaded(false);
+ *                 children.add(child);
+ *             }
+ *             return children;
+ *         }
+ *     });
+ *
+ *     TreeNode root = new TreeNode("Categories", "root");
+ *     root.setChildrenLoaded(false);
+ *     tree.setRootNode(root);
+ *     tree.expand(root);
+ *     return tree;
+ * } </pre>
+ *
  * <a name="resources"></a>
  * <h3>CSS and JavaScript resources</h3>
  *
@@ -231,6 +273,15 @@ public class Tree extends AbstractControl {
     /** Flag indicates if listeners should be notified of any state changes. */
     private boolean notifyListeners = true;
 
+    /** Provides the children of nodes that have not been loaded yet. */
+    private TreeNodeProvider nodeProvider;
+
+    /** Specifies if unloaded nodes are expanded using Ajax. By default this value is false. */
+    private boolean ajaxExpansionEnabled = false;
+
+    /** The Ajax behavior rendering the children of expanded nodes. */
+    private Behavior ajaxExpansionBehavior;
+
     // Public Constructors ----------------------------------------------------
 
     /**
@@ -347,6 +398,57 @@ public class Tree extends AbstractControl {
         this.rootNode = rootNode;
     }
 
+    /**
+     * Return the provider which loads the children of nodes that have not
+     * been loaded yet.
+     *
+     * @see TreeNode#setChildrenLoaded(boolean)
+     *
+     * @return the tree's node provider
+     */
+    public TreeNodeProvider getNodeProvider() {
+        return nodeProvider;
+    }
+
+    /**
+     * Set the provider which loads the children of nodes that have not
+     * been loaded yet. Children are loaded when the node is expanded.
+     *
+     * @see TreeNode#setChildrenLoaded(boolean)
+     *
+     * @param nodeProvider the tree's node provider
+     */
+    public void setNodeProvider(TreeNodeProvider nodeProvider) {
+        this.nodeProvider = nodeProvider;
+    }
+
+    /**
+     * Returns true if unloaded nodes are expanded using Ajax, false otherwise.
+     *
+     * @see #setAjaxExpansionEnabled(boolean)
+     *
+     * @return true if unloaded nodes are expanded using Ajax
+     */
+    public boolean isAjaxExpansionEnabled() {
+        return ajaxExpansionEnabled;
+    }
+
+    /**
+     * Sets whether unloaded nodes are expanded using Ajax.
+     * <p/>
+     * This option only applies when {@link #setJavascriptEnabled(boolean)
+     * javascript is enabled}. When the user expands a node whose children
+     * have not been loaded, only the node's new subtree is requested from
+     * the server and inserted into the page, instead of rendering the
+     * whole page.
+     *
+     * @param ajaxExpansionEnabled true if unloaded nodes should be expanded
+     * using Ajax, false otherwise
+     */
+    public void setAjaxExpansionEnabled(boolean ajaxExpansionEnabled) {
+        this.ajaxExpansionEnabled = ajaxExpansionEnabled;
+    }
+
     /**
      * Get the tree's decorator.
      *
@@ -660,6 +762,7 @@ public class Tree extends AbstractControl {
     public void expandAll() {
         for (Iterator<TreeNode> it = iterator(); it.hasNext();) {
             TreeNode node = it.next();
+            loadChildren(node);
             boolean oldValue = node.isExpanded();
             node.setExpanded(true);
             if (isNotifyListeners()) {
@@ -861,6 +964,41 @@ public class Tree extends AbstractControl {
         return find(getRootNode(), id);
     }
 
+    /**
+     * This method registers the Ajax behavior rendering the children of
+     * expanded nodes when {@link #isAjaxExpansionEnabled() Ajax expansion}
+     * is enabled.
+     *
+     * @see org.apache.click.Control#onInit()
+     */
+    @Override
+    public void onInit() {
+        super.onInit();
+        if (isAjaxExpansionEnabled()) {
+            addBehavior(getAjaxExpansionBehavior());
+        }
+    }
+
+    /**
+     * Returns true if the tree is the target of the Ajax request. In
+     * addition to the default check, an expand request is targeted at the
+     * tree when {@link #isAjaxExpansionEnabled() Ajax expansion} is enabled.
+     *
+     * @param context the request context
+     * @return true if the tree is the Ajax request target, false otherwise
+     */
+    @Override
+    public boolean isAjaxTarget(Context context) {
+        if (super.isAjaxTarget(context)) {
+            return true;
+        }
+        if (isAjaxExpansionEnabled()) {
+            String linkName = context.getRequestParameter(ActionLink.ACTION_LINK);
+            return getExpandLink().getName().equals(linkName);
+        }
+        return false;
+    }
+
     /**
      * This method binds any expand/collapse and select/deselect changes from
      * the request parameters.
@@ -1105,6 +1243,14 @@ public class Tree extends AbstractControl {
      * false otherwise
      */
     protected boolean shouldRenderChildren(TreeNode treeNode) {
+        if (!treeNode.isChildrenLoaded()) {
+            //Unloaded children are only loaded for expanded nodes, even if
+            //javascript is enabled
+            if (!treeNode.isExpanded()) {
+                return false;
+            }
+            loadChildren(treeNode);
+        }
         if (treeNode.isLeaf()) {
             return false;
         }
@@ -1287,7 +1433,7 @@ public class Tree extends AbstractControl {
         StringBuilder sb = new StringBuilder();
         if (isExpandedParent(treeNode)) {
             sb.append("expanded");
-        } else if (treeNode.getChildren().size() > 0) {
+        } else if (treeNode.hasChildren()) {
             sb.append("collapsed");
         } else {
             sb.append("leaf");
@@ -1393,6 +1539,9 @@ public class Tree extends AbstractControl {
      * @param newValue specifies the new expand state
      */
     protected void setExpandState(TreeNode node, boolean newValue) {
+        if (newValue) {
+            loadChildren(node);
+        }
         boolean oldValue = node.isExpanded();
         node.setExpanded(newValue);
         if (isNotifyListeners()) {
@@ -1557,13 +1706,88 @@ public class Tree extends AbstractControl {
      * @return TreeNode the first node matching the id or null if no match was found.
      */
     protected TreeNode find(TreeNode node, String id) {
-        for (Iterator<TreeNode> it = iterator(node); it.hasNext();) {
-            TreeNode result = it.next();
-            if (result.getId().equals(id)) {
-                return result;
+        if (node == null) {
+            node = getRootNode();
+            if (node == null) {
+                return null;
             }
         }
-        return null;
+        return node.find(id);
+    }
+
+    /**
+     * Load the children of the specified node from the
+     * {@link #getNodeProvider() node provider}, if the node's children have
+     * not been loaded yet.
+     *
+     * @param node the node which children to load
+     */
+    protected void loadChildren(TreeNode node) {
+        if (node.isChildrenLoaded() || !node.isChildrenSupported()) {
+            return;
+        }
+        TreeNodeProvider provider = getNodeProvider();
+        if (provider == null) {
+            return;
+        }
+        List<TreeNode> children = provider.getChildren(node);
+        if (children != null) {
+            for (TreeNode child : children) {
+                node.add(child);
+            }
+        }
+        node.setChildrenLoaded(true);
+    }
+
+    /**
+     * Return the Ajax behavior rendering the children of expanded nodes.
+     *
+     * @return the Ajax behavior rendering the children of expanded nodes
+     */
+    protected Behavior getAjaxExpansionBehavior() {
+        if (ajaxExpansionBehavior == null) {
+            ajaxExpansionBehavior = createAjaxExpansionBehavior();
+        }
+        return ajaxExpansionBehavior;
+    }
+
+    /**
+     * Create the Ajax behavior which expands the node specified by the
+     * {@link #EXPAND_TREE_NODE_PARAM} request parameter and renders only the
+     * node's subtree.
+     *
+     * @return the Ajax behavior rendering the children of expanded nodes
+     */
+    protected Behavior createAjaxExpansionBehavior() {
+        return new DefaultAjaxBehavior() {
+
+            @Override
+            public ActionResult onAction(Control source) {
+                ActionResult actionResult = new ActionResult();
+                actionResult.setContentType(getPage().getContentType());
+                actionResult.setCharacterEncoding(getPage().getCharacterEncoding());
+
+                String id = getContext().getRequestParameter(EXPAND_TREE_NODE_PARAM);
+                TreeNode node = (id != null) ? find(id) : null;
+                if (node == null) {
+                    return actionResult;
+                }
+
+                if (isJavascriptEnabled()) {
+                    javascriptHandler.init(getContext());
+                }
+                expand(node);
+
+                int indentation = node.getLevel();
+                if (isRootNodeDisplayed()) {
+                    indentation++;
+                }
+                HtmlStringBuffer buffer = new HtmlStringBuffer(getControlSizeEst());
+                renderTree(buffer, node, indentation);
+                actionResult.setContent(buffer.toString());
+                return actionResult;
+            }
+        };
     }
 
     /**
@@ -1681,11 +1905,14 @@ public class Tree extends AbstractControl {
     static class BreadthTreeIterator implements Iterator<TreeNode> {
 
         /**queue for storing node's. */
-        private List<TreeNode> queue = new ArrayList<TreeNode>();
+        private LinkedList<TreeNode> queue = new LinkedList<TreeNode>();
 
         /** indicator to iterate collapsed node's. */
         private boolean iterateCollapsedNodes = true;
 
+        /** the last node returned, which children are not queued yet. */
+        private TreeNode lastNode;
+
         /**
          * Creates a iterator and adds the specified node to the queue.
          * The specified node will be set as the root of the traversal.
@@ -1720,28 +1947,28 @@ public class Tree extends AbstractControl {
          * @return boolean true if there are more nodes, false otherwise.
          */
         public boolean hasNext() {
+            pushLastNodeChildren();
             return !queue.isEmpty();
         }
 
         /**
          * Returns the next node in the iteration.
+         * <p/>
+         * The children of the returned node are only queued when the
+         * iteration continues, so children loaded or expanded by the caller
+         * are included in the iteration.
          *
          * @return the next node in the iteration.
          * @exception NoSuchElementException iteration has no more node.
          */
         public TreeNode next() {
-            try {
-                //remove from the end of queue
-                TreeNode node = queue.remove(queue.size() - 1);
-                if (node.hasChildren()) {
-                    if (iterateCollapsedNodes || node.isExpanded()) {
-                        push(node.getChildren());
-                    }
-                }
-                return node;
-            } catch (IndexOutOfBoundsException e) {
+            pushLastNodeChildren();
+            if (queue.isEmpty()) {
                 throw new NoSuchElementException("There is  no more node's to iterate");
             }
+            //remove from the end of queue
+            lastNode = queue.removeLast();
+            return lastNode;
         }
 
         /**
@@ -1754,6 +1981,23 @@ public class Tree extends AbstractControl {
             throw new UnsupportedOperationException("remove operation is not supported.");
         }
 
+        /**
+         * Pushes the children of the last node returned on the beginning of
+         * the queue.
+         */
+        private void pushLastNodeChildren() {
+            if (lastNode == null) {
+                return;
+            }
+            TreeNode node = lastNode;
+            lastNode = null;
+            if (node.hasChildren()) {
+                if (iterateCollapsedNodes || node.isExpanded()) {
+                    push(node.getChildren());
+                }
+            }
+        }
+
         /**
          * Pushes the specified list of node's to push on the beginning of the queue.
          *
@@ -1761,7 +2005,7 @@ public class Tree extends AbstractControl {
          */
         private void push(List<TreeNode> children) {
             for (TreeNode child : children) {
-                queue.add(0, child); //add to the beginning of queue
+                queue.addFirst(child); //add to the beginning of queue
             }
         }
     }
@@ -1917,6 +2161,9 @@ public class Tree extends AbstractControl {
         /** holds the javascript call to expand or collapse the node. */
         protected String nodeExpansionString;
 
+        /** indicates if the children of the current node are loaded. */
+        protected boolean childrenLoaded;
+
         /**
          * @see #init(TreeNode)
          *
@@ -1926,6 +2173,7 @@ public class Tree extends AbstractControl {
         public void init(TreeNode treeNode) {
             expandId = buildString("e_", treeNode.getId(), "");
             iconId = buildString("i_", treeNode.getId(), "");
+            childrenLoaded = treeNode.isChildrenLoaded();
         }
 
         /**
@@ -1945,7 +2193,23 @@ public class Tree extends AbstractControl {
          * @param buffer string buffer containing the markup
          */
         public void renderExpandAndCollapseAction(HtmlStringBuffer buffer) {
-            getExpandLink().setAttribute("onclick", nodeExpansionString);
+            if (childrenLoaded) {
+                getExpandLink().setAttribute("onclick", nodeExpansionString);
+
+            } else if (isAjaxExpansionEnabled()) {
+                //Fetch the node's children before expanding it in the browser
+                StringBuilder sb = new StringBuilder();
+                sb.append("if(!handleAjaxNodeExpansion(this,event,'");
+                sb.append(getExpandLink().getHref()).append("','");
+                sb.append(expandId).append("')){return false;} ");
+                sb.append(nodeExpansionString);
+                getExpandLink().setAttribute("onclick", sb.toString());
+
+            } else {
+                //The node's children are not available in the browser, so
+                //fallback to a server round trip
+                getExpandLink().setAttribute("onclick", null);
+            }
         }
 
         /**
@@ -21,9 +21,13 @@ package org.apache.click.extras.tree;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 
 /**
  * Provides an implementation of a {@link org.apache.click.extras.tree.Tree} model.
@@ -53,6 +57,16 @@ import java.util.Random;
  * the constructors. Id's are generated by an instance of {@link java.util.Random}.
  * The current implementation generates a Long using random.nextLong(). This
  * means a total of 2 <sup>64</sup> numbers can be generated.
+ * <p/>
+ * The root node of a tree maintains an index of all the nodes in the tree
+ * keyed on their id. The index is kept up to date as nodes are added and
+ * removed, enabling {@link #find(java.lang.String)} to lookup nodes in
+ * constant time regardless of the size of the tree.
+ * <p/>
+ * Children can also be loaded lazily. Nodes created with
+ * {@link #setChildrenLoaded(boolean)} set to false are treated as having
+ * children until the {@link Tree} loads them through its
+ * {@link TreeNodeProvider}, when the node is expanded.
  */
 public class TreeNode implements Serializable {
 
@@ -96,6 +110,17 @@ public class TreeNode implements Serializable {
     /** A custom icon the Tree will render for this node. */
     private String icon;
 
+    /** Indicates if the treeNode's children have been loaded. */
+    private boolean childrenLoaded = true;
+
+    /** Index of the tree's nodes keyed on their id. The index is only
+     * maintained by the root node of a tree and is rebuilt on demand. */
+    private transient Map<String, TreeNode> nodeIndex;
+
+    /** The ids shared by more than one node of the tree, which are found by
+     * searching the tree. Only maintained by the root node with the index. */
+    private transient Set<String> duplicateIds;
+
     // Public Constructors ----------------------------------------------------
 
     /**
@@ -201,6 +226,11 @@ public class TreeNode implements Serializable {
      */
     public void setParent(TreeNode parent) {
         this.parent = parent;
+        if (parent != null) {
+            // Only the root node maintains an index
+            nodeIndex = null;
+            duplicateIds = null;
+        }
     }
 
     /**
@@ -223,13 +253,45 @@ public class TreeNode implements Serializable {
 
     /**
      * Returns true if this node does not have any children, false otherwise.
+     * <p/>
+     * A node which supports children that has not been loaded yet is never
+     * a leaf node.
      *
      * @return true if this node is a leaf node, false otherwise.
      */
     public boolean isLeaf() {
+        if (isChildrenSupported() && !isChildrenLoaded()) {
+            return false;
+        }
         return getChildren().isEmpty();
     }
 
+    /**
+     * Returns true if this node's children have been loaded, false otherwise.
+     * By default nodes are loaded.
+     *
+     * @see #setChildrenLoaded(boolean)
+     *
+     * @return true if this node's children have been loaded, false otherwise
+     */
+    public boolean isChildrenLoaded() {
+        return childrenLoaded;
+    }
+
+    /**
+     * Sets whether this node's children have been loaded or not.
+     * <p/>
+     * Set this property to false for nodes whose children should be loaded
+     * on demand by the {@link Tree#setNodeProvider(TreeNodeProvider) Tree's
+     * node provider} when the node is expanded.
+     *
+     * @param childrenLoaded true if this node's children have been loaded,
+     * false otherwise
+     */
+    public void setChildrenLoaded(boolean childrenLoaded) {
+        this.childrenLoaded = childrenLoaded;
+    }
+
     /**
      * Returns true if this node supports children, false otherwise.
      *
@@ -271,7 +333,15 @@ public class TreeNode implements Serializable {
      * @param id this node's new id value
      */
     public void setId(String id) {
+        TreeNode root = getRootNode();
+        Map<String, TreeNode> index = root.nodeIndex;
+        if (index != null && index.get(this.id) == this) {
+            index.remove(this.id);
+        }
         this.id = id;
+        if (index != null) {
+            root.indexNode(this);
+        }
     }
 
     /**
@@ -369,6 +439,9 @@ public class TreeNode implements Serializable {
      * does not support child nodes
      */
     public void add(int index, TreeNode child) {
+        // Ensure the tree is indexed so that duplicate children are detected
+        // without scanning the list of children
+        getNodeIndex();
         addChildOnly(index, child);
         child.setParent(this);
     }
@@ -404,10 +477,23 @@ public class TreeNode implements Serializable {
         if (getMutableChildren() == null) {
             children = new ArrayList<TreeNode>();
         }
-        if (children.contains(child)) {
+
+        Map<String, TreeNode> nodes = getRootNode().nodeIndex;
+        if (nodes == null) {
+            if (children.contains(child)) {
+                return;
+            }
+        } else if (nodes.containsKey(child.getId()) && children.contains(child)) {
+            // Only nodes with an indexed id can be a child of this node, so
+            // the list of children is only scanned for likely duplicates
             return;
         }
+
         getMutableChildren().add(index, child);
+
+        if (nodes != null) {
+            indexNodes(nodes, child);
+        }
     }
 
     /**
@@ -424,10 +510,61 @@ public class TreeNode implements Serializable {
         if (getMutableChildren() == null) {
             children = new ArrayList<TreeNode>();
         }
-        getMutableChildren().remove(child);
+        int index = getMutableChildren().indexOf(child);
+        if (index != -1) {
+            // Unindex the node actually removed, which may be another node
+            // with the same id
+            TreeNode removed = getMutableChildren().remove(index);
+            Map<String, TreeNode> nodes = getRootNode().nodeIndex;
+            if (nodes != null) {
+                unindexNodes(nodes, removed);
+            }
+        }
         child.setParent(null);
     }
 
+    /**
+     * Finds and returns the node with the specified id, searching this node
+     * and all its descendants.
+     * <p/>
+     * <strong>Time complexity:</strong> The lookup is performed against the
+     * tree's index of nodes and performs in O(d) where d is the depth of the
+     * tree. The index is built the first time it is accessed and is kept up
+     * to date when nodes are added or removed.
+     * <p/>
+     * If more than one node has the given id, the first node found by a
+     * breadth first search of this node is returned.
+     *
+     * @param id the id of the node to find
+     * @return the node matching the id or null if no match was found
+     * @throws IllegalArgumentException if the id is null
+     */
+    public TreeNode find(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("null id specified");
+        }
+        Map<String, TreeNode> index = getNodeIndex();
+        if (getRootNode().duplicateIds.contains(id)) {
+            for (Iterator<TreeNode> it = new Tree.BreadthTreeIterator(this); it.hasNext();) {
+                TreeNode current = it.next();
+                if (id.equals(current.getId())) {
+                    return current;
+                }
+            }
+            return null;
+        }
+
+        TreeNode node = index.get(id);
+
+        // Ensure the node found is still a descendant of this node
+        for (TreeNode current = node; current != null; current = current.getParent()) {
+            if (current == this) {
+                return node;
+            }
+        }
+        return null;
+    }
+
     /**
      * Returns true if this node is the root node. The root is the node with a
      * null parent.
@@ -616,6 +753,100 @@ public class TreeNode implements Serializable {
 
     // Private Behavior -------------------------------------------------------
 
+    /**
+     * Returns the root node of the tree this node belongs to.
+     *
+     * @return the root node of the tree this node belongs to
+     */
+    private TreeNode getRootNode() {
+        TreeNode root = this;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        return root;
+    }
+
+    /**
+     * Returns the index of nodes of the tree this node belongs to, building
+     * the index if it does not exist yet.
+     *
+     * @return the index of nodes keyed on their id
+     */
+    private Map<String, TreeNode> getNodeIndex() {
+        TreeNode root = getRootNode();
+        if (root.nodeIndex == null) {
+            root.nodeIndex = new HashMap<String, TreeNode>();
+            root.duplicateIds = new HashSet<String>();
+            indexNodes(root.nodeIndex, root);
+        }
+        return root.nodeIndex;
+    }
+
+    /**
+     * Add the specified node and all its descendants to the index.
+     * <p/>
+     * If the node is the root of a tree which is already indexed, the
+     * smaller of the two indexes is merged into the larger one.
+     *
+     * @param index the index to add the nodes to
+     * @param node the node to add with its descendants
+     */
+    private void indexNodes(Map<String, TreeNode> index, TreeNode node) {
+        TreeNode root = getRootNode();
+        Map<String, TreeNode> nodeIndex = node.nodeIndex;
+        if (nodeIndex != null && node != root) {
+            root.duplicateIds.addAll(node.duplicateIds);
+            node.nodeIndex = null;
+            node.duplicateIds = null;
+
+            Map<String, TreeNode> smaller = index;
+            if (nodeIndex.size() > index.size()) {
+                root.nodeIndex = nodeIndex;
+            } else {
+                smaller = nodeIndex;
+            }
+            for (TreeNode current : smaller.values()) {
+                root.indexNode(current);
+            }
+            return;
+        }
+
+        for (Iterator<TreeNode> it = new Tree.BreadthTreeIterator(node); it.hasNext();) {
+            root.indexNode(it.next());
+        }
+    }
+
+    /**
+     * Add the specified node to the index of this root node. If another node
+     * is already indexed with the same id, the id is recorded as a duplicate
+     * and the indexed node is kept.
+     *
+     * @param node the node to add to the index
+     */
+    private void indexNode(TreeNode node) {
+        TreeNode existing = nodeIndex.get(node.getId());
+        if (existing == null) {
+            nodeIndex.put(node.getId(), node);
+        } else if (existing != node) {
+            duplicateIds.add(node.getId());
+        }
+    }
+
+    /**
+     * Remove the specified node and all its descendants from the index.
+     *
+     * @param index the index to remove the nodes from
+     * @param node the node to remove with its descendants
+     */
+    private void unindexNodes(Map<String, TreeNode> index, TreeNode node) {
+        for (Iterator<TreeNode> it = new Tree.BreadthTreeIterator(node); it.hasNext();) {
+            TreeNode current = it.next();
+            if (index.get(current.getId()) == current) {
+                index.remove(current.getId());
+            }
+        }
+    }
+
     /**
      * Returns the list of mutable children of this node.
      *
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.extras.tree;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Provides the children of tree nodes on demand.
+ * <p/>
+ * The {@link Tree} invokes the provider the first time a node, which
+ * {@link TreeNode#isChildrenLoaded() children are not loaded}, is expanded.
+ * Returned children that have children of their own should be marked as not
+ * loaded so that their children are in turn loaded on demand.
+ *
+ * @see Tree#setNodeProvider(TreeNodeProvider)
+ */
+public interface TreeNodeProvider extends Serializable {
+
+    /**
+     * Return the children of the specified node.
+     *
+     * @param parent the node which children to return
+     * @return the children of the specified node
+     */
+    public List<TreeNode> getChildren(TreeNode parent);
+}
@@ -19,6 +19,7 @@
 package org.apache.click.extras.control;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import junit.framework.TestCase;
 import org.apache.click.MockContext;
@@ -49,4 +50,57 @@ public class AutoCompleteTextFieldTest extends TestCase {
         assertTrue(e.toString().contains(expected));
     }
 
+    /**
+     * Check the suggestion source, the server side limits and the rendered
+     * suggestion cache.
+     */
+    public void testSuggestionCache() {
+        MockContext.initContext();
+
+        final int[] calls = new int[1];
+        PrefixIndex index = new PrefixIndex(Arrays.asList("Paris", "Parma", "Perth", "<Pa>"));
+
+        AutoCompleteTextField field = new AutoCompleteTextField("city") {
+
+            @Override
+            public List<?> getAutoCompleteList(String criteria) {
+                calls[0]++;
+                return super.getAutoCompleteList(criteria);
+            }
+        };
+        field.setSuggestionSource(index);
+        field.setSuggestionCache(new SuggestionCache(10, 0));
+        field.setMinLength(2);
+        field.setMaxResults(2);
+
+        Page p = new Page();
+        p.addControl(field);
+
+        assertEquals("<ul></ul>", field.getSuggestionContent(" p"));
+        assertEquals(0, calls[0]);
+
+        assertEquals("<ul><li>Paris</li><li>Parma</li></ul>", field.getSuggestionContent("PAR"));
+        assertEquals("<ul><li>Paris</li><li>Parma</li></ul>", field.getSuggestionContent("par"));
+        assertEquals(1, calls[0]);
+        assertEquals(1, field.getSuggestionCache().getHits());
+
+        assertEquals("<ul><li>&lt;Pa&gt;</li></ul>", field.getSuggestionContent("<p"));
+        assertEquals(2, calls[0]);
+    }
+
+    /**
+     * Check a field without a suggestion source or getAutoCompleteList()
+     * implementation fails.
+     */
+    public void testNoSuggestionSource() {
+        MockContext.initContext();
+
+        AutoCompleteTextField field = new AutoCompleteTextField("city");
+        try {
+            field.getAutoCompleteList("a");
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
 }
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.extras.control;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Provides tests for PrefixIndex.
+ */
+public class PrefixIndexTest extends TestCase {
+
+    /**
+     * Check prefixes are matched case insensitively in sort order, up to the
+     * maximum number of results.
+     */
+    public void testGetSuggestions() {
+        PrefixIndex index = new PrefixIndex(Arrays.asList("berlin", "Bern",
+            "Bergen", "Basel", "bern", null, "Bonn"));
+
+        assertEquals(6, index.size());
+        assertEquals(Arrays.asList("Bergen", "berlin", "Bern", "bern"),
+            index.getSuggestions("BER", 10));
+        assertEquals(Arrays.asList("Bern", "bern"), index.getSuggestions("bern", 10));
+        assertEquals(Arrays.asList("Basel", "Bergen"), index.getSuggestions("", 2));
+        assertTrue(index.getSuggestions("c", 10).isEmpty());
+        assertTrue(index.getSuggestions("zurich", 10).isEmpty());
+    }
+
+    /**
+     * Check the values are loaded on the first lookup and again on refresh.
+     */
+    public void testRefresh() {
+        final List<String> values = new ArrayList<String>();
+        values.add("Oslo");
+
+        final int[] loads = new int[1];
+        PrefixIndex index = new PrefixIndex() {
+            @Override
+            protected Collection<?> loadValues() {
+                loads[0]++;
+                return values;
+            }
+        };
+
+        assertEquals(Arrays.asList("Oslo"), index.getSuggestions("o", 10));
+        assertEquals(Arrays.asList("Oslo"), index.getSuggestions("os", 10));
+        assertEquals(1, loads[0]);
+
+        values.add("Odense");
+        index.refresh();
+        assertEquals(Arrays.asList("Odense", "Oslo"), index.getSuggestions("o", 10));
+        assertEquals(2, loads[0]);
+    }
+}
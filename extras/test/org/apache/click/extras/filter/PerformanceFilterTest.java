@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.extras.filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Enumeration;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import junit.framework.TestCase;
+
+import org.apache.click.MockContainer;
+import org.apache.click.MockContext;
+import org.apache.click.element.CssImport;
+import org.apache.click.element.JsImport;
+import org.apache.click.servlet.MockRequest;
+import org.apache.click.servlet.MockResponse;
+import org.apache.click.util.ClickUtils;
+
+/**
+ * Provides tests for PerformanceFilter content hash versioning.
+ */
+public class PerformanceFilterTest extends TestCase {
+
+    /**
+     * Check cacheable resources are versioned by their content hash, and the
+     * hashed paths are served from memory with immutable cache headers.
+     */
+    public void testContentHashVersioning() throws Exception {
+        File tmpdir = makeTmpDir();
+
+        PrintStream pstr = makePrintStream(tmpdir, "WEB-INF/click.xml");
+        pstr.println("<click-app>");
+        pstr.println(" <pages package='org.apache.click.extras.pages'/>");
+        pstr.println(" <mode value='production'/>");
+        pstr.println("</click-app>");
+        pstr.close();
+
+        makePrintStream(tmpdir, "assets/a.js").println("var a = 1;");
+        makePrintStream(tmpdir, "assets/b.css").println(".b { color: red }");
+        makePrintStream(tmpdir, "public/c.js").println("var c = 3;");
+
+        final MockContainer container = new MockContainer(tmpdir.getAbsolutePath());
+        container.start();
+
+        try {
+            PerformanceFilter filter = new PerformanceFilter();
+            filter.init(new FilterConfig() {
+                public String getFilterName() {
+                    return "PerformanceFilter";
+                }
+                public ServletContext getServletContext() {
+                    return container.getServletContext();
+                }
+                public String getInitParameter(String name) {
+                    if ("cacheable-paths".equals(name)) {
+                        return "/assets/*";
+                    } else if ("content-hash-versioning".equals(name)) {
+                        return "true";
+                    } else if ("compression-enabled".equals(name)) {
+                        return "false";
+                    }
+                    return null;
+                }
+                public Enumeration<?> getInitParameterNames() {
+                    return null;
+                }
+            });
+
+            MockRequest request = container.getRequest();
+            request.setServletPath("/index.htm");
+            filter.doFilter(request, new MockResponse(), new MockFilterChain());
+
+            String hash = ClickUtils.getApplicationResourceVersions().get("/assets/a.js");
+            assertNotNull(hash);
+            assertEquals(16, hash.length());
+            assertNotNull(ClickUtils.getApplicationResourceVersions().get("/assets/b.css"));
+            assertNull(ClickUtils.getApplicationResourceVersions().get("/public/c.js"));
+
+            // Imports render the content hash version
+            MockContext.initContext(container.getServletConfig(), request,
+                container.getResponse(), container.getClickServlet());
+            request.setAttribute(ClickUtils.ENABLE_RESOURCE_VERSION, "true");
+
+            String contextPath = request.getContextPath();
+            assertTrue(new JsImport("/assets/a.js").toString().indexOf(
+                contextPath + "/assets/a_" + hash + ".js") > 0);
+            assertTrue(new CssImport("/assets/b.css").toString().indexOf("/assets/b_") > 0);
+            assertTrue(new JsImport("/public/c.js").toString().indexOf(
+                contextPath + "/public/c.js") > 0);
+
+            // Hashed paths are served from memory
+            request.setServletPath("/assets/a_" + hash + ".js");
+            MockResponse response = new MockResponse();
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request, response, chain);
+
+            assertFalse(chain.invoked);
+            assertEquals("var a = 1;\n", response.getDocument());
+            assertEquals("public, max-age=31536000, immutable",
+                response.getHeader("Cache-Control"));
+
+            // Unhashed paths are passed down the chain
+            request.setServletPath("/assets/a.js");
+            chain = new MockFilterChain();
+            filter.doFilter(request, new MockResponse(), chain);
+            assertTrue(chain.invoked);
+
+        } finally {
+            ClickUtils.setApplicationResourceVersions(null);
+            container.stop();
+            deleteDir(tmpdir);
+        }
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private File makeTmpDir() throws IOException {
+        File tmpdir = File.createTempFile("click", "");
+        tmpdir.delete();
+        tmpdir.mkdir();
+        return tmpdir;
+    }
+
+    private PrintStream makePrintStream(File dir, String filename) throws IOException {
+        File file = new File(dir, filename);
+        file.getParentFile().mkdirs();
+        return new PrintStream(file) {
+            public void println(String line) {
+                super.println(line);
+                flush();
+            }
+        };
+    }
+
+    private void deleteDir(File dir) {
+        for (File f : dir.listFiles()) {
+            if (f.isDirectory()) {
+                deleteDir(f);
+            }
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Provides a filter chain which records whether it was invoked.
+     */
+    static class MockFilterChain implements FilterChain {
+
+        boolean invoked;
+
+        public void doFilter(ServletRequest request, ServletResponse response) {
+            invoked = true;
+        }
+    }
+}
@@ -19,8 +19,12 @@
 package org.apache.click.extras.tree;
 
 import junit.framework.*;
+import java.util.ArrayList;
 import java.util.List;
+import org.apache.click.ActionResult;
 import org.apache.click.MockContext;
+import org.apache.click.Page;
+import org.apache.click.ajax.AjaxBehavior;
 import org.apache.click.control.ActionLink;
 import org.apache.click.servlet.MockRequest;
 
@@ -121,6 +125,134 @@ public class TreeTest extends TestCase {
         assertTrue("Expected 4. Found " + result.size(), result.size() == 4);
     }
 
+    /**
+     * Test that find uses the node index kept up to date by add and remove.
+     */
+    public void testFindAfterAddAndRemove() {
+        TreeNode node3 = tree.find("three");
+        assertNotNull(tree.find("3.1.2"));
+
+        TreeNode node34 = new TreeNode("3.4", "3.4");
+        node34.add(new TreeNode("3.4.1", "3.4.1"));
+        node3.add(node34);
+        assertSame(node34, tree.find("3.4"));
+        assertNotNull(tree.find("3.4.1"));
+
+        // adding the same id twice is ignored
+        node3.add(new TreeNode("3.4", "3.4"));
+        assertEquals(4, node3.getChildren().size());
+
+        TreeNode node31 = tree.find("3.1");
+        node3.remove(node31);
+        assertNull(tree.find("3.1"));
+        assertNull(tree.find("3.1.1"));
+        assertNull(tree.find("missing"));
+
+        // the removed subtree is a tree of its own
+        assertSame(node31, node31.find("3.1"));
+        assertNotNull(node31.find("3.1.1"));
+
+        node34.setId("3.5");
+        assertNull(tree.find("3.4"));
+        assertSame(node34, tree.find("3.5"));
+
+        // find on a node only matches its descendants
+        assertNull(node3.find("one"));
+        assertNotNull(tree.getRootNode().find("one"));
+    }
+
+    /**
+     * Test find returns the first match of a breadth first search when nodes
+     * share an id, and remove unindexes the node actually removed.
+     */
+    public void testFindDuplicateIds() {
+        TreeNode node1 = tree.find("one");
+        TreeNode node3 = tree.find("three");
+        assertNotNull(tree.find("3.1"));
+
+        TreeNode dup3 = new TreeNode("dup3", "dup");
+        node3.add(dup3);
+        TreeNode dup1 = new TreeNode("dup1", "dup");
+        node1.add(dup1);
+        assertSame(dup1, tree.find("dup"));
+        assertSame(dup3, node3.find("dup"));
+
+        // An equal node removes the child with the same id
+        node1.remove(new TreeNode("other", "dup"));
+        assertSame(dup3, tree.find("dup"));
+
+        node3.remove(new TreeNode("other", "dup"));
+        assertNull(tree.find("dup"));
+    }
+
+    /**
+     * Test that unloaded children are loaded when the node is expanded.
+     */
+    public void testLazyLoading() {
+        final int[] loadCount = new int[1];
+        tree.setNodeProvider(new TreeNodeProvider() {
+            public List<TreeNode> getChildren(TreeNode parent) {
+                loadCount[0]++;
+                List<TreeNode> children = new ArrayList<TreeNode>();
+                TreeNode child = new TreeNode(parent.getId() + ".lazy", parent.getId() + ".lazy");
+                child.setChildrenLoaded(false);
+                children.add(child);
+                return children;
+            }
+        });
+
+        TreeNode node = new TreeNode("five", "five");
+        node.setChildrenLoaded(false);
+        tree.getRootNode().add(node);
+
+        assertFalse(node.isLeaf());
+        assertNull(tree.find("five.lazy"));
+        String html = tree.toString();
+        assertEquals(0, loadCount[0]);
+        assertTrue(html.indexOf("collapsed") > 0);
+
+        tree.expand("five");
+        assertEquals(1, loadCount[0]);
+        assertTrue(node.isChildrenLoaded());
+        assertNotNull(tree.find("five.lazy"));
+
+        tree.collapse("five");
+        tree.expand("five");
+        assertEquals(1, loadCount[0]);
+        assertTrue(tree.toString().indexOf("five.lazy") > 0);
+    }
+
+    /**
+     * Test that the Ajax expansion behavior renders only the node subtree.
+     */
+    public void testAjaxExpansion() {
+        tree.setNodeProvider(new TreeNodeProvider() {
+            public List<TreeNode> getChildren(TreeNode parent) {
+                List<TreeNode> children = new ArrayList<TreeNode>();
+                children.add(new TreeNode("lazy child", "lazy"));
+                return children;
+            }
+        });
+        TreeNode node = new TreeNode("five", "five");
+        node.setChildrenLoaded(false);
+        tree.getRootNode().add(node);
+        tree.setAjaxExpansionEnabled(true);
+
+        MockRequest mockRequest = mockContext.getMockRequest();
+        mockRequest.setParameter(ActionLink.ACTION_LINK, tree.getExpandLink().getName());
+        mockRequest.setParameter(Tree.EXPAND_TREE_NODE_PARAM, "five");
+        assertTrue(tree.isAjaxTarget(mockContext));
+
+        Page page = new Page();
+        page.addControl(tree);
+        ActionResult result = ((AjaxBehavior) tree.getAjaxExpansionBehavior()).onAction(tree);
+        String content = result.getContent();
+        assertTrue(content.startsWith("<ul class=\"level2\">"));
+        assertTrue(content.indexOf("lazy child") > 0);
+        assertTrue(content.indexOf("3.1") < 0);
+        assertTrue(node.isExpanded());
+    }
+
     // ------------------------------------------------------ Protected Methods
 
     protected Tree createTree() {
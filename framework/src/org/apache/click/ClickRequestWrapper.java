@@ -18,6 +18,8 @@
  */
 package org.apache.click;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -30,32 +32,52 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 
 import org.apache.click.service.FileUploadService;
+import org.apache.click.service.FileUploadSink;
+import org.apache.click.service.StreamedFileItem;
+import org.apache.click.service.StreamingFileUploadService;
 import org.apache.click.util.ClickUtils;
 
 import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadBase;
 import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.util.Streams;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.lang.StringUtils;
 
 /**
  * Provides a custom HttpServletRequest class for shielding users from
  * multipart request parameters. Thus calling request.getParameter(String)
  * will still work properly.
+ * <p/>
+ * When the configured FileUploadService is a
+ * {@link StreamingFileUploadService}, the multipart request is only parsed
+ * when a request parameter or uploaded file is first accessed, and uploaded
+ * files with a registered {@link FileUploadSink} are streamed to their sink.
  */
 class ClickRequestWrapper extends HttpServletRequestWrapper {
 
     /**
      * The <tt>FileItem</tt> objects for <tt>"multipart"</tt> POST requests.
      */
-    private final Map<String, FileItem[]> fileItemMap;
+    private Map<String, FileItem[]> fileItemMap;
 
     /** The request is a multi-part file upload POST request. */
     private final boolean isMultipartRequest;
 
     /** The map of <tt>"multipart"</tt> request parameter values. */
-    private final Map<String, String[]> multipartParameterMap;
+    private Map<String, String[]> multipartParameterMap;
 
     /** The wrapped servlet request. */
     private final HttpServletRequest request;
 
+    /** The streaming upload service of a deferred multipart request. */
+    private StreamingFileUploadService streamingUploadService;
+
+    /** The map of upload sinks keyed on request parameter name. */
+    private Map<String, FileUploadSink> fileUploadSinks;
+
     // Constructors -----------------------------------------------------------
 
     /**
@@ -68,7 +90,13 @@ class ClickRequestWrapper extends HttpServletRequestWrapper {
         this.isMultipartRequest = ClickUtils.isMultipartRequest(request);
         this.request = request;
 
-        if (isMultipartRequest) {
+        if (isMultipartRequest
+            && fileUploadService instanceof StreamingFileUploadService) {
+
+            // Parsing is deferred until parameters are first accessed
+            streamingUploadService = (StreamingFileUploadService) fileUploadService;
+
+        } else if (isMultipartRequest) {
 
             Map<String, String[]> requestParams = new HashMap<String, String[]>();
             Map<String, FileItem[]> fileItems = new HashMap<String, FileItem[]>();
@@ -141,6 +169,7 @@ class ClickRequestWrapper extends HttpServletRequestWrapper {
      * for "multipart" POST requests
      */
     public Map<String, FileItem[]> getFileItemMap() {
+        ensureMultipartParsed();
         return fileItemMap;
     }
 
@@ -229,6 +258,7 @@ class ClickRequestWrapper extends HttpServletRequestWrapper {
      */
     @SuppressWarnings("unchecked")
     Map getMultipartParameterMap() {
+        ensureMultipartParsed();
         if (request.getAttribute(ClickServlet.MOCK_MODE_ENABLED) == null) {
             return multipartParameterMap;
         } else {
@@ -239,8 +269,121 @@ class ClickRequestWrapper extends HttpServletRequestWrapper {
         }
     }
 
+    /**
+     * Register the upload sink for files uploaded under the specified request
+     * parameter name. Sinks are only used by deferred streaming requests, and
+     * must be registered before the request parameters are first accessed.
+     *
+     * @param name the request parameter name of the uploaded files
+     * @param sink the upload sink, or null to remove the registered sink
+     * @return true if the sink will be used for the request, or false if the
+     * request is not a deferred streaming request or was already parsed
+     */
+    boolean setFileUploadSink(String name, FileUploadSink sink) {
+        if (streamingUploadService == null) {
+            return false;
+        }
+
+        if (fileUploadSinks == null) {
+            fileUploadSinks = new HashMap<String, FileUploadSink>();
+        }
+
+        if (sink == null) {
+            fileUploadSinks.remove(name);
+        } else {
+            fileUploadSinks.put(name, sink);
+        }
+
+        return true;
+    }
+
     // Private Methods --------------------------------------------------------
 
+    /**
+     * Parse a deferred streaming multipart request if it has not been parsed
+     * yet. Form fields are placed in the request parameter map, uploaded files
+     * are streamed to their registered sink or stored by the streaming upload
+     * service, and placed in the file item map.
+     */
+    private void ensureMultipartParsed() {
+        if (streamingUploadService == null) {
+            return;
+        }
+
+        StreamingFileUploadService fileUploadService = streamingUploadService;
+        streamingUploadService = null;
+
+        Map<String, String[]> requestParams = new HashMap<String, String[]>();
+        Map<String, FileItem[]> fileItems = new HashMap<String, FileItem[]>();
+
+        try {
+            String encoding = request.getCharacterEncoding();
+
+            FileItemIterator iterator = fileUploadService.getItemIterator(request);
+
+            while (iterator.hasNext()) {
+                FileItemStream item = iterator.next();
+                String name = item.getFieldName();
+
+                if (item.isFormField()) {
+                    InputStream inputStream = item.openStream();
+                    String value = (encoding == null)
+                        ? Streams.asString(inputStream)
+                        : Streams.asString(inputStream, encoding);
+
+                    addToMapAsString(requestParams, name, value);
+                    continue;
+                }
+
+                FileItem fileItem = null;
+
+                FileUploadSink sink = (fileUploadSinks != null)
+                    ? fileUploadSinks.get(name) : null;
+
+                if (sink != null) {
+                    CountingInputStream inputStream =
+                        new CountingInputStream(item.openStream());
+
+                    // Empty file inputs are drained rather than passed to the sink
+                    if (StringUtils.isNotBlank(item.getName())) {
+                        sink.receive(item, inputStream);
+                    }
+                    // Consume any content not read by the sink
+                    byte[] buffer = new byte[4096];
+                    while (inputStream.read(buffer) != -1) {
+                    }
+
+                    fileItem = new StreamedFileItem(item, inputStream.getByteCount());
+
+                } else {
+                    fileItem = fileUploadService.createFileItem(item, request);
+                }
+
+                addToMapAsFileItem(fileItems, name, fileItem);
+            }
+
+        } catch (FileUploadException fue) {
+            request.setAttribute(FileUploadService.UPLOAD_EXCEPTION, fue);
+
+        } catch (FileUploadBase.FileUploadIOException fuioe) {
+            request.setAttribute(FileUploadService.UPLOAD_EXCEPTION, fuioe.getCause());
+
+        } catch (IOException ioe) {
+            // Record client aborts and sink failures as upload errors, as
+            // the eager parseRequest() does
+            FileUploadException fue = new FileUploadException(
+                "Processing of multipart/form-data request failed. "
+                + ioe.getMessage(), ioe);
+            request.setAttribute(FileUploadService.UPLOAD_EXCEPTION, fue);
+
+        } finally {
+            fileUploadSinks = null;
+            fileItemMap = Collections.unmodifiableMap(fileItems);
+            multipartParameterMap = Collections.unmodifiableMap(requestParams);
+        }
+    }
+
+
     /**
      * Stores the specified value in a FileItem array in the map, under the
      * specified name. Thus two values stored under the same name will be
@@ -18,17 +18,26 @@
  */
 package org.apache.click;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Writer;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletContext;
@@ -39,11 +48,15 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import org.apache.click.ajax.AjaxControlFactory;
+import org.apache.click.control.Container;
 import org.apache.click.service.ConfigService;
 import org.apache.click.service.ConfigService.AutoBinding;
 import org.apache.click.service.LogService;
+import org.apache.click.service.MetricsService;
 import org.apache.click.service.PropertyService;
 import org.apache.click.service.ResourceService;
+import org.apache.click.service.SessionFootprintAnalyzer;
 import org.apache.click.service.TemplateException;
 import org.apache.click.service.XmlConfigService;
 import org.apache.click.util.ClickUtils;
@@ -95,6 +108,15 @@ import org.apache.commons.lang.StringUtils;
  * configured with the Click application mode in the "<tt>click.xml</tt>" file.
  * See the User Guide for information on how to configure the application mode.
  *
+ * <h4>Class Preloading</h4>
+ * If the web application contains the class list
+ * <tt>/WEB-INF/click-preload.txt</tt>, with one class name per line, the
+ * listed classes are loaded in parallel when the servlet is initialized. This
+ * moves the class loading of pages, controls and template engine classes
+ * from the first requests to startup. The list can be created with the
+ * <tt>ClassListBuilder</tt> tool of the mock module, which also creates a
+ * class list for a JDK application class data sharing archive.
+ *
  * <h4>ConfigService</h4>
  *
  * A single application {@link ConfigService} instance is created by the ClickServlet at
@@ -143,6 +165,12 @@ public class ClickServlet extends HttpServlet {
      */
     protected final static String FORWARD_PAGE = "forward-page";
 
+    /**
+     * The class preload list path: &nbsp;
+     * "<tt>/WEB-INF/click-preload.txt</tt>".
+     */
+    protected final static String PRELOAD_CLASSES_PATH = "/WEB-INF/click-preload.txt";
+
     // ----------------------------------------------------- Instance Variables
 
     /** The click application configuration service. */
@@ -154,6 +182,13 @@ public class ClickServlet extends HttpServlet {
     /** The application resource service. */
     protected ResourceService resourceService;
 
+    /** The application page lifecycle metrics service. */
+    protected MetricsService metricsService;
+
+    /** The pool of prototype pages, see {@link Page#setPrototype(boolean)}. */
+    private final PagePrototype.Pool pagePrototypes =
+        new PagePrototype.Pool(Runtime.getRuntime().availableProcessors() * 2);
+
     /** The thread local page listeners. */
     private static final ThreadLocal<List<PageInterceptor>>
         THREAD_LOCAL_INTERCEPTORS = new ThreadLocal<List<PageInterceptor>>();
@@ -186,6 +221,12 @@ public class ClickServlet extends HttpServlet {
 
             resourceService = configService.getResourceService();
 
+            if (configService instanceof XmlConfigService) {
+                metricsService = ((XmlConfigService) configService).getMetricsService();
+            }
+
+            preloadClasses();
+
         } catch (Throwable e) {
             // In mock mode this exception can occur if click.xml is not
             // available.
@@ -239,6 +280,91 @@ public class ClickServlet extends HttpServlet {
 
     // ------------------------------------------------------ Protected Methods
 
+    /**
+     * Load the classes listed in the {@link #PRELOAD_CLASSES_PATH} resource,
+     * if present, in parallel with one thread per processor. This method
+     * returns once all the classes have been loaded.
+     * <p/>
+     * The classes are loaded but not initialized, so no static initializers
+     * are run. Classes which cannot be loaded are skipped.
+     */
+    protected void preloadClasses() {
+        InputStream inputStream =
+            getServletContext().getResourceAsStream(PRELOAD_CLASSES_PATH);
+        if (inputStream == null) {
+            return;
+        }
+
+        List<String> classnames = new ArrayList<String>();
+        try {
+            BufferedReader reader =
+                new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+            String line = null;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() > 0 && !line.startsWith("#")) {
+                    classnames.add(line);
+                }
+            }
+
+        } catch (IOException ioe) {
+            logger.warn("could not read class preload list "
+                + PRELOAD_CLASSES_PATH + ", error " + ioe);
+            return;
+
+        } finally {
+            ClickUtils.close(inputStream);
+        }
+
+        long start = System.currentTimeMillis();
+
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        final AtomicInteger failures = new AtomicInteger();
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        threads = Math.max(1, Math.min(threads, classnames.size()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+            new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable,
+                        "Click-Preload-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+        try {
+            for (final String classname : classnames) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            Class.forName(classname, false, classLoader);
+                        } catch (Throwable t) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (logger.isInfoEnabled()) {
+            logger.info("preloaded " + (classnames.size() - failures.get())
+                + " classes in " + (System.currentTimeMillis() - start)
+                + " ms, " + failures.get() + " not found");
+        }
+    }
+
     /**
      * Handle HTTP GET requests. This method will delegate the request to
      * {@link #handleRequest(HttpServletRequest, HttpServletResponse, boolean)}.
@@ -300,6 +426,13 @@ public class ClickServlet extends HttpServlet {
 
         long startTime = System.currentTimeMillis();
 
+        // Count the response size when recording page metrics
+        long metricsStartTime = startMetrics();
+        if (metricsStartTime != 0) {
+            response = new CountingResponseWrapper(response);
+        }
+        Class<? extends Page> metricsPageClass = null;
+
         if (logger.isDebugEnabled()) {
             HtmlStringBuffer buffer = new HtmlStringBuffer(200);
             buffer.append(request.getMethod());
@@ -352,6 +485,10 @@ public class ClickServlet extends HttpServlet {
                 return;
             }
 
+            if (metricsStartTime != 0) {
+                metricsPageClass = page.getClass();
+            }
+
             if (page.isStateful()) {
                 synchronized (page) {
                     processPage(page);
@@ -368,6 +505,10 @@ public class ClickServlet extends HttpServlet {
             Class<? extends Page> pageClass =
                 configService.getPageClass(ClickUtils.getResourcePath(request));
 
+            if (metricsStartTime != 0) {
+                metricsService.recordException(pageClass, e);
+            }
+
             handleException(request, response, isPost, e, pageClass);
 
         } catch (ExceptionInInitializerError eiie) {
@@ -377,6 +518,10 @@ public class ClickServlet extends HttpServlet {
             Class<? extends Page> pageClass =
                 configService.getPageClass(ClickUtils.getResourcePath(request));
 
+            if (metricsStartTime != 0) {
+                metricsService.recordException(pageClass, cause);
+            }
+
             handleException(request, response, isPost, cause, pageClass);
 
         } finally {
@@ -393,12 +538,25 @@ public class ClickServlet extends HttpServlet {
                     }
                 }
 
+                if (metricsPageClass != null) {
+                    recordMetrics(metricsPageClass, MetricsService.PHASE_REQUEST,
+                        metricsStartTime);
+                    metricsService.recordResponseSize(metricsPageClass,
+                        ((CountingResponseWrapper) response).getCount());
+                    recordSessionMetrics(request, metricsPageClass);
+                }
+
                 for (PageInterceptor interceptor : getThreadLocalInterceptors()) {
                     interceptor.postDestroy(page);
                 }
 
                 setThreadLocalInterceptors(null);
 
+                // Return prototype pages to the pool once the request is done
+                if (page != null) {
+                    pagePrototypes.release(page);
+                }
+
             } finally {
                 // Only clear the context when running in normal mode.
                 if (request.getAttribute(MOCK_MODE_ENABLED) == null) {
@@ -608,8 +766,12 @@ public class ClickServlet extends HttpServlet {
      * @return true if processing should continue, false otherwise
      */
     protected boolean performOnSecurityCheck(Page page, Context context) {
+        long metricsStartTime = startMetrics();
+
         boolean continueProcessing = page.onSecurityCheck();
 
+        recordMetrics(page.getClass(), MetricsService.PHASE_SECURITY_CHECK, metricsStartTime);
+
         if (logger.isTraceEnabled()) {
             logger.trace("   invoked: "
                 + ClassUtils.getShortClassName(page.getClass())
@@ -627,8 +789,12 @@ public class ClickServlet extends HttpServlet {
      * @return the page action ActionResult instance
      */
     protected ActionResult performPageAction(Page page, String pageAction, Context context) {
+        long metricsStartTime = startMetrics();
+
         ActionResult actionResult = ClickUtils.invokeAction(page, pageAction);
 
+        recordMetrics(page.getClass(), MetricsService.PHASE_ACTION, metricsStartTime);
+
         if (logger.isTraceEnabled()) {
             HtmlStringBuffer buffer = new HtmlStringBuffer();
             String pageClassName = ClassUtils.getShortClassName(page.getClass());
@@ -652,6 +818,8 @@ public class ClickServlet extends HttpServlet {
      * @param context the request context
      */
     protected void performOnInit(Page page, Context context) {
+        long metricsStartTime = startMetrics();
+
         page.onInit();
 
         if (logger.isTraceEnabled()) {
@@ -676,6 +844,8 @@ public class ClickServlet extends HttpServlet {
                 }
             }
         }
+
+        recordMetrics(page.getClass(), MetricsService.PHASE_INIT, metricsStartTime);
     }
 
     /**
@@ -694,6 +864,8 @@ public class ClickServlet extends HttpServlet {
 
         // Make sure don't process a forwarded request
         if (page.hasControls() && !context.isForward()) {
+            long metricsStartTime = startMetrics();
+
             List<Control> controls = page.getControls();
 
             for (int i = 0, size = controls.size(); i < size; i++) {
@@ -722,10 +894,16 @@ public class ClickServlet extends HttpServlet {
                 }
             }
 
+            recordMetrics(page.getClass(), MetricsService.PHASE_PROCESS, metricsStartTime);
+
             if (continueProcessing) {
+                metricsStartTime = startMetrics();
+
                 // Fire registered action events
                 continueProcessing = eventDispatcher.fireActionEvents(context);
 
+                recordMetrics(page.getClass(), MetricsService.PHASE_ACTION, metricsStartTime);
+
                 if (logger.isTraceEnabled()) {
                     String msg = "   invoked: Control listeners : "
                         + continueProcessing;
@@ -770,6 +948,8 @@ public class ClickServlet extends HttpServlet {
      * @param context the request context
      */
     protected void performOnRender(Page page, Context context) {
+        long metricsStartTime = startMetrics();
+
         page.onRender();
 
         if (logger.isTraceEnabled()) {
@@ -794,6 +974,8 @@ public class ClickServlet extends HttpServlet {
                 }
             }
         }
+
+        recordMetrics(page.getClass(), MetricsService.PHASE_RENDER, metricsStartTime);
     }
 
     /**
@@ -915,6 +1097,7 @@ public class ClickServlet extends HttpServlet {
     protected void renderTemplate(Page page) throws Exception {
 
         long startTime = System.currentTimeMillis();
+        long metricsStartTime = startMetrics();
 
         final Map<String, Object> model = createTemplateModel(page);
 
@@ -931,8 +1114,14 @@ public class ClickServlet extends HttpServlet {
             setPageResponseHeaders(response, page.getHeaders());
         }
 
+        if (page.isPreloadImports()) {
+            addPreloadHeaders(page, response);
+        }
+
         configService.getTemplateService().renderTemplate(page, model, writer);
 
+        recordMetrics(page.getClass(), MetricsService.PHASE_TEMPLATE, metricsStartTime);
+
         if (!configService.isProductionMode()) {
             HtmlStringBuffer buffer = new HtmlStringBuffer(50);
             if (logger.isTraceEnabled()) {
@@ -960,6 +1149,7 @@ public class ClickServlet extends HttpServlet {
     protected void renderJSP(Page page) throws Exception {
 
         long startTime = System.currentTimeMillis();
+        long metricsStartTime = startMetrics();
 
         HttpServletRequest request = page.getContext().getRequest();
 
@@ -967,6 +1157,10 @@ public class ClickServlet extends HttpServlet {
 
         setRequestAttributes(page);
 
+        if (page.isPreloadImports()) {
+            addPreloadHeaders(page, response);
+        }
+
         RequestDispatcher dispatcher = null;
 
         String forward = page.getForward();
@@ -984,6 +1178,8 @@ public class ClickServlet extends HttpServlet {
 
         dispatcher.forward(request, response);
 
+        recordMetrics(page.getClass(), MetricsService.PHASE_TEMPLATE, metricsStartTime);
+
         if (!configService.isProductionMode()) {
             HtmlStringBuffer buffer = new HtmlStringBuffer(50);
             buffer.append("renderJSP: ");
@@ -1013,9 +1209,12 @@ public class ClickServlet extends HttpServlet {
         }
 
         long startTime = System.currentTimeMillis();
+        long metricsStartTime = startMetrics();
 
         actionResult.render(context);
 
+        recordMetrics(page.getClass(), MetricsService.PHASE_TEMPLATE, metricsStartTime);
+
         if (!configService.isProductionMode()) {
             HtmlStringBuffer buffer = new HtmlStringBuffer(50);
             if (logger.isTraceEnabled()) {
@@ -1111,6 +1310,8 @@ public class ClickServlet extends HttpServlet {
      */
     @SuppressWarnings("deprecation")
     protected void processPageOnDestroy(Page page, long startTime) {
+        long metricsStartTime = startMetrics();
+
         Context context = page.getContext();
         if (page.hasControls()) {
 
@@ -1186,6 +1387,8 @@ public class ClickServlet extends HttpServlet {
         } finally {
             // Nullify PageImports
             page.setPageImports(null);
+
+            recordMetrics(page.getClass(), MetricsService.PHASE_DESTROY, metricsStartTime);
         }
     }
 
@@ -1239,6 +1442,11 @@ public class ClickServlet extends HttpServlet {
                 newPage = (Page) session.getAttribute(pageClass.getName());
             }
 
+            // Reuse a pooled prototype page
+            if (newPage == null) {
+                newPage = pagePrototypes.acquire(path);
+            }
+
             if (newPage == null) {
                 newPage = newPageInstance(path, pageClass, request);
 
@@ -1272,7 +1480,10 @@ public class ClickServlet extends HttpServlet {
             // Bind to final variable to enable callback processing
             final Page page = newPage;
 
-            if (configService.getAutoBindingMode() != AutoBinding.NONE) {
+            boolean autoBinding =
+                configService.getAutoBindingMode() != AutoBinding.NONE;
+
+            if (autoBinding) {
 
                 processPageFields(newPage, new FieldCallback() {
                     public void processField(String fieldName, Object fieldValue) {
@@ -1288,7 +1499,17 @@ public class ClickServlet extends HttpServlet {
                         }
                     }
                 });
+            }
 
+            // Capture the state of a new prototype page before any request
+            // parameters are bound. Only pages which reset their own request
+            // state are reused
+            if (newPage.isPrototype() && newPage.pagePrototype == null
+                && newPage instanceof Resettable && !newPage.isStateful()) {
+                newPage.pagePrototype = new PagePrototype(path, newPage);
+            }
+
+            if (autoBinding) {
                 processPageRequestParams(page);
             }
 
@@ -1767,6 +1988,13 @@ public class ClickServlet extends HttpServlet {
             }
         }
 
+        if (continueProcessing && page.hasAjaxControlFactories() && !context.isForward()) {
+            // Process the Ajax target created by the page Ajax control
+            // factories without initializing the page control tree
+            continueProcessing = !processAjaxControlFactories(page, context,
+                eventDispatcher, controlRegistry);
+        }
+
         if (continueProcessing) {
             performOnInit(page, context);
 
@@ -1774,14 +2002,21 @@ public class ClickServlet extends HttpServlet {
             // check isForward?
             if (controlRegistry.hasAjaxTargetControls() && !context.isForward()) {
 
+                long metricsStartTime = startMetrics();
+
                 // Perform onProcess for registered Ajax target controls
                 processAjaxTargetControls(context, eventDispatcher, controlRegistry);
 
+                recordMetrics(page.getClass(), MetricsService.PHASE_PROCESS, metricsStartTime);
+                metricsStartTime = startMetrics();
+
                 // Fire AjaxBehaviors registered during the onProcess event
                 // The target AjaxBehavior will set the eventDispatcher action
                 // result instance to render
                 eventDispatcher.fireAjaxBehaviors(context);
 
+                recordMetrics(page.getClass(), MetricsService.PHASE_ACTION, metricsStartTime);
+
                 // Ensure we execute the beforeResponse and beforeGetHeadElements
                 // for Ajax requests
                 controlRegistry.processPreResponse(context);
@@ -1874,6 +2109,117 @@ public class ClickServlet extends HttpServlet {
         return continueProcessing;
     }
 
+    /**
+     * Process the Ajax target control created by the page
+     * {@link AjaxControlFactory Ajax control factories} and return true if
+     * the request was processed, or false if none of the factory controls is
+     * the Ajax target.
+     * <p/>
+     * The factory controls are created and initialized in turn until one of
+     * them, or one of their child controls, is the Ajax target. Only the
+     * target control is processed and its AjaxBehaviors fired, the page
+     * <tt>onInit()</tt> event and the page control tree are skipped.
+     *
+     * @param page the Page which Ajax control factories to process
+     * @param context the request context
+     * @param eventDispatcher the event dispatcher
+     * @param controlRegistry the control registry
+     * @return true if the request was processed, false otherwise
+     * @throws Exception if an error occurs
+     */
+    protected boolean processAjaxControlFactories(Page page, Context context,
+        ActionEventDispatcher eventDispatcher, ControlRegistry controlRegistry)
+        throws Exception {
+
+        long metricsStartTime = startMetrics();
+
+        Control factoryControl = null;
+        Control ajaxTarget = null;
+
+        // The factory controls register their Behaviors with a scratch
+        // registry, so the controls which are not the Ajax target leave no
+        // registrations behind
+        ControlRegistry factoryRegistry = new ControlRegistry(configService);
+        ControlRegistry.pushThreadLocalRegistry(factoryRegistry);
+        try {
+            for (AjaxControlFactory factory : page.getAjaxControlFactories()) {
+                Control control = factory.createControl();
+                if (control.getParent() == null) {
+                    control.setParent(page);
+                }
+                control.onInit();
+
+                ajaxTarget = findAjaxTargetControl(control, context);
+                if (ajaxTarget != null) {
+                    factoryControl = control;
+                    break;
+                }
+                control.onDestroy();
+                factoryRegistry.clear();
+            }
+
+        } finally {
+            ControlRegistry.popThreadLocalRegistry();
+        }
+
+        recordMetrics(page.getClass(), MetricsService.PHASE_INIT, metricsStartTime);
+
+        if (ajaxTarget == null) {
+            if (logger.isTraceEnabled()) {
+                logger.trace("   *no* Ajax control factory created the Ajax target."
+                    + " Will initialize the page control tree.");
+            }
+            return false;
+        }
+
+        // Keep the registrations of the factory control which created the
+        // Ajax target
+        if (factoryRegistry.hasAjaxTargetControls()) {
+            controlRegistry.getAjaxTargetControls().addAll(
+                factoryRegistry.getAjaxTargetControls());
+        }
+        if (factoryRegistry.hasInterceptors()) {
+            for (ControlRegistry.InterceptorHolder holder : factoryRegistry.getInterceptors()) {
+                controlRegistry.internalRegisterInterceptor(holder.getControl(),
+                    holder.getInterceptor());
+            }
+        }
+
+        try {
+            metricsStartTime = startMetrics();
+
+            boolean continueProcessing = ajaxTarget.onProcess();
+
+            if (logger.isTraceEnabled()) {
+                HtmlStringBuffer buffer = new HtmlStringBuffer();
+                String controlClassName = ClassUtils.getShortClassName(ajaxTarget.getClass());
+                buffer.append("   invoked: '");
+                buffer.append(ajaxTarget.getName());
+                buffer.append("' ").append(controlClassName);
+                buffer.append(".onProcess() : ").append(continueProcessing);
+                buffer.append(" (Ajax control factory)");
+                logger.trace(buffer.toString());
+            }
+
+            recordMetrics(page.getClass(), MetricsService.PHASE_PROCESS, metricsStartTime);
+            metricsStartTime = startMetrics();
+
+            eventDispatcher.fireAjaxBehaviors(context);
+
+            recordMetrics(page.getClass(), MetricsService.PHASE_ACTION, metricsStartTime);
+
+            controlRegistry.processPreResponse(context);
+            controlRegistry.processPreRenderHeadElements(context);
+
+            renderActionResult(eventDispatcher.getActionResult(), page, context);
+
+        } finally {
+            factoryControl.onDestroy();
+        }
+
+        return true;
+    }
+
     /**
      * Provides an Ajax exception handler. Exceptions are wrapped inside a
      * <tt>div</tt> element and streamed back to the browser. The response status
@@ -2113,6 +2459,24 @@ public class ClickServlet extends HttpServlet {
         return isAjaxRequest;
     }
 
+    /**
+     * Add the preload <tt>Link</tt> header for the imports of the given page.
+     * <p/>
+     * The header is added from the PageImports which
+     * {@link #processPage(org.apache.click.Page)} created for the page, which
+     * is also used to render the page imports.
+     *
+     * @param page the page to add the preload header for
+     * @param response the servlet response to add the header to
+     */
+    @SuppressWarnings("deprecation")
+    void addPreloadHeaders(Page page, HttpServletResponse response) {
+        PageImports pageImports = page.getPageImports();
+        if (pageImports != null) {
+            pageImports.addPreloadHeaders(response);
+        }
+    }
+
     // ---------------------------------------------------------- Inner Classes
 
     /**
@@ -2132,6 +2496,81 @@ public class ClickServlet extends HttpServlet {
 
     // Private methods --------------------------------------------------------
 
+    /**
+     * Return the current time in nanoseconds if page metrics are recorded,
+     * or 0 otherwise.
+     *
+     * @return the metrics start time, or 0 if metrics are not recorded
+     */
+    private long startMetrics() {
+        if (metricsService != null && metricsService.isEnabled()) {
+            return System.nanoTime();
+        }
+        return 0;
+    }
+
+    /**
+     * Record the time elapsed since the given metrics start time for the
+     * given page class and lifecycle phase.
+     *
+     * @param pageClass the page class
+     * @param phase the lifecycle phase
+     * @param metricsStartTime the start time returned by {@link #startMetrics()}
+     */
+    private void recordMetrics(Class<? extends Page> pageClass, String phase,
+            long metricsStartTime) {
+        if (metricsStartTime != 0) {
+            metricsService.recordPhase(pageClass, phase, System.nanoTime() - metricsStartTime);
+        }
+    }
+
+    /**
+     * Record the session state sizes measured by the metrics service
+     * session analyzer, if the request is sampled.
+     *
+     * @param request the servlet request
+     * @param pageClass the page class
+     */
+    private void recordSessionMetrics(HttpServletRequest request,
+            Class<? extends Page> pageClass) {
+
+        SessionFootprintAnalyzer analyzer = metricsService.getSessionAnalyzer();
+        if (analyzer == null) {
+            return;
+        }
+
+        Map<String, Long> footprint = analyzer.analyze(request, pageClass);
+        if (footprint != null) {
+            for (Map.Entry<String, Long> entry : footprint.entrySet()) {
+                metricsService.recordSessionSize(pageClass, entry.getKey(),
+                    entry.getValue().longValue());
+            }
+        }
+    }
+
+    /**
+     * Return the control or child control with Behaviors which is the Ajax
+     * target of this request, or null if no Ajax target was found.
+     *
+     * @param control the control to search
+     * @param context the request context
+     * @return the Ajax target control or null if no Ajax target was found
+     */
+    private Control findAjaxTargetControl(Control control, Context context) {
+        if (control.hasBehaviors() && control.isAjaxTarget(context)) {
+            return control;
+        }
+        if (control instanceof Container) {
+            for (Control child : ((Container) control).getControls()) {
+                Control ajaxTarget = findAjaxTargetControl(child, context);
+                if (ajaxTarget != null) {
+                    return ajaxTarget;
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * Resolve and return the Ajax target control for this request or null if no
      * Ajax target was found.
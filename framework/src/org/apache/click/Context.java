@@ -34,6 +34,7 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
 import org.apache.click.service.FileUploadService;
+import org.apache.click.service.FileUploadSink;
 import org.apache.click.service.LogService;
 import org.apache.click.service.MessagesMapService;
 import org.apache.click.service.TemplateService;
@@ -700,6 +701,25 @@ public class Context {
         return null;
     }
 
+    /**
+     * Register the upload sink for files uploaded under the specified request
+     * parameter name.
+     * <p/>
+     * Sinks are only used when the configured FileUploadService is a
+     * {@link org.apache.click.service.StreamingFileUploadService}. As the
+     * multipart request is parsed when a request parameter is first accessed,
+     * sinks should be registered in the Page constructor.
+     *
+     * @see FileUploadSink
+     *
+     * @param name the request parameter name of the uploaded files
+     * @param sink the upload sink, or null to remove the registered sink
+     * @return true if the sink will receive the uploaded files of this request
+     */
+    public boolean setFileUploadSink(String name, FileUploadSink sink) {
+        return findClickRequestWrapper(request).setFileUploadSink(name, sink);
+    }
+
     /**
      * Return the users Locale.
      * <p/>
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Provides a HttpServletResponse wrapper which counts the characters written
+ * to the response writer and the bytes written to the response output stream.
+ * This wrapper is used to record the page response size metrics.
+ */
+class CountingResponseWrapper extends HttpServletResponseWrapper {
+
+    /** The number of characters or bytes written. */
+    private long count;
+
+    /** The counting output stream. */
+    private ServletOutputStream outputStream;
+
+    /** The counting writer. */
+    private PrintWriter writer;
+
+    // Constructors -----------------------------------------------------------
+
+    /**
+     * @see HttpServletResponseWrapper(HttpServletResponse)
+     */
+    CountingResponseWrapper(HttpServletResponse response) {
+        super(response);
+    }
+
+    // Public Methods ---------------------------------------------------------
+
+    /**
+     * @see javax.servlet.ServletResponse#getOutputStream()
+     */
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            final ServletOutputStream target = super.getOutputStream();
+
+            outputStream = new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    target.write(b);
+                    count++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    target.write(b, off, len);
+                    count += len;
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    target.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    target.close();
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    /**
+     * @see javax.servlet.ServletResponse#getWriter()
+     */
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            final Writer target = super.getWriter();
+
+            writer = new PrintWriter(new Writer() {
+                @Override
+                public void write(int c) throws IOException {
+                    target.write(c);
+                    count++;
+                }
+
+                @Override
+                public void write(char[] cbuf, int off, int len) throws IOException {
+                    target.write(cbuf, off, len);
+                    count += len;
+                }
+
+                @Override
+                public void write(String str, int off, int len) throws IOException {
+                    target.write(str, off, len);
+                    count += len;
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    target.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    target.close();
+                }
+            });
+        }
+        return writer;
+    }
+
+    // Package Private Methods ------------------------------------------------
+
+    /**
+     * Return the number of characters and bytes written to the response.
+     *
+     * @return the number of characters and bytes written to the response
+     */
+    long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,502 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.click.util.ClickUtils;
+
+/**
+ * Provides an ActionResult which streams a file to the client, with support
+ * for byte ranges, conditional requests and resumable downloads.
+ * <p/>
+ * Unlike an ActionResult created with an InputStream or byte array, the
+ * file is read from a {@link FileChannel} with a large buffer, so large files
+ * do not occupy heap memory. For example a page action returning a report:
+ *
+ * <pre class="prettyprint">
+ * public ActionResult downloadReport() {
+ *     File file = reportService.getReportFile(reportId);
+ *
+ *     FileActionResult result = new FileActionResult(file, "application/pdf");
+ *     result.setFilename("report.pdf");
+ *     return result;
+ * } </pre>
+ *
+ * The result sets the <tt>Accept-Ranges</tt>, <tt>ETag</tt> and
+ * <tt>Last-Modified</tt> headers, and supports:
+ * <ul>
+ * <li><tt>If-None-Match</tt> and <tt>If-Modified-Since</tt> conditional
+ * requests, answered with <tt>304 Not Modified</tt></li>
+ * <li><tt>If-Match</tt> and <tt>If-Unmodified-Since</tt> preconditions,
+ * answered with <tt>412 Precondition Failed</tt></li>
+ * <li>single and multiple byte <tt>Range</tt> requests, answered with
+ * <tt>206 Partial Content</tt>, and <tt>If-Range</tt> for resuming a
+ * download of an unchanged file</li>
+ * <li><tt>HEAD</tt> requests, answered with the headers only</li>
+ * </ul>
+ * On Tomcat with sendfile enabled, the whole file or a single range is
+ * handed to the container through the <tt>org.apache.tomcat.sendfile</tt>
+ * request attributes. The container then writes the file with zero copy
+ * and the request thread is released immediately.
+ * <p/>
+ * The result is cacheable by default, see
+ * {@link #setCacheActionResult(boolean)}.
+ */
+public class FileActionResult extends ActionResult {
+
+    // Constants --------------------------------------------------------------
+
+    /** The default file read buffer size: 64 KB. */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /** The maximum number of ranges served, before the Range header is ignored. */
+    static final int MAX_RANGES = 16;
+
+    /** The Tomcat sendfile support request attribute. */
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    /** The multipart byte ranges boundary. */
+    private static final String BOUNDARY = "CLICK_BYTERANGES_BOUNDARY";
+
+    // Variables --------------------------------------------------------------
+
+    /** The file to stream. */
+    private final File file;
+
+    /** The file read buffer size. */
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    /** The download filename, or null if no Content-Disposition is set. */
+    private String filename;
+
+    /** The download should be saved rather than displayed flag. */
+    private boolean attachment = true;
+
+    // Constructors -----------------------------------------------------------
+
+    /**
+     * Construct the FileActionResult for the given file and content type.
+     *
+     * @param file the file to stream back to the client
+     * @param contentType the response content type
+     */
+    public FileActionResult(File file, String contentType) {
+        if (file == null) {
+            throw new IllegalArgumentException("Null file parameter");
+        }
+        this.file = file;
+        setContentType(contentType);
+        setCacheActionResult(true);
+    }
+
+    // Public Methods ---------------------------------------------------------
+
+    /**
+     * Return the file to stream back to the client.
+     *
+     * @return the file to stream back to the client
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Return the file read buffer size.
+     *
+     * @return the file read buffer size
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Set the file read buffer size.
+     *
+     * @param bufferSize the file read buffer size
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Invalid bufferSize: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Return the download filename, or null if no Content-Disposition header
+     * is set.
+     *
+     * @return the download filename
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * Set the download filename of the Content-Disposition header.
+     *
+     * @param filename the download filename
+     */
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    /**
+     * Return true if the download should be saved rather than displayed by
+     * the browser. Default value is true.
+     *
+     * @return true if the download should be saved
+     */
+    public boolean isAttachment() {
+        return attachment;
+    }
+
+    /**
+     * Set whether the download should be saved rather than displayed by the
+     * browser. Only applies if a {@link #setFilename(String) filename} is set.
+     *
+     * @param attachment true if the download should be saved
+     */
+    public void setAttachment(boolean attachment) {
+        this.attachment = attachment;
+    }
+
+    // Protected Methods ------------------------------------------------------
+
+    /**
+     * Stream the file, or the requested byte ranges of the file, to the
+     * client.
+     *
+     * @see ActionResult#renderActionResult(Context)
+     *
+     * @param context the request context
+     */
+    @Override
+    protected void renderActionResult(Context context) {
+        HttpServletRequest request = context.getRequest();
+        HttpServletResponse response = context.getResponse();
+
+        if (!file.isFile() || !file.canRead()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = file.length();
+        long lastModified = file.lastModified();
+        String etag = "\"" + Long.toHexString(length) + "-"
+            + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", lastModified);
+        if (filename != null) {
+            String disposition = attachment ? "attachment" : "inline";
+            response.setHeader("Content-Disposition",
+                disposition + "; filename=\"" + filename + "\"");
+        }
+
+        // Preconditions
+        String ifMatch = request.getHeader("If-Match");
+        if (ifMatch != null && !matchesETag(ifMatch, etag)) {
+            response.setStatus(HttpServletResponse.SC_PRECONDITION_FAILED);
+            return;
+        }
+        long ifUnmodifiedSince = getDateHeader(request, "If-Unmodified-Since");
+        if (ifMatch == null && ifUnmodifiedSince != -1
+            && lastModified / 1000 > ifUnmodifiedSince / 1000) {
+            response.setStatus(HttpServletResponse.SC_PRECONDITION_FAILED);
+            return;
+        }
+
+        // Conditional requests
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            if (matchesETag(ifNoneMatch, etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        } else {
+            long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+            if (ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+
+        // Byte ranges, which only apply if the If-Range validator matches
+        List<long[]> ranges = null;
+        String range = request.getHeader("Range");
+        if (range != null && isIfRangeMatch(request, etag, lastModified)) {
+            ranges = parseRanges(range, length);
+            if (ranges != null && ranges.isEmpty()) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        try {
+            if (ranges == null) {
+                response.setHeader("Content-Length", String.valueOf(length));
+                if (!head && !sendFile(request, 0, length)) {
+                    writeRange(response.getOutputStream(), 0, length);
+                }
+
+            } else if (ranges.size() == 1) {
+                long[] byteRange = ranges.get(0);
+                long count = byteRange[1] - byteRange[0] + 1;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + byteRange[0] + "-"
+                    + byteRange[1] + "/" + length);
+                response.setHeader("Content-Length", String.valueOf(count));
+                if (!head && !sendFile(request, byteRange[0], count)) {
+                    writeRange(response.getOutputStream(), byteRange[0], count);
+                }
+
+            } else {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setContentType("multipart/byteranges; boundary=" + BOUNDARY);
+                if (!head) {
+                    writeRanges(response.getOutputStream(), ranges, length);
+                }
+            }
+
+        } catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        }
+    }
+
+    /**
+     * Return the ranges of the given Range header value as inclusive
+     * <tt>{ first, last }</tt> byte positions. Returns null if the header
+     * should be ignored, or an empty list if no range can be satisfied.
+     *
+     * @param range the Range header value
+     * @param length the file length
+     * @return the byte ranges, null if the header should be ignored, or an
+     * empty list if no range can be satisfied
+     */
+    protected List<long[]> parseRanges(String range, long length) {
+        if (!range.startsWith("bytes=")) {
+            return null;
+        }
+
+        List<long[]> ranges = new ArrayList<long[]>();
+        for (String spec : range.substring(6).split(",")) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash == -1) {
+                return null;
+            }
+
+            long first;
+            long last;
+            try {
+                if (dash == 0) {
+                    // Suffix range of the last bytes
+                    long suffix = Long.parseLong(spec.substring(1));
+                    first = Math.max(0, length - suffix);
+                    last = length - 1;
+                    if (suffix == 0) {
+                        continue;
+                    }
+                } else {
+                    first = Long.parseLong(spec.substring(0, dash));
+                    if (dash == spec.length() - 1) {
+                        last = length - 1;
+                    } else {
+                        last = Long.parseLong(spec.substring(dash + 1));
+                        if (last < first) {
+                            return null;
+                        }
+                        last = Math.min(last, length - 1);
+                    }
+                }
+            } catch (NumberFormatException nfe) {
+                return null;
+            }
+
+            if (first < length) {
+                ranges.add(new long[] { first, last });
+            }
+        }
+
+        if (ranges.size() > MAX_RANGES) {
+            return null;
+        }
+        return ranges;
+    }
+
+    // Private Methods --------------------------------------------------------
+
+    /**
+     * Hand the given range of the file to the container if it supports
+     * Tomcat sendfile, and return true if the container will write it.
+     *
+     * @param request the servlet request
+     * @param start the first byte position
+     * @param count the number of bytes
+     * @return true if the container will write the range
+     */
+    private boolean sendFile(HttpServletRequest request, long start, long count) {
+        if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            return false;
+        }
+        request.setAttribute("org.apache.tomcat.sendfile.filename", file.getAbsolutePath());
+        request.setAttribute("org.apache.tomcat.sendfile.start", Long.valueOf(start));
+        request.setAttribute("org.apache.tomcat.sendfile.end", Long.valueOf(start + count));
+        return true;
+    }
+
+    /**
+     * Write the given byte ranges as a multipart/byteranges body.
+     *
+     * @param outputStream the response output stream
+     * @param ranges the byte ranges to write
+     * @param length the file length
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeRanges(OutputStream outputStream, List<long[]> ranges,
+            long length) throws IOException {
+
+        for (long[] byteRange : ranges) {
+            String partHeader = "--" + BOUNDARY + "\r\n"
+                + "Content-Type: " + getContentType() + "\r\n"
+                + "Content-Range: bytes " + byteRange[0] + "-" + byteRange[1]
+                + "/" + length + "\r\n\r\n";
+            outputStream.write(partHeader.getBytes("ISO-8859-1"));
+            writeRange(outputStream, byteRange[0], byteRange[1] - byteRange[0] + 1);
+            outputStream.write("\r\n".getBytes("ISO-8859-1"));
+        }
+        outputStream.write(("--" + BOUNDARY + "--\r\n").getBytes("ISO-8859-1"));
+        outputStream.flush();
+    }
+
+    /**
+     * Write the given range of the file to the output stream.
+     *
+     * @param outputStream the response output stream
+     * @param start the first byte position
+     * @param count the number of bytes
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeRange(OutputStream outputStream, long start, long count)
+            throws IOException {
+
+        FileInputStream inputStream = new FileInputStream(file);
+        try {
+            FileChannel channel = inputStream.getChannel();
+
+            byte[] bytes = new byte[(int) Math.min(bufferSize, Math.max(count, 1))];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                buffer.clear();
+                if (remaining < buffer.capacity()) {
+                    buffer.limit((int) remaining);
+                }
+                int read = channel.read(buffer, position);
+                if (read == -1) {
+                    break;
+                }
+                outputStream.write(bytes, 0, read);
+                position += read;
+                remaining -= read;
+            }
+            outputStream.flush();
+
+        } finally {
+            ClickUtils.close(inputStream);
+        }
+    }
+
+    /**
+     * Return true if the If-Range header is absent or matches the current
+     * file, in which case the Range header applies.
+     *
+     * @param request the servlet request
+     * @param etag the file entity tag
+     * @param lastModified the file last modified time
+     * @return true if the Range header applies
+     */
+    private boolean isIfRangeMatch(HttpServletRequest request, String etag,
+            long lastModified) {
+
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        long date = getDateHeader(request, "If-Range");
+        return date != -1 && lastModified / 1000 <= date / 1000;
+    }
+
+    /**
+     * Return true if the given If-Match or If-None-Match header value matches
+     * the entity tag.
+     *
+     * @param header the header value
+     * @param etag the file entity tag
+     * @return true if the header value matches the entity tag
+     */
+    private boolean matchesETag(String header, String etag) {
+        for (String value : header.split(",")) {
+            value = value.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the given date header value, or -1 if the header is missing or
+     * is not a valid date.
+     *
+     * @param request the servlet request
+     * @param name the header name
+     * @return the date header value, or -1 if missing or invalid
+     */
+    private long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException iae) {
+            return -1;
+        }
+    }
+}
@@ -26,6 +26,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.click.ajax.AjaxControlFactory;
 import org.apache.click.element.Element;
 import org.apache.click.util.ClickUtils;
 import org.apache.click.util.Format;
@@ -160,6 +161,9 @@ public class Page implements Serializable {
     /** The list of page controls. */
     protected List<Control> controls;
 
+    /** The list of page Ajax control factories. */
+    protected List<AjaxControlFactory> ajaxControlFactories;
+
     /**
      * The list of page HTML HEAD elements including: Javascript imports,
      * Css imports, inline Javascript and inline Css.
@@ -212,6 +216,27 @@ public class Page implements Serializable {
      */
     protected boolean includeControlHeadElements = true;
 
+    /**
+     * Indicates whether <tt>Link</tt> preload response headers should be set
+     * for the page JavaScript and CSS imports, default value is false.
+     */
+    protected boolean preloadImports;
+
+    /**
+     * Indicates whether the response should be flushed after the
+     * <tt>$headElements</tt> are rendered, default value is false.
+     */
+    protected boolean flushHeadElements;
+
+    /**
+     * Indicates whether the page instance is reused for later requests as a
+     * prototype, default value is false.
+     */
+    protected boolean prototype;
+
+    /** The captured prototype state of the page, set by the ClickServlet. */
+    transient PagePrototype pagePrototype;
+
     // Event Handlers ---------------------------------------------------------
 
     /**
@@ -440,6 +465,55 @@ public class Page implements Serializable {
         return (controls != null) && !controls.isEmpty();
     }
 
+    /**
+     * Add the factory of an Ajax target control to the page. For Ajax
+     * requests which target the factory control, Click initializes and
+     * processes only that control, skipping the page <tt>onInit()</tt> event
+     * and the rest of the control tree. Factories should be added in the
+     * page constructor, for example:
+     *
+     * <pre class="prettyprint">
+     * public SearchPage() {
+     *     addAjaxControlFactory(new AjaxControlFactory() {
+     *         public Control createControl() {
+     *             return createMoreLink();
+     *         }
+     *     });
+     * } </pre>
+     *
+     * @see AjaxControlFactory
+     *
+     * @param factory the Ajax control factory to add
+     * @throws IllegalArgumentException if the factory is null
+     */
+    public void addAjaxControlFactory(AjaxControlFactory factory) {
+        if (factory == null) {
+            throw new IllegalArgumentException("Null factory parameter");
+        }
+        getAjaxControlFactories().add(factory);
+    }
+
+    /**
+     * Return the list of page Ajax control factories.
+     *
+     * @return the list of page Ajax control factories
+     */
+    public List<AjaxControlFactory> getAjaxControlFactories() {
+        if (ajaxControlFactories == null) {
+            ajaxControlFactories = new ArrayList<AjaxControlFactory>();
+        }
+        return ajaxControlFactories;
+    }
+
+    /**
+     * Return true if the page has any Ajax control factories defined.
+     *
+     * @return true if the page has any Ajax control factories defined
+     */
+    public boolean hasAjaxControlFactories() {
+        return (ajaxControlFactories != null) && !ajaxControlFactories.isEmpty();
+    }
+
     /**
      * Return the request context of the page.
      *
@@ -1079,6 +1153,132 @@ public class Page implements Serializable {
         this.includeControlHeadElements = includeControlHeadElements;
     }
 
+    /**
+     * Return true if <tt>Link</tt> preload response headers are set for the
+     * page JavaScript and CSS imports. Default value is false.
+     *
+     * @see #setPreloadImports(boolean)
+     *
+     * @return true if preload headers are set for the page imports
+     */
+    public boolean isPreloadImports() {
+        return preloadImports;
+    }
+
+    /**
+     * Set whether <tt>Link</tt> preload response headers are set for the page
+     * JavaScript and CSS imports, before the page template is rendered. For
+     * example:
+     *
+     * <pre class="codeConfig">
+     * Link: &lt;/mycorp/click/control.css&gt;; rel=preload; as=style, &lt;/mycorp/click/control.js&gt;; rel=preload; as=script </pre>
+     *
+     * This lets the browser, or a proxy supporting early hints, start loading
+     * the resources while the page is still rendering.
+     *
+     * @param preloadImports true if preload headers are set for the page
+     * imports
+     */
+    public void setPreloadImports(boolean preloadImports) {
+        this.preloadImports = preloadImports;
+    }
+
+    /**
+     * Return true if the response is flushed after the
+     * <tt>$headElements</tt> are rendered. Default value is false.
+     *
+     * @see #setFlushHeadElements(boolean)
+     *
+     * @return true if the response is flushed after the head elements
+     */
+    public boolean isFlushHeadElements() {
+        return flushHeadElements;
+    }
+
+    /**
+     * Set whether the response is flushed to the client as soon as the
+     * Velocity template has rendered <tt>$headElements</tt>. The browser can
+     * then load the page resources while slower body content, such as a large
+     * Table, is still rendering.
+     * <p/>
+     * Please note once the response is flushed it is committed, so an error
+     * in the rest of the template is rendered inline rather than as the error
+     * page. This option is supported by the
+     * {@link org.apache.click.service.VelocityTemplateService}.
+     *
+     * @param flushHeadElements true if the response is flushed after the
+     * head elements
+     */
+    public void setFlushHeadElements(boolean flushHeadElements) {
+        this.flushHeadElements = flushHeadElements;
+    }
+
+    /**
+     * Return true if the page instance is reused for later requests as a
+     * prototype. Default value is false.
+     *
+     * @see #setPrototype(boolean)
+     *
+     * @return true if the page instance is reused for later requests
+     */
+    public boolean isPrototype() {
+        return prototype;
+    }
+
+    /**
+     * Set whether the page instance is reused for later requests as a
+     * prototype, instead of constructing a new page and control tree for
+     * every request. This option should be set in the page constructor, and
+     * the page must implement {@link Resettable}, for example:
+     *
+     * <pre class="prettyprint">
+     * public class CustomerEditPage extends Page implements Resettable {
+     *
+     *     public CustomerEditPage() {
+     *         setPrototype(true);
+     *
+     *         form.add(new TextField("name", true));
+     *         ..
+     *         addControl(form);
+     *     }
+     *
+     *     public void reset() {
+     *         customer = new Customer();
+     *     }
+     * } </pre>
+     *
+     * The ClickServlet captures the state of the page and its control tree
+     * once the page is constructed and its controls are bound, before any
+     * request parameters are bound. After a request the page is returned to
+     * a pool, and before the page serves another request of the same path the
+     * captured state is restored: the fields of the page and its controls are
+     * set back to their captured values, the contents of their lists and
+     * maps are restored, and then the page's {@link Resettable#reset()}
+     * method is invoked. Pages which do not implement {@link Resettable} are
+     * not reused.
+     * <p/>
+     * Please note:
+     * <ul>
+     * <li>only the field values of the page and its controls are restored,
+     * the objects they refer to are not. Any other request state, such as
+     * beans populated from a form, arrays or Column decorators, must be
+     * reset in {@link Resettable#reset()}</li>
+     * <li>controls added in <tt>onInit()</tt> are created again for every
+     * request, so build the control tree in the constructor to benefit from
+     * prototype reuse</li>
+     * <li>messages resolved in the constructor are shared by all requests,
+     * so prototype pages should not depend on the request locale in their
+     * constructor</li>
+     * <li>the page must not be referenced after its request has completed</li>
+     * </ul>
+     *
+     * @param prototype true if the page instance is reused for later
+     * requests
+     */
+    public void setPrototype(boolean prototype) {
+        this.prototype = prototype;
+    }
+
     /**
      * Set the location to redirect the request to.
      * <p/>
@@ -0,0 +1,443 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.click.control.AbstractControl;
+import org.apache.click.control.Column;
+import org.apache.click.control.Container;
+import org.apache.click.control.OptionGroup;
+import org.apache.click.control.Select;
+import org.apache.click.control.Table;
+
+/**
+ * Provides the captured state of a page instance which is reused for later
+ * requests, see {@link Page#setPrototype(boolean)}.
+ * <p/>
+ * The non static fields of the page, of every control in its control tree,
+ * of the Table columns and of the Select option groups are captured when the
+ * prototype is created. {@link #reset()} sets the fields back to their
+ * captured values, and restores the contents of any captured lists, sets and
+ * maps which were modified. As the {@link ControlRegistry} is bound to each
+ * request, the controls with Behaviors are registered again as Ajax targets.
+ * Finally the page's {@link Resettable#reset()} method is invoked, for the
+ * page to reset any other state it holds, as the objects its fields refer to
+ * are not copied. Only pages implementing {@link Resettable} are reused.
+ */
+class PagePrototype {
+
+    // -------------------------------------------------------------- Constants
+
+    /** The cache of captured fields keyed on class. */
+    private static final ConcurrentMap<Class<?>, Field[]> FIELD_CACHE =
+        new ConcurrentHashMap<Class<?>, Field[]>();
+
+    // -------------------------------------------------------------- Variables
+
+    /** The page path the prototype serves. */
+    final String path;
+
+    /** The prototype page. */
+    final Page page;
+
+    /** The captured states of the page and its controls. */
+    private final List<ObjectState> states = new ArrayList<ObjectState>();
+
+    /** The controls of the control tree with Behaviors. */
+    private final List<Control> ajaxTargets = new ArrayList<Control>();
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Capture the state of the given page and its control tree.
+     *
+     * @param path the page path the prototype serves
+     * @param page the prototype page, which must implement {@link Resettable}
+     */
+    PagePrototype(String path, Page page) {
+        if (!(page instanceof Resettable)) {
+            String msg = "prototype page " + page.getClass().getName()
+                + " does not implement " + Resettable.class.getName();
+            throw new IllegalArgumentException(msg);
+        }
+
+        this.path = path;
+        this.page = page;
+
+        states.add(new ObjectState(page));
+        if (page.hasControls()) {
+            addControls(page.getControls(), new IdentityHashMap<Control, Control>());
+        }
+    }
+
+    // -------------------------------------------------------- Package Methods
+
+    /**
+     * Restore the captured state of the page and its control tree, register
+     * the controls with Behaviors as Ajax targets of the current request, and
+     * invoke the page's {@link Resettable#reset()} method.
+     */
+    void reset() {
+        for (int i = 0, size = states.size(); i < size; i++) {
+            states.get(i).restore();
+        }
+
+        for (int i = 0, size = ajaxTargets.size(); i < size; i++) {
+            ControlRegistry.registerAjaxTarget(ajaxTargets.get(i));
+        }
+
+        ((Resettable) page).reset();
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Capture the state of the given controls and their child controls.
+     *
+     * @param controls the controls to capture
+     * @param visited the controls already captured
+     */
+    private void addControls(List<Control> controls, Map<Control, Control> visited) {
+        for (int i = 0, size = controls.size(); i < size; i++) {
+            Control control = controls.get(i);
+            if (visited.put(control, control) != null) {
+                continue;
+            }
+
+            ObjectState state = new ObjectState(control);
+            states.add(state);
+
+            if (control instanceof AbstractControl
+                && ((AbstractControl) control).hasBehaviors()) {
+                ajaxTargets.add(control);
+            }
+
+            if (control instanceof Container) {
+                Container container = (Container) control;
+                if (container.hasControls()) {
+                    addControls(container.getControls(), visited);
+                }
+
+            } else if (control instanceof Table) {
+                Table table = (Table) control;
+                for (Column column : table.getColumnList()) {
+                    states.add(new ObjectState(column));
+                }
+                if (table.hasControls()) {
+                    addControls(table.getControls(), visited);
+                }
+
+            } else if (control instanceof Select) {
+                // Read the captured option list, as getOptionList() would
+                // load the options from the Select DataProvider
+                addOptionGroups(state.getValue("optionList"));
+            }
+        }
+    }
+
+    /**
+     * Capture the state of the option groups in the given option list, and
+     * of their nested option groups.
+     *
+     * @param options the option list to capture the option groups of
+     */
+    private void addOptionGroups(Object options) {
+        if (!(options instanceof Collection)) {
+            return;
+        }
+        for (Object option : (Collection<?>) options) {
+            if (option instanceof OptionGroup) {
+                OptionGroup group = (OptionGroup) option;
+                states.add(new ObjectState(group));
+                addOptionGroups(group.getChildren());
+            }
+        }
+    }
+
+    /**
+     * Return the non static fields declared by the given class and its super
+     * classes, made accessible.
+     *
+     * @param objectClass the class to return the fields of
+     * @return the non static fields of the class
+     */
+    private static Field[] getFields(Class<?> objectClass) {
+        Field[] fields = FIELD_CACHE.get(objectClass);
+        if (fields != null) {
+            return fields;
+        }
+
+        List<Field> fieldList = new ArrayList<Field>();
+        for (Class<?> c = objectClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())
+                    || field.isSynthetic()
+                    || field.getType() == PagePrototype.class) {
+                    continue;
+                }
+                field.setAccessible(true);
+                fieldList.add(field);
+            }
+        }
+
+        fields = fieldList.toArray(new Field[fieldList.size()]);
+        FIELD_CACHE.putIfAbsent(objectClass, fields);
+        return fields;
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Provides the captured field values of an object.
+     */
+    private static class ObjectState {
+
+        /** The captured object. */
+        private final Object target;
+
+        /** The captured fields. */
+        private final Field[] fields;
+
+        /** The captured field values. */
+        private final Object[] values;
+
+        /** The captured list, set and map contents, or null. */
+        private final Object[] contents;
+
+        /**
+         * Capture the field values of the given object.
+         *
+         * @param target the object to capture
+         */
+        ObjectState(Object target) {
+            this.target = target;
+            this.fields = getFields(target.getClass());
+            this.values = new Object[fields.length];
+            this.contents = new Object[fields.length];
+
+            try {
+                for (int i = 0; i < fields.length; i++) {
+                    Object value = fields[i].get(target);
+                    values[i] = value;
+
+                    if (value instanceof Map) {
+                        contents[i] = new LinkedHashMap<Object, Object>((Map<?, ?>) value);
+                    } else if (value instanceof Collection) {
+                        contents[i] = new ArrayList<Object>((Collection<?>) value);
+                    }
+                }
+
+            } catch (IllegalAccessException iae) {
+                throw new RuntimeException(iae);
+            }
+        }
+
+        /**
+         * Return the captured value of the field with the given name, or null
+         * if the object has no such field.
+         *
+         * @param name the field name
+         * @return the captured field value, or null
+         */
+        Object getValue(String name) {
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i].getName().equals(name)) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Restore the captured field values and contents.
+         */
+        @SuppressWarnings("unchecked")
+        void restore() {
+            try {
+                for (int i = 0; i < fields.length; i++) {
+                    Field field = fields[i];
+                    Object value = values[i];
+
+                    if (!Modifier.isFinal(field.getModifiers())) {
+                        field.set(target, value);
+                    }
+
+                    Object content = contents[i];
+                    if (content == null) {
+                        continue;
+                    }
+
+                    // Only write to collections which were modified, as they
+                    // may be shared
+                    try {
+                        if (value instanceof Map) {
+                            Map<Object, Object> map = (Map<Object, Object>) value;
+                            Map<Object, Object> captured = (Map<Object, Object>) content;
+                            if (!isUnchanged(map, captured)) {
+                                map.clear();
+                                map.putAll(captured);
+                            }
+
+                        } else {
+                            Collection<Object> collection = (Collection<Object>) value;
+                            List<Object> captured = (List<Object>) content;
+                            if (!isUnchanged(collection, captured)) {
+                                collection.clear();
+                                collection.addAll(captured);
+                            }
+                        }
+
+                    } catch (UnsupportedOperationException uoe) {
+                        // Unmodifiable collections cannot have changed
+                    }
+                }
+
+            } catch (IllegalAccessException iae) {
+                throw new RuntimeException(iae);
+            }
+        }
+
+        /**
+         * Return true if the map holds the same entries as the captured map.
+         *
+         * @param map the map to check
+         * @param captured the captured map entries
+         * @return true if the map is unchanged
+         */
+        private static boolean isUnchanged(Map<Object, Object> map,
+                Map<Object, Object> captured) {
+
+            if (map.size() != captured.size()) {
+                return false;
+            }
+            for (Map.Entry<Object, Object> entry : captured.entrySet()) {
+                if (map.get(entry.getKey()) != entry.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Return true if the collection holds the same elements, in the same
+         * order, as the captured list.
+         *
+         * @param collection the collection to check
+         * @param captured the captured collection elements
+         * @return true if the collection is unchanged
+         */
+        private static boolean isUnchanged(Collection<Object> collection,
+                List<Object> captured) {
+
+            if (collection.size() != captured.size()) {
+                return false;
+            }
+            int index = 0;
+            for (Iterator<Object> i = collection.iterator(); i.hasNext();) {
+                if (i.next() != captured.get(index++)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Provides a bounded pool of prototype pages for each page path.
+     */
+    static class Pool {
+
+        /** The maximum number of pooled pages per path. */
+        private final int maxSize;
+
+        /** The pooled prototypes keyed on page path. */
+        private final ConcurrentMap<String, Queue<PagePrototype>> pools =
+            new ConcurrentHashMap<String, Queue<PagePrototype>>();
+
+        /**
+         * Create a prototype pool.
+         *
+         * @param maxSize the maximum number of pooled pages per path
+         */
+        Pool(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Return a pooled page for the given path, with its prototype state
+         * restored, or null if none is available.
+         *
+         * @param path the page path
+         * @return a pooled page, or null if none is available
+         */
+        Page acquire(String path) {
+            Queue<PagePrototype> pool = pools.get(path);
+            if (pool == null) {
+                return null;
+            }
+
+            PagePrototype prototype = pool.poll();
+            if (prototype == null) {
+                return null;
+            }
+
+            prototype.reset();
+            return prototype.page;
+        }
+
+        /**
+         * Return the given page to the pool, if it has a captured prototype
+         * state and the pool for its path is not full.
+         *
+         * @param page the page to return to the pool
+         */
+        void release(Page page) {
+            PagePrototype prototype = page.pagePrototype;
+            if (prototype == null || !page.isPrototype()) {
+                return;
+            }
+
+            Queue<PagePrototype> pool = pools.get(prototype.path);
+            if (pool == null) {
+                pool = new ConcurrentLinkedQueue<PagePrototype>();
+                Queue<PagePrototype> existing = pools.putIfAbsent(prototype.path, pool);
+                if (existing != null) {
+                    pool = existing;
+                }
+            }
+
+            if (pool.size() < maxSize) {
+                pool.offer(prototype);
+            }
+        }
+    }
+}
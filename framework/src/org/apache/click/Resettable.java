@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click;
+
+/**
+ * Provides an interface that prototype pages implement to reset their request
+ * state before they are reused for another request, see
+ * {@link Page#setPrototype(boolean)}.
+ * <p/>
+ * The ClickServlet restores the fields of the page and of the controls in its
+ * control tree to the values captured after the page was constructed. This
+ * restores field references and the contents of lists, sets and maps held
+ * directly, but not the state of other objects the page refers to. A page is
+ * only reused as a prototype if it implements this interface, and its
+ * {@link #reset()} method must clear any other request state, for example:
+ *
+ * <pre class="prettyprint">
+ * public class CustomerEditPage extends Page implements Resettable {
+ *
+ *     private Form form = new Form("form");
+ *
+ *     private Customer customer = new Customer();
+ *
+ *     private String[] selections = new String[3];
+ *
+ *     public CustomerEditPage() {
+ *         setPrototype(true);
+ *         ..
+ *     }
+ *
+ *     // Clear the state left by the previous request
+ *     public void reset() {
+ *         customer = new Customer();
+ *         Arrays.fill(selections, null);
+ *     }
+ * } </pre>
+ *
+ * Any state which is not reset is visible to the next request, which may be
+ * from another user.
+ */
+public interface Resettable {
+
+    /**
+     * Reset the request state of the page, after its captured field values
+     * have been restored and before it is reused for another request.
+     */
+    public void reset();
+
+}
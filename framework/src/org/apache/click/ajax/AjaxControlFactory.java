@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.ajax;
+
+import org.apache.click.Control;
+
+/**
+ * Provides a factory for an Ajax target control, which lets Click process an
+ * Ajax request without initializing the page control tree.
+ * <p/>
+ * Factories are registered in the Page constructor with
+ * {@link org.apache.click.Page#addAjaxControlFactory(AjaxControlFactory)}.
+ * For Ajax requests the ClickServlet creates and initializes the factory
+ * controls until one of them, or one of their child controls, is the Ajax
+ * target. Only that target control is then processed and its Behaviors are
+ * fired. The page <tt>onInit()</tt> and the <tt>onInit()</tt> and
+ * <tt>onProcess()</tt> events of the page controls are skipped. If none of
+ * the factory controls is the Ajax target the request is processed as before.
+ * <p/>
+ * As the id of a field includes the name of its form, a factory for a form
+ * field returns the field inside a form of the same name. For example:
+ *
+ * <pre class="prettyprint">
+ * public class CustomerPage extends Page {
+ *
+ *     public CustomerPage() {
+ *         addAjaxControlFactory(new AjaxControlFactory() {
+ *             public Control createControl() {
+ *                 Form form = new Form("form");
+ *                 form.add(createCountryField());
+ *                 return form;
+ *             }
+ *         });
+ *     }
+ *
+ *     public void onInit() {
+ *         Form form = new Form("form");
+ *         form.add(createCountryField());
+ *         ..
+ *         addControl(form);
+ *     }
+ *
+ *     private AutoCompleteTextField createCountryField() {
+ *         return new AutoCompleteTextField("country") {
+ *             public List getAutoCompleteList(String criteria) {
+ *                 return countryService.getCountryList(criteria);
+ *             }
+ *         };
+ *     }
+ * } </pre>
+ *
+ * Please note the control is created for every Ajax request to the page, so
+ * the factory should only create the target control, its Behaviors and any
+ * parent controls its id depends on. As the page
+ * <tt>onInit()</tt> event is skipped, controls built in <tt>onInit()</tt>
+ * are not built at all on the fast path.
+ */
+public interface AjaxControlFactory {
+
+    /**
+     * Create and return a new Ajax target control with its Behaviors, or a
+     * container holding the target control. The target control must have the
+     * same id, and therefore match the same Ajax requests, as the control
+     * rendered by the page.
+     *
+     * @return a new Ajax target control or container
+     */
+    public Control createControl();
+
+}
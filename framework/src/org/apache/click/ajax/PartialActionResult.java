@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.ajax;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.click.ActionResult;
+import org.apache.click.Context;
+import org.apache.click.Control;
+import org.apache.click.util.HtmlStringBuffer;
+
+/**
+ * Provides a partial-render ActionResult, which returns the rendered HTML of
+ * several controls in a single Ajax response.
+ * <p/>
+ * When one user action has to refresh several controls, such as a Table, a
+ * summary Panel and a message area, the AjaxBehavior can return the HTML
+ * fragments of all of them, instead of the browser sending one Ajax request
+ * per control. For example:
+ *
+ * <pre class="prettyprint">
+ * public void onInit() {
+ *     ActionLink refreshLink = new ActionLink("refresh");
+ *     refreshLink.addBehavior(new DefaultAjaxBehavior() {
+ *
+ *         public ActionResult onAction(Control source) {
+ *             PartialActionResult result = new PartialActionResult();
+ *             result.add(table);
+ *             result.add(summaryPanel);
+ *             result.add("message", "&lt;p&gt;Refreshed&lt;/p&gt;");
+ *             return result;
+ *         }
+ *     });
+ *     ..
+ * } </pre>
+ *
+ * The fragments are rendered as a JSON object keyed on the control ids, in
+ * the order they were added:
+ *
+ * <pre class="codeHtml">
+ * {"table":"&lt;table id=\"table\" ..&gt;..&lt;/table&gt;","summaryPanel":"..","message":"&lt;p&gt;Refreshed&lt;/p&gt;"} </pre>
+ *
+ * The browser can then replace each element with its fragment, for example
+ * with jQuery:
+ *
+ * <pre class="prettyprint">
+ * $.getJSON(url, params, function(fragments) {
+ *     $.each(fragments, function(id, html) {
+ *         $('#' + id).replaceWith(html);
+ *     });
+ * }); </pre>
+ *
+ * Controls are rendered when the ActionResult is rendered, after their
+ * <tt>onRender()</tt> event has been invoked, so each control is rendered
+ * once with its final state.
+ */
+public class PartialActionResult extends ActionResult {
+
+    // Variables --------------------------------------------------------------
+
+    /** The fragments to render, either Controls or HTML Strings, keyed on id. */
+    private final Map<String, Object> fragments = new LinkedHashMap<String, Object>();
+
+    // Constructors -----------------------------------------------------------
+
+    /**
+     * Construct a new empty PartialActionResult. The response content type
+     * is {@link ActionResult#JSON}.
+     */
+    public PartialActionResult() {
+        setContentType(JSON);
+    }
+
+    // Public Methods ---------------------------------------------------------
+
+    /**
+     * Add the given control, which rendered HTML replaces the element with
+     * the control id.
+     *
+     * @param control the control to render
+     * @return this PartialActionResult
+     * @throws IllegalArgumentException if the control is null or has no id
+     */
+    public PartialActionResult add(Control control) {
+        if (control == null) {
+            throw new IllegalArgumentException("Null control parameter");
+        }
+        return add(control.getId(), control);
+    }
+
+    /**
+     * Add the given control, which rendered HTML replaces the element with
+     * the given id.
+     *
+     * @param id the id of the element to replace
+     * @param control the control to render
+     * @return this PartialActionResult
+     * @throws IllegalArgumentException if the id or control is null
+     */
+    public PartialActionResult add(String id, Control control) {
+        if (id == null) {
+            throw new IllegalArgumentException("Null id parameter");
+        }
+        if (control == null) {
+            throw new IllegalArgumentException("Null control parameter");
+        }
+        fragments.put(id, control);
+        return this;
+    }
+
+    /**
+     * Add the given HTML fragment, which replaces the element with the given
+     * id.
+     *
+     * @param id the id of the element to replace
+     * @param html the HTML fragment
+     * @return this PartialActionResult
+     * @throws IllegalArgumentException if the id or html is null
+     */
+    public PartialActionResult add(String id, String html) {
+        if (id == null) {
+            throw new IllegalArgumentException("Null id parameter");
+        }
+        if (html == null) {
+            throw new IllegalArgumentException("Null html parameter");
+        }
+        fragments.put(id, html);
+        return this;
+    }
+
+    /**
+     * Return the fragments to render, either Controls or HTML Strings, keyed
+     * on id.
+     *
+     * @return the unmodifiable map of fragments to render
+     */
+    public Map<String, Object> getFragments() {
+        return Collections.unmodifiableMap(fragments);
+    }
+
+    // Protected Methods ------------------------------------------------------
+
+    /**
+     * Render the fragments as a JSON object to the client.
+     *
+     * @see ActionResult#renderActionResult(org.apache.click.Context)
+     *
+     * @param context the request context
+     */
+    @Override
+    protected void renderActionResult(Context context) {
+        setContent(renderFragments());
+        super.renderActionResult(context);
+    }
+
+    /**
+     * Render and return the fragments as a JSON object.
+     *
+     * @return the fragments as a JSON object
+     */
+    protected String renderFragments() {
+        HtmlStringBuffer buffer = new HtmlStringBuffer(fragments.size() * 256);
+
+        buffer.append("{");
+        for (Map.Entry<String, Object> entry : fragments.entrySet()) {
+            if (buffer.length() > 1) {
+                buffer.append(",");
+            }
+            appendJsonString(buffer, entry.getKey());
+            buffer.append(":");
+
+            Object value = entry.getValue();
+            if (value instanceof Control) {
+                Control control = (Control) value;
+                control.onRender();
+
+                HtmlStringBuffer fragment = new HtmlStringBuffer();
+                control.render(fragment);
+                appendJsonString(buffer, fragment.toString());
+
+            } else {
+                appendJsonString(buffer, value.toString());
+            }
+        }
+        buffer.append("}");
+
+        return buffer.toString();
+    }
+
+    // Private Methods --------------------------------------------------------
+
+    /**
+     * Append the given value to the buffer as a quoted JSON string. The
+     * sequence <tt>&lt;/</tt> is escaped so that the response can be safely
+     * embedded in a script element, as are the line and paragraph separator
+     * characters, which are not valid in JavaScript strings.
+     *
+     * @param buffer the buffer to append to
+     * @param value the value to append
+     */
+    private void appendJsonString(HtmlStringBuffer buffer, String value) {
+        buffer.append('"');
+        for (int i = 0, size = value.length(); i < size; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    buffer.append("\\\"");
+                    break;
+                case '\\':
+                    buffer.append("\\\\");
+                    break;
+                case '\n':
+                    buffer.append("\\n");
+                    break;
+                case '\r':
+                    buffer.append("\\r");
+                    break;
+                case '\t':
+                    buffer.append("\\t");
+                    break;
+                case '/':
+                    if (i > 0 && value.charAt(i - 1) == '<') {
+                        buffer.append("\\/");
+                    } else {
+                        buffer.append(c);
+                    }
+                    break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        String hex = Integer.toHexString(c);
+                        buffer.append("\\u");
+                        for (int j = hex.length(); j < 4; j++) {
+                            buffer.append('0');
+                        }
+                        buffer.append(hex);
+                    } else {
+                        buffer.append(c);
+                    }
+            }
+        }
+        buffer.append('"');
+    }
+}
@@ -18,7 +18,6 @@
  */
 package org.apache.click.control;
 
-import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -43,6 +42,7 @@ import org.apache.click.Page;
 import org.apache.click.element.Element;
 import org.apache.click.util.ClickUtils;
 import org.apache.click.util.HtmlStringBuffer;
+import org.apache.click.util.ValidatorRegistry;
 
 /**
  * Provides a default implementation of the {@link Control} interface
@@ -514,7 +514,7 @@ public abstract class AbstractControl implements Control {
         if (value == null) {
             return null;
         }
-        return MessageFormat.format(value, args);
+        return ValidatorRegistry.formatMessage(value, args);
     }
 
     /**
@@ -18,10 +18,12 @@
  */
 package org.apache.click.control;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import javax.servlet.http.HttpServletRequest;
 import org.apache.click.Context;
@@ -75,6 +77,13 @@ public abstract class AbstractLink extends AbstractControl implements Stateful {
     /** Flag to set if both icon and text are rendered, default value is false. */
     protected boolean renderLabelAndImage = false;
 
+    /** The cached link href template for the current request. */
+    private transient LinkTemplate linkTemplate;
+
+    /** The link classes which override getHref, weakly keyed on class. */
+    private static final Map<Class<?>, Boolean> HREF_OVERRIDES =
+        Collections.synchronizedMap(new WeakHashMap<Class<?>, Boolean>());
+
     // Constructors -----------------------------------------------------------
 
     /**
@@ -139,6 +148,36 @@ public abstract class AbstractLink extends AbstractControl implements Stateful {
      */
     public abstract String getHref();
 
+    /**
+     * Return the compiled href template of the link for the current request,
+     * or null if the link does not support link templates.
+     * <p/>
+     * The template is cached until the request changes or one of the link
+     * parameters the template was compiled with changes, in which case a new
+     * template is compiled with the changed parameters encoded on every
+     * render. See {@link LinkTemplate} for details.
+     *
+     * @return the link href template, or null if not supported
+     */
+    public LinkTemplate getLinkTemplate() {
+        Context context = getContext();
+        LinkTemplate template = linkTemplate;
+
+        Set<String> variableParameters = null;
+        if (template != null && template.getContext() == context) {
+            Set<String> changed = template.getChangedParameters(parameters);
+            if (changed == null) {
+                return template;
+            }
+            changed.addAll(template.getVariableParameters());
+            variableParameters = changed;
+        }
+
+        template = createLinkTemplate(context, variableParameters);
+        linkTemplate = template;
+        return template;
+    }
+
     /**
      * Return the image src path attribute. If the image src is defined then a
      * <tt>&lt;img/&gt;</tt> element will be rendered inside the anchor link
@@ -626,7 +665,7 @@ public abstract class AbstractLink extends AbstractControl implements Stateful {
         } else {
             buffer.elementStart(getTag());
             removeStyleClass("disabled");
-            buffer.appendAttribute("href", getHref());
+            renderHref(buffer);
             buffer.appendAttribute("id", getId());
             buffer.appendAttributeEscaped("title", getTitle());
             if (getTabIndex() > 0) {
@@ -697,6 +736,82 @@ public abstract class AbstractLink extends AbstractControl implements Stateful {
 
     // Protected Methods ------------------------------------------------------
 
+    /**
+     * Create the href template of the link for the given request context.
+     * This method returns null, subclasses which build their href from the
+     * request URI or page path and the link parameters should override this
+     * method.
+     * <p/>
+     * Subclasses of links which render through the template, and which
+     * override {@link #getHref()} to render a different href, have their
+     * href rendered through getHref instead, see
+     * {@link #isHrefOverridden(Class)}.
+     *
+     * @param context the request context
+     * @param variableParameters the names of the parameters to encode on
+     * every render, may be null
+     * @return the link href template, or null if not supported
+     */
+    protected LinkTemplate createLinkTemplate(Context context,
+        Set<String> variableParameters) {
+        return null;
+    }
+
+    /**
+     * Return true if this link class, or one of its superclasses below the
+     * given base class, overrides <tt>getHref()</tt> or
+     * <tt>getHref(Object)</tt>. Links which override these methods must
+     * render their href through them rather than through the link template.
+     * The result is computed once per class.
+     *
+     * @param baseClass the link class which declares the template based
+     * getHref methods
+     * @return true if the getHref methods are overridden below the base class
+     */
+    protected boolean isHrefOverridden(Class<? extends AbstractLink> baseClass) {
+        Class<?> linkClass = getClass();
+        if (linkClass == baseClass) {
+            return false;
+        }
+
+        Boolean overridden = HREF_OVERRIDES.get(linkClass);
+        if (overridden == null) {
+            overridden = Boolean.FALSE;
+            for (Class<?> current = linkClass; current != null && current != baseClass;
+                current = current.getSuperclass()) {
+
+                if (declaresMethod(current, "getHref")
+                    || declaresMethod(current, "getHref", Object.class)) {
+                    overridden = Boolean.TRUE;
+                    break;
+                }
+            }
+            HREF_OVERRIDES.put(linkClass, overridden);
+        }
+        return overridden.booleanValue();
+    }
+
+    /**
+     * Discard the cached link template, for example when the link target
+     * changes.
+     */
+    protected void resetLinkTemplate() {
+        linkTemplate = null;
+    }
+
+    /**
+     * Render the link <tt>href</tt> attribute to the buffer.
+     * <p/>
+     * This method renders the {@link #getHref()} value. Subclasses which
+     * support {@link LinkTemplate link templates} override this method to
+     * render the href straight into the buffer.
+     *
+     * @param buffer the buffer to render the href attribute to
+     */
+    protected void renderHref(HtmlStringBuffer buffer) {
+        buffer.appendAttribute("href", getHref());
+    }
+
     /**
      * Render the Image tag to the buffer.
      *
@@ -814,4 +929,26 @@ public abstract class AbstractLink extends AbstractControl implements Stateful {
             }
         }
     }
+
+    // Private Methods --------------------------------------------------------
+
+    /**
+     * Return true if the given class declares the named method with the given
+     * parameter types.
+     *
+     * @param aClass the class to check
+     * @param name the method name
+     * @param parameterTypes the method parameter types
+     * @return true if the class declares the method
+     */
+    private static boolean declaresMethod(Class<?> aClass, String name,
+        Class<?>... parameterTypes) {
+        try {
+            aClass.getDeclaredMethod(name, parameterTypes);
+            return true;
+
+        } catch (NoSuchMethodException nsme) {
+            return false;
+        }
+    }
 }
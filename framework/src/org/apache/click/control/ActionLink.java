@@ -18,6 +18,11 @@
  */
 package org.apache.click.control;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.apache.click.Context;
 import org.apache.click.util.ClickUtils;
 import org.apache.click.util.HtmlStringBuffer;
@@ -153,6 +158,11 @@ public class ActionLink extends AbstractLink {
     /** The value parameter name: &nbsp; <tt>value</tt>. */
     public static final String VALUE = "value";
 
+    /** The parameter names not rendered from the link parameters map. */
+    private static final Set<String> EXCLUDED_PARAMETERS =
+        Collections.unmodifiableSet(new HashSet<String>(
+            Arrays.asList(new String[] {ACTION_LINK, VALUE})));
+
     // Instance Variables -----------------------------------------------------
 
     /** The link is clicked. */
@@ -286,53 +296,12 @@ public class ActionLink extends AbstractLink {
      * @return the ActionLink HTML href attribute
      */
     public String getHref(Object value) {
-        Context context = getContext();
-        String uri = ClickUtils.getRequestURI(context.getRequest());
-
-        HtmlStringBuffer buffer =
-                new HtmlStringBuffer(uri.length() + getName().length() + 40);
-
-        buffer.append(uri);
-        buffer.append("?");
-        buffer.append(ACTION_LINK);
-        buffer.append("=");
-        buffer.append(getName());
-        if (value != null) {
-            buffer.append("&amp;");
-            buffer.append(VALUE);
-            buffer.append("=");
-            buffer.append(ClickUtils.encodeUrl(value, context));
-        }
-
-        if (hasParameters()) {
-            for (String paramName : getParameters().keySet()) {
-                if (!paramName.equals(ACTION_LINK) && !paramName.equals(VALUE)) {
-                    Object paramValue = getParameters().get(paramName);
-
-                    // Check for multivalued parameter
-                    if (paramValue instanceof String[]) {
-                        String[] paramValues = (String[]) paramValue;
-                        for (int j = 0; j < paramValues.length; j++) {
-                            buffer.append("&amp;");
-                            buffer.append(paramName);
-                            buffer.append("=");
-                            buffer.append(ClickUtils.encodeUrl(paramValues[j],
-                                context));
-                        }
-                    } else {
-                        if (paramValue != null) {
-                            buffer.append("&amp;");
-                            buffer.append(paramName);
-                            buffer.append("=");
-                            buffer.append(ClickUtils.encodeUrl(paramValue,
-                                                               context));
-                        }
-                    }
-                }
-            }
+        LinkTemplate template = getLinkTemplate();
+        if (template == null) {
+            throw new IllegalStateException("ActionLink subclasses which do not"
+                + " support link templates must override getHref(Object)");
         }
-
-        return context.getResponse().encodeURL(buffer.toString());
+        return template.getHref(value, parameters);
     }
 
     /**
@@ -365,6 +334,7 @@ public class ActionLink extends AbstractLink {
             throw new IllegalArgumentException(msg);
         }
         super.setName(name);
+        resetLinkTemplate();
     }
 
     /**
@@ -514,4 +484,61 @@ public class ActionLink extends AbstractLink {
         }
         return true;
     }
+
+    // Protected Methods ------------------------------------------------------
+
+    /**
+     * Create the ActionLink href template for the given request context. The
+     * template prefix holds the request URI and the <tt>actionLink</tt>
+     * parameter.
+     *
+     * @see AbstractLink#createLinkTemplate(Context, Set)
+     *
+     * @param context the request context
+     * @param variableParameters the names of the parameters to encode on
+     * every render, may be null
+     * @return the ActionLink href template
+     */
+    @Override
+    protected LinkTemplate createLinkTemplate(Context context,
+        Set<String> variableParameters) {
+
+        String uri = ClickUtils.getRequestURI(context.getRequest());
+
+        HtmlStringBuffer buffer =
+            new HtmlStringBuffer(uri.length() + getName().length() + 40);
+
+        buffer.append(uri);
+        buffer.append("?");
+        buffer.append(ACTION_LINK);
+        buffer.append("=");
+        buffer.append(getName());
+
+        return new LinkTemplate(context, buffer.toString(), VALUE, parameters,
+            EXCLUDED_PARAMETERS, variableParameters);
+    }
+
+    /**
+     * Render the ActionLink <tt>href</tt> attribute straight into the buffer
+     * using the {@link #getLinkTemplate() link template}. Subclasses which
+     * override <tt>getHref()</tt> or <tt>getHref(Object)</tt> render the
+     * href returned by those methods instead.
+     *
+     * @param buffer the buffer to render the href attribute to
+     */
+    @Override
+    protected void renderHref(HtmlStringBuffer buffer) {
+        LinkTemplate template = null;
+        if (!isHrefOverridden(ActionLink.class)) {
+            template = getLinkTemplate();
+        }
+        if (template == null) {
+            super.renderHref(buffer);
+
+        } else {
+            buffer.append(" href=\"");
+            template.appendHref(buffer, getValue(), parameters);
+            buffer.append("\"");
+        }
+    }
 }
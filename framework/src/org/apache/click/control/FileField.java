@@ -21,6 +21,7 @@ package org.apache.click.control;
 import java.text.MessageFormat;
 import org.apache.click.Context;
 
+import org.apache.click.service.FileUploadSink;
 import org.apache.click.util.HtmlStringBuffer;
 
 import org.apache.commons.fileupload.FileItem;
@@ -210,6 +211,29 @@ public class FileField extends Field {
         this.size = size;
     }
 
+    /**
+     * Register the upload sink which will receive the content of the file
+     * uploaded through this field, when the configured FileUploadService is a
+     * {@link org.apache.click.service.StreamingFileUploadService}.
+     * <p/>
+     * The field {@link #fileItem} will then be a
+     * {@link org.apache.click.service.StreamedFileItem} which describes the
+     * uploaded file without holding its content. The sink is registered with
+     * the request immediately, so this method should be called from the
+     * Page constructor after the field name has been set.
+     *
+     * @see Context#setFileUploadSink(String, FileUploadSink)
+     *
+     * @param sink the upload sink, or null to remove the registered sink
+     * @return true if the sink will receive the uploaded file of this request
+     */
+    public boolean setUploadSink(FileUploadSink sink) {
+        if (getName() == null) {
+            throw new IllegalStateException("FileField name is not defined");
+        }
+        return getContext().setFileUploadSink(getName(), sink);
+    }
+
     /**
      * Return the input type: '<tt>file</tt>'.
      *
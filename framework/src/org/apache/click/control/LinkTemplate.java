@@ -0,0 +1,382 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.control;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.click.Context;
+import org.apache.click.util.HtmlStringBuffer;
+
+/**
+ * Provides a compiled href template for rendering links many times within a
+ * request, for example the row links of a {@link Table}.
+ * <p/>
+ * A LinkTemplate pre-encodes the constant part of a link href once per
+ * request: the request URI or page path and the values of the link
+ * parameters that do not change between renders. When the href is rendered
+ * only the <em>variable</em> parameters, for example the row id, are URL
+ * encoded, straight into the {@link HtmlStringBuffer}.
+ * <p/>
+ * When the response rewrites URLs, for example to add the session ID for
+ * clients without cookies, the full href is passed to
+ * <tt>HttpServletResponse.encodeURL()</tt> on every render, as the container
+ * may also rewrite the query string.
+ * <p/>
+ * Link templates are created and cached by {@link AbstractLink#getLinkTemplate()}.
+ * The template remembers the parameter values it was compiled with; when a
+ * parameter value changes between renders, the link compiles a new template
+ * in which that parameter is variable. A link which is rendered for every
+ * table row therefore compiles at most a few templates per request.
+ */
+public class LinkTemplate {
+
+    // -------------------------------------------------------- Variables
+
+    /** The request context the template was compiled for. */
+    private final Context context;
+
+    /** The pre-encoded href prefix, for example the request URI. */
+    private final String prefix;
+
+    /** Indicates if the prefix already contains a query string. */
+    private final boolean prefixHasQuery;
+
+    /** Indicates if the response rewrites URLs and the full href is encoded. */
+    private final boolean encodeHref;
+
+    /** The name of the value parameter rendered after the prefix. */
+    private final String valueName;
+
+    /** The request charset used to encode the variable parameters. */
+    private final String charset;
+
+    /** The names of the parameters which are not rendered by the template. */
+    private final Set<String> excludedParameters;
+
+    /** The names of the parameters which are encoded on every render. */
+    private final Set<String> variableParameters;
+
+    /** The constant parameter values the template was compiled with. */
+    private final Map<String, Object> staticValues;
+
+    /** The pre-encoded <tt>"name=value"</tt> chunks of the constant parameters. */
+    private final Map<String, String> staticChunks;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Create a new link template.
+     *
+     * @param context the request context
+     * @param prefix the href prefix, for example the request URI, which is
+     * not yet encoded with <tt>HttpServletResponse.encodeURL()</tt>
+     * @param valueName the name of the value parameter rendered directly after
+     * the prefix, or null if the link does not have a value parameter
+     * @param parameters the link parameters, may be null
+     * @param excludedParameters the names of the parameters not to render,
+     * may be null
+     * @param variableParameters the names of the parameters to encode on every
+     * render, may be null
+     */
+    public LinkTemplate(Context context, String prefix, String valueName,
+        Map<String, Object> parameters, Set<String> excludedParameters,
+        Set<String> variableParameters) {
+
+        if (context == null) {
+            throw new IllegalArgumentException("Null context parameter");
+        }
+        if (prefix == null) {
+            throw new IllegalArgumentException("Null prefix parameter");
+        }
+
+        this.context = context;
+        this.prefix = prefix;
+        this.prefixHasQuery = prefix.indexOf('?') != -1;
+        this.encodeHref = !prefix.equals(context.getResponse().encodeURL(prefix));
+        this.valueName = valueName;
+        this.charset = context.getRequest().getCharacterEncoding();
+
+        if (excludedParameters == null) {
+            this.excludedParameters = Collections.emptySet();
+        } else {
+            this.excludedParameters = excludedParameters;
+        }
+        if (variableParameters == null) {
+            this.variableParameters = Collections.emptySet();
+        } else {
+            this.variableParameters = variableParameters;
+        }
+
+        staticValues = new HashMap<String, Object>();
+        staticChunks = new HashMap<String, String>();
+
+        if (parameters != null) {
+            for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+                String name = entry.getKey();
+                if (this.excludedParameters.contains(name)
+                    || this.variableParameters.contains(name)) {
+                    continue;
+                }
+                Object value = entry.getValue();
+                if (value instanceof String[]) {
+                    value = ((String[]) value).clone();
+                }
+
+                HtmlStringBuffer buffer = new HtmlStringBuffer(32);
+                appendParameter(buffer, name, value);
+
+                staticValues.put(name, value);
+                staticChunks.put(name, buffer.toString());
+            }
+        }
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Return the request context the template was compiled for.
+     *
+     * @return the request context the template was compiled for
+     */
+    public Context getContext() {
+        return context;
+    }
+
+    /**
+     * Return the names of the parameters which are encoded on every render.
+     *
+     * @return the names of the variable parameters
+     */
+    public Set<String> getVariableParameters() {
+        return Collections.unmodifiableSet(variableParameters);
+    }
+
+    /**
+     * Return true if the template can render an href for the given
+     * parameters, that is if all the constant parameters of the template
+     * still have the values the template was compiled with.
+     *
+     * @param parameters the link parameters, may be null
+     * @return true if the template matches the given parameters
+     */
+    public boolean matches(Map<String, Object> parameters) {
+        return getChangedParameters(parameters) == null;
+    }
+
+    /**
+     * Return the names of the constant parameters which were added, removed
+     * or changed in the given parameters, or null if the template matches the
+     * given parameters.
+     *
+     * @param parameters the link parameters, may be null
+     * @return the names of the changed parameters, or null if none changed
+     */
+    public Set<String> getChangedParameters(Map<String, Object> parameters) {
+        Set<String> changed = null;
+        int matched = 0;
+
+        if (parameters != null) {
+            for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+                String name = entry.getKey();
+                if (excludedParameters.contains(name)
+                    || variableParameters.contains(name)) {
+                    continue;
+                }
+                Object staticValue = staticValues.get(name);
+                if ((staticValue != null || staticValues.containsKey(name))
+                    && valueEquals(staticValue, entry.getValue())) {
+                    matched++;
+
+                } else {
+                    if (changed == null) {
+                        changed = new HashSet<String>();
+                    }
+                    changed.add(name);
+                }
+            }
+        }
+
+        if (matched != staticValues.size()) {
+            // Constant parameters were removed
+            for (String name : staticValues.keySet()) {
+                if (parameters == null || !parameters.containsKey(name)) {
+                    if (changed == null) {
+                        changed = new HashSet<String>();
+                    }
+                    changed.add(name);
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Render the href for the given value and link parameters to the buffer.
+     * The href is not HTML escaped, since all parameter values are URL
+     * encoded.
+     *
+     * @param buffer the buffer to render the href to
+     * @param value the value parameter, not rendered if null
+     * @param parameters the link parameters, may be null
+     */
+    public void appendHref(HtmlStringBuffer buffer, Object value,
+        Map<String, Object> parameters) {
+
+        if (encodeHref) {
+            buffer.append(getHref(value, parameters));
+        } else {
+            appendRawHref(buffer, value, parameters);
+        }
+    }
+
+    /**
+     * Return the href for the given value and link parameters.
+     *
+     * @param value the value parameter, not rendered if null
+     * @param parameters the link parameters, may be null
+     * @return the href for the given value and link parameters
+     */
+    public String getHref(Object value, Map<String, Object> parameters) {
+        HtmlStringBuffer buffer = new HtmlStringBuffer(prefix.length() + 64);
+        appendRawHref(buffer, value, parameters);
+        if (encodeHref) {
+            return context.getResponse().encodeURL(buffer.toString());
+        }
+        return buffer.toString();
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Render the href for the given value and link parameters to the buffer,
+     * without encoding it with <tt>HttpServletResponse.encodeURL()</tt>.
+     *
+     * @param buffer the buffer to render the href to
+     * @param value the value parameter, not rendered if null
+     * @param parameters the link parameters, may be null
+     */
+    private void appendRawHref(HtmlStringBuffer buffer, Object value,
+        Map<String, Object> parameters) {
+
+        buffer.append(prefix);
+        boolean hasQuery = prefixHasQuery;
+
+        if (valueName != null && value != null) {
+            buffer.append(hasQuery ? "&amp;" : "?");
+            hasQuery = true;
+            buffer.append(valueName);
+            buffer.append('=');
+            buffer.appendUrlEncoded(value, charset);
+        }
+
+        if (parameters == null) {
+            return;
+        }
+
+        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+            String name = entry.getKey();
+            if (excludedParameters.contains(name)) {
+                continue;
+            }
+
+            if (variableParameters.contains(name)) {
+                Object paramValue = entry.getValue();
+                if (paramValue == null || isEmptyArray(paramValue)) {
+                    continue;
+                }
+                buffer.append(hasQuery ? "&amp;" : "?");
+                hasQuery = true;
+                appendParameter(buffer, name, paramValue);
+
+            } else {
+                String chunk = staticChunks.get(name);
+                if (chunk != null && chunk.length() > 0) {
+                    buffer.append(hasQuery ? "&amp;" : "?");
+                    hasQuery = true;
+                    buffer.append(chunk);
+                }
+            }
+        }
+    }
+
+    /**
+     * Render the given parameter as <tt>"name=value"</tt> pairs, rendering
+     * multivalued parameters with each value sharing the same name.
+     *
+     * @param buffer the buffer to render the parameter to
+     * @param name the parameter name
+     * @param value the parameter value
+     */
+    private void appendParameter(HtmlStringBuffer buffer, String name,
+        Object value) {
+
+        if (value instanceof String[]) {
+            String[] values = (String[]) value;
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    buffer.append("&amp;");
+                }
+                buffer.append(name);
+                buffer.append('=');
+                buffer.appendUrlEncoded(values[i], charset);
+            }
+
+        } else if (value != null) {
+            buffer.append(name);
+            buffer.append('=');
+            buffer.appendUrlEncoded(value, charset);
+        }
+    }
+
+    /**
+     * Return true if the given value is an empty multivalued parameter.
+     *
+     * @param value the parameter value
+     * @return true if the value is an empty array
+     */
+    private boolean isEmptyArray(Object value) {
+        return value instanceof String[] && ((String[]) value).length == 0;
+    }
+
+    /**
+     * Return true if the given parameter values are equal.
+     *
+     * @param value1 the first value
+     * @param value2 the second value
+     * @return true if the given values are equal
+     */
+    private boolean valueEquals(Object value1, Object value2) {
+        if (value1 == value2) {
+            return true;
+        }
+        if (value1 == null || value2 == null) {
+            return false;
+        }
+        if (value1 instanceof String[] && value2 instanceof String[]) {
+            return Arrays.equals((String[]) value1, (String[]) value2);
+        }
+        return value1.equals(value2);
+    }
+}
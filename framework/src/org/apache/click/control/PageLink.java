@@ -18,6 +18,8 @@
  */
 package org.apache.click.control;
 
+import java.util.Set;
+
 import org.apache.click.ActionListener;
 import org.apache.click.Context;
 import org.apache.click.Page;
@@ -133,26 +135,7 @@ public class PageLink extends AbstractLink {
             throw new IllegalStateException("target pageClass is not defined");
         }
 
-        Context context = getContext();
-        HtmlStringBuffer buffer = new HtmlStringBuffer();
-
-        buffer.append(context.getRequest().getContextPath());
-
-        String pagePath = context.getPagePath(getPageClass());
-
-        if (pagePath != null && pagePath.endsWith(".jsp")) {
-            pagePath = StringUtils.replace(pagePath, ".jsp", ".htm");
-        }
-
-        buffer.append(pagePath);
-
-        if (hasParameters()) {
-            buffer.append("?");
-
-            renderParameters(buffer, getParameters(), context);
-        }
-
-        return context.getResponse().encodeURL(buffer.toString());
+        return getLinkTemplate().getHref(null, parameters);
     }
 
     /**
@@ -195,6 +178,7 @@ public class PageLink extends AbstractLink {
      */
     public void setPageClass(Class<? extends Page> targetPage) {
         pageClass = targetPage;
+        resetLinkTemplate();
     }
 
     // --------------------------------------------------------- Public Methods
@@ -211,4 +195,63 @@ public class PageLink extends AbstractLink {
         return true;
     }
 
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Create the PageLink href template for the given request context. The
+     * template prefix holds the target page path.
+     *
+     * @see AbstractLink#createLinkTemplate(Context, Set)
+     *
+     * @param context the request context
+     * @param variableParameters the names of the parameters to encode on
+     * every render, may be null
+     * @return the PageLink href template
+     */
+    @Override
+    protected LinkTemplate createLinkTemplate(Context context,
+        Set<String> variableParameters) {
+
+        HtmlStringBuffer buffer = new HtmlStringBuffer();
+
+        buffer.append(context.getRequest().getContextPath());
+
+        String pagePath = context.getPagePath(getPageClass());
+
+        if (pagePath != null && pagePath.endsWith(".jsp")) {
+            pagePath = StringUtils.replace(pagePath, ".jsp", ".htm");
+        }
+
+        buffer.append(pagePath);
+
+        return new LinkTemplate(context, buffer.toString(), null, parameters,
+            null, variableParameters);
+    }
+
+    /**
+     * Render the PageLink <tt>href</tt> attribute straight into the buffer
+     * using the {@link #getLinkTemplate() link template}. Subclasses which
+     * override <tt>getHref()</tt> render the href returned by that method
+     * instead.
+     *
+     * @param buffer the buffer to render the href attribute to
+     */
+    @Override
+    protected void renderHref(HtmlStringBuffer buffer) {
+        LinkTemplate template = null;
+        if (!isHrefOverridden(PageLink.class)) {
+            if (getPageClass() == null) {
+                throw new IllegalStateException("target pageClass is not defined");
+            }
+            template = getLinkTemplate();
+        }
+        if (template == null) {
+            super.renderHref(buffer);
+
+        } else {
+            buffer.append(" href=\"");
+            template.appendHref(buffer, null, parameters);
+            buffer.append("\"");
+        }
+    }
 }
@@ -36,6 +36,7 @@ import org.apache.click.element.Element;
 import org.apache.click.util.ClickUtils;
 import org.apache.click.dataprovider.DataProvider;
 import org.apache.click.util.HtmlStringBuffer;
+import org.apache.click.dataprovider.KeysetDataProvider;
 import org.apache.click.dataprovider.PagingDataProvider;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.math.NumberUtils;
@@ -281,6 +282,14 @@ import org.apache.commons.lang.math.NumberUtils;
  * For a live demonstration see the
  * <a href="http://click.avoka.com/click-examples/table/large-dataset-demo.htm">Large Dataset Demo</a>.
  * <p/>
+ * If counting the rows is expensive, wrap the provider in a
+ * {@link org.apache.click.dataprovider.CachingPagingDataProvider} to cache
+ * the row count between requests. For very large data sets use a
+ * {@link org.apache.click.dataprovider.KeysetDataProvider}, which seeks from
+ * the row key of the current page with the Table methods {@link #getSeekKey()}
+ * and {@link #isSeekPrevious()} instead of counting and skipping rows. The
+ * table paginator then renders first, previous and next links only.
+ * <p/>
  *
  * See the W3C HTML reference
  * <a class="external" target="_blank" title="W3C HTML 4.01 Specification"
@@ -331,9 +340,15 @@ public class Table extends AbstractControl implements Stateful {
     /** The control ActionLink sorted column parameter name: <tt>"column"</tt>. */
     public static final String COLUMN = "column";
 
+    /** The control ActionLink seek key parameter name: <tt>"key"</tt>. */
+    public static final String KEY = "key";
+
     /** The control ActionLink page number parameter name: <tt>"page"</tt>. */
     public static final String PAGE = "page";
 
+    /** The control ActionLink seek previous parameter name: <tt>"previous"</tt>. */
+    public static final String PREVIOUS = "previous";
+
     /** The control ActionLink sort number parameter name: <tt>"sort"</tt>. */
     public static final String SORT = "sort";
 
@@ -446,6 +461,12 @@ public class Table extends AbstractControl implements Stateful {
      */
     protected int pageSize;
 
+    /**
+     * The {@link KeysetDataProvider} has a next page flag, set when the row
+     * list is created.
+     */
+    protected boolean nextPage;
+
     /** The paginator used to render the table pagination controls. */
     protected Renderable paginator;
 
@@ -490,6 +511,12 @@ public class Table extends AbstractControl implements Stateful {
     /** The name of the sorted column. */
     protected String sortedColumn;
 
+    /** The row key a {@link KeysetDataProvider} seeks from. */
+    protected String seekKey;
+
+    /** The {@link KeysetDataProvider} seeks backward from the seek key flag. */
+    protected boolean seekPrevious;
+
     /** The table HTML &lt;td&gt; width attribute. */
     protected String width;
 
@@ -1079,6 +1106,94 @@ public class Table extends AbstractControl implements Stateful {
         return pageSize;
     }
 
+    /**
+     * Return the row key a {@link KeysetDataProvider} seeks from, or null
+     * for the first page.
+     *
+     * @see KeysetDataProvider
+     *
+     * @return the row key to seek from, or null for the first page
+     */
+    public String getSeekKey() {
+        return seekKey;
+    }
+
+    /**
+     * Set the row key a {@link KeysetDataProvider} seeks from.
+     *
+     * @param seekKey the row key to seek from, or null for the first page
+     */
+    public void setSeekKey(String seekKey) {
+        this.seekKey = seekKey;
+    }
+
+    /**
+     * Return true if a {@link KeysetDataProvider} seeks backward from the
+     * seek key, to the previous page, or false if it seeks forward.
+     *
+     * @see KeysetDataProvider
+     *
+     * @return true if seeking backward from the seek key
+     */
+    public boolean isSeekPrevious() {
+        return seekPrevious;
+    }
+
+    /**
+     * Set whether a {@link KeysetDataProvider} seeks backward from the seek
+     * key.
+     *
+     * @param seekPrevious true if seeking backward from the seek key
+     */
+    public void setSeekPrevious(boolean seekPrevious) {
+        this.seekPrevious = seekPrevious;
+    }
+
+    /**
+     * Return true if the table data provider is a {@link KeysetDataProvider}.
+     *
+     * @return true if the table data provider is a KeysetDataProvider
+     */
+    public boolean isKeysetPaging() {
+        return getDataProvider() instanceof KeysetDataProvider<?>;
+    }
+
+    /**
+     * Return true if there is a page after the currently displayed page.
+     *
+     * @return true if there is a page after the currently displayed page
+     */
+    public boolean hasNextPage() {
+        if (isKeysetPaging()) {
+            // Ensure the row list is loaded to set the next page flag
+            getRowList();
+            return nextPage;
+        }
+        return getPageNumber() < getNumberPages() - 1;
+    }
+
+    /**
+     * Return the {@link KeysetDataProvider} row key of the first displayed
+     * row, or null if there are no rows.
+     *
+     * @return the row key of the first displayed row
+     */
+    public String getFirstRowKey() {
+        List<?> rows = getRowList();
+        return rows.isEmpty() ? null : getRowKey(rows.get(0));
+    }
+
+    /**
+     * Return the {@link KeysetDataProvider} row key of the last displayed
+     * row, or null if there are no rows.
+     *
+     * @return the row key of the last displayed row
+     */
+    public String getLastRowKey() {
+        List<?> rows = getRowList();
+        return rows.isEmpty() ? null : getRowKey(rows.get(rows.size() - 1));
+    }
+
     /**
      * Return the paginator for rendering the table pagination.
      *
@@ -1485,6 +1600,8 @@ public class Table extends AbstractControl implements Stateful {
         localControlLink.defineParameter(COLUMN);
         localControlLink.defineParameter(ASCENDING);
         localControlLink.defineParameter(SORT);
+        localControlLink.defineParameter(KEY);
+        localControlLink.defineParameter(PREVIOUS);
 
         localControlLink.onProcess();
 
@@ -1496,6 +1613,14 @@ public class Table extends AbstractControl implements Stateful {
                 setPageNumber(0);
             }
 
+            setSeekKey(localControlLink.getParameter(KEY));
+            setSeekPrevious("true".equals(localControlLink.getParameter(PREVIOUS)));
+
+            // The seek parameters only apply to the paginator links rendered
+            // for this page
+            localControlLink.setParameter(KEY, null);
+            localControlLink.setParameter(PREVIOUS, null);
+
             String column = localControlLink.getParameter(COLUMN);
             if (column != null) {
                 setSortedColumn(column);
@@ -1711,7 +1836,18 @@ public class Table extends AbstractControl implements Stateful {
                 isPaginating = true;
             }
 
-            if (isPaginating) {
+            if (dp instanceof KeysetDataProvider<?>) {
+                // Without a seek key the first page is displayed, for example
+                // after the sort order is changed
+                if (getSeekKey() == null) {
+                    setPageNumber(0);
+                    setSeekPrevious(false);
+                }
+
+                // keyset datasets are sorted by the provider
+                setSorted(true);
+
+            } else if (isPaginating) {
                 // rowCount is provided by the paging data provider. Its
                 // important to set the rowCount *before* invoking dp.getData
                 // since the getData implementation could have a dependency
@@ -1744,7 +1880,10 @@ public class Table extends AbstractControl implements Stateful {
                 }
             }
 
-            if (!isPaginating) {
+            if (dp instanceof KeysetDataProvider<?>) {
+                rowList = trimKeysetRowList(rowList);
+
+            } else if (!isPaginating) {
                 // for non paginating data provider the row count equals
                 // the number of rows in the rowList
                 this.rowCount = rowList.size();
@@ -1805,7 +1944,8 @@ public class Table extends AbstractControl implements Stateful {
         int firstRow = 0;
         int lastRow = 0;
 
-        if (getDataProvider() instanceof PagingDataProvider) {
+        if (getDataProvider() instanceof PagingDataProvider
+            || getDataProvider() instanceof KeysetDataProvider) {
             lastRow = getRowList().size();
         } else {
             firstRow = getFirstRow();
@@ -2212,4 +2352,51 @@ public class Table extends AbstractControl implements Stateful {
         }
         return isDarkStyle;
     }
+
+    /**
+     * Trim the row list returned by a {@link KeysetDataProvider} to the page
+     * size, setting the next page flag and the number of rows known so far.
+     *
+     * @param rowList the row list returned by the data provider
+     * @return the rows to display
+     */
+    private List<Object> trimKeysetRowList(List<Object> rowList) {
+        int size = getPageSize();
+
+        if (isSeekPrevious()) {
+            // The previous page is followed by the seek key row
+            nextPage = true;
+            if (size > 0 && rowList.size() > size) {
+                rowList = new ArrayList<Object>(
+                    rowList.subList(rowList.size() - size, rowList.size()));
+            }
+
+        } else {
+            // The extra row after the page shows there is a next page
+            nextPage = size > 0 && rowList.size() > size;
+            if (nextPage) {
+                rowList = new ArrayList<Object>(rowList.subList(0, size));
+            }
+        }
+
+        this.rowCount = getFirstRow() + rowList.size() + (nextPage ? 1 : 0);
+
+        return rowList;
+    }
+
+    /**
+     * Return the {@link KeysetDataProvider} row key of the given row.
+     *
+     * @param row the row to return the key of
+     * @return the row key of the given row
+     * @throws IllegalStateException if the table data provider is not a
+     * KeysetDataProvider
+     */
+    @SuppressWarnings("unchecked")
+    private String getRowKey(Object row) {
+        if (!isKeysetPaging()) {
+            throw new IllegalStateException("Table dataProvider is not a KeysetDataProvider");
+        }
+        return ((KeysetDataProvider<Object>) getDataProvider()).getRowKey(row);
+    }
 }
@@ -0,0 +1,590 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.control;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.click.ActionResult;
+import org.apache.click.Context;
+import org.apache.click.dataprovider.DataProvider;
+import org.apache.click.dataprovider.KeysetDataProvider;
+import org.apache.click.dataprovider.PagingDataProvider;
+import org.apache.click.util.ClickUtils;
+
+/**
+ * Provides an ActionResult which streams the rows of a {@link Table} to the
+ * client as a CSV, TSV or spreadsheet XML download.
+ * <p/>
+ * The export reuses the Table {@link Column} definitions: the column header
+ * titles, properties and formats. Column decorators usually render HTML, so
+ * they are only used when {@link #setExportDecorators(boolean) enabled}.
+ * Rows are written to the
+ * response as they are loaded, so memory use is bounded by the chunk size
+ * rather than the number of rows:
+ * <ul>
+ * <li>a {@link PagingDataProvider} is asked for the rows a chunk at a time,
+ * using the Table {@link Table#getFirstRow() first row} and
+ * {@link Table#getPageSize() page size}, so sorting and filtering stay in
+ * the provider's query and the rows are only counted once</li>
+ * <li>a {@link KeysetDataProvider} is sought through the rows a chunk at a
+ * time</li>
+ * <li>the data of any other DataProvider is iterated directly, unless the
+ * table is sorted, in which case the rows are loaded and sorted in memory
+ * as when the table is rendered</li>
+ * </ul>
+ * For example a page action, invoked with a <tt>pageAction=exportCsv</tt>
+ * request parameter, can return the export:
+ *
+ * <pre class="prettyprint">
+ * public ActionResult exportCsv() {
+ *     return new TableExportResult(table, TableExportResult.CSV);
+ * } </pre>
+ *
+ * All rows are exported, regardless of the Table page size and page number,
+ * which are restored once the export has been written.
+ * <p/>
+ * CSV and TSV values which start with <tt>=</tt>, <tt>+</tt>, <tt>-</tt>
+ * or <tt>@</tt> are prefixed with a <tt>'</tt>, so spreadsheet applications
+ * do not evaluate them as formulas.
+ * <p/>
+ * The <tt>xml</tt> format is the XML Spreadsheet 2003 format, which is
+ * opened by Microsoft Excel and LibreOffice, and can be written without
+ * holding the workbook in memory.
+ */
+public class TableExportResult extends ActionResult {
+
+    // Constants --------------------------------------------------------------
+
+    /** The comma separated values export format: <tt>"csv"</tt>. */
+    public static final String CSV = "csv";
+
+    /** The tab separated values export format: <tt>"tsv"</tt>. */
+    public static final String TSV = "tsv";
+
+    /** The XML Spreadsheet 2003 export format: <tt>"xml"</tt>. */
+    public static final String XML_SPREADSHEET = "xml";
+
+    /** The default number of rows loaded per chunk. */
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    // Variables --------------------------------------------------------------
+
+    /** The table to export. */
+    protected final Table table;
+
+    /** The export format [ csv | tsv | xml ]. */
+    protected final String format;
+
+    /** The number of rows loaded per chunk. */
+    protected int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /** The names of the columns to export, or null to export all columns. */
+    protected List<String> columnNames;
+
+    /** The download filename. */
+    protected String filename;
+
+    /** The export the column decorator renderings flag. */
+    protected boolean exportDecorators;
+
+    // Constructors -----------------------------------------------------------
+
+    /**
+     * Create an export of the given table in the given format.
+     *
+     * @param table the table to export
+     * @param format the export format [ csv | tsv | xml ]
+     * @throws IllegalArgumentException if the table is null or the format
+     * is not supported
+     */
+    public TableExportResult(Table table, String format) {
+        if (table == null) {
+            throw new IllegalArgumentException("Null table parameter");
+        }
+        if (CSV.equals(format)) {
+            setContentType("text/csv");
+        } else if (TSV.equals(format)) {
+            setContentType("text/tab-separated-values");
+        } else if (XML_SPREADSHEET.equals(format)) {
+            setContentType("application/vnd.ms-excel");
+        } else {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+        this.table = table;
+        this.format = format;
+    }
+
+    // Public Methods ---------------------------------------------------------
+
+    /**
+     * Return the number of rows loaded per chunk.
+     *
+     * @return the number of rows loaded per chunk
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Set the number of rows loaded per chunk.
+     *
+     * @param chunkSize the number of rows loaded per chunk
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Invalid chunkSize: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Set the names of the columns to export, in export order. By default
+     * all table columns are exported.
+     *
+     * @param names the names of the columns to export
+     */
+    public void setColumnNames(String... names) {
+        columnNames = Arrays.asList(names);
+    }
+
+    /**
+     * Return the download filename, which defaults to the table name with
+     * the format extension.
+     *
+     * @return the download filename
+     */
+    public String getFilename() {
+        if (filename == null) {
+            String name = (table.getName() != null) ? table.getName() : "table";
+            return name + "." + format;
+        }
+        return filename;
+    }
+
+    /**
+     * Set the download filename.
+     *
+     * @param filename the download filename
+     */
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    /**
+     * Return true if the values rendered by the column decorators are
+     * exported, instead of the column property values. By default decorators
+     * are not used.
+     *
+     * @return true if the column decorator renderings are exported
+     */
+    public boolean isExportDecorators() {
+        return exportDecorators;
+    }
+
+    /**
+     * Set whether the values rendered by the column decorators are exported,
+     * instead of the column property values. Decorators which render HTML
+     * would export the HTML markup.
+     *
+     * @param exportDecorators true to export the column decorator renderings
+     */
+    public void setExportDecorators(boolean exportDecorators) {
+        this.exportDecorators = exportDecorators;
+    }
+
+    // Protected Methods ------------------------------------------------------
+
+    /**
+     * Stream the table rows to the client.
+     *
+     * @see ActionResult#renderActionResult(org.apache.click.Context)
+     *
+     * @param context the request context
+     */
+    @Override
+    protected void renderActionResult(Context context) {
+        HttpServletResponse response = context.getResponse();
+        response.setHeader("Content-Disposition",
+            "attachment; filename=\"" + getFilename() + "\"");
+
+        List<Column> columns = getExportColumns();
+
+        int pageNumber = table.getPageNumber();
+        int pageSize = table.getPageSize();
+        boolean sorted = table.isSorted();
+        int rowCount = table.getRowCount();
+        String seekKey = table.getSeekKey();
+        boolean seekPrevious = table.isSeekPrevious();
+
+        Writer writer = null;
+        try {
+            writer = response.getWriter();
+
+            writeStart(writer, columns);
+            writeRows(writer, columns, context);
+            writeEnd(writer);
+
+            writer.flush();
+
+        } catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+
+        } finally {
+            table.setPageNumber(pageNumber);
+            table.setPageSize(pageSize);
+            table.setSorted(sorted);
+            table.setSeekKey(seekKey);
+            table.setSeekPrevious(seekPrevious);
+            table.rowCount = rowCount;
+            ClickUtils.close(writer);
+        }
+    }
+
+    /**
+     * Return the columns to export.
+     *
+     * @return the columns to export
+     */
+    protected List<Column> getExportColumns() {
+        if (columnNames == null) {
+            return table.getColumnList();
+        }
+        List<Column> columns = new ArrayList<Column>(columnNames.size());
+        for (String name : columnNames) {
+            Column column = table.getColumn(name);
+            if (column == null) {
+                throw new IllegalArgumentException("No table column: " + name);
+            }
+            columns.add(column);
+        }
+        return columns;
+    }
+
+    /**
+     * Load and write the table rows, a chunk at a time where the data
+     * provider supports paging.
+     *
+     * @param writer the response writer
+     * @param columns the columns to export
+     * @param context the request context
+     * @throws IOException if an I/O error occurs
+     */
+    @SuppressWarnings("unchecked")
+    protected void writeRows(Writer writer, List<Column> columns, Context context)
+            throws IOException {
+
+        DataProvider<Object> dp = table.getDataProvider();
+
+        if (dp instanceof PagingDataProvider<?>) {
+            // Count the rows once, the provider loads each chunk from the
+            // table first row and page size
+            int rowCount = ((PagingDataProvider<?>) dp).size();
+            table.rowCount = rowCount;
+            table.setPageSize(chunkSize);
+            table.setSorted(true);
+
+            for (int page = 0; page * chunkSize < rowCount; page++) {
+                table.setPageNumber(page);
+                if (writeRows(writer, columns, context, dp.getData(), chunkSize) == 0) {
+                    break;
+                }
+                writer.flush();
+            }
+
+        } else if (dp instanceof KeysetDataProvider<?>) {
+            KeysetDataProvider<Object> keysetProvider = (KeysetDataProvider<Object>) dp;
+            table.setPageSize(chunkSize);
+            table.setSeekKey(null);
+            table.setSeekPrevious(false);
+
+            for (int page = 0; ; page++) {
+                table.setPageNumber(page);
+
+                // The provider returns an extra row if there is a next chunk
+                List<Object> rows = new ArrayList<Object>(chunkSize + 1);
+                for (Object row : dp.getData()) {
+                    rows.add(row);
+                }
+                boolean hasNext = rows.size() > chunkSize;
+                if (hasNext) {
+                    rows = rows.subList(0, chunkSize);
+                }
+                writeRows(writer, columns, context, rows, chunkSize);
+                writer.flush();
+
+                if (!hasNext) {
+                    break;
+                }
+                table.setSeekKey(keysetProvider.getRowKey(rows.get(chunkSize - 1)));
+            }
+
+        } else if (dp != null && table.getSortedColumn() == null) {
+            // Stream the data without loading it into the table row list
+            writeRows(writer, columns, context, dp.getData(), Integer.MAX_VALUE);
+
+        } else {
+            table.setPageSize(0);
+            List<Object> rows = table.getRowList();
+            table.sortRowList();
+            writeRows(writer, columns, context, rows, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Write the given rows, up to the given maximum, and return the number of
+     * rows written.
+     *
+     * @param writer the response writer
+     * @param columns the columns to export
+     * @param context the request context
+     * @param rows the rows to write
+     * @param max the maximum number of rows to write
+     * @return the number of rows written
+     * @throws IOException if an I/O error occurs
+     */
+    protected int writeRows(Writer writer, List<Column> columns, Context context,
+            Iterable<?> rows, int max) throws IOException {
+
+        int count = 0;
+        if (rows != null) {
+            for (Object row : rows) {
+                if (count >= max) {
+                    break;
+                }
+                writeRow(writer, columns, row, context);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Write the start of the export, including the header row of column
+     * titles.
+     *
+     * @param writer the response writer
+     * @param columns the columns to export
+     * @throws IOException if an I/O error occurs
+     */
+    protected void writeStart(Writer writer, List<Column> columns) throws IOException {
+        if (XML_SPREADSHEET.equals(format)) {
+            writer.write("<?xml version=\"1.0\"?>\n");
+            writer.write("<?mso-application progid=\"Excel.Sheet\"?>\n");
+            writer.write("<Workbook xmlns=\"urn:schemas-microsoft-com:office:spreadsheet\"");
+            writer.write(" xmlns:ss=\"urn:schemas-microsoft-com:office:spreadsheet\">\n");
+            writer.write("<Worksheet ss:Name=\"");
+            writeXml(writer, (table.getName() != null) ? table.getName() : "table");
+            writer.write("\">\n<Table>\n<Row>");
+            for (Column column : columns) {
+                writeXmlCell(writer, column.getHeaderTitle());
+            }
+            writer.write("</Row>\n");
+
+        } else {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    writer.write(getSeparator());
+                }
+                writeValue(writer, columns.get(i).getHeaderTitle());
+            }
+            writer.write("\r\n");
+        }
+    }
+
+    /**
+     * Write the given row.
+     *
+     * @param writer the response writer
+     * @param columns the columns to export
+     * @param row the row to write
+     * @param context the request context
+     * @throws IOException if an I/O error occurs
+     */
+    protected void writeRow(Writer writer, List<Column> columns, Object row,
+            Context context) throws IOException {
+
+        if (XML_SPREADSHEET.equals(format)) {
+            writer.write("<Row>");
+            for (Column column : columns) {
+                Object value = getValue(column, row, context);
+                if (value instanceof Number) {
+                    writer.write("<Cell><Data ss:Type=\"Number\">");
+                    writer.write(value.toString());
+                    writer.write("</Data></Cell>");
+                } else {
+                    writeXmlCell(writer, value);
+                }
+            }
+            writer.write("</Row>\n");
+
+        } else {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    writer.write(getSeparator());
+                }
+                writeValue(writer, getValue(columns.get(i), row, context));
+            }
+            writer.write("\r\n");
+        }
+    }
+
+    /**
+     * Write the end of the export.
+     *
+     * @param writer the response writer
+     * @throws IOException if an I/O error occurs
+     */
+    protected void writeEnd(Writer writer) throws IOException {
+        if (XML_SPREADSHEET.equals(format)) {
+            writer.write("</Table>\n</Worksheet>\n</Workbook>\n");
+        }
+    }
+
+    /**
+     * Return the export value of the given column and row. The value is
+     * rendered by the column format if defined, otherwise the column property
+     * value is returned. If {@link #isExportDecorators() enabled}, the value
+     * is rendered by the column decorator if defined.
+     *
+     * @param column the column to export
+     * @param row the row to export
+     * @param context the request context
+     * @return the export value of the column and row
+     */
+    protected Object getValue(Column column, Object row, Context context) {
+        if (exportDecorators && column.getDecorator() != null) {
+            return column.getDecorator().render(row, context);
+        }
+
+        Object value = column.getProperty(row);
+        if (value != null && column.getFormat() != null) {
+            if (column.getMessageFormat() == null) {
+                column.setMessageFormat(new MessageFormat(column.getFormat(),
+                    context.getLocale()));
+            }
+            return column.getMessageFormat().format(new Object[] { value });
+        }
+        return value;
+    }
+
+    // Private Methods --------------------------------------------------------
+
+    /**
+     * Return the CSV or TSV value separator.
+     *
+     * @return the value separator
+     */
+    private String getSeparator() {
+        return TSV.equals(format) ? "\t" : ",";
+    }
+
+    /**
+     * Write the given CSV or TSV value. CSV values are quoted if they contain
+     * a separator, quote or line break. TSV values cannot be quoted, so tabs
+     * and line breaks are replaced by spaces. Values other than numbers which
+     * start with a formula character are prefixed with a <tt>'</tt>.
+     *
+     * @param writer the response writer
+     * @param value the value to write
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeValue(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String string = value.toString();
+
+        if (!(value instanceof Number) && string.length() > 0
+            && "=+-@".indexOf(string.charAt(0)) != -1) {
+            string = "'" + string;
+        }
+
+        if (TSV.equals(format)) {
+            writer.write(string.replace('\t', ' ').replace('\r', ' ').replace('\n', ' '));
+
+        } else if (string.indexOf(',') != -1 || string.indexOf('"') != -1
+            || string.indexOf('\r') != -1 || string.indexOf('\n') != -1) {
+
+            writer.write('"');
+            writer.write(string.replace("\"", "\"\""));
+            writer.write('"');
+
+        } else {
+            writer.write(string);
+        }
+    }
+
+    /**
+     * Write the given value as an XML spreadsheet string cell.
+     *
+     * @param writer the response writer
+     * @param value the value to write
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeXmlCell(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            writer.write("<Cell/>");
+            return;
+        }
+        writer.write("<Cell><Data ss:Type=\"String\">");
+        writeXml(writer, value.toString());
+        writer.write("</Data></Cell>");
+    }
+
+    /**
+     * Write the given value XML escaped.
+     *
+     * @param writer the response writer
+     * @param value the value to write
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeXml(Writer writer, String value) throws IOException {
+        for (int i = 0, size = value.length(); i < size; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<':
+                    writer.write("&lt;");
+                    break;
+                case '>':
+                    writer.write("&gt;");
+                    break;
+                case '&':
+                    writer.write("&amp;");
+                    break;
+                case '"':
+                    writer.write("&quot;");
+                    break;
+                case '\n':
+                    writer.write("&#10;");
+                    break;
+                default:
+                    if (c >= 0x20 || c == '\t') {
+                        writer.write(c);
+                    }
+            }
+        }
+    }
+}
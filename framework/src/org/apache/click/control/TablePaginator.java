@@ -102,7 +102,10 @@ public class TablePaginator implements Renderable {
 
             Object[] args = { rowCountStr, firstRow, lastRow};
 
-            if (table.getPageSize() > 0) {
+            if (table.isKeysetPaging()) {
+                // The total number of rows is not known
+                buffer.append(table.getMessage("table-page-banner-keyset", args));
+            } else if (table.getPageSize() > 0) {
                 buffer.append(table.getMessage("table-page-banner", args));
             } else {
                 buffer.append(table.getMessage("table-page-banner-nolinks", args));
@@ -134,12 +137,12 @@ public class TablePaginator implements Renderable {
 
             if (table.getPageNumber() > 0) {
                 controlLink.setLabel(firstLabel);
-                controlLink.setParameter(Table.PAGE, String.valueOf(0));
+                setPageParameter(controlLink, 0);
                 controlLink.setTitle(firstTitle);
                 firstLabel = controlLink.toString();
 
                 controlLink.setLabel(previousLabel);
-                controlLink.setParameter(Table.PAGE, String.valueOf(table.getPageNumber() - 1));
+                setPageParameter(controlLink, table.getPageNumber() - 1);
                 controlLink.setTitle(previousTitle);
                 previousLabel = controlLink.toString();
             }
@@ -148,11 +151,8 @@ public class TablePaginator implements Renderable {
                 new HtmlStringBuffer(table.getNumberPages() * 70);
 
             // Create sliding window of paging links
-            int lowerBound = Math.max(0, table.getPageNumber() - 5);
-            int upperBound = Math.min(lowerBound + 10, table.getNumberPages());
-            if (upperBound - lowerBound < 10) {
-                lowerBound = Math.max(upperBound - 10, 0);
-            }
+            int lowerBound = getLowerBound();
+            int upperBound = getUpperBound(lowerBound);
 
             for (int i = lowerBound; i < upperBound; i++) {
                 String pageNumber = String.valueOf(i + 1);
@@ -161,7 +161,7 @@ public class TablePaginator implements Renderable {
 
                 } else {
                     controlLink.setLabel(pageNumber);
-                    controlLink.setParameter(Table.PAGE, String.valueOf(i));
+                    setPageParameter(controlLink, i);
                     controlLink.setTitle(gotoTitle + " " + pageNumber);
                     controlLink.render(pagesBuffer);
                 }
@@ -172,16 +172,19 @@ public class TablePaginator implements Renderable {
             }
             String pageLinks = pagesBuffer.toString();
 
-            if (table.getPageNumber() < table.getNumberPages() - 1) {
+            if (table.hasNextPage()) {
                 controlLink.setLabel(nextLabel);
-                controlLink.setParameter(Table.PAGE, String.valueOf(table.getPageNumber() + 1));
+                setPageParameter(controlLink, table.getPageNumber() + 1);
                 controlLink.setTitle(nextTitle);
                 nextLabel = controlLink.toString();
 
-                controlLink.setLabel(lastLabel);
-                controlLink.setParameter(Table.PAGE, String.valueOf(table.getNumberPages() - 1));
-                controlLink.setTitle(lastTitle);
-                lastLabel = controlLink.toString();
+                // The last page cannot be sought without the total number of rows
+                if (!table.isKeysetPaging()) {
+                    controlLink.setLabel(lastLabel);
+                    setPageParameter(controlLink, table.getNumberPages() - 1);
+                    controlLink.setTitle(lastTitle);
+                    lastLabel = controlLink.toString();
+                }
             }
 
             Object[] args =
@@ -193,6 +196,8 @@ public class TablePaginator implements Renderable {
                 buffer.append(table.getMessage("table-page-links-nobanner", args));
             }
             controlLink.setTitle(null);
+            controlLink.setParameter(Table.KEY, null);
+            controlLink.setParameter(Table.PREVIOUS, null);
         }
     }
 
@@ -215,4 +220,74 @@ public class TablePaginator implements Renderable {
         return buffer.toString();
     }
 
+    // Protected Methods ------------------------------------------------------
+
+    /**
+     * Set the control link parameters to display the given page. For a
+     * {@link org.apache.click.dataprovider.KeysetDataProvider} the link seeks
+     * from the first or last row key of the current page, so only the first,
+     * previous and next page are supported.
+     *
+     * @param controlLink the table control link
+     * @param page the page number to display
+     * @throws IllegalArgumentException if keyset paging cannot seek to the
+     * given page
+     */
+    protected void setPageParameter(ActionLink controlLink, int page) {
+        final Table table = getTable();
+
+        controlLink.setParameter(Table.PAGE, String.valueOf(page));
+        controlLink.setParameter(Table.KEY, null);
+        controlLink.setParameter(Table.PREVIOUS, null);
+
+        if (page > 0 && table.isKeysetPaging()) {
+            if (page == table.getPageNumber() + 1) {
+                controlLink.setParameter(Table.KEY, table.getLastRowKey());
+
+            } else if (page == table.getPageNumber() - 1) {
+                controlLink.setParameter(Table.KEY, table.getFirstRowKey());
+                controlLink.setParameter(Table.PREVIOUS, "true");
+
+            } else {
+                throw new IllegalArgumentException("Keyset paging cannot seek"
+                    + " to page " + page + " from page " + table.getPageNumber());
+            }
+        }
+    }
+
+    /**
+     * Return the first page number of the sliding window of paging links.
+     * For keyset paging the window only contains the current page.
+     *
+     * @return the first page number of the paging links
+     */
+    protected int getLowerBound() {
+        final Table table = getTable();
+
+        if (table.isKeysetPaging()) {
+            return table.getPageNumber();
+        }
+
+        int lowerBound = Math.max(0, table.getPageNumber() - 5);
+        int upperBound = Math.min(lowerBound + 10, table.getNumberPages());
+        if (upperBound - lowerBound < 10) {
+            lowerBound = Math.max(upperBound - 10, 0);
+        }
+        return lowerBound;
+    }
+
+    /**
+     * Return the page number after the sliding window of paging links.
+     *
+     * @param lowerBound the first page number of the paging links
+     * @return the page number after the paging links
+     */
+    protected int getUpperBound(int lowerBound) {
+        final Table table = getTable();
+
+        if (table.isKeysetPaging()) {
+            return lowerBound + 1;
+        }
+        return Math.min(lowerBound + 10, table.getNumberPages());
+    }
 }
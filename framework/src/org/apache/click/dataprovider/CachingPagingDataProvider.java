@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.dataprovider;
+
+/**
+ * Provides a PagingDataProvider which caches the row count of another
+ * PagingDataProvider in a {@link RowCountCache}, so that repeated page
+ * requests do not count the rows again.
+ * <p/>
+ * The page data is always loaded from the wrapped provider. See
+ * {@link RowCountCache} for an example.
+ * <p/>
+ * A deserialized provider, for example of a stateful page restored from the
+ * session, holds an empty copy of its row count cache rather than the shared
+ * cache.
+ */
+public class CachingPagingDataProvider<T> implements PagingDataProvider<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    // -------------------------------------------------------------- Variables
+
+    /** The wrapped paging data provider. */
+    protected final PagingDataProvider<T> provider;
+
+    /** The row count cache. */
+    protected final RowCountCache cache;
+
+    /** The row count cache key. */
+    protected final String key;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Create a caching provider for the given provider, row count cache and
+     * cache key.
+     *
+     * @param provider the paging data provider to cache the row count of
+     * @param cache the row count cache
+     * @param key the row count cache key, identifying the query and its
+     * filter criteria
+     */
+    public CachingPagingDataProvider(PagingDataProvider<T> provider,
+            RowCountCache cache, String key) {
+        if (provider == null) {
+            throw new IllegalArgumentException("Null provider parameter");
+        }
+        if (cache == null) {
+            throw new IllegalArgumentException("Null cache parameter");
+        }
+        if (key == null) {
+            throw new IllegalArgumentException("Null key parameter");
+        }
+        this.provider = provider;
+        this.cache = cache;
+        this.key = key;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Return the data of the wrapped provider.
+     *
+     * @see DataProvider#getData()
+     *
+     * @return the data of the wrapped provider
+     */
+    public Iterable<T> getData() {
+        return provider.getData();
+    }
+
+    /**
+     * Return the cached row count of the wrapped provider.
+     *
+     * @see PagingDataProvider#size()
+     *
+     * @return the cached row count of the wrapped provider
+     */
+    public int size() {
+        return cache.getRowCount(key, provider);
+    }
+}
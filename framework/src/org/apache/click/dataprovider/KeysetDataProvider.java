@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.dataprovider;
+
+/**
+ * An interface to provide keyset paginated data on demand to controls.
+ * <p/>
+ * Offset based pagination with a {@link PagingDataProvider} has to count the
+ * total number of rows, and each deeper page costs the database more as the
+ * skipped rows are still read. A KeysetDataProvider instead seeks from the
+ * sort key of the last (or first) row of the current page, which uses the
+ * index of the sort column and costs the same for every page. The total
+ * number of rows is not required, so controls only offer first, previous and
+ * next navigation.
+ * <p/>
+ * The Table methods {@link org.apache.click.control.Table#getSeekKey()} and
+ * {@link org.apache.click.control.Table#isSeekPrevious()} provide the row key
+ * to seek from:
+ * <ul>
+ * <li>if the seek key is null, return the first <tt>pageSize + 1</tt> rows</li>
+ * <li>if seeking forward, return the <tt>pageSize + 1</tt> rows after the
+ * seek key</li>
+ * <li>if seeking backward, return the <tt>pageSize</tt> rows before the seek
+ * key</li>
+ * </ul>
+ * Rows are always returned in display order. When seeking forward the extra
+ * row shows the control that there is a next page, and is not displayed.
+ * <p/>
+ * Example usage:
+ *
+ * <pre class="prettyprint">
+ * public class MyPage extends Page {
+ *
+ *     private Table table = new Table("table");
+ *
+ *     public MyPage() {
+ *
+ *         ...
+ *
+ *         table.setDataProvider(new KeysetDataProvider&lt;Customer&gt;() {
+ *
+ *             public List&lt;Customer&gt; getData() {
+ *                 String key = table.getSeekKey();
+ *                 int count = table.getPageSize();
+ *
+ *                 if (table.isSeekPrevious()) {
+ *                     // select .. where id &lt; :key order by id desc, then reversed
+ *                     return getCustomerService().getCustomersBefore(key, count);
+ *                 } else {
+ *                     // select .. where id &gt; :key order by id
+ *                     return getCustomerService().getCustomersAfter(key, count + 1);
+ *                 }
+ *             }
+ *
+ *             public String getRowKey(Customer customer) {
+ *                 return String.valueOf(customer.getId());
+ *             }
+ *         });
+ *     }
+ * } </pre>
+ *
+ * <b>Please note</b>: the row key must identify a row position in the sort
+ * order uniquely, for example by combining the sort column value with the
+ * primary key. Changing the sort order returns the control to the first page.
+ */
+public interface KeysetDataProvider<T> extends DataProvider<T> {
+
+    /**
+     * Return the sort key of the given row, which is passed back to the
+     * provider to seek to the next or previous page.
+     *
+     * @param row the row to return the key of
+     * @return the sort key of the given row
+     */
+    public String getRowKey(T row);
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.dataprovider;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides a thread safe cache of row counts with a time to live, which
+ * avoids counting the rows of a {@link PagingDataProvider} again for every
+ * page request.
+ * <p/>
+ * Row counts are cached by key, which should identify the query and its
+ * filter criteria. The cache is shared between requests, so it is typically
+ * held in a static field and used with a {@link CachingPagingDataProvider}:
+ *
+ * <pre class="prettyprint">
+ * private static final RowCountCache COUNT_CACHE = new RowCountCache(60 * 1000);
+ *
+ * public CustomerPage() {
+ *     ..
+ *     PagingDataProvider&lt;Customer&gt; provider = new PagingDataProvider&lt;Customer&gt;() {
+ *         ..
+ *     };
+ *     table.setDataProvider(new CachingPagingDataProvider&lt;Customer&gt;(
+ *         provider, COUNT_CACHE, "customers:" + nameFilter));
+ * } </pre>
+ *
+ * <b>Please note</b>: a cached count may be out of date by up to the time to
+ * live, so the last page may be shown shorter or empty. Call
+ * {@link #remove(String)} after rows are inserted or deleted.
+ * <p/>
+ * The cache is serializable, so a stateful page holding a
+ * CachingPagingDataProvider can be stored in the session. The cached row
+ * counts are not serialized, a deserialized cache starts empty.
+ */
+public class RowCountCache implements Serializable {
+
+    // -------------------------------------------------------------- Constants
+
+    private static final long serialVersionUID = 1L;
+
+    /** The default maximum number of cached row counts. */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    // -------------------------------------------------------------- Variables
+
+    /** The row count time to live, in milliseconds. */
+    protected final long timeToLive;
+
+    /** The maximum number of cached row counts. */
+    protected final int maxSize;
+
+    /** The cached row counts, keyed on query key. */
+    private transient Map<String, CachedCount> cache =
+        new ConcurrentHashMap<String, CachedCount>();
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Create a row count cache with the given time to live.
+     *
+     * @param timeToLive the row count time to live, in milliseconds
+     */
+    public RowCountCache(long timeToLive) {
+        this(timeToLive, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Create a row count cache with the given time to live and maximum
+     * number of cached row counts.
+     *
+     * @param timeToLive the row count time to live, in milliseconds
+     * @param maxSize the maximum number of cached row counts
+     */
+    public RowCountCache(long timeToLive, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Invalid maxSize: " + maxSize);
+        }
+        this.timeToLive = timeToLive;
+        this.maxSize = maxSize;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Return the cached row count for the given key, counting the rows of
+     * the given provider if no row count is cached or it has expired.
+     *
+     * @param key the query key
+     * @param provider the provider to count the rows of
+     * @return the row count for the given key
+     */
+    public int getRowCount(String key, PagingDataProvider<?> provider) {
+        long now = System.currentTimeMillis();
+
+        CachedCount cachedCount = cache.get(key);
+        if (cachedCount != null && cachedCount.expires > now) {
+            return cachedCount.count;
+        }
+
+        int count = provider.size();
+
+        if (cache.size() >= maxSize) {
+            evict(now);
+        }
+        cache.put(key, new CachedCount(count, now + timeToLive));
+
+        return count;
+    }
+
+    /**
+     * Remove the cached row count for the given key.
+     *
+     * @param key the query key
+     */
+    public void remove(String key) {
+        cache.remove(key);
+    }
+
+    /**
+     * Remove all cached row counts.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Return the number of cached row counts.
+     *
+     * @return the number of cached row counts
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Read the cache settings and create an empty row count map.
+     *
+     * @param in the object input stream
+     * @throws IOException if an I/O error occurs
+     * @throws ClassNotFoundException if a class cannot be found
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        cache = new ConcurrentHashMap<String, CachedCount>();
+    }
+
+    /**
+     * Remove the expired row counts, or all row counts if none have expired.
+     *
+     * @param now the current time in milliseconds
+     */
+    private void evict(long now) {
+        for (Iterator<CachedCount> i = cache.values().iterator(); i.hasNext();) {
+            if (i.next().expires <= now) {
+                i.remove();
+            }
+        }
+        if (cache.size() >= maxSize) {
+            cache.clear();
+        }
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Provides a cached row count and its expiry time.
+     */
+    private static class CachedCount {
+
+        /** The row count. */
+        final int count;
+
+        /** The expiry time in milliseconds. */
+        final long expires;
+
+        /**
+         * Create a cached row count.
+         *
+         * @param count the row count
+         * @param expires the expiry time in milliseconds
+         */
+        CachedCount(int count, long expires) {
+            this.count = count;
+            this.expires = expires;
+        }
+    }
+}
@@ -106,7 +106,7 @@ public class CssImport extends ResourceElement {
     public CssImport(String href, boolean useApplicationVersionIndicator) {
         this(href, null);
         if (useApplicationVersionIndicator) {
-            setVersionIndicator(ClickUtils.getApplicationResourceVersionIndicator());
+            setVersionIndicator(ClickUtils.getApplicationResourceVersionIndicator(href));
         }
     }
 
@@ -106,7 +106,7 @@ public class JsImport extends ResourceElement {
     public JsImport(String src, boolean useApplicationVersionIndicator) {
         this(src, null);
         if (useApplicationVersionIndicator) {
-            setVersionIndicator(ClickUtils.getApplicationResourceVersionIndicator());
+            setVersionIndicator(ClickUtils.getApplicationResourceVersionIndicator(src));
         }
     }
 
@@ -331,6 +331,30 @@ public class ResourceElement extends Element {
         renderConditionalCommentSuffix(buffer);
     }
 
+    /**
+     * Return the given resource path with the {@link #getVersionIndicator()}
+     * added before its extension, as it is rendered. If the version indicator
+     * is not defined or the path has no extension, the path is returned as is.
+     *
+     * @param resourcePath the resource path
+     * @return the resource path including the version indicator
+     */
+    public String getVersionedResourcePath(String resourcePath) {
+        String versionIndicator = getVersionIndicator();
+
+        if (resourcePath == null || StringUtils.isBlank(versionIndicator)) {
+            return resourcePath;
+        }
+
+        int start = resourcePath.lastIndexOf(".");
+        if (start < 0) {
+            return resourcePath;
+        }
+
+        return resourcePath.substring(0, start) + versionIndicator
+            + resourcePath.substring(start);
+    }
+
     // Package Private Methods ------------------------------------------------
 
     /**
@@ -0,0 +1,576 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletContext;
+
+import org.apache.click.util.ClickUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Provides a Log Service which hands log records to a background writer
+ * thread, which then logs them to the wrapped {@link LogService}.
+ * <p/>
+ * Request threads only add the record to a bounded buffer, so they do not
+ * wait on the log output. Messages are converted to strings before they are
+ * buffered, so a {@link LogMessage} such as
+ * <tt>debug(new LogMessage("{} = {}", name, value))</tt> is still only
+ * formatted when the level is enabled, but never reads its arguments from the
+ * writer thread.
+ * <p/>
+ * To use the AsyncLogService, configure it in <tt>click.xml</tt>, with the
+ * class name of the log service to wrap:
+ *
+ * <pre class="codeConfig">
+ * &lt;log-service classname="<span class="blue">org.apache.click.service.AsyncLogService</span>"&gt;
+ *     &lt;property name="logServiceClass" value="<span class="blue">org.apache.click.extras.service.Log4JLogService</span>"/&gt;
+ *     &lt;property name="bufferSize" value="<span class="blue">8192</span>"/&gt;
+ *     &lt;property name="dropPolicy" value="<span class="blue">discard-new</span>"/&gt;
+ * &lt;/log-service&gt; </pre>
+ *
+ * The <tt>logServiceClass</tt> defaults to {@link ConsoleLogService}, and
+ * the application mode log level is applied to it as usual.
+ * <p/>
+ * When the buffer is full the <tt>dropPolicy</tt> decides what happens to
+ * the new record:
+ * <ul>
+ * <li><tt>discard-new</tt> - the new record is dropped (the default)</li>
+ * <li><tt>discard-old</tt> - the oldest buffered record is dropped</li>
+ * <li><tt>block</tt> - the logging thread waits until there is space</li>
+ * </ul>
+ * Dropped records are counted, see {@link #getDroppedCount()}, and reported
+ * as a warning once the writer catches up.
+ */
+public class AsyncLogService implements LogService {
+
+    // -------------------------------------------------------------- Constants
+
+    /** The drop the new record policy. */
+    public static final String DISCARD_NEW = "discard-new";
+
+    /** The drop the oldest record policy. */
+    public static final String DISCARD_OLD = "discard-old";
+
+    /** The wait for buffer space policy. */
+    public static final String BLOCK = "block";
+
+    /** The trace record level. */
+    static final int TRACE = 0;
+
+    /** The debug record level. */
+    static final int DEBUG = 1;
+
+    /** The info record level. */
+    static final int INFO = 2;
+
+    /** The warn record level. */
+    static final int WARN = 3;
+
+    /** The error record level. */
+    static final int ERROR = 4;
+
+    /** The record which stops the writer thread. */
+    private static final LogRecord STOP = new LogRecord(-1, null, null);
+
+    // -------------------------------------------------------------- Variables
+
+    /** The wrapped log service. */
+    protected LogService logService;
+
+    /** The class name of the wrapped log service. */
+    protected String logServiceClass = ConsoleLogService.class.getName();
+
+    /** The maximum number of buffered log records. */
+    protected int bufferSize = 8192;
+
+    /** The buffer full policy. */
+    protected String dropPolicy = DISCARD_NEW;
+
+    /** The buffered log records. */
+    private volatile BlockingQueue<LogRecord> queue;
+
+    /** The background writer thread. */
+    private volatile Thread writer;
+
+    /** The number of dropped log records. */
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /** The number of dropped records already reported. */
+    private long reportedCount;
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Create the wrapped log service, if not already set, and start the
+     * background writer thread.
+     *
+     * @see LogService#onInit(ServletContext)
+     *
+     * @param servletContext the application servlet context
+     * @throws Exception if an error occurs while initializing the LogService
+     */
+    public void onInit(ServletContext servletContext) throws Exception {
+        if (!DISCARD_NEW.equals(dropPolicy) && !DISCARD_OLD.equals(dropPolicy)
+            && !BLOCK.equals(dropPolicy)) {
+            String msg = "Invalid dropPolicy '" + dropPolicy + "', expected "
+                + DISCARD_NEW + ", " + DISCARD_OLD + " or " + BLOCK;
+            throw new IllegalArgumentException(msg);
+        }
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Invalid bufferSize " + bufferSize);
+        }
+
+        if (logService == null) {
+            Class<?> serviceClass = ConsoleLogService.class;
+            if (StringUtils.isNotBlank(logServiceClass)) {
+                serviceClass = ClickUtils.classForName(logServiceClass);
+            }
+            logService = (LogService) serviceClass.getDeclaredConstructor().newInstance();
+        }
+        logService.onInit(servletContext);
+
+        queue = new ArrayBlockingQueue<LogRecord>(bufferSize);
+
+        writer = new Thread(new Writer(), "Click-AsyncLogService");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stop the background writer thread, log any buffered records and
+     * destroy the wrapped log service.
+     *
+     * @see LogService#onDestroy()
+     */
+    public void onDestroy() {
+        Thread thread = writer;
+        writer = null;
+
+        if (thread != null) {
+            try {
+                if (queue.offer(STOP, 5, TimeUnit.SECONDS)) {
+                    thread.join(5000);
+                }
+
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (queue != null) {
+            for (LogRecord record = queue.poll(); record != null; record = queue.poll()) {
+                if (record != STOP) {
+                    write(record);
+                }
+            }
+            reportDropped();
+        }
+
+        if (logService != null) {
+            logService.onDestroy();
+        }
+    }
+
+    /**
+     * Return the wrapped log service.
+     *
+     * @return the wrapped log service
+     */
+    public LogService getLogService() {
+        return logService;
+    }
+
+    /**
+     * Set the wrapped log service. If set before {@link #onInit(ServletContext)}
+     * the <tt>logServiceClass</tt> is ignored.
+     *
+     * @param logService the log service to wrap
+     */
+    public void setLogService(LogService logService) {
+        this.logService = logService;
+    }
+
+    /**
+     * Return the class name of the wrapped log service.
+     *
+     * @return the class name of the wrapped log service
+     */
+    public String getLogServiceClass() {
+        return logServiceClass;
+    }
+
+    /**
+     * Set the class name of the wrapped log service.
+     *
+     * @param logServiceClass the class name of the wrapped log service
+     */
+    public void setLogServiceClass(String logServiceClass) {
+        this.logServiceClass = logServiceClass;
+    }
+
+    /**
+     * Return the maximum number of buffered log records.
+     *
+     * @return the maximum number of buffered log records
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Set the maximum number of buffered log records, the default is 8192.
+     *
+     * @param bufferSize the maximum number of buffered log records
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Return the buffer full policy.
+     *
+     * @return the buffer full policy
+     */
+    public String getDropPolicy() {
+        return dropPolicy;
+    }
+
+    /**
+     * Set the buffer full policy
+     * <tt>[ discard-new | discard-old | block ]</tt>.
+     *
+     * @param dropPolicy the buffer full policy
+     */
+    public void setDropPolicy(String dropPolicy) {
+        this.dropPolicy = dropPolicy;
+    }
+
+    /**
+     * Return the number of log records dropped because the buffer was full.
+     *
+     * @return the number of dropped log records
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @see LogService#debug(Object)
+     *
+     * @param message the message to log
+     */
+    public void debug(Object message) {
+        if (logService.isDebugEnabled()) {
+            append(DEBUG, message, null);
+        }
+    }
+
+    /**
+     * @see LogService#debug(Object, Throwable)
+     *
+     * @param message the message to log
+     * @param error the error to log
+     */
+    public void debug(Object message, Throwable error) {
+        if (logService.isDebugEnabled()) {
+            append(DEBUG, message, error);
+        }
+    }
+
+    /**
+     * @see LogService#error(Object)
+     *
+     * @param message the message to log
+     */
+    public void error(Object message) {
+        append(ERROR, message, null);
+    }
+
+    /**
+     * @see LogService#error(Object, Throwable)
+     *
+     * @param message the message to log
+     * @param error the error to log
+     */
+    public void error(Object message, Throwable error) {
+        append(ERROR, message, error);
+    }
+
+    /**
+     * @see LogService#info(Object)
+     *
+     * @param message the message to log
+     */
+    public void info(Object message) {
+        if (logService.isInfoEnabled()) {
+            append(INFO, message, null);
+        }
+    }
+
+    /**
+     * @see LogService#info(Object, Throwable)
+     *
+     * @param message the message to log
+     * @param error the error to log
+     */
+    public void info(Object message, Throwable error) {
+        if (logService.isInfoEnabled()) {
+            append(INFO, message, error);
+        }
+    }
+
+    /**
+     * @see LogService#trace(Object)
+     *
+     * @param message the message to log
+     */
+    public void trace(Object message) {
+        if (logService.isTraceEnabled()) {
+            append(TRACE, message, null);
+        }
+    }
+
+    /**
+     * @see LogService#trace(Object, Throwable)
+     *
+     * @param message the message to log
+     * @param error the error to log
+     */
+    public void trace(Object message, Throwable error) {
+        if (logService.isTraceEnabled()) {
+            append(TRACE, message, error);
+        }
+    }
+
+    /**
+     * @see LogService#warn(Object)
+     *
+     * @param message the message to log
+     */
+    public void warn(Object message) {
+        append(WARN, message, null);
+    }
+
+    /**
+     * @see LogService#warn(Object, Throwable)
+     *
+     * @param message the message to log
+     * @param error the error to log
+     */
+    public void warn(Object message, Throwable error) {
+        append(WARN, message, error);
+    }
+
+    /**
+     * @see LogService#isDebugEnabled()
+     *
+     * @return true if [debug] level logging is enabled
+     */
+    public boolean isDebugEnabled() {
+        return logService.isDebugEnabled();
+    }
+
+    /**
+     * @see LogService#isInfoEnabled()
+     *
+     * @return true if [info] level logging is enabled
+     */
+    public boolean isInfoEnabled() {
+        return logService.isInfoEnabled();
+    }
+
+    /**
+     * @see LogService#isTraceEnabled()
+     *
+     * @return true if [trace] level logging is enabled
+     */
+    public boolean isTraceEnabled() {
+        return logService.isTraceEnabled();
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Add the log record to the buffer, applying the drop policy if the
+     * buffer is full. If the writer thread is not running the record is
+     * logged directly.
+     * <p/>
+     * The message is converted to a string on the calling thread, as its
+     * arguments may be mutable or request scoped objects.
+     *
+     * @param level the record level
+     * @param message the message to log
+     * @param error the error to log
+     */
+    protected void append(int level, Object message, Throwable error) {
+        BlockingQueue<LogRecord> queue = this.queue;
+
+        if (queue == null || writer == null) {
+            write(new LogRecord(level, message, error));
+            return;
+        }
+
+        String text = (message != null) ? message.toString() : null;
+        LogRecord record = new LogRecord(level, text, error);
+
+        if (queue.offer(record)) {
+            return;
+        }
+
+        if (DISCARD_OLD.equals(dropPolicy)) {
+            do {
+                if (queue.poll() != null) {
+                    droppedCount.incrementAndGet();
+                }
+            } while (!queue.offer(record));
+
+        } else if (BLOCK.equals(dropPolicy)) {
+            try {
+                queue.put(record);
+
+            } catch (InterruptedException ie) {
+                droppedCount.incrementAndGet();
+                Thread.currentThread().interrupt();
+            }
+
+        } else {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Log the record to the wrapped log service.
+     *
+     * @param record the record to log
+     */
+    private void write(LogRecord record) {
+        Object message = record.message;
+        Throwable error = record.error;
+
+        switch (record.level) {
+            case TRACE:
+                logService.trace(message, error);
+                break;
+            case DEBUG:
+                logService.debug(message, error);
+                break;
+            case INFO:
+                logService.info(message, error);
+                break;
+            case WARN:
+                logService.warn(message, error);
+                break;
+            default:
+                logService.error(message, error);
+        }
+    }
+
+    /**
+     * Log a warning if records have been dropped since the last report.
+     */
+    private void reportDropped() {
+        long dropped = droppedCount.get();
+        if (dropped > reportedCount) {
+            logService.warn("AsyncLogService buffer full, dropped "
+                + (dropped - reportedCount) + " log messages");
+            reportedCount = dropped;
+        }
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Provides a buffered log record.
+     */
+    static final class LogRecord {
+
+        /** The record level. */
+        final int level;
+
+        /** The message to log. */
+        final Object message;
+
+        /** The error to log. */
+        final Throwable error;
+
+        /**
+         * Create a log record.
+         *
+         * @param level the record level
+         * @param message the message to log
+         * @param error the error to log
+         */
+        LogRecord(int level, Object message, Throwable error) {
+            this.level = level;
+            this.message = message;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Provides the background writer, which logs the buffered records until
+     * the stop record is taken.
+     */
+    private class Writer implements Runnable {
+
+        /**
+         * Log the buffered records.
+         */
+        public void run() {
+            while (true) {
+                LogRecord record;
+                try {
+                    record = queue.poll(1, TimeUnit.SECONDS);
+
+                } catch (InterruptedException ie) {
+                    return;
+                }
+
+                if (record == STOP) {
+                    return;
+                }
+
+                if (record != null) {
+                    try {
+                        write(record);
+
+                    } catch (RuntimeException re) {
+                        try {
+                            logService.error("AsyncLogService could not log message", re);
+
+                        } catch (RuntimeException ignore) {
+                            // The wrapped log service is failing, nothing left to report to
+                        }
+                    }
+                }
+
+                if (queue.isEmpty()) {
+                    reportDropped();
+                }
+            }
+        }
+    }
+}
@@ -21,10 +21,14 @@ package org.apache.click.service;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
@@ -33,6 +37,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.click.util.ClickUtils;
 import org.apache.click.util.HtmlStringBuffer;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
 
 /**
  * Provides a default Click static resource service class. This class will
@@ -42,12 +47,77 @@ import org.apache.commons.io.IOUtils;
  * <p/>
  * This service is useful for application servers which do not allow Click to
  * automatically deploy resources to the web root directory.
+ * <p/>
+ * When the {@link XmlConfigService#getDeployMode() deploy mode} is
+ * <tt>memory</tt>, the class path resources under <tt>META-INF/resources</tt>
+ * and <tt>META-INF/web</tt> are indexed at startup, and in
+ * <tt>production</tt> and <tt>profile</tt> mode loaded into memory, so no
+ * class path scan is needed when they are requested.
+ *
+ * <h3>Import Bundles</h3>
+ * When the <tt>bundleImports</tt> property is set and the application is in
+ * <tt>production</tt> or <tt>profile</tt> mode, the JavaScript and CSS
+ * imports of a page are concatenated into bundles, see
+ * {@link org.apache.click.util.PageImports}:
+ *
+ * <pre class="codeConfig">
+ * &lt;resource-service&gt;
+ *     &lt;property name="bundleImports" value="true"/&gt;
+ * &lt;/resource-service&gt; </pre>
+ *
+ * Bundles are named after the MD5 hash of their content, for example
+ * <tt>/click/bundle/9e107d9d372bb682.js?resources=/assets/a.js,/assets/b.js</tt>,
+ * and are served with a one year cache lifetime. The <tt>resources</tt>
+ * parameter lists the bundled resources, so a node of a cluster which did
+ * not render the page, or which was restarted, rebuilds the bundle when it
+ * is requested. The <tt>/click/*</tt> path must be mapped to the
+ * ClickServlet in <tt>web.xml</tt> for the bundles to be served.
+ * <p/>
+ * Bundled JavaScript is concatenated as it is. Bundled CSS has comments,
+ * indentation and blank lines removed, and relative CSS <tt>url()</tt>
+ * references are rewritten to absolute paths. CSS files which contain
+ * <tt>@import</tt> rules, and resources with a comma in their path, are not
+ * bundled.
  */
 public class ClickResourceService implements ResourceService {
 
+    /** The bundled resources path prefix: &nbsp; "<tt>/click/bundle/</tt>". */
+    public static final String BUNDLE_PATH = "/click/bundle/";
+
+    /**
+     * The bundled resources request parameter name: &nbsp;
+     * "<tt>resources</tt>".
+     */
+    public static final String BUNDLE_RESOURCES = "resources";
+
+    /** The maximum number of import bundles. */
+    protected static final int MAX_BUNDLES = 1000;
+
+    /** The bundle cache lifetime in seconds: &nbsp; one year. */
+    protected static final int BUNDLE_MAX_AGE = 365 * 24 * 60 * 60;
+
+    /** The CSS url() reference pattern. */
+    private static final Pattern CSS_URL_PATTERN =
+        Pattern.compile("url\\(\\s*(['\"]?)([^'\")]+)\\1\\s*\\)");
+
     /** The click resources cache. */
     protected Map<String, byte[]> resourceCache = new ConcurrentHashMap<String, byte[]>();
 
+    /** The class path resource names keyed on resource path, in memory deploy mode. */
+    protected Map<String, String> resourceIndex = new ConcurrentHashMap<String, String>();
+
+    /** The bundle data keyed on bundle path. */
+    protected Map<String, byte[]> bundleCache = new ConcurrentHashMap<String, byte[]>();
+
+    /**
+     * The bundle path keyed on the bundled resource paths, an empty path
+     * marks resources which could not be bundled.
+     */
+    protected Map<String, String> bundlePathMap = new ConcurrentHashMap<String, String>();
+
+    /** The bundle page JavaScript and CSS imports flag. */
+    protected boolean bundleImports;
+
     /** The application log service. */
     protected LogService logService;
 
@@ -64,6 +134,12 @@ public class ClickResourceService implements ResourceService {
 
         configService = ClickUtils.getConfigService(servletContext);
         logService = configService.getLogService();
+
+        if (configService instanceof XmlConfigService
+            && XmlConfigService.DEPLOY_MEMORY.equals(
+                ((XmlConfigService) configService).getDeployMode())) {
+            indexResources();
+        }
     }
 
     /**
@@ -71,6 +147,72 @@ public class ClickResourceService implements ResourceService {
      */
     public void onDestroy() {
         resourceCache.clear();
+        resourceIndex.clear();
+        bundleCache.clear();
+        bundlePathMap.clear();
+    }
+
+    /**
+     * Return true if page JavaScript and CSS imports are bundled.
+     *
+     * @return true if page JavaScript and CSS imports are bundled
+     */
+    public boolean isBundleImports() {
+        return bundleImports
+            && (configService.isProductionMode() || configService.isProfileMode());
+    }
+
+    /**
+     * Set whether page JavaScript and CSS imports are bundled. Imports are
+     * only bundled in <tt>production</tt> and <tt>profile</tt> mode.
+     *
+     * @param bundleImports true if page JavaScript and CSS imports are bundled
+     */
+    public void setBundleImports(boolean bundleImports) {
+        this.bundleImports = bundleImports;
+    }
+
+    /**
+     * Return the path of the bundle which concatenates the given JavaScript
+     * or CSS resources, creating the bundle if needed. Returns null if the
+     * resources cannot be bundled, for example because a resource is not
+     * found or the resource types differ.
+     * <p/>
+     * The path includes the {@link #BUNDLE_RESOURCES} parameter listing the
+     * bundled resources.
+     *
+     * @param contextPath the application context path
+     * @param resourcePaths the paths of the resources to bundle, excluding
+     * the context path
+     * @return the path of the bundle, excluding the context path, or null
+     */
+    public String getBundlePath(String contextPath, List<String> resourcePaths) {
+        if (!isBundleImports() || resourcePaths.isEmpty()) {
+            return null;
+        }
+
+        HtmlStringBuffer keyBuffer = new HtmlStringBuffer(resourcePaths.size() * 40);
+        for (String resourcePath : resourcePaths) {
+            keyBuffer.append(resourcePath).append('\n');
+        }
+        String key = keyBuffer.toString();
+
+        String bundlePath = bundlePathMap.get(key);
+        if (bundlePath == null) {
+            if (bundlePathMap.size() >= MAX_BUNDLES) {
+                return null;
+            }
+            try {
+                bundlePath = createBundle(contextPath, resourcePaths);
+
+            } catch (IOException ioe) {
+                logService.warn("could not bundle " + resourcePaths, ioe);
+                bundlePath = null;
+            }
+            bundlePathMap.put(key, (bundlePath != null) ? bundlePath : "");
+        }
+
+        return (bundlePath.length() > 0) ? bundlePath : null;
     }
 
     /**
@@ -99,6 +241,26 @@ public class ClickResourceService implements ResourceService {
 
         String resourcePath = ClickUtils.getResourcePath(request);
 
+        if (resourcePath.startsWith(BUNDLE_PATH)) {
+            byte[] bundleData = bundleCache.get(resourcePath);
+            if (bundleData == null) {
+                // Bundle created by another node or before a restart
+                bundleData = rebuildBundle(request, resourcePath);
+                if (bundleData == null) {
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                    return;
+                }
+            }
+
+            response.setContentType(ClickUtils.getMimeType(resourcePath));
+            response.setHeader("Cache-Control", "public, max-age=" + BUNDLE_MAX_AGE);
+            response.setDateHeader("Expires",
+                System.currentTimeMillis() + BUNDLE_MAX_AGE * 1000L);
+
+            renderResource(response, bundleData);
+            return;
+        }
+
         byte[] resourceData = resourceCache.get(resourcePath);
 
         if (resourceData == null) {
@@ -192,8 +354,259 @@ public class ClickResourceService implements ResourceService {
        return list;
     }
 
+    /**
+     * Index the class path resources under <tt>META-INF/resources</tt> and
+     * <tt>META-INF/web</tt>, keyed on their resource path. In
+     * <tt>production</tt> and <tt>profile</tt> mode the resources are also
+     * loaded into the resource cache.
+     * <p/>
+     * As with file system deployment the first resource found for a path
+     * is used, and web application files override class path resources.
+     *
+     * @throws IOException if a resource could not be loaded
+     */
+    protected void indexResources() throws IOException {
+        long startTime = System.currentTimeMillis();
+
+        boolean preload = configService.isProductionMode() || configService.isProfileMode();
+
+        String[] resourceDirectories = { "META-INF/resources", "META-INF/web" };
+
+        for (String resourceDirectory : resourceDirectories) {
+            List<String> resources =
+                new DeployUtils<Object>(logService).findResources(resourceDirectory).getResources();
+
+            for (String resource : resources) {
+                if (!resource.startsWith(resourceDirectory + "/")) {
+                    continue;
+                }
+
+                String resourcePath = resource.substring(resourceDirectory.length());
+                if (resourceIndex.containsKey(resourcePath)) {
+                    continue;
+                }
+
+                resourceIndex.put(resourcePath, resource);
+
+                if (preload) {
+                    loadResourceData(resourcePath);
+                }
+            }
+        }
+
+        if (logService.isInfoEnabled()) {
+            logService.info("indexed " + resourceIndex.size()
+                + " class path resources in "
+                + (System.currentTimeMillis() - startTime) + " ms");
+        }
+    }
+
+    /**
+     * Return the lightly minified CSS, with comments, indentation and blank
+     * lines removed, and relative <tt>url()</tt> references resolved against
+     * the given base path.
+     *
+     * @param css the CSS to minify
+     * @param basePath the path of the CSS directory, including the context
+     * path and a trailing slash
+     * @return the minified CSS
+     */
+    protected String minifyCss(String css, String basePath) {
+        // Remove comments, outside of quoted strings
+        HtmlStringBuffer buffer = new HtmlStringBuffer(css.length());
+        char quote = 0;
+        for (int i = 0, length = css.length(); i < length; i++) {
+            char c = css.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+
+            } else if (c == '/' && i + 1 < length && css.charAt(i + 1) == '*') {
+                int end = css.indexOf("*/", i + 2);
+                i = (end == -1) ? length : end + 1;
+                continue;
+            }
+            buffer.append(c);
+        }
+
+        // Resolve relative url() references
+        Matcher matcher = CSS_URL_PATTERN.matcher(buffer.toString());
+        StringBuffer resolved = new StringBuffer(buffer.length() + 64);
+        while (matcher.find()) {
+            String url = matcher.group(2).trim();
+            if (!url.startsWith("/") && !url.startsWith("#") && url.indexOf(':') == -1) {
+                url = basePath + url;
+            }
+            String quoteChar = matcher.group(1);
+            matcher.appendReplacement(resolved,
+                Matcher.quoteReplacement("url(" + quoteChar + url + quoteChar + ")"));
+        }
+        matcher.appendTail(resolved);
+
+        // Remove indentation and blank lines
+        HtmlStringBuffer result = new HtmlStringBuffer(resolved.length());
+        for (String line : resolved.toString().split("\r?\n")) {
+            String trimmed = line.trim();
+            if (trimmed.length() > 0) {
+                result.append(trimmed).append('\n');
+            }
+        }
+
+        return result.toString();
+    }
+
     // Private Methods --------------------------------------------------------
 
+    /**
+     * Create and cache the bundle for the given resources, returning its
+     * path including the {@link #BUNDLE_RESOURCES} parameter, or null if the
+     * resources cannot be bundled.
+     *
+     * @param contextPath the application context path
+     * @param resourcePaths the paths of the resources to bundle
+     * @return the path of the new bundle, or null
+     * @throws IOException if a resource could not be loaded
+     */
+    private String createBundle(String contextPath, List<String> resourcePaths)
+            throws IOException {
+
+        byte[] bundleData = loadBundleData(contextPath, resourcePaths);
+        if (bundleData == null) {
+            return null;
+        }
+
+        String bundlePath = toBundlePath(resourcePaths, bundleData);
+        bundleCache.put(bundlePath, bundleData);
+
+        HtmlStringBuffer buffer = new HtmlStringBuffer(bundlePath.length()
+            + resourcePaths.size() * 40);
+        buffer.append(bundlePath);
+        buffer.append('?');
+        buffer.append(BUNDLE_RESOURCES);
+        buffer.append('=');
+        for (int i = 0; i < resourcePaths.size(); i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            String encodedPath = URLEncoder.encode(resourcePaths.get(i), "UTF-8");
+            buffer.append(StringUtils.replace(encodedPath, "%2F", "/"));
+        }
+
+        return buffer.toString();
+    }
+
+    /**
+     * Rebuild and cache the requested bundle from the resources listed in the
+     * {@link #BUNDLE_RESOURCES} request parameter. Returns null if the
+     * resources cannot be bundled, or if the content of the rebuilt bundle
+     * does not match the requested bundle path.
+     *
+     * @param request the servlet bundle request
+     * @param bundlePath the requested bundle path
+     * @return the bundle data, or null
+     * @throws IOException if a resource could not be loaded
+     */
+    private byte[] rebuildBundle(HttpServletRequest request, String bundlePath)
+            throws IOException {
+
+        String resources = request.getParameter(BUNDLE_RESOURCES);
+        if (StringUtils.isBlank(resources)) {
+            return null;
+        }
+
+        List<String> resourcePaths = Arrays.asList(StringUtils.split(resources, ','));
+
+        byte[] bundleData = loadBundleData(request.getContextPath(), resourcePaths);
+        if (bundleData == null
+            || !bundlePath.equals(toBundlePath(resourcePaths, bundleData))) {
+            return null;
+        }
+
+        if (bundleCache.size() < MAX_BUNDLES) {
+            bundleCache.put(bundlePath, bundleData);
+        }
+        return bundleData;
+    }
+
+    /**
+     * Return the path of the bundle with the given resources and content.
+     *
+     * @param resourcePaths the paths of the bundled resources
+     * @param bundleData the bundle data
+     * @return the bundle path, excluding the context path
+     */
+    private String toBundlePath(List<String> resourcePaths, byte[] bundleData) {
+        String firstPath = resourcePaths.get(0);
+        String extension = firstPath.substring(firstPath.lastIndexOf('.') + 1);
+
+        return BUNDLE_PATH + ClickUtils.toContentHash(bundleData) + "." + extension;
+    }
+
+    /**
+     * Return the concatenated data of the given resources, or null if the
+     * resources cannot be bundled.
+     *
+     * @param contextPath the application context path
+     * @param resourcePaths the paths of the resources to bundle
+     * @return the bundle data, or null
+     * @throws IOException if a resource could not be loaded
+     */
+    private byte[] loadBundleData(String contextPath, List<String> resourcePaths)
+            throws IOException {
+
+        String firstPath = resourcePaths.get(0);
+        String extension = firstPath.substring(firstPath.lastIndexOf('.') + 1);
+        boolean css = "css".equalsIgnoreCase(extension);
+        if (!css && !"js".equalsIgnoreCase(extension)) {
+            return null;
+        }
+
+        String charset = configService.getCharset();
+        if (charset == null) {
+            charset = "UTF-8";
+        }
+
+        HtmlStringBuffer buffer = new HtmlStringBuffer(resourcePaths.size() * 4096);
+
+        for (String resourcePath : resourcePaths) {
+            if (!resourcePath.toLowerCase().endsWith("." + extension.toLowerCase())
+                || resourcePath.indexOf(',') != -1) {
+                return null;
+            }
+
+            byte[] data = resourceCache.get(resourcePath);
+            if (data == null) {
+                data = loadResourceData(resourcePath);
+                if (data == null) {
+                    return null;
+                }
+            }
+
+            String content = new String(data, charset);
+
+            if (css) {
+                if (content.indexOf("@import") != -1) {
+                    return null;
+                }
+                String basePath = contextPath
+                    + resourcePath.substring(0, resourcePath.lastIndexOf('/') + 1);
+                buffer.append(minifyCss(content, basePath));
+
+            } else {
+                buffer.append(content);
+                if (!content.endsWith("\n")) {
+                    buffer.append('\n');
+                }
+                buffer.append(";\n");
+            }
+        }
+
+        return buffer.toString().getBytes(charset);
+    }
+
     /**
      * Store the resource under the given resource path.
      *
@@ -210,7 +623,8 @@ public class ClickResourceService implements ResourceService {
     /**
      * Load the resource for the given resourcePath. This method will load the
      * resource from the servlet context, and if not found, load it from the
-     * classpath under the folder 'META-INF/resources'.
+     * classpath under the folder 'META-INF/resources', or from its indexed
+     * class path location.
      *
      * @param resourcePath the path to the resource to load
      * @return the resource as a byte array
@@ -226,8 +640,11 @@ public class ClickResourceService implements ResourceService {
         if (resourceData != null) {
             storeResourceData(resourcePath, resourceData);
         } else {
-            resourceData = getClasspathResourceData("META-INF/resources"
-                + resourcePath);
+            String resourceName = resourceIndex.get(resourcePath);
+            if (resourceName == null) {
+                resourceName = "META-INF/resources" + resourcePath;
+            }
+            resourceData = getClasspathResourceData(resourceName);
 
             if (resourceData != null) {
                 storeResourceData(resourcePath, resourceData);
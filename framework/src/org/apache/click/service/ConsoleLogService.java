@@ -95,7 +95,9 @@ public class ConsoleLogService implements LogService {
      * @param message the message to log
      */
     public void debug(Object message) {
-        log(DEBUG_LEVEL, String.valueOf(message), null);
+        if (DEBUG_LEVEL >= logLevel) {
+            log(DEBUG_LEVEL, String.valueOf(message), null);
+        }
     }
 
     /**
@@ -105,7 +107,9 @@ public class ConsoleLogService implements LogService {
      * @param error the error to log
      */
     public void debug(Object message, Throwable error) {
-        log(DEBUG_LEVEL, String.valueOf(message), error);
+        if (DEBUG_LEVEL >= logLevel) {
+            log(DEBUG_LEVEL, String.valueOf(message), error);
+        }
     }
 
     /**
@@ -114,7 +118,9 @@ public class ConsoleLogService implements LogService {
      * @param message the message to log
      */
     public void error(Object message) {
-        log(ERROR_LEVEL, String.valueOf(message), null);
+        if (ERROR_LEVEL >= logLevel) {
+            log(ERROR_LEVEL, String.valueOf(message), null);
+        }
     }
 
     /**
@@ -124,7 +130,9 @@ public class ConsoleLogService implements LogService {
      * @param error the error to log
      */
     public void error(Object message, Throwable error) {
-        log(ERROR_LEVEL, String.valueOf(message), error);
+        if (ERROR_LEVEL >= logLevel) {
+            log(ERROR_LEVEL, String.valueOf(message), error);
+        }
     }
 
     /**
@@ -133,7 +141,9 @@ public class ConsoleLogService implements LogService {
      * @param message the message to log
      */
     public void info(Object message) {
-        log(INFO_LEVEL, String.valueOf(message), null);
+        if (INFO_LEVEL >= logLevel) {
+            log(INFO_LEVEL, String.valueOf(message), null);
+        }
     }
 
     /**
@@ -143,7 +153,9 @@ public class ConsoleLogService implements LogService {
      * @param error the error to log
      */
     public void info(Object message, Throwable error) {
-        log(INFO_LEVEL, String.valueOf(message), error);
+        if (INFO_LEVEL >= logLevel) {
+            log(INFO_LEVEL, String.valueOf(message), error);
+        }
     }
 
     /**
@@ -152,7 +164,9 @@ public class ConsoleLogService implements LogService {
      * @param message the message to log
      */
     public void trace(Object message) {
-        log(TRACE_LEVEL, String.valueOf(message), null);
+        if (TRACE_LEVEL >= logLevel) {
+            log(TRACE_LEVEL, String.valueOf(message), null);
+        }
     }
 
     /**
@@ -162,7 +176,9 @@ public class ConsoleLogService implements LogService {
      * @param error the error to log
      */
     public void trace(Object message, Throwable error) {
-        log(TRACE_LEVEL, String.valueOf(message), error);
+        if (TRACE_LEVEL >= logLevel) {
+            log(TRACE_LEVEL, String.valueOf(message), error);
+        }
     }
 
     /**
@@ -171,7 +187,9 @@ public class ConsoleLogService implements LogService {
      * @param message the message to log
      */
     public void warn(Object message) {
-        log(WARN_LEVEL, String.valueOf(message), null);
+        if (WARN_LEVEL >= logLevel) {
+            log(WARN_LEVEL, String.valueOf(message), null);
+        }
     }
 
     /**
@@ -181,7 +199,9 @@ public class ConsoleLogService implements LogService {
      * @param error the error to log
      */
     public void warn(Object message, Throwable error) {
-        log(WARN_LEVEL, String.valueOf(message), error);
+        if (WARN_LEVEL >= logLevel) {
+            log(WARN_LEVEL, String.valueOf(message), error);
+        }
     }
 
     /**
@@ -0,0 +1,605 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import javax.servlet.ServletContext;
+
+import org.apache.click.Page;
+import org.apache.click.util.ClickUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Provides the default page lifecycle {@link MetricsService}.
+ * <p/>
+ * DefaultMetricsService keeps a {@link PageMetrics} instance per Page class
+ * and, when {@link #jmxEnabled} is true, registers each of them with the
+ * platform MBeanServer under the name:
+ *
+ * <pre class="codeConfig">
+ * org.apache.click:type=PageMetrics,application=<span class="blue">servlet context name</span>,page=<span class="blue">page class name</span> </pre>
+ *
+ * The MBeans expose the request and exception counts, the response sizes, the
+ * session state sizes, and for each lifecycle phase the count, mean, max,
+ * 95th and 99th percentile latencies in milliseconds, plus a <tt>reset</tt>
+ * operation.
+ * <p/>
+ * The service is disabled unless the <tt>metrics-service</tt> element is
+ * present in <tt>click.xml</tt>:
+ *
+ * <pre class="codeConfig">
+ * &lt;metrics-service&gt;
+ *     &lt;!-- Do not register JMX MBeans, use the stats page only. --&gt;
+ *     &lt;property name="jmxEnabled" value="false"/&gt;
+ * &lt;/metrics-service&gt; </pre>
+ *
+ * The session state owned by Click is measured by a
+ * {@link SessionFootprintAnalyzer} when the <tt>sessionSampleRate</tt> is set,
+ * which analyzes one in <tt>sessionSampleRate</tt> requests. The optional
+ * budgets, in bytes, log or evict oversized page and control state:
+ *
+ * <pre class="codeConfig">
+ * &lt;metrics-service&gt;
+ *     &lt;property name="sessionSampleRate" value="100"/&gt;
+ *     &lt;property name="sessionPageBudget" value="65536"/&gt;
+ *     &lt;property name="sessionControlBudget" value="16384"/&gt;
+ *     &lt;property name="sessionBudgetAction" value="evict"/&gt;
+ * &lt;/metrics-service&gt; </pre>
+ *
+ * The recorded metrics can also be viewed through the
+ * {@link org.apache.click.util.MetricsPage}.
+ */
+public class DefaultMetricsService implements MetricsService {
+
+    // -------------------------------------------------------------- Constants
+
+    /** The JMX domain of the page metrics MBeans. */
+    public static final String JMX_DOMAIN = "org.apache.click";
+
+    // -------------------------------------------------------------- Variables
+
+    /** The metrics enabled flag. */
+    protected boolean enabled = true;
+
+    /** The register page metrics MBeans flag. */
+    protected boolean jmxEnabled = true;
+
+    /** The page metrics keyed on page class name. */
+    protected final ConcurrentMap<String, PageMetrics> pageMetricsMap =
+        new ConcurrentHashMap<String, PageMetrics>();
+
+    /** The application log service. */
+    protected LogService logService;
+
+    /** The JMX application name. */
+    protected String applicationName;
+
+    /** The session analysis sample rate, 0 if session state is not analyzed. */
+    protected int sessionSampleRate;
+
+    /** The page session state budget in bytes, 0 if there is no budget. */
+    protected long sessionPageBudget;
+
+    /** The control session state budget in bytes, 0 if there is no budget. */
+    protected long sessionControlBudget;
+
+    /** The session budget action [ log | evict ]. */
+    protected String sessionBudgetAction = SessionFootprintAnalyzer.LOG;
+
+    /** The session footprint analyzer, null if session state is not analyzed. */
+    protected SessionFootprintAnalyzer sessionAnalyzer;
+
+    /** The names of the registered MBeans. */
+    private final List<ObjectName> registeredNames =
+        Collections.synchronizedList(new ArrayList<ObjectName>());
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * @see MetricsService#onInit(ServletContext)
+     *
+     * @param servletContext the application servlet context
+     * @throws Exception if an error occurs initializing the MetricsService
+     */
+    public void onInit(ServletContext servletContext) throws Exception {
+        logService = ClickUtils.getConfigService(servletContext).getLogService();
+
+        applicationName = servletContext.getServletContextName();
+        if (StringUtils.isBlank(applicationName)) {
+            applicationName = "click";
+        }
+
+        if (sessionSampleRate > 0) {
+            sessionAnalyzer = new SessionFootprintAnalyzer(logService);
+            sessionAnalyzer.setSampleRate(sessionSampleRate);
+            sessionAnalyzer.setPageBudget(sessionPageBudget);
+            sessionAnalyzer.setControlBudget(sessionControlBudget);
+            sessionAnalyzer.setBudgetAction(sessionBudgetAction);
+        }
+    }
+
+    /**
+     * Unregister the page metrics MBeans.
+     *
+     * @see MetricsService#onDestroy()
+     */
+    public void onDestroy() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        synchronized (registeredNames) {
+            for (ObjectName name : registeredNames) {
+                try {
+                    server.unregisterMBean(name);
+                } catch (Exception e) {
+                    logService.warn("could not unregister MBean " + name, e);
+                }
+            }
+            registeredNames.clear();
+        }
+    }
+
+    /**
+     * @see MetricsService#isEnabled()
+     *
+     * @return true if metrics should be recorded
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Set whether metrics should be recorded.
+     *
+     * @param enabled true if metrics should be recorded
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Return true if the page metrics are registered as JMX MBeans.
+     *
+     * @return true if the page metrics are registered as JMX MBeans
+     */
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    /**
+     * Set whether the page metrics are registered as JMX MBeans.
+     *
+     * @param jmxEnabled true if the page metrics are registered as JMX MBeans
+     */
+    public void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    /**
+     * Return the session analysis sample rate, or 0 if session state is not
+     * analyzed.
+     *
+     * @return the session analysis sample rate
+     */
+    public int getSessionSampleRate() {
+        return sessionSampleRate;
+    }
+
+    /**
+     * Set the session analysis sample rate, one in sessionSampleRate requests
+     * is analyzed. The default value of 0 disables session analysis.
+     *
+     * @param sessionSampleRate the session analysis sample rate
+     */
+    public void setSessionSampleRate(int sessionSampleRate) {
+        this.sessionSampleRate = sessionSampleRate;
+    }
+
+    /**
+     * Return the page session state budget in bytes, or 0 if there is no
+     * budget.
+     *
+     * @see SessionFootprintAnalyzer#getPageBudget()
+     *
+     * @return the page session state budget in bytes
+     */
+    public long getSessionPageBudget() {
+        return sessionPageBudget;
+    }
+
+    /**
+     * Set the page session state budget in bytes, or 0 for no budget.
+     *
+     * @see SessionFootprintAnalyzer#setPageBudget(long)
+     *
+     * @param sessionPageBudget the page session state budget in bytes
+     */
+    public void setSessionPageBudget(long sessionPageBudget) {
+        this.sessionPageBudget = sessionPageBudget;
+    }
+
+    /**
+     * Return the control session state budget in bytes, or 0 if there is no
+     * budget.
+     *
+     * @see SessionFootprintAnalyzer#getControlBudget()
+     *
+     * @return the control session state budget in bytes
+     */
+    public long getSessionControlBudget() {
+        return sessionControlBudget;
+    }
+
+    /**
+     * Set the control session state budget in bytes, or 0 for no budget.
+     *
+     * @see SessionFootprintAnalyzer#setControlBudget(long)
+     *
+     * @param sessionControlBudget the control session state budget in bytes
+     */
+    public void setSessionControlBudget(long sessionControlBudget) {
+        this.sessionControlBudget = sessionControlBudget;
+    }
+
+    /**
+     * Return the session budget action [ log | evict ].
+     *
+     * @return the session budget action
+     */
+    public String getSessionBudgetAction() {
+        return sessionBudgetAction;
+    }
+
+    /**
+     * Set the session budget action [ log | evict ], default value is
+     * <tt>log</tt>.
+     *
+     * @param sessionBudgetAction the session budget action
+     */
+    public void setSessionBudgetAction(String sessionBudgetAction) {
+        this.sessionBudgetAction = sessionBudgetAction;
+    }
+
+    /**
+     * @see MetricsService#getSessionAnalyzer()
+     *
+     * @return the session footprint analyzer, or null
+     */
+    public SessionFootprintAnalyzer getSessionAnalyzer() {
+        return sessionAnalyzer;
+    }
+
+    /**
+     * @see MetricsService#recordPhase(Class, String, long)
+     *
+     * @param pageClass the page class
+     * @param phase the lifecycle phase
+     * @param nanos the elapsed time in nanoseconds
+     */
+    public void recordPhase(Class<? extends Page> pageClass, String phase, long nanos) {
+        if (pageClass != null) {
+            getPageMetrics(pageClass).recordPhase(phase, nanos);
+        }
+    }
+
+    /**
+     * @see MetricsService#recordResponseSize(Class, long)
+     *
+     * @param pageClass the page class
+     * @param size the response size
+     */
+    public void recordResponseSize(Class<? extends Page> pageClass, long size) {
+        if (pageClass != null) {
+            getPageMetrics(pageClass).recordResponseSize(size);
+        }
+    }
+
+    /**
+     * @see MetricsService#recordSessionSize(Class, String, long)
+     *
+     * @param pageClass the page class
+     * @param name the session size name
+     * @param size the session state size in bytes
+     */
+    public void recordSessionSize(Class<? extends Page> pageClass, String name, long size) {
+        if (pageClass != null) {
+            getPageMetrics(pageClass).recordSessionSize(name, size);
+        }
+    }
+
+    /**
+     * @see MetricsService#recordException(Class, Throwable)
+     *
+     * @param pageClass the page class, or null
+     * @param error the raised exception
+     */
+    public void recordException(Class<? extends Page> pageClass, Throwable error) {
+        Class<? extends Page> key = (pageClass != null) ? pageClass : Page.class;
+        getPageMetrics(key).recordException(error);
+    }
+
+    /**
+     * @see MetricsService#getPageMetrics()
+     *
+     * @return the recorded metrics sorted on page class name
+     */
+    public Map<String, PageMetrics> getPageMetrics() {
+        return Collections.unmodifiableMap(new TreeMap<String, PageMetrics>(pageMetricsMap));
+    }
+
+    /**
+     * @see MetricsService#reset()
+     */
+    public void reset() {
+        for (PageMetrics pageMetrics : pageMetricsMap.values()) {
+            pageMetrics.reset();
+        }
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Return the PageMetrics of the given page class, creating and registering
+     * it on first use.
+     *
+     * @param pageClass the page class
+     * @return the PageMetrics of the given page class
+     */
+    protected PageMetrics getPageMetrics(Class<? extends Page> pageClass) {
+        String className = pageClass.getName();
+
+        PageMetrics pageMetrics = pageMetricsMap.get(className);
+        if (pageMetrics == null) {
+            pageMetrics = new PageMetrics(className);
+
+            PageMetrics existing = pageMetricsMap.putIfAbsent(className, pageMetrics);
+            if (existing != null) {
+                return existing;
+            }
+
+            if (jmxEnabled) {
+                registerMBean(pageMetrics);
+            }
+        }
+        return pageMetrics;
+    }
+
+    /**
+     * Register the given page metrics with the platform MBeanServer.
+     * Registration errors are logged and otherwise ignored.
+     *
+     * @param pageMetrics the page metrics to register
+     */
+    protected void registerMBean(PageMetrics pageMetrics) {
+        try {
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":type=PageMetrics,application="
+                + ObjectName.quote(applicationName) + ",page="
+                + ObjectName.quote(pageMetrics.getPageClassName()));
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new PageMetricsMBean(pageMetrics), name);
+                registeredNames.add(name);
+            }
+
+        } catch (Exception e) {
+            if (logService != null) {
+                logService.warn("could not register page metrics MBean for "
+                    + pageMetrics.getPageClassName(), e);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Provides a read only DynamicMBean view of a PageMetrics instance.
+     */
+    static class PageMetricsMBean implements DynamicMBean {
+
+        /** The phase statistics attribute suffixes. */
+        private static final String[] STATS = {
+            "Count", "MeanMillis", "MaxMillis", "P95Millis", "P99Millis"
+        };
+
+        /** The exposed page metrics. */
+        private final PageMetrics pageMetrics;
+
+        /**
+         * Create a PageMetricsMBean for the given page metrics.
+         *
+         * @param pageMetrics the exposed page metrics
+         */
+        PageMetricsMBean(PageMetrics pageMetrics) {
+            this.pageMetrics = pageMetrics;
+        }
+
+        /**
+         * @see DynamicMBean#getAttribute(String)
+         */
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            if ("RequestCount".equals(attribute)) {
+                return Long.valueOf(pageMetrics.getRequestCount());
+            }
+            if ("ExceptionCount".equals(attribute)) {
+                return Long.valueOf(pageMetrics.getExceptionCount());
+            }
+            if ("LastException".equals(attribute)) {
+                return pageMetrics.getLastExceptionClassName();
+            }
+            if ("MeanResponseSize".equals(attribute)) {
+                return Double.valueOf(pageMetrics.getResponseSizeHistogram().getMean());
+            }
+            if ("MaxResponseSize".equals(attribute)) {
+                return Long.valueOf(pageMetrics.getResponseSizeHistogram().getMax());
+            }
+            if (attribute != null && attribute.startsWith("SessionSize")) {
+                PageMetrics.Histogram histogram =
+                    pageMetrics.getSessionSizeHistogram(SessionFootprintAnalyzer.TOTAL);
+                if (histogram == null) {
+                    histogram = new PageMetrics.Histogram();
+                }
+
+                if ("SessionSizeMean".equals(attribute)) {
+                    return Double.valueOf(histogram.getMean());
+                } else if ("SessionSizeMax".equals(attribute)) {
+                    return Long.valueOf(histogram.getMax());
+                } else if ("SessionSizeP50".equals(attribute)) {
+                    return Long.valueOf(histogram.getPercentile(50));
+                } else if ("SessionSizeP95".equals(attribute)) {
+                    return Long.valueOf(histogram.getPercentile(95));
+                } else if ("SessionSizeP99".equals(attribute)) {
+                    return Long.valueOf(histogram.getPercentile(99));
+                }
+            }
+
+            for (String phase : PHASES) {
+                if (attribute != null && attribute.startsWith(phase)) {
+                    String stat = attribute.substring(phase.length());
+                    PageMetrics.Histogram histogram = pageMetrics.getPhaseHistogram(phase);
+
+                    if ("Count".equals(stat)) {
+                        return Long.valueOf(histogram.getCount());
+                    } else if ("MeanMillis".equals(stat)) {
+                        return Double.valueOf(histogram.getMean() / 1000000d);
+                    } else if ("MaxMillis".equals(stat)) {
+                        return Double.valueOf(histogram.getMax() / 1000000d);
+                    } else if ("P95Millis".equals(stat)) {
+                        return Double.valueOf(histogram.getPercentile(95) / 1000000d);
+                    } else if ("P99Millis".equals(stat)) {
+                        return Double.valueOf(histogram.getPercentile(99) / 1000000d);
+                    }
+                }
+            }
+
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        /**
+         * @see DynamicMBean#getAttributes(String[])
+         */
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // Unknown attributes are omitted from the list
+                }
+            }
+            return list;
+        }
+
+        /**
+         * Page metrics attributes are read only.
+         *
+         * @see DynamicMBean#setAttribute(Attribute)
+         */
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException(attribute.getName() + " is read only");
+        }
+
+        /**
+         * Page metrics attributes are read only.
+         *
+         * @see DynamicMBean#setAttributes(AttributeList)
+         */
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        /**
+         * @see DynamicMBean#invoke(String, Object[], String[])
+         */
+        public Object invoke(String actionName, Object[] params, String[] signature)
+                throws ReflectionException {
+
+            if ("reset".equals(actionName)) {
+                pageMetrics.reset();
+                return null;
+            }
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        /**
+         * @see DynamicMBean#getMBeanInfo()
+         */
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+            attributes.add(attributeInfo("RequestCount", Long.class, "Completed requests"));
+            attributes.add(attributeInfo("ExceptionCount", Long.class, "Exceptions raised"));
+            attributes.add(attributeInfo("LastException", String.class, "Last exception class"));
+            attributes.add(attributeInfo("MeanResponseSize", Double.class, "Mean response size"));
+            attributes.add(attributeInfo("MaxResponseSize", Long.class, "Max response size"));
+            attributes.add(attributeInfo("SessionSizeMean", Double.class, "Mean session state size"));
+            attributes.add(attributeInfo("SessionSizeMax", Long.class, "Max session state size"));
+            attributes.add(attributeInfo("SessionSizeP50", Long.class, "Median session state size"));
+            attributes.add(attributeInfo("SessionSizeP95", Long.class, "95th percentile session state size"));
+            attributes.add(attributeInfo("SessionSizeP99", Long.class, "99th percentile session state size"));
+
+            for (String phase : PHASES) {
+                for (String stat : STATS) {
+                    Class<?> type = "Count".equals(stat) ? Long.class : Double.class;
+                    attributes.add(attributeInfo(phase + stat, type, phase + " " + stat));
+                }
+            }
+
+            MBeanOperationInfo reset = new MBeanOperationInfo("reset",
+                "Clear the recorded metrics", new MBeanParameterInfo[0],
+                "void", MBeanOperationInfo.ACTION);
+
+            return new MBeanInfo(getClass().getName(),
+                "Click page lifecycle metrics of " + pageMetrics.getPageClassName(),
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
+                null, new MBeanOperationInfo[] { reset }, null);
+        }
+
+        /**
+         * Return a read only attribute info.
+         *
+         * @param name the attribute name
+         * @param type the attribute type
+         * @param description the attribute description
+         * @return a read only attribute info
+         */
+        private MBeanAttributeInfo attributeInfo(String name, Class<?> type,
+                String description) {
+            return new MBeanAttributeInfo(name, type.getName(), description,
+                true, false, false);
+        }
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.click.util.ClickUtils;
+import org.apache.click.util.HtmlStringBuffer;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Provides a deployment manifest, which records the content hash of each
+ * class path resource deployed to the web application root directory.
+ * <p/>
+ * The manifest is stored in the file <tt>WEB-INF/click-deploy.properties</tt>
+ * and is used to:
+ * <ul>
+ * <li>skip writing resources whose content has not changed</li>
+ * <li>redeploy resources which changed in a new jar version, provided the
+ * deployed file was not modified since it was deployed</li>
+ * <li>skip scanning the class path entirely when none of the jars
+ * containing resources changed since the last deployment</li>
+ * </ul>
+ * As before, files which were not deployed by Click are never overwritten.
+ */
+class DeployManifest {
+
+    // -------------------------------------------------------------- Constants
+
+    /** The manifest file path, relative to the web application root. */
+    static final String MANIFEST_PATH = "WEB-INF/click-deploy.properties";
+
+    /** The class path stamp manifest key. */
+    static final String STAMP_KEY = "deploy-stamp";
+
+    // -------------------------------------------------------------- Variables
+
+    /** The web application root directory. */
+    private final File rootDir;
+
+    /** The log service to log output to. */
+    private final LogService logService;
+
+    /** The deployed resource hashes keyed on target path, and the stamp. */
+    private final Properties entries = new Properties();
+
+    /** The target paths deployed in this run. */
+    private final Set<String> visited = new HashSet<String>();
+
+    /** The manifest has been modified flag. */
+    private boolean modified;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Create a deployment manifest for the given web application root
+     * directory.
+     *
+     * @param rootDir the web application root directory
+     * @param logService the log service to log output to
+     */
+    DeployManifest(File rootDir, LogService logService) {
+        this.rootDir = rootDir;
+        this.logService = logService;
+    }
+
+    // -------------------------------------------------------- Package Methods
+
+    /**
+     * Return a stamp of the jars which contain the given resource
+     * directories, based on the jar locations, sizes and modification times.
+     * Returns null if a directory is found outside a jar file, as changes to
+     * directories cannot be detected without scanning them.
+     *
+     * @param classLoader the class loader to find the directories with
+     * @param dirs the resource directories
+     * @return the class path stamp, or null if no stamp can be created
+     * @throws IOException if the class path cannot be read
+     */
+    static String createStamp(ClassLoader classLoader, String... dirs)
+        throws IOException {
+
+        HtmlStringBuffer buffer = new HtmlStringBuffer(1024);
+        buffer.append(ClickUtils.getClickVersion());
+
+        for (String dir : dirs) {
+            for (URL url : Collections.list(classLoader.getResources(dir))) {
+                File jarFile = getJarFile(url);
+                if (jarFile == null) {
+                    return null;
+                }
+                buffer.append('\n');
+                buffer.append(url.toExternalForm());
+                buffer.append('|');
+                buffer.append(jarFile.length());
+                buffer.append('|');
+                buffer.append(jarFile.lastModified());
+            }
+        }
+
+        return ClickUtils.toContentHash(buffer.toString().getBytes("UTF-8"));
+    }
+
+    /**
+     * Load the manifest file, if it exists.
+     */
+    void load() {
+        File file = new File(rootDir, MANIFEST_PATH);
+        if (!file.exists()) {
+            return;
+        }
+
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            entries.load(inputStream);
+
+        } catch (IOException ioe) {
+            logService.warn("could not read deployment manifest " + file
+                + ", error " + ioe);
+            entries.clear();
+
+        } finally {
+            ClickUtils.close(inputStream);
+        }
+    }
+
+    /**
+     * Save the manifest file, if it was modified.
+     */
+    void save() {
+        if (!modified) {
+            return;
+        }
+
+        File file = new File(rootDir, MANIFEST_PATH);
+
+        OutputStream outputStream = null;
+        try {
+            file.getParentFile().mkdirs();
+            outputStream = new FileOutputStream(file);
+            entries.store(outputStream, "Click deployed resources");
+            modified = false;
+
+        } catch (IOException ioe) {
+            logService.warn("could not write deployment manifest " + file
+                + ", error " + ioe);
+
+        } catch (SecurityException se) {
+            logService.warn("could not write deployment manifest " + file
+                + ", error " + se);
+
+        } finally {
+            ClickUtils.close(outputStream);
+        }
+    }
+
+    /**
+     * Return true if the resources were deployed from a class path with the
+     * given stamp, and all the deployed files still exist.
+     *
+     * @param stamp the current class path stamp, or null
+     * @return true if the resources do not need to be deployed again
+     */
+    boolean isDeployed(String stamp) {
+        if (stamp == null || !stamp.equals(entries.getProperty(STAMP_KEY))) {
+            return false;
+        }
+
+        for (Iterator<Object> i = entries.keySet().iterator(); i.hasNext();) {
+            String targetPath = (String) i.next();
+            if (!STAMP_KEY.equals(targetPath)
+                && !new File(rootDir, targetPath).exists()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Set the stamp of the class path the resources were deployed from.
+     *
+     * @param stamp the class path stamp, or null
+     */
+    void setStamp(String stamp) {
+        if (stamp != null) {
+            entries.setProperty(STAMP_KEY, stamp);
+        } else {
+            entries.remove(STAMP_KEY);
+        }
+        modified = true;
+    }
+
+    /**
+     * Deploy the given class path resource to the target path under the web
+     * application root directory, unless:
+     * <ul>
+     * <li>the resource was already deployed to the target path in this run</li>
+     * <li>the deployed file has the same content</li>
+     * <li>the file was not deployed by Click, or was modified after it was
+     * deployed</li>
+     * </ul>
+     *
+     * If an IOException or SecurityException occurs this method will log a
+     * warning message.
+     *
+     * @param resource the class path resource name
+     * @param targetPath the target path relative to the web application root,
+     * for example <tt>"click/table.css"</tt>
+     */
+    void deployFile(String resource, String targetPath) {
+        if (!visited.add(targetPath)) {
+            return;
+        }
+
+        try {
+            byte[] data = getResourceData(resource);
+            if (data == null) {
+                logService.warn("could not locate classpath resource: " + resource);
+                return;
+            }
+
+            String hash = ClickUtils.toContentHash(data);
+            String deployedHash = entries.getProperty(targetPath);
+
+            File file = new File(rootDir, targetPath);
+
+            if (file.exists()) {
+                if (hash.equals(deployedHash)) {
+                    return;
+                }
+
+                String fileHash = getFileHash(file);
+
+                // Record files which match the resource but are not in the
+                // manifest, for example files deployed by an older version
+                if (deployedHash == null && hash.equals(fileHash)) {
+                    entries.setProperty(targetPath, hash);
+                    modified = true;
+                    return;
+                }
+
+                // Never overwrite files not deployed by Click or modified
+                // since they were deployed
+                if (deployedHash == null || !deployedHash.equals(fileHash)) {
+                    if (logService.isTraceEnabled()) {
+                        logService.trace("kept existing " + targetPath);
+                    }
+                    return;
+                }
+            }
+
+            File directory = file.getParentFile();
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("could not create deployment directory: "
+                    + directory);
+            }
+
+            OutputStream outputStream = null;
+            try {
+                outputStream = new FileOutputStream(file);
+                outputStream.write(data);
+
+            } finally {
+                ClickUtils.close(outputStream);
+            }
+
+            entries.setProperty(targetPath, hash);
+            modified = true;
+
+            if (logService.isTraceEnabled()) {
+                logService.trace("deployed " + targetPath);
+            }
+
+        } catch (IOException ioe) {
+            logService.warn("error occurred deploying resource " + resource
+                + ", error " + ioe);
+
+        } catch (SecurityException se) {
+            logService.warn("error occurred deploying resource " + resource
+                + ", error " + se);
+        }
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Return the jar file containing the given jar URL entry, or null if the
+     * URL is not an entry in a jar file.
+     *
+     * @param url the resource URL
+     * @return the jar file containing the resource, or null
+     */
+    private static File getJarFile(URL url) {
+        if (!"jar".equals(url.getProtocol())) {
+            return null;
+        }
+
+        String spec = url.getFile();
+        int index = spec.indexOf("!/");
+        if (index == -1 || !spec.startsWith("file:")) {
+            return null;
+        }
+
+        File file = new File(ClickUtils.decodeURL(spec.substring(5, index)));
+        return file.isFile() ? file : null;
+    }
+
+    /**
+     * Return the data of the given class path resource, or null if not found.
+     *
+     * @param resource the class path resource name
+     * @return the resource data, or null if not found
+     * @throws IOException if the resource could not be read
+     */
+    private byte[] getResourceData(String resource) throws IOException {
+        InputStream inputStream =
+            ClickUtils.getResourceAsStream(resource, DeployManifest.class);
+        if (inputStream == null) {
+            return null;
+        }
+        try {
+            return IOUtils.toByteArray(inputStream);
+        } finally {
+            ClickUtils.close(inputStream);
+        }
+    }
+
+    /**
+     * Return the content hash of the given file.
+     *
+     * @param file the file to hash
+     * @return the content hash of the file
+     * @throws IOException if the file could not be read
+     */
+    private String getFileHash(File file) throws IOException {
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            return ClickUtils.toContentHash(IOUtils.toByteArray(inputStream));
+        } finally {
+            ClickUtils.close(inputStream);
+        }
+    }
+}
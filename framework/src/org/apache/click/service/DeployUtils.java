@@ -27,6 +27,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 import org.apache.click.util.ClickUtils;
@@ -156,25 +162,59 @@ class DeployUtils<T> {
      * Each class is offered up to the Test as it is discovered, and if the Test returns
      * true the class is retained.  Accumulated classes can be fetched by calling
      * {@link #getClasses()}.
+     * <p/>
+     * When the package is found in more than one jar or directory, the
+     * locations are listed in parallel. The matches are added in class path
+     * order.
      *
      * @param test an instance of {@link Test} that will be used to filter classes
      * @param packageName the name of the package from which to start scanning for
      *        classes, e.g. {@code net.sourceforge.stripes}
      */
     public DeployUtils<T> find(Test test, String packageName) {
-        String path = getPackagePath(packageName);
+        final String path = getPackagePath(packageName);
 
+        ExecutorService executor = null;
         try {
             List<URL> urls = Collections.list(getClassLoader().getResources(path));
-            for (URL url : urls) {
-                List<String> children = listClassResources(url, path);
-                for (String child : children) {
-                    addIfMatching(test, child);
+
+            if (urls.size() < 2) {
+                for (URL url : urls) {
+                    addIfMatching(test, listClassResources(url, path));
                 }
+                return this;
+            }
+
+            int threads = Math.min(urls.size(), Runtime.getRuntime().availableProcessors());
+            executor = Executors.newFixedThreadPool(threads, new ScannerThreadFactory());
+
+            List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+            for (final URL url : urls) {
+                futures.add(executor.submit(new Callable<List<String>>() {
+                    public List<String> call() throws IOException {
+                        return listClassResources(url, path);
+                    }
+                }));
+            }
+
+            for (Future<List<String>> future : futures) {
+                addIfMatching(test, future.get());
             }
 
+        } catch (ExecutionException ee) {
+            logService.error("could not read package: " + packageName + " -- " + ee.getCause());
+
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            logService.error("interrupted reading package: " + packageName);
+
         } catch (IOException ioe) {
             logService.error("could not read package: " + packageName + " -- " + ioe);
+
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
         }
 
         return this;
@@ -494,6 +534,19 @@ class DeployUtils<T> {
         return false;
     }
 
+    /**
+     * Add each of the given resources which is approved by the Test supplied
+     * to the set of resolved resources.
+     *
+     * @param test the test used to determine if the resources match
+     * @param resources the resources found in a jar or directory
+     */
+    protected void addIfMatching(Test test, List<String> resources) {
+        for (String resource : resources) {
+            addIfMatching(test, resource);
+        }
+    }
+
     /**
      * Add the class designated by the fully qualified class name provided to the set of
      * resolved classes if and only if it is approved by the Test supplied.
@@ -526,6 +579,24 @@ class DeployUtils<T> {
         boolean matches(String resource);
     }
 
+    /**
+     * Provides daemon threads for listing class path locations in parallel.
+     */
+    static class ScannerThreadFactory implements ThreadFactory {
+
+        /**
+         * @see ThreadFactory#newThread(Runnable)
+         *
+         * @param runnable the runnable to run
+         * @return a new daemon thread
+         */
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Click-DeployUtils");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
     /**
      * This test matches deployable resources.
      */
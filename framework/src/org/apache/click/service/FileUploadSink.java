@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.fileupload.FileItemStream;
+
+/**
+ * Provides a destination for uploaded files streamed by the
+ * {@link StreamingFileUploadService}.
+ * <p/>
+ * A sink receives the content of an uploaded file while the request is
+ * being parsed, so it can be piped straight to its final storage without
+ * first being copied to a temporary file or held in memory.
+ * <p/>
+ * Sinks are registered per request parameter name through
+ * {@link org.apache.click.Context#setFileUploadSink(String, FileUploadSink)}
+ * or {@link org.apache.click.control.FileField#setUploadSink(FileUploadSink)}.
+ * As the request is parsed the first time a request parameter is accessed,
+ * sinks should be registered in the Page constructor.
+ * <p/>
+ * For example:
+ * <pre class="prettyprint">
+ * public class UploadPage extends Page {
+ *
+ *     private Form form = new Form("form");
+ *
+ *     public UploadPage() {
+ *         FileField fileField = new FileField("report");
+ *         fileField.setUploadSink(new FileUploadSink() {
+ *             public void receive(FileItemStream item, InputStream stream) throws IOException {
+ *                 getStorageService().store(item.getName(), stream);
+ *             }
+ *         });
+ *         form.add(fileField);
+ *         addControl(form);
+ *     }
+ * } </pre>
+ */
+public interface FileUploadSink {
+
+    /**
+     * Receive the content of the specified uploaded file.
+     * <p/>
+     * The stream is only valid for the duration of this call. The number of
+     * bytes read from the stream is recorded as the size of the
+     * {@link StreamedFileItem} made available to the request.
+     *
+     * @param item the uploaded file part
+     * @param stream the content of the uploaded file
+     * @throws IOException if the content cannot be read or stored
+     */
+    public void receive(FileItemStream item, InputStream stream) throws IOException;
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.util.Arrays;
+
+/**
+ * Provides a lazily formatted log message. The message pattern is formatted
+ * on the first call to {@link #toString()}, replacing each <tt>{}</tt>
+ * placeholder with the next argument. For example:
+ *
+ * <pre class="prettyprint">
+ * new LogMessage("{} -> {}", "name", "value").toString(); // name -> value </pre>
+ *
+ * A placeholder can be escaped with a backslash: <tt>\{}</tt>. Arguments
+ * without a matching placeholder are ignored, and placeholders without a
+ * matching argument are rendered as is.
+ * <p/>
+ * The static {@link #format(String, Object[])} method formats a pattern
+ * directly, see {@link LogService}. A LogMessage can also be logged as the
+ * message object of any {@link LogService}, which formats it only if the
+ * level is enabled. Log services which hand messages to a background writer,
+ * such as the {@link AsyncLogService}, format them on the logging thread
+ * first, as the arguments may be mutable or request scoped.
+ */
+public class LogMessage {
+
+    // -------------------------------------------------------- Variables
+
+    /** The message pattern. */
+    private final String pattern;
+
+    /** The message arguments. */
+    private final Object[] args;
+
+    /** The formatted message, set on the first call to toString(). */
+    private String message;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Create a new log message for the given pattern and arguments.
+     *
+     * @param pattern the message pattern
+     * @param args the message arguments
+     */
+    public LogMessage(String pattern, Object... args) {
+        this.pattern = pattern;
+        this.args = args;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Return the formatted message for the given pattern and arguments.
+     *
+     * @param pattern the message pattern
+     * @param args the message arguments
+     * @return the formatted message
+     */
+    public static String format(String pattern, Object... args) {
+        if (pattern == null) {
+            return "null";
+        }
+        if (args == null || args.length == 0) {
+            return pattern;
+        }
+
+        StringBuilder buffer = new StringBuilder(pattern.length() + 16 * args.length);
+        int argIndex = 0;
+        int start = 0;
+        int index = pattern.indexOf("{}");
+
+        while (index != -1 && argIndex < args.length) {
+            if (index > 0 && pattern.charAt(index - 1) == '\\') {
+                buffer.append(pattern, start, index - 1).append("{}");
+
+            } else {
+                buffer.append(pattern, start, index);
+                appendArgument(buffer, args[argIndex++]);
+            }
+            start = index + 2;
+            index = pattern.indexOf("{}", start);
+        }
+
+        buffer.append(pattern, start, pattern.length());
+        return buffer.toString();
+    }
+
+    /**
+     * Return the message pattern.
+     *
+     * @return the message pattern
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Return the message arguments.
+     *
+     * @return the message arguments
+     */
+    public Object[] getArgs() {
+        return args;
+    }
+
+    /**
+     * Return the formatted message.
+     *
+     * @return the formatted message
+     */
+    @Override
+    public String toString() {
+        if (message == null) {
+            message = format(pattern, args);
+        }
+        return message;
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Append the given argument to the buffer, rendering arrays as lists.
+     *
+     * @param buffer the buffer to append to
+     * @param arg the argument to append
+     */
+    private static void appendArgument(StringBuilder buffer, Object arg) {
+        if (arg instanceof Object[]) {
+            buffer.append(Arrays.asList((Object[]) arg));
+        } else {
+            buffer.append(arg);
+        }
+    }
+}
@@ -53,6 +53,19 @@ import javax.servlet.ServletContext;
  *         super.log(level, message, error);
  *     }
  * } </pre>
+ *
+ * <h3>Message Patterns</h3>
+ * Messages with <tt>{}</tt> placeholders can be formatted with the
+ * {@link LogMessage} utility. Guard the call with the level check, so that
+ * no message or argument array is created when the level is disabled:
+ *
+ * <pre class="prettyprint">
+ * if (logService.isDebugEnabled()) {
+ *     logService.debug(LogMessage.format("auto bound variable: {}={}", name, value));
+ * } </pre>
+ *
+ * To log from a background thread, so that request threads do not wait on
+ * the log output, wrap the log service with an {@link AsyncLogService}.
  */
 public interface LogService {
 
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+
+import org.apache.click.Page;
+
+/**
+ * Provides a page lifecycle metrics service for the Click runtime.
+ * <p/>
+ * The ClickServlet reports to the MetricsService how long each page request
+ * spends in the page lifecycle phases, the size of the rendered responses
+ * and the exceptions raised while processing pages. Metrics are keyed on the
+ * Page class.
+ * <p/>
+ * When a {@link SessionFootprintAnalyzer} is provided the ClickServlet also
+ * reports the serialized size of the session state owned by Click after
+ * sampled requests.
+ *
+ * <h3>Configuration</h3>
+ * The default {@link MetricsService} implementation is {@link DefaultMetricsService},
+ * which is disabled unless a <tt>metrics-service</tt> element is present in
+ * the <tt>click.xml</tt> configuration file:
+ *
+ * <pre class="codeConfig">
+ * &lt;?xml version="1.0" encoding="UTF-8" standalone="yes"?&gt;
+ * &lt;click-app charset="UTF-8"&gt;
+ *
+ *     &lt;pages package="org.apache.click.examples.page"/&gt;
+ *
+ *     &lt;<span class="red">metrics-service</span>/&gt;
+ *
+ * &lt;/click-app&gt; </pre>
+ *
+ * You can instruct Click to use a different implementation with the
+ * <tt>classname</tt> attribute:
+ *
+ * <pre class="codeConfig">
+ * &lt;metrics-service classname="<span class="blue">com.mycorp.CustomMetricsService</span>"/&gt; </pre>
+ *
+ * Implementations are invoked by every request thread and must be thread safe.
+ * As metrics are intended to stay enabled in production mode, recording a
+ * measurement should not block or allocate.
+ */
+public interface MetricsService {
+
+    /** The page <tt>onSecurityCheck</tt> phase. */
+    public static final String PHASE_SECURITY_CHECK = "onSecurityCheck";
+
+    /** The page and controls <tt>onInit</tt> phase. */
+    public static final String PHASE_INIT = "onInit";
+
+    /** The controls <tt>onProcess</tt> phase. */
+    public static final String PHASE_PROCESS = "onProcess";
+
+    /** The action listener and page action phase. */
+    public static final String PHASE_ACTION = "action";
+
+    /** The page and controls <tt>onRender</tt> phase. */
+    public static final String PHASE_RENDER = "onRender";
+
+    /** The template merge, JSP forward or ActionResult rendering phase. */
+    public static final String PHASE_TEMPLATE = "template";
+
+    /** The page and controls <tt>onDestroy</tt> phase. */
+    public static final String PHASE_DESTROY = "onDestroy";
+
+    /** The complete page request. */
+    public static final String PHASE_REQUEST = "request";
+
+    /** The lifecycle phases in request processing order. */
+    public static final String[] PHASES = {
+        PHASE_SECURITY_CHECK, PHASE_INIT, PHASE_PROCESS, PHASE_ACTION,
+        PHASE_RENDER, PHASE_TEMPLATE, PHASE_DESTROY, PHASE_REQUEST
+    };
+
+    /**
+     * Initialize the MetricsService with the given application servlet context.
+     * <p/>
+     * This method is invoked after the MetricsService has been constructed.
+     *
+     * @param servletContext the application servlet context
+     * @throws Exception if an error occurs initializing the MetricsService
+     */
+    public void onInit(ServletContext servletContext) throws Exception;
+
+    /**
+     * Destroy the MetricsService.
+     */
+    public void onDestroy();
+
+    /**
+     * Return true if metrics should be recorded. The ClickServlet does not
+     * time requests when this method returns false.
+     *
+     * @return true if metrics should be recorded
+     */
+    public boolean isEnabled();
+
+    /**
+     * Record the time spent by the given page class in the given lifecycle
+     * phase.
+     *
+     * @param pageClass the page class
+     * @param phase the lifecycle phase, one of {@link #PHASES}
+     * @param nanos the elapsed time in nanoseconds
+     */
+    public void recordPhase(Class<? extends Page> pageClass, String phase, long nanos);
+
+    /**
+     * Record the size of a response rendered by the given page class.
+     *
+     * @param pageClass the page class
+     * @param size the number of characters or bytes written to the response
+     */
+    public void recordResponseSize(Class<? extends Page> pageClass, long size);
+
+    /**
+     * Return the session footprint analyzer, or null if session state should
+     * not be analyzed.
+     *
+     * @return the session footprint analyzer, or null
+     */
+    public SessionFootprintAnalyzer getSessionAnalyzer();
+
+    /**
+     * Record the serialized size of the named session state of the given
+     * page class.
+     *
+     * @see SessionFootprintAnalyzer
+     *
+     * @param pageClass the page class
+     * @param name the session size name
+     * @param size the session state size in bytes
+     */
+    public void recordSessionSize(Class<? extends Page> pageClass, String name, long size);
+
+    /**
+     * Record an exception raised while processing the given page class.
+     *
+     * @param pageClass the page class, or null if the page could not be
+     * resolved
+     * @param error the raised exception
+     */
+    public void recordException(Class<? extends Page> pageClass, Throwable error);
+
+    /**
+     * Return the recorded metrics keyed on page class name.
+     *
+     * @return the recorded metrics keyed on page class name
+     */
+    public Map<String, PageMetrics> getPageMetrics();
+
+    /**
+     * Clear all the recorded metrics.
+     */
+    public void reset();
+
+}
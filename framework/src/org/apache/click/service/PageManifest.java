@@ -0,0 +1,343 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+
+import javax.servlet.ServletContext;
+
+import org.apache.click.Page;
+import org.apache.click.util.ClickUtils;
+import org.apache.click.util.HtmlStringBuffer;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Provides a page mapping manifest, which records the application templates
+ * and the automapped page classes found when the application was built.
+ * <p/>
+ * In <tt>production</tt> and <tt>profile</tt> mode the
+ * {@link XmlConfigService} loads the automapped pages from the manifest file
+ * <tt>WEB-INF/click-pages.properties</tt>, instead of scanning the web
+ * application for templates and probing the page packages for matching
+ * classes. The manifest is ignored, and the pages are scanned as before, when:
+ * <ul>
+ * <li>the manifest file is missing</li>
+ * <li>the manifest is stale, as <tt>click.xml</tt>, the Click version or the
+ * application templates changed since it was created</li>
+ * <li>a page class listed in the manifest cannot be loaded</li>
+ * </ul>
+ * The application templates are still listed on startup, as walking the
+ * web application resource paths is cheap compared to probing the class
+ * path, so adding or removing a template makes the manifest stale.
+ * <p/>
+ * The page headers and bindable fields are not recorded, as they are derived
+ * from <tt>click.xml</tt> and the page classes without any class path
+ * probing. The manifest pages are mapped with the <tt>autobinding</tt> mode
+ * of the first automapping <tt>&lt;pages&gt;</tt> element, while scanned
+ * pages use the mode of the <tt>&lt;pages&gt;</tt> element whose package
+ * the page class was found in. Applications with several <tt>&lt;pages&gt;</tt>
+ * elements using different <tt>autobinding</tt> modes should not use a
+ * manifest.
+ * <p/>
+ * The manifest is created when building the WAR, using the
+ * <tt>org.apache.click.PageManifestBuilder</tt> tool of the mock module or
+ * the <tt>page-manifest</tt> Ant target, for example:
+ *
+ * <pre class="codeHtml">
+ * ant page-manifest -Dwebapp.dir=build/web </pre>
+ *
+ * The manifest must be created again whenever page classes are added or
+ * removed, as changes to the classes alone are not detected.
+ */
+public class PageManifest {
+
+    // -------------------------------------------------------------- Constants
+
+    /** The manifest file path, relative to the web application root. */
+    public static final String MANIFEST_PATH = "/WEB-INF/click-pages.properties";
+
+    /** The manifest stamp key. */
+    static final String STAMP_KEY = "stamp";
+
+    /** The manifest templates key. */
+    static final String TEMPLATES_KEY = "templates";
+
+    /** The manifest page class key prefix. */
+    static final String PAGE_PREFIX = "page.";
+
+    // -------------------------------------------------------------- Variables
+
+    /** The stamp of the configuration the manifest was created from. */
+    private final String stamp;
+
+    /** The application templates. */
+    private final List<String> templates;
+
+    /** The automapped page class names, keyed on path. */
+    private final Map<String, String> pageClassNames;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Create a page manifest for the given stamp, templates and automapped
+     * page class names.
+     *
+     * @param stamp the stamp of the configuration the manifest is created from
+     * @param templates the application templates
+     * @param pageClassNames the automapped page class names, keyed on path
+     */
+    PageManifest(String stamp, List<String> templates,
+            Map<String, String> pageClassNames) {
+        this.stamp = stamp;
+        this.templates = templates;
+        this.pageClassNames = pageClassNames;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Create a page manifest from the pages mapped by the application's
+     * {@link XmlConfigService}. The application must have been initialized.
+     *
+     * @param servletContext the application servlet context
+     * @return the page manifest of the application
+     * @throws IOException if <tt>click.xml</tt> cannot be read
+     */
+    public static PageManifest create(ServletContext servletContext)
+        throws IOException {
+
+        ConfigService configService = ClickUtils.getConfigService(servletContext);
+        if (!(configService instanceof XmlConfigService)) {
+            String msg = "page manifests require the XmlConfigService, found: "
+                + configService.getClass().getName();
+            throw new IllegalStateException(msg);
+        }
+
+        XmlConfigService xmlConfigService = (XmlConfigService) configService;
+
+        List<String> templates = xmlConfigService.getTemplatePathList();
+
+        return new PageManifest(createStamp(servletContext, templates),
+            new ArrayList<String>(templates),
+            new TreeMap<String, String>(xmlConfigService.automappedPages));
+    }
+
+    /**
+     * Save the manifest file under the given web application root directory.
+     *
+     * @param rootDir the web application root directory
+     * @throws IOException if the manifest file could not be written
+     */
+    public void save(File rootDir) throws IOException {
+        Properties entries = new Properties();
+        entries.setProperty(STAMP_KEY, stamp);
+
+        HtmlStringBuffer buffer = new HtmlStringBuffer(templates.size() * 32);
+        for (String template : templates) {
+            if (buffer.length() > 0) {
+                buffer.append(',');
+            }
+            buffer.append(template);
+        }
+        entries.setProperty(TEMPLATES_KEY, buffer.toString());
+
+        for (Map.Entry<String, String> entry : pageClassNames.entrySet()) {
+            entries.setProperty(PAGE_PREFIX + entry.getKey(), entry.getValue());
+        }
+
+        File file = new File(rootDir, MANIFEST_PATH.substring(1));
+        file.getParentFile().mkdirs();
+
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            entries.store(outputStream, "Click page mapping");
+        } finally {
+            ClickUtils.close(outputStream);
+        }
+    }
+
+    /**
+     * Return the stamp of the configuration the manifest was created from.
+     *
+     * @return the configuration stamp
+     */
+    public String getStamp() {
+        return stamp;
+    }
+
+    /**
+     * Return the application templates.
+     *
+     * @return the application templates
+     */
+    public List<String> getTemplates() {
+        return templates;
+    }
+
+    /**
+     * Return the automapped page class names, keyed on path.
+     *
+     * @return the automapped page class names
+     */
+    public Map<String, String> getPageClassNames() {
+        return pageClassNames;
+    }
+
+    // -------------------------------------------------------- Package Methods
+
+    /**
+     * Return the stamp of the application configuration, based on the
+     * <tt>click.xml</tt> content, the Click version and the application
+     * templates.
+     *
+     * @param servletContext the application servlet context
+     * @param templates the application templates
+     * @return the configuration stamp
+     * @throws IOException if <tt>click.xml</tt> cannot be read
+     */
+    static String createStamp(ServletContext servletContext,
+            List<String> templates) throws IOException {
+
+        InputStream inputStream = ClickUtils.getClickConfig(servletContext);
+        try {
+            byte[] config = IOUtils.toByteArray(inputStream);
+
+            HtmlStringBuffer buffer = new HtmlStringBuffer(templates.size() * 32);
+            buffer.append(ClickUtils.getClickVersion());
+            for (String template : templates) {
+                buffer.append('\n');
+                buffer.append(template);
+            }
+            byte[] listing = buffer.toString().getBytes("UTF-8");
+
+            byte[] data = new byte[config.length + listing.length];
+            System.arraycopy(config, 0, data, 0, config.length);
+            System.arraycopy(listing, 0, data, config.length, listing.length);
+
+            return ClickUtils.toContentHash(data);
+
+        } finally {
+            ClickUtils.close(inputStream);
+        }
+    }
+
+    /**
+     * Load the application's page manifest, returning null if the manifest
+     * file is missing, cannot be read or is stale.
+     *
+     * @param servletContext the application servlet context
+     * @param templates the current application templates
+     * @param logService the log service to log output to
+     * @return the page manifest, or null if no current manifest is available
+     */
+    static PageManifest load(ServletContext servletContext,
+            List<String> templates, LogService logService) {
+
+        InputStream inputStream =
+            servletContext.getResourceAsStream(MANIFEST_PATH);
+        if (inputStream == null) {
+            return null;
+        }
+
+        Properties entries = new Properties();
+        String currentStamp = null;
+        try {
+            entries.load(inputStream);
+            currentStamp = createStamp(servletContext, templates);
+
+        } catch (IOException ioe) {
+            logService.warn("could not read page manifest " + MANIFEST_PATH
+                + ", error " + ioe);
+            return null;
+
+        } finally {
+            ClickUtils.close(inputStream);
+        }
+
+        if (!currentStamp.equals(entries.getProperty(STAMP_KEY))) {
+            logService.info("page manifest " + MANIFEST_PATH
+                + " is stale, scanning pages");
+            return null;
+        }
+
+        List<String> manifestTemplates = new ArrayList<String>();
+        StringTokenizer tokenizer =
+            new StringTokenizer(entries.getProperty(TEMPLATES_KEY, ""), ",");
+        while (tokenizer.hasMoreTokens()) {
+            manifestTemplates.add(tokenizer.nextToken());
+        }
+
+        Map<String, String> pageClassNames = new TreeMap<String, String>();
+        for (Iterator<Object> i = entries.keySet().iterator(); i.hasNext();) {
+            String key = (String) i.next();
+            if (key.startsWith(PAGE_PREFIX)) {
+                pageClassNames.put(key.substring(PAGE_PREFIX.length()),
+                    entries.getProperty(key));
+            }
+        }
+
+        return new PageManifest(currentStamp,
+            Collections.unmodifiableList(manifestTemplates), pageClassNames);
+    }
+
+    /**
+     * Return the automapped page classes keyed on path, or null if a page
+     * class cannot be loaded and the manifest is stale.
+     *
+     * @param logService the log service to log output to
+     * @return the automapped page classes, or null if the manifest is stale
+     */
+    Map<String, Class<? extends Page>> loadPageClasses(LogService logService) {
+        Map<String, Class<? extends Page>> pageClasses =
+            new LinkedHashMap<String, Class<? extends Page>>();
+
+        for (Map.Entry<String, String> entry : pageClassNames.entrySet()) {
+            String classname = entry.getValue();
+            try {
+                Class<?> pageClass = ClickUtils.classForName(classname);
+                pageClasses.put(entry.getKey(), pageClass.asSubclass(Page.class));
+
+            } catch (ClassCastException cce) {
+                logService.info("page manifest class " + classname
+                    + " is not a Page, scanning pages");
+                return null;
+
+            } catch (ClassNotFoundException cnfe) {
+                logService.info("page manifest class " + classname
+                    + " not found, scanning pages");
+                return null;
+            }
+        }
+
+        return pageClasses;
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Provides the lifecycle metrics recorded for a single Page class.
+ * <p/>
+ * PageMetrics holds a latency {@link Histogram} for each of the
+ * {@link MetricsService#PHASES}, a response size histogram, session size
+ * histograms keyed on the {@link SessionFootprintAnalyzer} names and an
+ * exception count. Measurements are recorded with atomic counters only, so PageMetrics
+ * can be updated concurrently by request threads without locking.
+ */
+public class PageMetrics implements Serializable {
+
+    // -------------------------------------------------------------- Constants
+
+    private static final long serialVersionUID = 1L;
+
+    // ----------------------------------------------------- Instance Variables
+
+    /** The page class name. */
+    private final String pageClassName;
+
+    /** The phase latency histograms in nanoseconds, indexed as the PHASES. */
+    private final Histogram[] phaseHistograms;
+
+    /** The response size histogram. */
+    private final Histogram responseSizeHistogram = new Histogram();
+
+    /** The session size histograms keyed on name. */
+    private final ConcurrentMap<String, Histogram> sessionSizeHistograms =
+        new ConcurrentHashMap<String, Histogram>();
+
+    /** The number of exceptions raised. */
+    private final AtomicLong exceptionCount = new AtomicLong();
+
+    /** The class name of the last exception raised. */
+    private volatile String lastExceptionClassName;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Create a PageMetrics for the given page class name.
+     *
+     * @param pageClassName the page class name
+     */
+    public PageMetrics(String pageClassName) {
+        this.pageClassName = pageClassName;
+
+        phaseHistograms = new Histogram[MetricsService.PHASES.length];
+        for (int i = 0; i < phaseHistograms.length; i++) {
+            phaseHistograms[i] = new Histogram();
+        }
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Return the page class name.
+     *
+     * @return the page class name
+     */
+    public String getPageClassName() {
+        return pageClassName;
+    }
+
+    /**
+     * Return the latency histogram, in nanoseconds, of the given lifecycle
+     * phase, or null if the phase is not one of the
+     * {@link MetricsService#PHASES}.
+     *
+     * @param phase the lifecycle phase
+     * @return the latency histogram of the given phase
+     */
+    public Histogram getPhaseHistogram(String phase) {
+        int index = indexOfPhase(phase);
+        return (index == -1) ? null : phaseHistograms[index];
+    }
+
+    /**
+     * Return the response size histogram.
+     *
+     * @return the response size histogram
+     */
+    public Histogram getResponseSizeHistogram() {
+        return responseSizeHistogram;
+    }
+
+    /**
+     * Return the session size histogram of the given name, or null if no
+     * size of that name was recorded.
+     *
+     * @see SessionFootprintAnalyzer
+     *
+     * @param name the session size name
+     * @return the session size histogram of the given name
+     */
+    public Histogram getSessionSizeHistogram(String name) {
+        return sessionSizeHistograms.get(name);
+    }
+
+    /**
+     * Return the session size histograms sorted on name.
+     *
+     * @return the session size histograms sorted on name
+     */
+    public Map<String, Histogram> getSessionSizeHistograms() {
+        return Collections.unmodifiableMap(new TreeMap<String, Histogram>(sessionSizeHistograms));
+    }
+
+    /**
+     * Return the number of requests which completed the page lifecycle.
+     *
+     * @return the number of requests
+     */
+    public long getRequestCount() {
+        return getPhaseHistogram(MetricsService.PHASE_REQUEST).getCount();
+    }
+
+    /**
+     * Return the number of exceptions raised.
+     *
+     * @return the number of exceptions raised
+     */
+    public long getExceptionCount() {
+        return exceptionCount.get();
+    }
+
+    /**
+     * Return the class name of the last exception raised, or null if no
+     * exception was raised.
+     *
+     * @return the class name of the last exception raised
+     */
+    public String getLastExceptionClassName() {
+        return lastExceptionClassName;
+    }
+
+    /**
+     * Record the elapsed time of the given lifecycle phase. Unknown phases
+     * are ignored.
+     *
+     * @param phase the lifecycle phase
+     * @param nanos the elapsed time in nanoseconds
+     */
+    public void recordPhase(String phase, long nanos) {
+        int index = indexOfPhase(phase);
+        if (index != -1) {
+            phaseHistograms[index].record(nanos);
+        }
+    }
+
+    /**
+     * Record the size of a rendered response.
+     *
+     * @param size the response size
+     */
+    public void recordResponseSize(long size) {
+        responseSizeHistogram.record(size);
+    }
+
+    /**
+     * Record the serialized size of the named session state.
+     *
+     * @param name the session size name
+     * @param size the session state size in bytes
+     */
+    public void recordSessionSize(String name, long size) {
+        Histogram histogram = sessionSizeHistograms.get(name);
+        if (histogram == null) {
+            histogram = new Histogram();
+            Histogram existing = sessionSizeHistograms.putIfAbsent(name, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        histogram.record(size);
+    }
+
+    /**
+     * Record an exception raised while processing the page.
+     *
+     * @param error the raised exception
+     */
+    public void recordException(Throwable error) {
+        exceptionCount.incrementAndGet();
+        lastExceptionClassName = error.getClass().getName();
+    }
+
+    /**
+     * Clear all the recorded metrics.
+     */
+    public void reset() {
+        for (Histogram histogram : phaseHistograms) {
+            histogram.reset();
+        }
+        responseSizeHistogram.reset();
+        sessionSizeHistograms.clear();
+        exceptionCount.set(0);
+        lastExceptionClassName = null;
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Return the index of the given phase in the PHASES array, or -1.
+     *
+     * @param phase the lifecycle phase
+     * @return the index of the given phase, or -1
+     */
+    private static int indexOfPhase(String phase) {
+        String[] phases = MetricsService.PHASES;
+        for (int i = 0; i < phases.length; i++) {
+            // Phases are normally the interned constants
+            if (phases[i] == phase || phases[i].equals(phase)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Provides a lock free histogram of non negative values, using buckets
+     * with power of two boundaries. Percentiles are therefore approximated
+     * to within a factor of two, which is ample to spot slow page phases while
+     * keeping recording down to a few atomic increments.
+     */
+    public static class Histogram implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /** The number of buckets, bucket <tt>i</tt> holds values below 2^i. */
+        private static final int BUCKETS = 64;
+
+        /** The bucket counts. */
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        /** The number of recorded values. */
+        private final AtomicLong count = new AtomicLong();
+
+        /** The sum of the recorded values. */
+        private final AtomicLong total = new AtomicLong();
+
+        /** The largest recorded value. */
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * Record the given value. Negative values are recorded as zero.
+         *
+         * @param value the value to record
+         */
+        public void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+
+            buckets.incrementAndGet(bucketIndex(value));
+            count.incrementAndGet();
+            total.addAndGet(value);
+
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        /**
+         * Return the number of recorded values.
+         *
+         * @return the number of recorded values
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * Return the sum of the recorded values.
+         *
+         * @return the sum of the recorded values
+         */
+        public long getTotal() {
+            return total.get();
+        }
+
+        /**
+         * Return the largest recorded value.
+         *
+         * @return the largest recorded value
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Return the mean of the recorded values, or 0 if no value was
+         * recorded.
+         *
+         * @return the mean of the recorded values
+         */
+        public double getMean() {
+            long n = count.get();
+            return (n == 0) ? 0 : (double) total.get() / n;
+        }
+
+        /**
+         * Return the approximate value below which the given percentage of
+         * the recorded values fall. The value returned is the upper bound of
+         * the bucket containing the percentile, capped by the largest
+         * recorded value.
+         *
+         * @param percent the percentile, between 0 and 100
+         * @return the approximate percentile value
+         */
+        public long getPercentile(double percent) {
+            long n = 0;
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                n += counts[i];
+            }
+            if (n == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(n * percent / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) {
+                    long upperBound = (i == BUCKETS - 1) ? Long.MAX_VALUE : (1L << i) - 1;
+                    return Math.min(upperBound, max.get());
+                }
+            }
+            return max.get();
+        }
+
+        /**
+         * Clear the recorded values.
+         */
+        public void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            total.set(0);
+            max.set(0);
+        }
+
+        /**
+         * Return the bucket index of the given value.
+         *
+         * @param value the value
+         * @return the bucket index of the given value
+         */
+        private static int bucketIndex(long value) {
+            int index = 64 - Long.numberOfLeadingZeros(value);
+            return Math.min(index, BUCKETS - 1);
+        }
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.apache.click.Page;
+import org.apache.click.control.Form;
+import org.apache.click.util.ClickUtils;
+import org.apache.click.util.FlashAttribute;
+
+/**
+ * Provides a session footprint analyzer, which measures the serialized size
+ * of the session state owned by Click and enforces size budgets on it.
+ * <p/>
+ * After a sampled page request the analyzer serializes the following session
+ * attributes and reports their sizes in bytes, keyed on name:
+ *
+ * <ul>
+ * <li><tt>controlState</tt> - the control state of the page, saved under the
+ * page resource path by {@link ClickUtils#saveState ClickUtils.saveState()}</li>
+ * <li><tt>control:<i>name</i></tt> - the state of each control of the page</li>
+ * <li><tt>statefulPage</tt> - the stateful page instance, saved under the page
+ * class name</li>
+ * <li><tt>submitTokens</tt> - the page Form submit tokens</li>
+ * <li><tt>flash</tt> - the {@link FlashAttribute}s of the session</li>
+ * <li><tt>total</tt> - the sum of the above, excluding the per control
+ * sizes</li>
+ * </ul>
+ *
+ * Other session attributes, such as the application data set through the
+ * {@link org.apache.click.util.SessionMap}, are not owned by Click and are not
+ * measured.
+ * <p/>
+ * When the control state of a single control exceeds the
+ * {@link #controlBudget}, or the control state and stateful page of a page
+ * together exceed the {@link #pageBudget}, a warning is logged. If the
+ * {@link #budgetAction} is <tt>evict</tt> the oversized state is also removed
+ * from the session, so the controls and page start afresh on the next request.
+ * <p/>
+ * Serializing session state is costly, so only one in {@link #sampleRate}
+ * requests is analyzed. The analyzer is configured through the
+ * {@link DefaultMetricsService} and its measurements are recorded in the
+ * {@link PageMetrics} of each page.
+ */
+public class SessionFootprintAnalyzer {
+
+    // -------------------------------------------------------------- Constants
+
+    /** The total size of the session state owned by Click. */
+    public static final String TOTAL = "total";
+
+    /** The size of the page control state map. */
+    public static final String CONTROL_STATE = "controlState";
+
+    /** The name prefix of the size of a single control state. */
+    public static final String CONTROL_PREFIX = "control:";
+
+    /** The size of the stateful page instance. */
+    public static final String STATEFUL_PAGE = "statefulPage";
+
+    /** The size of the page Form submit tokens. */
+    public static final String SUBMIT_TOKENS = "submitTokens";
+
+    /** The size of the session flash attributes. */
+    public static final String FLASH = "flash";
+
+    /** The log oversized state budget action. */
+    public static final String LOG = "log";
+
+    /** The log and evict oversized state budget action. */
+    public static final String EVICT = "evict";
+
+    // -------------------------------------------------------------- Variables
+
+    /** The application log service. */
+    protected final LogService logService;
+
+    /** The request sample rate, one in sampleRate requests is analyzed. */
+    protected int sampleRate = 1;
+
+    /** The page state budget in bytes, 0 if there is no budget. */
+    protected long pageBudget;
+
+    /** The single control state budget in bytes, 0 if there is no budget. */
+    protected long controlBudget;
+
+    /** The budget action [ log | evict ]. */
+    protected String budgetAction = LOG;
+
+    /** The number of requests seen. */
+    private final AtomicLong requestCount = new AtomicLong();
+
+    /** The number of budget overruns. */
+    private final AtomicLong overrunCount = new AtomicLong();
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Create a session footprint analyzer with the given log service.
+     *
+     * @param logService the application log service
+     */
+    public SessionFootprintAnalyzer(LogService logService) {
+        this.logService = logService;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Return the request sample rate, one in sampleRate requests is analyzed.
+     *
+     * @return the request sample rate
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Set the request sample rate, one in sampleRate requests is analyzed.
+     *
+     * @param sampleRate the request sample rate
+     */
+    public void setSampleRate(int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Invalid sample rate: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Return the page state budget in bytes, or 0 if there is no budget.
+     *
+     * @return the page state budget in bytes
+     */
+    public long getPageBudget() {
+        return pageBudget;
+    }
+
+    /**
+     * Set the page state budget in bytes, or 0 for no budget. The budget
+     * applies to the control state and stateful page of a page together.
+     *
+     * @param pageBudget the page state budget in bytes
+     */
+    public void setPageBudget(long pageBudget) {
+        this.pageBudget = pageBudget;
+    }
+
+    /**
+     * Return the single control state budget in bytes, or 0 if there is no
+     * budget.
+     *
+     * @return the single control state budget in bytes
+     */
+    public long getControlBudget() {
+        return controlBudget;
+    }
+
+    /**
+     * Set the single control state budget in bytes, or 0 for no budget.
+     *
+     * @param controlBudget the single control state budget in bytes
+     */
+    public void setControlBudget(long controlBudget) {
+        this.controlBudget = controlBudget;
+    }
+
+    /**
+     * Return the budget action [ log | evict ].
+     *
+     * @return the budget action
+     */
+    public String getBudgetAction() {
+        return budgetAction;
+    }
+
+    /**
+     * Set the budget action [ log | evict ].
+     *
+     * @param budgetAction the budget action
+     */
+    public void setBudgetAction(String budgetAction) {
+        if (!LOG.equals(budgetAction) && !EVICT.equals(budgetAction)) {
+            throw new IllegalArgumentException("Invalid budget action: " + budgetAction);
+        }
+        this.budgetAction = budgetAction;
+    }
+
+    /**
+     * Return the number of budget overruns found.
+     *
+     * @return the number of budget overruns
+     */
+    public long getOverrunCount() {
+        return overrunCount.get();
+    }
+
+    /**
+     * Analyze the session state of the given request if it is sampled,
+     * applying the budgets, and return the measured sizes in bytes keyed on
+     * name. Null is returned if the request is not sampled or has no session.
+     *
+     * @param request the servlet request
+     * @param pageClass the class of the requested page
+     * @return the measured sizes keyed on name, or null
+     */
+    public Map<String, Long> analyze(HttpServletRequest request,
+            Class<? extends Page> pageClass) {
+
+        if (requestCount.incrementAndGet() % sampleRate != 0) {
+            return null;
+        }
+
+        HttpSession session = request.getSession(false);
+        if (session == null) {
+            return null;
+        }
+
+        String resourcePath = ClickUtils.getResourcePath(request);
+        Map<String, Long> footprint = new TreeMap<String, Long>();
+
+        try {
+            long controlStateSize = analyzeControlState(session, resourcePath, footprint);
+
+            long pageSize = 0;
+            Object statefulPage = session.getAttribute(pageClass.getName());
+            if (statefulPage != null) {
+                synchronized (statefulPage) {
+                    pageSize = sizeOf(statefulPage);
+                }
+                footprint.put(STATEFUL_PAGE, Long.valueOf(pageSize));
+            }
+
+            long tokenSize = 0;
+            long flashSize = 0;
+            Enumeration<?> names = session.getAttributeNames();
+            while (names.hasMoreElements()) {
+                String name = (String) names.nextElement();
+                Object value = session.getAttribute(name);
+
+                if (value instanceof FlashAttribute) {
+                    flashSize += sizeOf(value);
+
+                } else if (name.startsWith(Form.SUBMIT_CHECK) && name.endsWith(resourcePath)) {
+                    tokenSize += sizeOf(value);
+                }
+            }
+            footprint.put(SUBMIT_TOKENS, Long.valueOf(tokenSize));
+            footprint.put(FLASH, Long.valueOf(flashSize));
+            footprint.put(TOTAL, Long.valueOf(controlStateSize + pageSize
+                + tokenSize + flashSize));
+
+            if (pageBudget > 0 && controlStateSize + pageSize > pageBudget) {
+                overrunCount.incrementAndGet();
+                boolean evict = EVICT.equals(budgetAction);
+
+                logService.warn("session state of page " + resourcePath + " is "
+                    + (controlStateSize + pageSize) + " bytes, over the "
+                    + pageBudget + " byte budget" + (evict ? ", evicted" : ""));
+
+                if (evict) {
+                    session.removeAttribute(resourcePath);
+                    if (statefulPage != null) {
+                        session.removeAttribute(pageClass.getName());
+                    }
+                }
+            }
+
+        } catch (IllegalStateException ise) {
+            // The session has been invalidated
+            return null;
+
+        } catch (Exception e) {
+            logService.warn("could not analyze the session state of page "
+                + resourcePath, e);
+            return null;
+        }
+
+        return footprint;
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Return the serialized size of the given object in bytes.
+     *
+     * @param value the object to measure
+     * @return the serialized size of the object in bytes
+     * @throws IOException if the object cannot be serialized
+     */
+    protected long sizeOf(Object value) throws IOException {
+        CountingOutputStream counter = new CountingOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(counter);
+        out.writeObject(value);
+        out.close();
+        return counter.count;
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Measure the page control state map and each control state, evicting
+     * the control states over the control budget if required.
+     * <p/>
+     * The page state map is shared with the other requests of the session,
+     * so it is copied while holding its lock, as
+     * {@link ClickUtils#saveState(org.apache.click.Stateful, String, org.apache.click.Context)}
+     * does when modifying it, and the copy is measured.
+     *
+     * @param session the request session
+     * @param resourcePath the page resource path
+     * @param footprint the measured sizes keyed on name
+     * @return the size of the page control state map
+     * @throws IOException if the control state cannot be serialized
+     */
+    private long analyzeControlState(HttpSession session, String resourcePath,
+            Map<String, Long> footprint) throws IOException {
+
+        Object value = session.getAttribute(resourcePath);
+        if (!(value instanceof Map)) {
+            return 0;
+        }
+
+        Map<Object, Object> pageMap;
+        synchronized (value) {
+            pageMap = new HashMap<Object, Object>((Map<?, ?>) value);
+        }
+        Map<Object, Object> keptMap = null;
+
+        for (Map.Entry<Object, Object> entry : pageMap.entrySet()) {
+            long size = sizeOf(entry.getValue());
+            footprint.put(CONTROL_PREFIX + entry.getKey(), Long.valueOf(size));
+
+            if (controlBudget > 0 && size > controlBudget) {
+                overrunCount.incrementAndGet();
+                boolean evict = EVICT.equals(budgetAction);
+
+                logService.warn("session state of control '" + entry.getKey()
+                    + "' on page " + resourcePath + " is " + size
+                    + " bytes, over the " + controlBudget + " byte budget"
+                    + (evict ? ", evicted" : ""));
+
+                if (evict) {
+                    if (keptMap == null) {
+                        keptMap = new HashMap<Object, Object>(pageMap);
+                    }
+                    keptMap.remove(entry.getKey());
+                }
+            }
+        }
+
+        if (keptMap != null) {
+            // Replace rather than modify the shared map, which also forces
+            // session replication in a cluster
+            if (keptMap.isEmpty()) {
+                session.removeAttribute(resourcePath);
+                pageMap = null;
+            } else {
+                session.setAttribute(resourcePath, keptMap);
+                pageMap = keptMap;
+            }
+        }
+
+        long size = (pageMap != null) ? sizeOf(pageMap) : 0;
+        footprint.put(CONTROL_STATE, Long.valueOf(size));
+        return size;
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Provides an output stream which counts and discards the bytes written.
+     */
+    private static class CountingOutputStream extends OutputStream {
+
+        /** The number of bytes written. */
+        long count;
+
+        /**
+         * @see OutputStream#write(int)
+         *
+         * @param b the byte to write
+         */
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        /**
+         * @see OutputStream#write(byte[], int, int)
+         *
+         * @param b the bytes to write
+         * @param off the offset of the first byte
+         * @param len the number of bytes
+         */
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
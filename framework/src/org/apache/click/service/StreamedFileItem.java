@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemHeaders;
+import org.apache.commons.fileupload.FileItemStream;
+
+/**
+ * Provides a FileItem describing an uploaded file which content was consumed
+ * by a {@link FileUploadSink}.
+ * <p/>
+ * StreamedFileItem only holds the uploaded file details, such as its name,
+ * content type and size. The methods accessing the file content throw an
+ * <tt>UnsupportedOperationException</tt>.
+ */
+public class StreamedFileItem implements FileItem {
+
+    // Constants --------------------------------------------------------------
+
+    private static final long serialVersionUID = 1L;
+
+    // Variables --------------------------------------------------------------
+
+    /** The request parameter name of the uploaded file. */
+    private String fieldName;
+
+    /** The original file name of the uploaded file. */
+    private String name;
+
+    /** The content type of the uploaded file. */
+    private String contentType;
+
+    /** The number of bytes received by the sink. */
+    private long size;
+
+    /** The headers of the uploaded file part. */
+    private transient FileItemHeaders headers;
+
+    // Constructor ------------------------------------------------------------
+
+    /**
+     * Create a StreamedFileItem for the given file part and size.
+     *
+     * @param item the uploaded file part
+     * @param size the number of bytes received by the sink
+     */
+    public StreamedFileItem(FileItemStream item, long size) {
+        this.fieldName = item.getFieldName();
+        this.name = item.getName();
+        this.contentType = item.getContentType();
+        this.headers = item.getHeaders();
+        this.size = size;
+    }
+
+    // Public Methods ---------------------------------------------------------
+
+    /**
+     * @see FileItem#getFieldName()
+     *
+     * @return the request parameter name of the uploaded file
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * @see FileItem#setFieldName(String)
+     *
+     * @param name the request parameter name of the uploaded file
+     */
+    public void setFieldName(String name) {
+        this.fieldName = name;
+    }
+
+    /**
+     * @see FileItem#getName()
+     *
+     * @return the original file name of the uploaded file
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @see FileItem#getContentType()
+     *
+     * @return the content type of the uploaded file
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @see FileItem#getSize()
+     *
+     * @return the number of bytes received by the sink
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Always returns false, as the file content is not retained.
+     *
+     * @see FileItem#isInMemory()
+     *
+     * @return false
+     */
+    public boolean isInMemory() {
+        return false;
+    }
+
+    /**
+     * Always returns false, as streamed items are uploaded files.
+     *
+     * @see FileItem#isFormField()
+     *
+     * @return false
+     */
+    public boolean isFormField() {
+        return false;
+    }
+
+    /**
+     * @see FileItem#setFormField(boolean)
+     *
+     * @param state ignored
+     */
+    public void setFormField(boolean state) {
+    }
+
+    /**
+     * @see org.apache.commons.fileupload.FileItemHeadersSupport#getHeaders()
+     *
+     * @return the headers of the uploaded file part
+     */
+    public FileItemHeaders getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @see org.apache.commons.fileupload.FileItemHeadersSupport#setHeaders(FileItemHeaders)
+     *
+     * @param headers the headers of the uploaded file part
+     */
+    public void setHeaders(FileItemHeaders headers) {
+        this.headers = headers;
+    }
+
+    /**
+     * Does nothing, as the file content is not retained.
+     *
+     * @see FileItem#delete()
+     */
+    public void delete() {
+    }
+
+    /**
+     * @see FileItem#getInputStream()
+     *
+     * @return not supported
+     * @throws UnsupportedOperationException as the content was consumed by
+     * the sink
+     */
+    public InputStream getInputStream() {
+        throw unsupported();
+    }
+
+    /**
+     * @see FileItem#get()
+     *
+     * @return not supported
+     * @throws UnsupportedOperationException as the content was consumed by
+     * the sink
+     */
+    public byte[] get() {
+        throw unsupported();
+    }
+
+    /**
+     * @see FileItem#getString(String)
+     *
+     * @param encoding the character encoding
+     * @return not supported
+     * @throws UnsupportedOperationException as the content was consumed by
+     * the sink
+     */
+    public String getString(String encoding) {
+        throw unsupported();
+    }
+
+    /**
+     * @see FileItem#getString()
+     *
+     * @return not supported
+     * @throws UnsupportedOperationException as the content was consumed by
+     * the sink
+     */
+    public String getString() {
+        throw unsupported();
+    }
+
+    /**
+     * @see FileItem#write(File)
+     *
+     * @param file the file to write to
+     * @throws UnsupportedOperationException as the content was consumed by
+     * the sink
+     */
+    public void write(File file) {
+        throw unsupported();
+    }
+
+    /**
+     * @see FileItem#getOutputStream()
+     *
+     * @return not supported
+     * @throws UnsupportedOperationException as the content was consumed by
+     * the sink
+     */
+    public OutputStream getOutputStream() {
+        throw unsupported();
+    }
+
+    /**
+     * Return a string representation of the streamed file item.
+     *
+     * @return a string representation of the streamed file item
+     */
+    @Override
+    public String toString() {
+        return "StreamedFileItem[fieldName=" + fieldName + ", name=" + name
+            + ", contentType=" + contentType + ", size=" + size + "]";
+    }
+
+    // Private Methods --------------------------------------------------------
+
+    /**
+     * Return the exception thrown when accessing the file content.
+     *
+     * @return the exception thrown when accessing the file content
+     */
+    private UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("The content of '" + name
+            + "' was consumed by its FileUploadSink");
+    }
+}
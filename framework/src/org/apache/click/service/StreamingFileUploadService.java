@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemFactory;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.fileupload.util.Streams;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Provides a streaming Apache Commons FileUploadService class.
+ * <p/>
+ * Where {@link CommonsFileUploadService} parses the entire multipart request
+ * when the request is created, StreamingFileUploadService defers parsing
+ * until a request parameter or uploaded file is first accessed, and then
+ * walks the request parts with the Commons FileUpload streaming API.
+ * <p/>
+ * Uploaded files whose request parameter has a {@link FileUploadSink}
+ * registered are piped directly to the sink, without being buffered in memory
+ * or copied to a temporary file. These files are made available to the
+ * request as {@link StreamedFileItem} instances, which describe the upload
+ * but do not hold its content. Uploaded files without a sink are stored
+ * through {@link #createFileItemFactory(HttpServletRequest)} as usual.
+ * <p/>
+ * The {@link #sizeMax} and {@link #fileSizeMax} limits are enforced while the
+ * data is streamed, so oversized uploads are rejected without being read
+ * entirely.
+ * <p/>
+ * To enable streaming uploads configure the <tt>classname</tt> attribute in
+ * <tt>click.xml</tt>:
+ * <pre class="prettyprint">
+ * &lt;file-upload-service classname="org.apache.click.service.StreamingFileUploadService"&gt;
+ *     &lt;property name="fileSizeMax" value="104857600"/&gt;
+ * &lt;/file-upload-service&gt; </pre>
+ */
+public class StreamingFileUploadService extends CommonsFileUploadService {
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Return an iterator over the parts of the given multipart request.
+     * The request content is read as the iterator is advanced.
+     *
+     * @param request the servlet request
+     * @return an iterator over the parts of the multipart request
+     * @throws FileUploadException if the request cannot be parsed
+     * @throws IOException if the request content cannot be read
+     */
+    public FileItemIterator getItemIterator(HttpServletRequest request)
+            throws FileUploadException, IOException {
+
+        Validate.notNull(request, "Null request parameter");
+
+        ServletFileUpload fileUpload = new ServletFileUpload();
+
+        if (fileSizeMax > 0) {
+            fileUpload.setFileSizeMax(fileSizeMax);
+        }
+        if (sizeMax > 0) {
+            fileUpload.setSizeMax(sizeMax);
+        }
+
+        return fileUpload.getItemIterator(request);
+    }
+
+    /**
+     * Create and return a FileItem holding the content of the given file part.
+     * This method is used for uploaded files which do not have a
+     * {@link FileUploadSink} registered.
+     *
+     * @param item the uploaded file part
+     * @param request the servlet request
+     * @return a FileItem holding the content of the given file part
+     * @throws IOException if the file part cannot be read or stored
+     */
+    public FileItem createFileItem(FileItemStream item,
+            HttpServletRequest request) throws IOException {
+
+        FileItemFactory fileItemFactory = createFileItemFactory(request);
+
+        FileItem fileItem = fileItemFactory.createItem(item.getFieldName(),
+            item.getContentType(), item.isFormField(), item.getName());
+
+        InputStream inputStream = item.openStream();
+        OutputStream outputStream = fileItem.getOutputStream();
+        Streams.copy(inputStream, outputStream, true);
+
+        fileItem.setHeaders(item.getHeaders());
+
+        return fileItem;
+    }
+
+}
@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletContext;
+
+/**
+ * Provides a template warm-up, which parses a list of templates in parallel
+ * so that they are cached before the first request.
+ * <p/>
+ * The warm-up is used by the {@link VelocityTemplateService} and the
+ * FreemarkerTemplateService when their <tt>warmUp</tt> property is set:
+ *
+ * <pre class="codeConfig">
+ * &lt;template-service&gt;
+ *     &lt;property name="warmUp" value="true"/&gt;
+ *     &lt;property name="warmUpInBackground" value="true"/&gt;
+ * &lt;/template-service&gt; </pre>
+ *
+ * All templates found by the {@link XmlConfigService#getTemplatePathList()}
+ * scan are parsed, including Panel templates. Templates which fail to parse
+ * are logged as errors at startup. Note templates are only cached by the
+ * template engine in <tt>production</tt> and <tt>profile</tt> mode.
+ * <p/>
+ * While the warm-up runs the {@link #READY_ATTRIBUTE} servlet context
+ * attribute is <tt>Boolean.FALSE</tt>. A health check page can use
+ * {@link #isReady(ServletContext)} to keep a load balancer waiting until the
+ * warm-up has finished, for example:
+ *
+ * <pre class="prettyprint">
+ * public void onGet() {
+ *     if (!TemplateWarmUp.isReady(getContext().getServletContext())) {
+ *         getContext().getResponse().setStatus(503);
+ *     }
+ * } </pre>
+ */
+public class TemplateWarmUp {
+
+    // -------------------------------------------------------------- Constants
+
+    /** The warm-up finished servlet context attribute name. */
+    public static final String READY_ATTRIBUTE =
+        TemplateWarmUp.class.getName() + ".READY";
+
+    // -------------------------------------------------------------- Variables
+
+    /** The template parser. */
+    protected final Parser parser;
+
+    /** The application servlet context. */
+    protected final ServletContext servletContext;
+
+    /** The application log service. */
+    protected final LogService logService;
+
+    /** The number of parser threads, defaults to the number of processors. */
+    protected int threads = Runtime.getRuntime().availableProcessors();
+
+    /** The templates which failed to parse, keyed on path. */
+    private final Map<String, Exception> failures =
+        Collections.synchronizedMap(new TreeMap<String, Exception>());
+
+    /** The parser thread pool. */
+    private volatile ExecutorService executor;
+
+    /** The warm-up has finished flag. */
+    private volatile boolean ready;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Create a template warm-up for the given parser.
+     *
+     * @param servletContext the application servlet context
+     * @param logService the application log service
+     * @param parser the template parser
+     */
+    public TemplateWarmUp(ServletContext servletContext, LogService logService,
+            Parser parser) {
+        this.servletContext = servletContext;
+        this.logService = logService;
+        this.parser = parser;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Return true if no template warm-up is running for the given
+     * application.
+     *
+     * @param servletContext the application servlet context
+     * @return true if no template warm-up is running
+     */
+    public static boolean isReady(ServletContext servletContext) {
+        return !Boolean.FALSE.equals(servletContext.getAttribute(READY_ATTRIBUTE));
+    }
+
+    /**
+     * Return true if the warm-up has finished.
+     *
+     * @return true if the warm-up has finished
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Return the number of parser threads.
+     *
+     * @return the number of parser threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Set the number of parser threads.
+     *
+     * @param threads the number of parser threads
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Return the templates which failed to parse, keyed on path.
+     *
+     * @return the templates which failed to parse
+     */
+    public Map<String, Exception> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Parse the given templates, returning once they have all been parsed.
+     *
+     * @param paths the template paths to parse
+     * @throws InterruptedException if interrupted while waiting for the
+     * parser threads
+     */
+    public void run(Collection<String> paths) throws InterruptedException {
+        setReadyAttribute(false);
+
+        long start = System.currentTimeMillis();
+
+        int poolSize = Math.max(1, Math.min(threads, paths.size()));
+        executor = Executors.newFixedThreadPool(poolSize, new ParserThreadFactory());
+
+        try {
+            for (final String path : paths) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        parse(path);
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+        } finally {
+            executor.shutdownNow();
+            ready = true;
+            setReadyAttribute(true);
+        }
+
+        if (logService.isInfoEnabled()) {
+            logService.info("warmed up " + paths.size() + " templates in "
+                + (System.currentTimeMillis() - start) + " ms with "
+                + failures.size() + " errors");
+        }
+    }
+
+    /**
+     * Parse the given templates on a background thread, returning
+     * immediately.
+     *
+     * @param paths the template paths to parse
+     */
+    public void start(Collection<String> paths) {
+        final List<String> pathList = new ArrayList<String>(paths);
+
+        setReadyAttribute(false);
+
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    TemplateWarmUp.this.run(pathList);
+                } catch (InterruptedException ie) {
+                    logService.warn("template warm-up interrupted");
+                }
+            }
+        }, "Click-TemplateWarmUp");
+
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop any running warm-up.
+     */
+    public void stop() {
+        ExecutorService executor = this.executor;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Parse the template, recording and logging any error.
+     *
+     * @param path the template path to parse
+     */
+    protected void parse(String path) {
+        try {
+            parser.parse(path);
+
+        } catch (Exception e) {
+            failures.put(path, e);
+            logService.error("could not parse template " + path, e);
+        }
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Set the ready servlet context attribute.
+     *
+     * @param value the attribute value
+     */
+    private void setReadyAttribute(boolean value) {
+        if (servletContext != null) {
+            servletContext.setAttribute(READY_ATTRIBUTE, Boolean.valueOf(value));
+        }
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Provides the template engine specific parse operation.
+     */
+    public interface Parser {
+
+        /**
+         * Parse and cache the given template.
+         *
+         * @param path the template path
+         * @throws Exception if the template could not be loaded or parsed
+         */
+        public void parse(String path) throws Exception;
+    }
+
+    /**
+     * Provides daemon parser threads.
+     */
+    private static class ParserThreadFactory implements ThreadFactory {
+
+        /** The thread counter. */
+        private final AtomicInteger count = new AtomicInteger();
+
+        /**
+         * @see ThreadFactory#newThread(Runnable)
+         *
+         * @param runnable the runnable to run
+         * @return a new daemon thread
+         */
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable,
+                "Click-TemplateWarmUp-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -23,7 +23,9 @@ import java.io.InputStream;
 import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TreeMap;
@@ -39,16 +41,17 @@ import org.apache.commons.lang.Validate;
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.context.InternalContextAdapter;
 import org.apache.velocity.exception.ParseErrorException;
 import org.apache.velocity.exception.ResourceNotFoundException;
 import org.apache.velocity.exception.TemplateInitException;
 import org.apache.velocity.io.VelocityWriter;
+import org.apache.velocity.runtime.Renderable;
 import org.apache.velocity.runtime.RuntimeConstants;
 import org.apache.velocity.runtime.RuntimeServices;
 import org.apache.velocity.runtime.log.LogChute;
 import org.apache.velocity.runtime.resource.loader.ClasspathResourceLoader;
 import org.apache.velocity.tools.view.WebappResourceLoader;
-import org.apache.velocity.util.SimplePool;
 
 /**
  * Provides a <a target="_blank" href="http://velocity.apache.org//">Velocity</a> TemplateService class.
@@ -183,6 +186,31 @@ import org.apache.velocity.util.SimplePool;
  * If you are using LogServices other than {@link ConsoleLogService} you will
  * probably configure that service to filter out Velocity's verbose <tt>INFO</tt>
  * level messages.
+ *
+ * <h3>Template Warm-up</h3>
+ * By default templates are parsed on their first request. To parse all the
+ * application templates when the service is initialized, set the
+ * <tt>warmUp</tt> property:
+ *
+ * <pre class="codeConfig">
+ * &lt;template-service&gt;
+ *     &lt;property name="warmUp" value="true"/&gt;
+ * &lt;/template-service&gt; </pre>
+ *
+ * See {@link TemplateWarmUp} for details, including running the warm-up in
+ * the background with the <tt>warmUpInBackground</tt> property.
+ *
+ * <h3>Writer Pool</h3>
+ * Templates are rendered through pooled 32 KB VelocityWriters, see
+ * {@link VelocityWriterPool}. The pool grows with the number of concurrent
+ * renders up to <tt>writerPoolMaxSize</tt> (default 256). Setting
+ * <tt>writerPoolMode</tt> to <tt>thread</tt> keeps a writer per request
+ * thread instead:
+ *
+ * <pre class="codeConfig">
+ * &lt;template-service&gt;
+ *     &lt;property name="writerPoolMode" value="thread"/&gt;
+ * &lt;/template-service&gt; </pre>
  */
 public class VelocityTemplateService implements TemplateService {
 
@@ -222,6 +250,9 @@ public class VelocityTemplateService implements TemplateService {
     /** The Velocity writer buffer size. */
     protected static final int WRITER_BUFFER_SIZE = 32 * 1024;
 
+    /** The interval after which idle pooled writers are released: 60 seconds. */
+    protected static final long WRITER_POOL_TRIM_INTERVAL = 60 * 1000;
+
     // -------------------------------------------------------------- Variables
 
     /** The application configuration service. */
@@ -237,7 +268,22 @@ public class VelocityTemplateService implements TemplateService {
     protected VelocityEngine velocityEngine = new VelocityEngine();
 
     /** Cache of velocity writers. */
-    protected SimplePool writerPool = new SimplePool(40);
+    protected VelocityWriterPool writerPool;
+
+    /** The velocity writer pool mode [ elastic | thread ]. */
+    protected String writerPoolMode = VelocityWriterPool.ELASTIC;
+
+    /** The maximum number of pooled velocity writers. */
+    protected int writerPoolMaxSize = 256;
+
+    /** The parse all templates on initialization flag. */
+    protected boolean warmUp;
+
+    /** The parse templates on a background thread flag. */
+    protected boolean warmUpInBackground;
+
+    /** The template warm-up, if enabled. */
+    protected TemplateWarmUp templateWarmUp;
 
     // --------------------------------------------------------- Public Methods
 
@@ -253,6 +299,9 @@ public class VelocityTemplateService implements TemplateService {
 
         this.configService = ClickUtils.getConfigService(servletContext);
 
+        writerPool = new VelocityWriterPool(writerPoolMode, 0, writerPoolMaxSize,
+            WRITER_POOL_TRIM_INTERVAL);
+
         // Set the velocity logging level
         Integer logLevel = getInitLogLevel();
 
@@ -294,15 +343,30 @@ public class VelocityTemplateService implements TemplateService {
             deployedNotFoundTemplate = true;
         } catch (ResourceNotFoundException rnfe) {
         }
+
+        if (warmUp) {
+            warmUpTemplates(servletContext);
+        }
     }
 
     /**
      * @see TemplateService#onDestroy()
      */
     public void onDestroy() {
+        if (templateWarmUp != null) {
+            templateWarmUp.stop();
+            templateWarmUp = null;
+        }
+
         // Dereference any allocated objects
         velocityEngine = null;
-        writerPool = null;
+        if (writerPool != null) {
+            if (configService != null && configService.getLogService().isDebugEnabled()) {
+                configService.getLogService().debug(writerPool);
+            }
+            writerPool.clear();
+            writerPool = null;
+        }
         configService = null;
     }
 
@@ -345,8 +409,127 @@ public class VelocityTemplateService implements TemplateService {
         internalRenderTemplate(templatePath, null, model, writer);
     }
 
+    /**
+     * Return true if all templates are parsed when the service is initialized.
+     *
+     * @return true if all templates are parsed when the service is initialized
+     */
+    public boolean isWarmUp() {
+        return warmUp;
+    }
+
+    /**
+     * Set whether all templates are parsed when the service is initialized.
+     *
+     * @param warmUp true if all templates are parsed when the service is
+     * initialized
+     */
+    public void setWarmUp(boolean warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    /**
+     * Return true if the template warm-up runs on a background thread.
+     *
+     * @return true if the template warm-up runs on a background thread
+     */
+    public boolean isWarmUpInBackground() {
+        return warmUpInBackground;
+    }
+
+    /**
+     * Set whether the template warm-up runs on a background thread, so that
+     * the application starts before all templates are parsed.
+     *
+     * @param warmUpInBackground true if the template warm-up runs on a
+     * background thread
+     */
+    public void setWarmUpInBackground(boolean warmUpInBackground) {
+        this.warmUpInBackground = warmUpInBackground;
+    }
+
+    /**
+     * Return the velocity writer pool mode.
+     *
+     * @return the velocity writer pool mode [ elastic | thread ]
+     */
+    public String getWriterPoolMode() {
+        return writerPoolMode;
+    }
+
+    /**
+     * Set the velocity writer pool mode, see {@link VelocityWriterPool}.
+     *
+     * @param writerPoolMode the velocity writer pool mode [ elastic | thread ]
+     */
+    public void setWriterPoolMode(String writerPoolMode) {
+        this.writerPoolMode = writerPoolMode;
+    }
+
+    /**
+     * Return the maximum number of pooled velocity writers.
+     *
+     * @return the maximum number of pooled velocity writers
+     */
+    public int getWriterPoolMaxSize() {
+        return writerPoolMaxSize;
+    }
+
+    /**
+     * Set the maximum number of pooled velocity writers.
+     *
+     * @param writerPoolMaxSize the maximum number of pooled velocity writers
+     */
+    public void setWriterPoolMaxSize(int writerPoolMaxSize) {
+        this.writerPoolMaxSize = writerPoolMaxSize;
+    }
+
+    /**
+     * Return the velocity writer pool.
+     *
+     * @return the velocity writer pool
+     */
+    public VelocityWriterPool getWriterPool() {
+        return writerPool;
+    }
+
     // Protected Methods ------------------------------------------------------
 
+    /**
+     * Parse all the application templates, as listed by
+     * {@link XmlConfigService#getTemplatePathList()}, so they are cached
+     * before the first request. No templates are parsed with other
+     * ConfigService implementations.
+     *
+     * @param servletContext the application servlet context
+     * @throws InterruptedException if interrupted while parsing the templates
+     */
+    protected void warmUpTemplates(ServletContext servletContext)
+            throws InterruptedException {
+
+        final VelocityEngine engine = velocityEngine;
+
+        TemplateWarmUp.Parser parser = new TemplateWarmUp.Parser() {
+            public void parse(String path) throws Exception {
+                engine.getTemplate(path);
+            }
+        };
+
+        templateWarmUp =
+            new TemplateWarmUp(servletContext, configService.getLogService(), parser);
+
+        List<String> templatePaths = Collections.emptyList();
+        if (configService instanceof XmlConfigService) {
+            templatePaths = ((XmlConfigService) configService).getTemplatePathList();
+        }
+
+        if (warmUpInBackground) {
+            templateWarmUp.start(templatePaths);
+        } else {
+            templateWarmUp.run(templatePaths);
+        }
+    }
+
     /**
      * Return the Velocity Engine initialization log level.
      *
@@ -512,19 +695,19 @@ public class VelocityTemplateService implements TemplateService {
 
         final VelocityContext velocityContext = new VelocityContext(model);
 
+        // Flush the response once the page HEAD elements have been rendered
+        if (page != null && page.isFlushHeadElements()
+            && velocityContext.containsKey("headElements")) {
+
+            Object headElements = velocityContext.get("headElements");
+            velocityContext.put("headElements", new FlushingReference(headElements));
+        }
+
         // May throw parsing error if template could not be obtained
         Template template = null;
         VelocityWriter velocityWriter = null;
         try {
-            String charset = configService.getCharset();
-            if (charset != null) {
-                template = velocityEngine.getTemplate(templatePath, charset);
-
-            } else {
-                template = velocityEngine.getTemplate(templatePath);
-            }
-
-            velocityWriter = (VelocityWriter) writerPool.get();
+            velocityWriter = writerPool.get();
 
             if (velocityWriter == null) {
                 velocityWriter =
@@ -534,6 +717,14 @@ public class VelocityTemplateService implements TemplateService {
                 velocityWriter.recycle(writer);
             }
 
+            String charset = configService.getCharset();
+            if (charset != null) {
+                template = velocityEngine.getTemplate(templatePath, charset);
+
+            } else {
+                template = velocityEngine.getTemplate(templatePath);
+            }
+
             template.merge(velocityContext, velocityWriter);
 
         } catch (ParseErrorException pee) {
@@ -631,6 +822,55 @@ public class VelocityTemplateService implements TemplateService {
 
     // Inner Classes ----------------------------------------------------------
 
+    /**
+     * Provides a Velocity reference which flushes the writer after rendering
+     * its value, which sends the output rendered so far to the client.
+     *
+     * @see Page#setFlushHeadElements(boolean)
+     */
+    private static class FlushingReference implements Renderable {
+
+        /** The reference value to render. */
+        private final Object value;
+
+        /**
+         * Create a flushing reference for the given value.
+         *
+         * @param value the reference value to render
+         */
+        FlushingReference(Object value) {
+            this.value = value;
+        }
+
+        /**
+         * Render the value and flush the writer.
+         *
+         * @see Renderable#render(InternalContextAdapter, Writer)
+         *
+         * @param context the Velocity context
+         * @param writer the writer to render to
+         * @return true
+         * @throws IOException if an IO error occurs
+         */
+        public boolean render(InternalContextAdapter context, Writer writer)
+            throws IOException {
+
+            writer.write(String.valueOf(value));
+            writer.flush();
+            return true;
+        }
+
+        /**
+         * @see Object#toString()
+         *
+         * @return the value string
+         */
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+
     /**
      * Provides a Velocity <tt>LogChute</tt> adapter class around the application
      * log service to enable the Velocity Runtime to log to the application
@@ -0,0 +1,319 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.velocity.io.VelocityWriter;
+
+/**
+ * Provides a pool of VelocityWriters for the {@link VelocityTemplateService}.
+ * <p/>
+ * In the default <tt>elastic</tt> mode the pool capacity follows the number
+ * of concurrent renders, up to the <tt>maxSize</tt>. The capacity grows as
+ * soon as more writers are in use than it allows, and is trimmed back to the
+ * peak concurrency of the last <tt>trimInterval</tt> once that interval has
+ * passed, releasing idle writers.
+ * <p/>
+ * In <tt>thread</tt> mode each thread keeps its own writer, which avoids any
+ * pool contention. This mode suits servlet containers with a fixed pool of
+ * request threads. The writers are held until the threads end, so it is not
+ * suited to containers which create a thread per request.
+ * <p/>
+ * The thread's writer is kept in a holder which the pool also registers, so
+ * {@link #clear()} can release the writers of every thread. The container
+ * threads outlive the application, and would otherwise keep the writers, and
+ * with them the application class loader, after it is undeployed.
+ * <p/>
+ * The <tt>hits</tt>, <tt>misses</tt> and <tt>resizes</tt> counters show how
+ * well the pool fits the load. A miss means the caller has to create a new
+ * writer.
+ */
+public class VelocityWriterPool {
+
+    // -------------------------------------------------------------- Constants
+
+    /** The elastic pool mode. */
+    public static final String ELASTIC = "elastic";
+
+    /** The per thread pool mode. */
+    public static final String THREAD = "thread";
+
+    // -------------------------------------------------------------- Variables
+
+    /** The pool mode [ elastic | thread ]. */
+    protected final String mode;
+
+    /** The minimum pool capacity. */
+    protected final int minSize;
+
+    /** The maximum pool capacity. */
+    protected final int maxSize;
+
+    /** The interval after which idle writers are trimmed, in milliseconds. */
+    protected final long trimInterval;
+
+    /** The number of gets which returned a pooled writer. */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** The number of gets which found no pooled writer. */
+    private final AtomicLong misses = new AtomicLong();
+
+    /** The number of capacity changes. */
+    private final AtomicLong resizes = new AtomicLong();
+
+    /** The per thread writer holders. */
+    private final ThreadLocal<AtomicReference<VelocityWriter>> threadWriter =
+        new ThreadLocal<AtomicReference<VelocityWriter>>();
+
+    /** The registered per thread writer holders, guarded by this. */
+    private final Map<AtomicReference<VelocityWriter>, Boolean> threadWriters =
+        new WeakHashMap<AtomicReference<VelocityWriter>, Boolean>();
+
+    /** The pooled writers, guarded by this. */
+    private VelocityWriter[] pool;
+
+    /** The number of pooled writers, guarded by this. */
+    private int size;
+
+    /** The current pool capacity, guarded by this. */
+    private int capacity;
+
+    /** The number of writers in use, guarded by this. */
+    private int inUse;
+
+    /** The peak number of writers in use in this trim interval, guarded by this. */
+    private int peakInUse;
+
+    /** The start time of this trim interval, guarded by this. */
+    private long intervalStart = System.currentTimeMillis();
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Create a writer pool with the given mode and capacity bounds.
+     *
+     * @param mode the pool mode [ elastic | thread ]
+     * @param minSize the minimum pool capacity
+     * @param maxSize the maximum pool capacity
+     * @param trimInterval the interval after which idle writers are trimmed,
+     * in milliseconds
+     */
+    public VelocityWriterPool(String mode, int minSize, int maxSize, long trimInterval) {
+        if (!ELASTIC.equals(mode) && !THREAD.equals(mode)) {
+            throw new IllegalArgumentException("Invalid pool mode: " + mode);
+        }
+        if (minSize < 0 || maxSize < minSize) {
+            String msg = "Invalid pool size range: " + minSize + "-" + maxSize;
+            throw new IllegalArgumentException(msg);
+        }
+        this.mode = mode;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.trimInterval = trimInterval;
+        this.capacity = minSize;
+        this.pool = new VelocityWriter[maxSize];
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Return a pooled writer, or null if none is available.
+     *
+     * @return a pooled writer, or null if none is available
+     */
+    public VelocityWriter get() {
+        VelocityWriter writer = null;
+
+        if (THREAD.equals(mode)) {
+            AtomicReference<VelocityWriter> holder = threadWriter.get();
+            if (holder != null) {
+                writer = holder.getAndSet(null);
+            }
+
+        } else {
+            synchronized (this) {
+                inUse++;
+                if (inUse > peakInUse) {
+                    peakInUse = inUse;
+                    if (peakInUse > capacity && capacity < maxSize) {
+                        capacity = Math.min(peakInUse, maxSize);
+                        resizes.incrementAndGet();
+                    }
+                }
+                if (size > 0) {
+                    writer = pool[--size];
+                    pool[size] = null;
+                }
+            }
+        }
+
+        if (writer != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return writer;
+    }
+
+    /**
+     * Return the writer to the pool. The writer is discarded if the pool
+     * is full.
+     *
+     * @param writer the writer to return to the pool
+     */
+    public void put(VelocityWriter writer) {
+        if (THREAD.equals(mode)) {
+            AtomicReference<VelocityWriter> holder = threadWriter.get();
+            if (holder == null) {
+                holder = new AtomicReference<VelocityWriter>();
+                threadWriter.set(holder);
+                synchronized (this) {
+                    threadWriters.put(holder, Boolean.TRUE);
+                }
+            }
+            holder.set(writer);
+            return;
+        }
+
+        synchronized (this) {
+            if (inUse > 0) {
+                inUse--;
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - intervalStart >= trimInterval) {
+                trim(now);
+            }
+
+            if (size < capacity) {
+                pool[size++] = writer;
+            }
+        }
+    }
+
+    /**
+     * Return the pool mode.
+     *
+     * @return the pool mode [ elastic | thread ]
+     */
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * Return the current pool capacity.
+     *
+     * @return the current pool capacity
+     */
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Return the number of pooled writers.
+     *
+     * @return the number of pooled writers
+     */
+    public synchronized int getSize() {
+        return size;
+    }
+
+    /**
+     * Return the number of gets which returned a pooled writer.
+     *
+     * @return the number of pool hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Return the number of gets which found no pooled writer.
+     *
+     * @return the number of pool misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Return the number of pool capacity changes.
+     *
+     * @return the number of pool capacity changes
+     */
+    public long getResizes() {
+        return resizes.get();
+    }
+
+    /**
+     * Release the pooled writers, including the writers held by each thread
+     * in <tt>thread</tt> mode.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < size; i++) {
+            pool[i] = null;
+        }
+        size = 0;
+        for (AtomicReference<VelocityWriter> holder : threadWriters.keySet()) {
+            holder.set(null);
+        }
+        threadWriters.clear();
+        threadWriter.remove();
+    }
+
+    /**
+     * Return the pool statistics.
+     *
+     * @see Object#toString()
+     *
+     * @return the pool statistics
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[mode=" + mode + ",capacity="
+            + getCapacity() + ",size=" + getSize() + ",hits=" + getHits()
+            + ",misses=" + getMisses() + ",resizes=" + getResizes() + "]";
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Shrink the capacity to the peak concurrency of the interval which has
+     * just ended, releasing the idle writers above it, and start a new
+     * interval.
+     *
+     * @param now the current time in milliseconds
+     */
+    private void trim(long now) {
+        int newCapacity = Math.max(minSize, Math.min(peakInUse, maxSize));
+        if (newCapacity != capacity) {
+            capacity = newCapacity;
+            resizes.incrementAndGet();
+        }
+        while (size > capacity) {
+            pool[--size] = null;
+        }
+        peakInUse = inUse;
+        intervalStart = now;
+    }
+}
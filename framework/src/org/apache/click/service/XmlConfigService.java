@@ -18,6 +18,7 @@
  */
 package org.apache.click.service;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
@@ -85,6 +86,12 @@ public class XmlConfigService implements ConfigService, EntityResolver {
      */
     static final String DEFAULT_VEL_PROPS = "/WEB-INF/velocity.properties";
 
+    /** The filesystem resource deploy mode, the default. */
+    public static final String DEPLOY_FILESYSTEM = "filesystem";
+
+    /** The in memory resource deploy mode. */
+    public static final String DEPLOY_MEMORY = "memory";
+
     /** The click DTD file name: &nbsp; "<tt>click.dtd</tt>". */
     static final String DTD_FILE_NAME = "click.dtd";
 
@@ -157,6 +164,12 @@ public class XmlConfigService implements ConfigService, EntityResolver {
     /** The list of page packages. */
     final List pagePackages = new ArrayList();
 
+    /** The list of template paths found in the web application. */
+    List<String> templatePathList = Collections.emptyList();
+
+    /** The automapped page class names keyed on path, for the page manifest. */
+    final Map<String, String> automappedPages = new TreeMap<String, String>();
+
     // -------------------------------------------------------- Private Members
 
     /** The automatically bind controls, request parameters and models flag. */
@@ -177,6 +190,12 @@ public class XmlConfigService implements ConfigService, EntityResolver {
     /** The application log service. */
     private LogService logService;
 
+    /** The resource deploy mode: [ filesystem | memory ]. */
+    private String deployMode = DEPLOY_FILESYSTEM;
+
+    /** The deployment manifest while resources are being deployed, or null. */
+    private DeployManifest deployManifest;
+
     /**
      * The application mode:
      * [ PRODUCTION | PROFILE | DEVELOPMENT | DEBUG | TRACE ].
@@ -202,6 +221,9 @@ public class XmlConfigService implements ConfigService, EntityResolver {
     /** The application TemplateService. */
     private MessagesMapService messagesMapService;
 
+    /** The application MetricsService. */
+    private MetricsService metricsService;
+
     /** Flag indicating whether Click is running on Google App Engine. */
     private boolean onGoogleAppEngine = false;
 
@@ -246,6 +268,9 @@ public class XmlConfigService implements ConfigService, EntityResolver {
                 getLogService().info(msg);
             }
 
+            // Load the resource deploy mode
+            loadDeployMode(rootElm);
+
             // Deploy click resources
             deployFiles(rootElm);
 
@@ -282,6 +307,9 @@ public class XmlConfigService implements ConfigService, EntityResolver {
             // Load the Messages Map service
             loadMessagesMapService(rootElm);
 
+            // Load the Metrics service
+            loadMetricsService(rootElm);
+
             // Load the PageInterceptors
             loadPageInterceptors(rootElm);
 
@@ -309,6 +337,9 @@ public class XmlConfigService implements ConfigService, EntityResolver {
         if (getMessagesMapService() != null) {
             getMessagesMapService().onDestroy();
         }
+        if (getMetricsService() != null) {
+            getMetricsService().onDestroy();
+        }
         if (getLogService() != null) {
             getLogService().onDestroy();
         }
@@ -390,6 +421,19 @@ public class XmlConfigService implements ConfigService, EntityResolver {
         return messagesMapService;
     }
 
+    /**
+     * Return the application page lifecycle metrics service.
+     * <p/>
+     * This method is not part of the {@link ConfigService} interface, so
+     * custom ConfigService implementations are not required to provide it.
+     * Page lifecycle metrics are only recorded with an XmlConfigService.
+     *
+     * @return the application metrics service
+     */
+    public MetricsService getMetricsService() {
+        return metricsService;
+    }
+
     /**
      * @see ConfigService#createFormat()
      *
@@ -671,6 +715,46 @@ public class XmlConfigService implements ConfigService, EntityResolver {
         return classList;
     }
 
+    /**
+     * Return the list of template paths found in the web application, for
+     * example <tt>"/customer-list.htm"</tt>. The list includes page templates
+     * and other templates such as Panel templates.
+     * <p/>
+     * This method is not part of the {@link ConfigService} interface, so
+     * custom ConfigService implementations are not required to provide it.
+     *
+     * @return the list of template paths found in the web application
+     */
+    public List<String> getTemplatePathList() {
+        return templatePathList;
+    }
+
+    /**
+     * Return the resource deploy mode, either {@link #DEPLOY_FILESYSTEM} or
+     * {@link #DEPLOY_MEMORY}.
+     * <p/>
+     * In <tt>filesystem</tt> mode the class path resources under
+     * <tt>META-INF/resources</tt> are deployed to the web application root
+     * directory at startup. In <tt>memory</tt> mode nothing is written to the
+     * file system, and the {@link ClickResourceService} serves the resources
+     * from an index of the class path built at startup. The
+     * <tt>/click/*</tt> path must then be mapped to the ClickServlet.
+     * <p/>
+     * The mode is configured in <tt>click.xml</tt>, and can be overridden
+     * with the <tt>click.deploy</tt> system property:
+     *
+     * <pre class="codeConfig">
+     * &lt;deploy mode="memory"/&gt; </pre>
+     *
+     * This method is not part of the {@link ConfigService} interface, so
+     * custom ConfigService implementations are not required to provide it.
+     *
+     * @return the resource deploy mode
+     */
+    public String getDeployMode() {
+        return deployMode;
+    }
+
     /**
      * @see ConfigService#getPageHeaders(String)
      *
@@ -810,6 +894,38 @@ public class XmlConfigService implements ConfigService, EntityResolver {
         return servletContext;
     }
 
+    /**
+     * Deploy the given class path resource to the target directory through
+     * the deployment manifest, if the application resources are currently
+     * being deployed. This method is used by
+     * {@link ClickUtils#deployFile(ServletContext, String, String)}, so that
+     * files deployed by {@link Control#onDeploy(ServletContext)} are recorded
+     * in the manifest and redeployed when they change, like the resources
+     * deployed from jars.
+     *
+     * @param resource the class path resource name
+     * @param targetDir the target directory to deploy the resource to
+     * @return true if the resource was deployed through the manifest, or false
+     * if resources are not currently being deployed
+     */
+    public boolean deployFile(String resource, String targetDir) {
+        DeployManifest manifest = deployManifest;
+        if (manifest == null) {
+            return false;
+        }
+
+        String targetPath = resource.substring(resource.lastIndexOf('/') + 1);
+        if (StringUtils.isNotBlank(targetDir)) {
+            String dir = StringUtils.strip(targetDir.replace('\\', '/'), "/");
+            if (dir.length() > 0) {
+                targetPath = dir + "/" + targetPath;
+            }
+        }
+
+        manifest.deployFile(resource, targetPath);
+        return true;
+    }
+
     /**
      * This method resolves the click.dtd for the XML parser using the
      * classpath resource: <tt>/org/apache/click/click.dtd</tt>.
@@ -998,7 +1114,23 @@ public class XmlConfigService implements ConfigService, EntityResolver {
             throw new RuntimeException(msg);
         }
 
-        List templates = getTemplateFiles();
+        List<String> templates = getTemplateFiles();
+        templatePathList = Collections.unmodifiableList(templates);
+
+        // Load the automapped pages from the page manifest, if it is current
+        Map<String, Class<? extends Page>> manifestPages = null;
+        if (isProductionMode() || isProfileMode()) {
+            PageManifest manifest =
+                PageManifest.load(servletContext, templates, logService);
+            if (manifest != null) {
+                manifestPages = manifest.loadPageClasses(logService);
+            }
+        }
+
+        if (manifestPages != null && logService.isInfoEnabled()) {
+            logService.info("loaded " + manifestPages.size()
+                + " automapped pages from " + PageManifest.MANIFEST_PATH);
+        }
 
         for (Element pagesElm : pagesList) {
 
@@ -1073,7 +1205,11 @@ public class XmlConfigService implements ConfigService, EntityResolver {
             buildManualPageMapping(pagesElm, pagesPackage);
 
             if (automap) {
-                buildAutoPageMapping(pagesElm, pagesPackage, templates);
+                if (manifestPages != null) {
+                    buildManifestPageMapping(pagesElm, manifestPages);
+                } else {
+                    buildAutoPageMapping(pagesElm, pagesPackage, templates);
+                }
             }
         }
 
@@ -1129,13 +1265,7 @@ public class XmlConfigService implements ConfigService, EntityResolver {
      */
     void buildAutoPageMapping(Element pagesElm, String pagesPackage, List templates) throws ClassNotFoundException {
 
-        // Build list of automap path page class overrides
-        excludesList.clear();
-        for (Iterator i = ClickUtils.getChildren(pagesElm, "excludes").iterator();
-             i.hasNext();) {
-
-            excludesList.add(new XmlConfigService.ExcludesElm((Element) i.next()));
-        }
+        buildExcludesList(pagesElm);
 
         if (logService.isDebugEnabled()) {
             logService.debug("automapped pages:");
@@ -1156,6 +1286,7 @@ public class XmlConfigService implements ConfigService, EntityResolver {
                                                      autobinding);
 
                     pageByPathMap.put(page.getPath(), page);
+                    automappedPages.put(pagePath, pageClass.getName());
 
                     if (logService.isDebugEnabled()) {
                         String msg =
@@ -1167,6 +1298,62 @@ public class XmlConfigService implements ConfigService, EntityResolver {
         }
     }
 
+    /**
+     * Build the {@link #pageByPathMap} from the automapped page classes
+     * loaded from the {@link PageManifest}, instead of probing the pages
+     * package for classes matching the templates.
+     * <p/>
+     * The manifest does not record which <tt>&lt;pages&gt;</tt> element a
+     * page was mapped by, so all the manifest pages are mapped by the first
+     * automapping element, with its <tt>autobinding</tt> mode. This differs
+     * from {@link #buildAutoPageMapping(Element, String, List)} when the
+     * <tt>&lt;pages&gt;</tt> elements use different <tt>autobinding</tt>
+     * modes.
+     * <p/>
+     * This method also rebuilds the {@link #excludesList}.
+     *
+     * @param pagesElm the xml element containing the excluded URL paths
+     * @param pageClasses the automapped page classes keyed on path
+     */
+    void buildManifestPageMapping(Element pagesElm,
+            Map<String, Class<? extends Page>> pageClasses) throws ClassNotFoundException {
+
+        buildExcludesList(pagesElm);
+
+        for (Map.Entry<String, Class<? extends Page>> entry : pageClasses.entrySet()) {
+            String pagePath = entry.getKey();
+
+            if (!pageByPathMap.containsKey(pagePath)) {
+                XmlConfigService.PageElm page =
+                    new XmlConfigService.PageElm(pagePath,
+                                                 entry.getValue(),
+                                                 commonHeaders,
+                                                 autobinding);
+
+                pageByPathMap.put(page.getPath(), page);
+                automappedPages.put(pagePath, entry.getValue().getName());
+            }
+        }
+    }
+
+    /**
+     * Rebuild the {@link #excludesList} of URL paths that should not be
+     * auto-mapped.
+     *
+     * @param pagesElm the xml element containing the excluded URL paths
+     * @throws java.lang.ClassNotFoundException if the excludes cannot be
+     * loaded
+     */
+    void buildExcludesList(Element pagesElm) throws ClassNotFoundException {
+        // Build list of automap path page class overrides
+        excludesList.clear();
+        for (Iterator i = ClickUtils.getChildren(pagesElm, "excludes").iterator();
+             i.hasNext();) {
+
+            excludesList.add(new XmlConfigService.ExcludesElm((Element) i.next()));
+        }
+    }
+
     /**
      * Build the {@link #pageByClassMap} from the {@link #pageByPathMap} and
      * delegate to {@link #addToClassMap(PageElm)}.
@@ -1325,6 +1512,12 @@ public class XmlConfigService implements ConfigService, EntityResolver {
      */
     private void deployFiles(Element rootElm) throws Exception {
 
+        if (DEPLOY_MEMORY.equals(deployMode)) {
+            getLogService().info("resource deploy mode is memory, resources"
+                + " are served from the class path");
+            return;
+        }
+
         boolean isResourcesDeployable = isResourcesDeployable();
 
         if (isResourcesDeployable) {
@@ -1334,11 +1527,24 @@ public class XmlConfigService implements ConfigService, EntityResolver {
                     + deployTarget);
             }
 
-            deployControls(getResourceRootElement("/click-controls.xml"));
-            deployControls(getResourceRootElement("/extras-controls.xml"));
-            deployControls(rootElm);
-            deployControlSets(rootElm);
-            deployResourcesOnClasspath();
+            DeployManifest manifest =
+                new DeployManifest(new File(servletContext.getRealPath("/")), logService);
+            manifest.load();
+
+            // Files deployed by the controls are recorded in the manifest,
+            // see deployFile(String, String)
+            deployManifest = manifest;
+            try {
+                deployControls(getResourceRootElement("/click-controls.xml"));
+                deployControls(getResourceRootElement("/extras-controls.xml"));
+                deployControls(rootElm);
+                deployControlSets(rootElm);
+                deployResourcesOnClasspath(manifest);
+
+            } finally {
+                deployManifest = null;
+                manifest.save();
+            }
         }
 
         if (!isResourcesDeployable) {
@@ -1371,64 +1577,76 @@ public class XmlConfigService implements ConfigService, EntityResolver {
      * 'META-INF/resources/'. For backwards compatibility resources under the
      * directory 'META-INF/web/' are also deployed.
      * <p/>
-     * Only jars and folders available on the classpath are scanned.
+     * Only jars and folders available on the classpath are scanned. The
+     * deployed resources are recorded in a {@link DeployManifest}, so the
+     * scan is skipped when none of the jars changed since the last
+     * deployment, and unchanged files are not written again.
      *
+     * @param manifest the deployment manifest
      * @throws IOException if the resources cannot be deployed
      */
-    private void deployResourcesOnClasspath() throws IOException {
+    private void deployResourcesOnClasspath(DeployManifest manifest)
+        throws IOException {
+
         long startTime = System.currentTimeMillis();
 
+        DeployUtils<Object> deployUtils = new DeployUtils<Object>(logService);
+        String stamp = DeployManifest.createStamp(deployUtils.getClassLoader(),
+            "META-INF/resources", "META-INF/web");
+
+        if (manifest.isDeployed(stamp)) {
+            if (logService.isTraceEnabled()) {
+                logService.trace("deployed files from jars unchanged - "
+                    + (System.currentTimeMillis() - startTime) + " ms");
+            }
+            return;
+        }
+
         // Find all jars and directories on the classpath that contains the
         // directory "META-INF/resources/", and deploy those resources
         String resourceDirectory = "META-INF/resources";
 
-        List<String> resources = new DeployUtils(logService).findResources(resourceDirectory).getResources();
+        List<String> resources = deployUtils.findResources(resourceDirectory).getResources();
         for (String resource : resources) {
-            deployFile(resource, resourceDirectory);
+            deployFile(manifest, resource, resourceDirectory);
         }
 
         // For backward compatibility, find all jars and directories on the
         // classpath that contains the directory "META-INF/web/", and deploy those
         // resources
         resourceDirectory = "META-INF/web";
-        resources = new DeployUtils(logService).findResources(resourceDirectory).getResources();
+        resources = new DeployUtils<Object>(logService).findResources(resourceDirectory).getResources();
         for (String resource : resources) {
-            deployFile(resource, resourceDirectory);
+            deployFile(manifest, resource, resourceDirectory);
         }
 
-        logService.trace("deployed files from jars and folders - "
-            + (System.currentTimeMillis() - startTime) + " ms");
+        manifest.setStamp(stamp);
+
+        if (logService.isTraceEnabled()) {
+            logService.trace("deployed files from jars and folders - "
+                + (System.currentTimeMillis() - startTime) + " ms");
+        }
     }
 
     /**
      * Deploy the specified file.
      *
+     * @param manifest the deployment manifest
      * @param file the file to deploy
      * @param prefix the file prefix that must be removed when the file is
      * deployed
      */
-    private void deployFile(String file, String prefix) {
+    private void deployFile(DeployManifest manifest, String file, String prefix) {
         // Only deploy resources containing the prefix
         int pathIndex = file.indexOf(prefix);
         if (pathIndex == 0) {
             pathIndex += prefix.length();
 
-            // By default deploy to the web root dir
-            String targetDir = "";
-
-            // resourceName example -> click/table.css
+            // resourceName example -> /click/table.css
             String resourceName = file.substring(pathIndex);
-            int index = resourceName.lastIndexOf('/');
-
-            if (index != -1) {
-                // targetDir example -> click
-                targetDir = resourceName.substring(0, index);
-            }
 
-            // Copy resources to web folder
-            ClickUtils.deployFile(servletContext,
-                                  file,
-                                  targetDir);
+            // Copy resources to web folder, targetPath example -> click/table.css
+            manifest.deployFile(file, resourceName.substring(1));
         }
     }
 
@@ -1462,7 +1680,12 @@ public class XmlConfigService implements ConfigService, EntityResolver {
         }
 
         // Set log levels
-        if (logService instanceof ConsoleLogService) {
+        LogService levelLogService = logService;
+        if (levelLogService instanceof AsyncLogService) {
+            levelLogService = ((AsyncLogService) levelLogService).getLogService();
+        }
+
+        if (levelLogService instanceof ConsoleLogService) {
             int logLevel = ConsoleLogService.INFO_LEVEL;
 
             if (mode == PRODUCTION) {
@@ -1477,7 +1700,31 @@ public class XmlConfigService implements ConfigService, EntityResolver {
                 logLevel = ConsoleLogService.TRACE_LEVEL;
             }
 
-            ((ConsoleLogService) logService).setLevel(logLevel);
+            ((ConsoleLogService) levelLogService).setLevel(logLevel);
+        }
+    }
+
+    private void loadDeployMode(Element rootElm) {
+        Element deployElm = ClickUtils.getChild(rootElm, "deploy");
+
+        String modeValue = DEPLOY_FILESYSTEM;
+
+        if (deployElm != null) {
+            if (StringUtils.isNotBlank(deployElm.getAttribute("mode"))) {
+                modeValue = deployElm.getAttribute("mode");
+            }
+        }
+
+        modeValue = System.getProperty("click.deploy", modeValue);
+
+        if (modeValue.equalsIgnoreCase(DEPLOY_FILESYSTEM)) {
+            deployMode = DEPLOY_FILESYSTEM;
+        } else if (modeValue.equalsIgnoreCase(DEPLOY_MEMORY)) {
+            deployMode = DEPLOY_MEMORY;
+        } else {
+            logService.error("invalid resource deploy mode: '" + modeValue
+                + "' - defaulted to '" + DEPLOY_FILESYSTEM + "'");
+            deployMode = DEPLOY_FILESYSTEM;
         }
     }
 
@@ -1625,6 +1872,45 @@ public class XmlConfigService implements ConfigService, EntityResolver {
         messagesMapService.onInit(servletContext);
     }
 
+    private void loadMetricsService(Element rootElm) throws Exception {
+        Element metricsServiceElm = ClickUtils.getChild(rootElm, "metrics-service");
+
+        if (metricsServiceElm != null) {
+            Class<?> metricsServiceClass = DefaultMetricsService.class;
+
+            String classname = metricsServiceElm.getAttribute("classname");
+
+            if (StringUtils.isNotBlank(classname)) {
+                metricsServiceClass = ClickUtils.classForName(classname);
+            }
+
+            metricsService =
+                (MetricsService) metricsServiceClass.getDeclaredConstructor().newInstance();
+
+            Map<String, String> propertyMap = loadPropertyMap(metricsServiceElm);
+
+            for (String name : propertyMap.keySet()) {
+                String value = propertyMap.get(name).toString();
+
+                getPropertyService().setValue(metricsService, name, value);
+            }
+
+        } else {
+            // Metrics are only recorded when explicitly configured
+            DefaultMetricsService defaultMetricsService = new DefaultMetricsService();
+            defaultMetricsService.setEnabled(false);
+            metricsService = defaultMetricsService;
+        }
+
+        if (getLogService().isDebugEnabled()) {
+            String msg = "initializing MetricsService: "
+                + metricsService.getClass().getName();
+            getLogService().debug(msg);
+        }
+
+        metricsService.onInit(servletContext);
+    }
+
     private void loadPageInterceptors(Element rootElm) throws Exception {
         List<Element> interceptorList =
             ClickUtils.getChildren(rootElm, "page-interceptor");
@@ -1791,8 +2077,8 @@ public class XmlConfigService implements ConfigService, EntityResolver {
      *
      * @return list of all templates within the web application
      */
-    private List getTemplateFiles() {
-        List fileList = new ArrayList();
+    private List<String> getTemplateFiles() {
+        List<String> fileList = new ArrayList<String>();
 
         Set resources = servletContext.getResourcePaths("/");
         if (onGoogleAppEngine) {
@@ -1827,7 +2113,7 @@ public class XmlConfigService implements ConfigService, EntityResolver {
         return fileList;
     }
 
-    private void processDirectory(String dirPath, List fileList) {
+    private void processDirectory(String dirPath, List<String> fileList) {
         Set resources = servletContext.getResourcePaths(dirPath);
 
         if (resources != null) {
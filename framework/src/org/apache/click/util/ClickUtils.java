@@ -70,6 +70,7 @@ import org.apache.click.control.Field;
 import org.apache.click.control.Form;
 import org.apache.click.service.ConfigService;
 import org.apache.click.service.LogService;
+import org.apache.click.service.XmlConfigService;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
@@ -128,6 +129,10 @@ public class ClickUtils {
     /** The cached application version indicator string. */
     private static String cachedApplicationVersionIndicator;
 
+    /** The application resource content versions, keyed on resource path. */
+    private static volatile Map<String, String> applicationResourceVersions =
+        Collections.emptyMap();
+
     /**
      * Character used to separate username and password in persistent cookies.
      * 0x13 == "Device Control 3" non-printing ASCII char. Unlikely to appear
@@ -457,6 +462,12 @@ public class ClickUtils {
         XML_ENTITIES[62] = "&gt;"; // > - greater-than
     };
 
+    /** The escape table of the HTML entity set. */
+    static final EscapeTable HTML_ESCAPE_TABLE = new EscapeTable(HTML_ENTITIES);
+
+    /** The escape table of the XML entity set. */
+    static final EscapeTable XML_ESCAPE_TABLE = new EscapeTable(XML_ENTITIES);
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -1420,6 +1431,70 @@ public class ClickUtils {
         return "";
     }
 
+    /**
+     * If resource versioning is active this method will return the
+     * application version indicator for the given static web resource path,
+     * otherwise this method will return an empty string.
+     * <p/>
+     * If a content version is registered for the path through
+     * {@link #setApplicationResourceVersions(java.util.Map)}, this method
+     * returns that version, for example <tt>"_3f2a9c0b1d4e5f60"</tt>, so the
+     * resource URL only changes when its content changes. Otherwise the
+     * {@link #getApplicationResourceVersionIndicator() application version indicator}
+     * is returned.
+     *
+     * @param path the web application resource path, for example
+     * <tt>"/assets/style.css"</tt>
+     * @return an application version indicator for the web resource
+     */
+    public static String getApplicationResourceVersionIndicator(String path) {
+        if (path != null && Context.hasThreadLocalContext()) {
+            String version = applicationResourceVersions.get(path);
+
+            if (version != null) {
+                Context context = Context.getThreadLocalContext();
+                ConfigService configService = getConfigService(context.getServletContext());
+
+                boolean isProductionModes = configService.isProductionMode()
+                    || configService.isProfileMode();
+
+                if (isProductionModes && isEnableResourceVersion(context)) {
+                    return VERSION_INDICATOR_SEP + version;
+                }
+            }
+        }
+        return getApplicationResourceVersionIndicator();
+    }
+
+    /**
+     * Return the application resource content versions, keyed on resource
+     * path.
+     *
+     * @return the application resource content versions
+     */
+    public static Map<String, String> getApplicationResourceVersions() {
+        return applicationResourceVersions;
+    }
+
+    /**
+     * Set the application resource content versions, keyed on resource path.
+     * For example the
+     * <tt>org.apache.click.extras.filter.PerformanceFilter</tt> registers the
+     * content hash of each cacheable resource when content hash versioning is
+     * enabled.
+     *
+     * @see #getApplicationResourceVersionIndicator(java.lang.String)
+     *
+     * @param versions the resource content versions, keyed on resource path
+     */
+    public static void setApplicationResourceVersions(Map<String, String> versions) {
+        if (versions != null) {
+            applicationResourceVersions = versions;
+        } else {
+            applicationResourceVersions = Collections.emptyMap();
+        }
+    }
+
     /**
      * Return the given control CSS selector or null if no selector can be found.
      * <p/>
@@ -1542,6 +1617,14 @@ public class ClickUtils {
      * This method will <b>not</b> override any existing resources found in the
      * target directory.
      * <p/>
+     * When called from {@link org.apache.click.Control#onDeploy(ServletContext)}
+     * while the {@link XmlConfigService} deploys the application resources, the
+     * resource is deployed through the deployment manifest instead, see
+     * {@link XmlConfigService#deployFile(String, String)}. A resource deployed
+     * by Click is then redeployed when its content changes, unless the
+     * deployed file was modified since. Other existing files are still not
+     * overridden.
+     * <p/>
      * If an IOException or SecurityException occurs this method will log a
      * warning message.
      *
@@ -1561,6 +1644,12 @@ public class ClickUtils {
             throw new IllegalArgumentException(msg);
         }
 
+        ConfigService configService = getConfigService(servletContext);
+        if (configService instanceof XmlConfigService
+            && ((XmlConfigService) configService).deployFile(resource, targetDir)) {
+            return;
+        }
+
         String realTargetDir = servletContext.getRealPath("/") + File.separator;
 
         if (StringUtils.isNotBlank(targetDir)) {
@@ -1568,7 +1657,7 @@ public class ClickUtils {
         }
 
 
-        LogService logger = getConfigService(servletContext).getLogService();
+        LogService logger = configService.getLogService();
 
         try {
 
@@ -2615,17 +2704,21 @@ public class ClickUtils {
         String resourcePath = context.getResourcePath();
         Map pageMap = ClickUtils.getPageState(resourcePath, context);
         if (pageMap != null) {
-            Object pop = pageMap.remove(controlName);
-
-            if (pageMap.isEmpty()) {
-                // If this was the last state for the page, remove the page state map
-                context.removeSessionAttribute(resourcePath);
-            } else {
-                // Check if control state was removed
-                if (pop != null) {
-                    // If control state was removed, set session attribute to force
-                    // session replication in a cluster
-                    context.setSessionAttribute(resourcePath, pageMap);
+            // The page state map is shared by concurrent requests of the
+            // session, and is locked while it is accessed
+            synchronized (pageMap) {
+                Object pop = pageMap.remove(controlName);
+
+                if (pageMap.isEmpty()) {
+                    // If this was the last state for the page, remove the page state map
+                    context.removeSessionAttribute(resourcePath);
+                } else {
+                    // Check if control state was removed
+                    if (pop != null) {
+                        // If control state was removed, set session attribute to force
+                        // session replication in a cluster
+                        context.setSessionAttribute(resourcePath, pageMap);
+                    }
                 }
             }
         }
@@ -2657,7 +2750,11 @@ public class ClickUtils {
         String resourcePath = context.getResourcePath();
         Map pageMap = ClickUtils.getPageState(resourcePath, context);
         if (pageMap != null) {
-            control.setState(pageMap.get(controlName));
+            Object state = null;
+            synchronized (pageMap) {
+                state = pageMap.get(controlName);
+            }
+            control.setState(state);
         }
     }
 
@@ -2687,19 +2784,21 @@ public class ClickUtils {
         String resourcePath = context.getResourcePath();
         Map pageMap = getOrCreatePageState(resourcePath, context);
         Object state = control.getState();
-        if (state == null) {
-            // Set null state to see if it differs from previous state
-            Object pop = pageMap.put(controlName, state);
-            if (pop != null) {
-                // Previous state differs from current state, so set the
+        synchronized (pageMap) {
+            if (state == null) {
+                // Set null state to see if it differs from previous state
+                Object pop = pageMap.put(controlName, state);
+                if (pop != null) {
+                    // Previous state differs from current state, so set the
+                    // session attribute to force session replication in a cluster
+                    context.setSessionAttribute(resourcePath, pageMap);
+                }
+            } else {
+                pageMap.put(controlName, state);
+                // After control state has been added to the page state, set the
                 // session attribute to force session replication in a cluster
                 context.setSessionAttribute(resourcePath, pageMap);
             }
-        } else {
-            pageMap.put(controlName, state);
-            // After control state has been added to the page state, set the
-            // session attribute to force session replication in a cluster
-            context.setSessionAttribute(resourcePath, pageMap);
         }
     }
 
@@ -2820,6 +2919,37 @@ public class ClickUtils {
         }
     }
 
+    /**
+     * Return a 16 char hexadecimal content hash of the given data, based on
+     * its MD5 digest. The hash is suitable for versioning static resource
+     * paths.
+     *
+     * @param data the data to hash
+     * @return the hexadecimal content hash
+     */
+    public static String toContentHash(byte[] data) {
+        if (data == null) {
+            throw new IllegalArgumentException("Null data parameter");
+        }
+        try {
+            byte[] binaryData = MessageDigest.getInstance("MD5").digest(data);
+
+            char[] buffer = new char[16];
+
+            for (int i = 0; i < 8; i++) {
+                int low = (binaryData[i] & 0x0f);
+                int high = ((binaryData[i] & 0xf0) >> 4);
+                buffer[i * 2] = HEXADECIMAL[high];
+                buffer[i * 2 + 1] = HEXADECIMAL[low];
+            }
+
+            return new String(buffer);
+
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Return a field name string from the given field label.
      * <p/>
@@ -2953,18 +3083,7 @@ public class ClickUtils {
      * @param buffer the string buffer to append the escaped value to
      */
     static void appendEscapeString(String value, HtmlStringBuffer buffer) {
-        char aChar;
-        for (int i = 0, size = value.length(); i < size; i++) {
-            aChar = value.charAt(i);
-            int index = aChar;
-
-            if (index < XML_ENTITIES.length && XML_ENTITIES[index] != null) {
-                buffer.append(XML_ENTITIES[index]);
-
-            } else {
-                buffer.append(aChar);
-            }
-        }
+        buffer.appendEscaped(value, XML_ESCAPE_TABLE);
     }
 
     /**
@@ -2993,18 +3112,7 @@ public class ClickUtils {
      * @param buffer the string buffer to append the escaped value to
      */
     static void appendHtmlEscapeString(String value, HtmlStringBuffer buffer) {
-        char aChar;
-        for (int i = 0, size = value.length(); i < size; i++) {
-            aChar = value.charAt(i);
-            int index = aChar;
-
-            if (index < HTML_ENTITIES.length && HTML_ENTITIES[index] != null) {
-                buffer.append(HTML_ENTITIES[index]);
-
-            } else {
-                buffer.append(aChar);
-            }
-        }
+        buffer.appendEscaped(value, HTML_ESCAPE_TABLE);
     }
 
     /**
@@ -3015,14 +3123,7 @@ public class ClickUtils {
      * @return true if the given character requires escaping
      */
     static boolean requiresEscape(char aChar) {
-        int index = aChar;
-
-        if (index < XML_ENTITIES.length) {
-            return XML_ENTITIES[index] != null;
-
-        } else {
-            return false;
-        }
+        return XML_ESCAPE_TABLE.requiresEscape(aChar);
     }
 
     /**
@@ -3037,14 +3138,7 @@ public class ClickUtils {
             return false;
         }
 
-        int length = value.length();
-        for (int i = 0; i < length; i++) {
-            if (requiresEscape(value.charAt(i))) {
-                return true;
-            }
-        }
-
-        return false;
+        return XML_ESCAPE_TABLE.indexOfEscape(value, 0) != -1;
     }
 
     /**
@@ -3054,14 +3148,7 @@ public class ClickUtils {
      * @return true if the given character requires HTML escaping
      */
     static boolean requiresHtmlEscape(char aChar) {
-        int index = aChar;
-
-        if (index < HTML_ENTITIES.length) {
-            return HTML_ENTITIES[index] != null;
-
-        } else {
-            return false;
-        }
+        return HTML_ESCAPE_TABLE.requiresEscape(aChar);
     }
 
     /**
@@ -3075,14 +3162,7 @@ public class ClickUtils {
             return false;
         }
 
-        int length = value.length();
-        for (int i = 0; i < length; i++) {
-            if (requiresHtmlEscape(value.charAt(i))) {
-                return true;
-            }
-        }
-
-        return false;
+        return HTML_ESCAPE_TABLE.indexOfEscape(value, 0) != -1;
     }
 
     // -------------------------------------------------------- Private Methods
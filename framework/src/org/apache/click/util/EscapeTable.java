@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.util;
+
+/**
+ * Provides a reusable character escape table for the HTML and XML entity
+ * sets used by {@link HtmlStringBuffer} and {@link ClickUtils}.
+ * <p/>
+ * All the escaped characters below 64 are tested against a bit mask, so the
+ * common ASCII text characters are checked without an array lookup. Other
+ * characters are looked up in the entity array.
+ */
+final class EscapeTable {
+
+    // ----------------------------------------------------- Instance Variables
+
+    /** The bit mask of the escaped characters below 64. */
+    private final long lowMask;
+
+    /** The entity values indexed on char value. */
+    private final String[] entities;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Create an escape table for the given entity values, indexed on
+     * char value.
+     *
+     * @param entities the entity values indexed on char value
+     */
+    EscapeTable(String[] entities) {
+        this.entities = entities;
+
+        long mask = 0;
+        for (int i = 0; i < 64 && i < entities.length; i++) {
+            if (entities[i] != null) {
+                mask |= 1L << i;
+            }
+        }
+        for (int i = 64; i < 128 && i < entities.length; i++) {
+            if (entities[i] != null) {
+                throw new IllegalArgumentException("Escaped ASCII characters"
+                    + " must be below 64: " + (char) i);
+            }
+        }
+        this.lowMask = mask;
+    }
+
+    // --------------------------------------------------------- Package Methods
+
+    /**
+     * Return true if the given character requires escaping.
+     *
+     * @param aChar the character value to test
+     * @return true if the given character requires escaping
+     */
+    boolean requiresEscape(char aChar) {
+        if (aChar < 64) {
+            return (lowMask & (1L << aChar)) != 0;
+        }
+        return aChar >= 128 && aChar < entities.length && entities[aChar] != null;
+    }
+
+    /**
+     * Return the entity value for the given character, or null if the
+     * character does not require escaping.
+     *
+     * @param aChar the character value
+     * @return the entity value, or null if not escaped
+     */
+    String getEntity(char aChar) {
+        return (aChar < entities.length) ? entities[aChar] : null;
+    }
+
+    /**
+     * Return the index of the first character requiring escaping in the
+     * given string, starting at the given index, or -1 if no more characters
+     * require escaping.
+     *
+     * @param value the string value to scan
+     * @param fromIndex the index to start scanning from
+     * @return the index of the next character to escape, or -1
+     */
+    int indexOfEscape(String value, int fromIndex) {
+        for (int i = fromIndex, size = value.length(); i < size; i++) {
+            char aChar = value.charAt(i);
+            if (aChar < 64) {
+                if ((lowMask & (1L << aChar)) != 0) {
+                    return i;
+                }
+            } else if (aChar >= 128 && aChar < entities.length
+                && entities[aChar] != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -18,6 +18,8 @@
  */
 package org.apache.click.util;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.util.Map;
 
 /**
@@ -62,6 +64,9 @@ public class HtmlStringBuffer {
        "onselect", "onchange"
     };
 
+    /** The upper case hexadecimal digits used for percent encoding. */
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
     // ----------------------------------------------------- Instance Variables
 
     /** The character storage array. */
@@ -197,24 +202,7 @@ public class HtmlStringBuffer {
             throw new IllegalArgumentException("Null value parameter");
         }
 
-        String string = value.toString();
-
-        boolean requiresEscape = false;
-        for (int i = 0, size = string.length(); i < size; i++) {
-            if (ClickUtils.requiresEscape(string.charAt(i))) {
-                requiresEscape = true;
-                break;
-            }
-        }
-
-        if (requiresEscape) {
-            ClickUtils.appendEscapeString(string, this);
-
-        } else {
-            append(string);
-        }
-
-        return this;
+        return appendEscaped(value.toString(), ClickUtils.XML_ESCAPE_TABLE);
     }
 
     /**
@@ -483,6 +471,81 @@ public class HtmlStringBuffer {
         return false;
     }
 
+    /**
+     * Append the given value to the buffer, encoded as an
+     * <tt>application/x-www-form-urlencoded</tt> URL parameter value using
+     * the given charset.
+     * <p/>
+     * The value is encoded exactly as <tt>URLEncoder.encode(value, charset)</tt>
+     * would encode it. For the default <tt>UTF-8</tt> charset the value is
+     * encoded straight into the buffer without creating intermediary strings.
+     *
+     * @param value the value to URL encode and append
+     * @param charset the charset to encode the value with, or null for UTF-8
+     * @return a reference to this <tt>HtmlStringBuffer</tt> object
+     * @throws IllegalArgumentException if the value is null
+     */
+    public HtmlStringBuffer appendUrlEncoded(Object value, String charset) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null value parameter");
+        }
+
+        String string = value.toString();
+
+        if (charset != null && !"UTF-8".equalsIgnoreCase(charset)) {
+            try {
+                return append(URLEncoder.encode(string, charset));
+            } catch (UnsupportedEncodingException uee) {
+                throw new RuntimeException(uee);
+            }
+        }
+
+        int length = string.length();
+        int newCount = count + length;
+        if (newCount > characters.length) {
+            expandCapacity(newCount);
+        }
+
+        for (int i = 0; i < length; i++) {
+            char ch = string.charAt(i);
+
+            if ((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z')
+                || (ch >= '0' && ch <= '9') || ch == '.' || ch == '-'
+                || ch == '*' || ch == '_') {
+                append(ch);
+
+            } else if (ch == ' ') {
+                append('+');
+
+            } else if (ch < 0x80) {
+                appendPercentEncoded(ch);
+
+            } else if (ch < 0x800) {
+                appendPercentEncoded(0xC0 | (ch >> 6));
+                appendPercentEncoded(0x80 | (ch & 0x3F));
+
+            } else if (Character.isHighSurrogate(ch) && i + 1 < length
+                && Character.isLowSurrogate(string.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(ch, string.charAt(++i));
+                appendPercentEncoded(0xF0 | (codePoint >> 18));
+                appendPercentEncoded(0x80 | ((codePoint >> 12) & 0x3F));
+                appendPercentEncoded(0x80 | ((codePoint >> 6) & 0x3F));
+                appendPercentEncoded(0x80 | (codePoint & 0x3F));
+
+            } else if (Character.isHighSurrogate(ch) || Character.isLowSurrogate(ch)) {
+                // Unpaired surrogates are replaced with '?', as String.getBytes does
+                appendPercentEncoded('?');
+
+            } else {
+                appendPercentEncoded(0xE0 | (ch >> 12));
+                appendPercentEncoded(0x80 | ((ch >> 6) & 0x3F));
+                appendPercentEncoded(0x80 | (ch & 0x3F));
+            }
+        }
+
+        return this;
+    }
+
     /**
      * Return the length of the string buffer.
      *
@@ -532,6 +595,19 @@ public class HtmlStringBuffer {
         characters = newValue;
     }
 
+    // Private Methods --------------------------------------------------------
+
+    /**
+     * Append the given byte value as a percent encoded <tt>"%XX"</tt> triplet.
+     *
+     * @param value the byte value to append
+     */
+    private void appendPercentEncoded(int value) {
+        append('%');
+        append(HEX_DIGITS[(value >> 4) & 0x0F]);
+        append(HEX_DIGITS[value & 0x0F]);
+    }
+
     // Private Package Methods ------------------------------------------------
 
     /**
@@ -546,23 +622,54 @@ public class HtmlStringBuffer {
             throw new IllegalArgumentException("Null value parameter");
         }
 
-        String string = value.toString();
+        return appendEscaped(value.toString(), ClickUtils.HTML_ESCAPE_TABLE);
+    }
 
-        boolean requiresEscape = false;
-        for (int i = 0, size = string.length(); i < size; i++) {
-            if (ClickUtils.requiresHtmlEscape(string.charAt(i))) {
-                requiresEscape = true;
-                break;
-            }
+    /**
+     * Append the given string to the buffer, escaping its characters with
+     * the given escape table.
+     * <p/>
+     * Each run of characters which do not require escaping is copied into
+     * the buffer with a single <tt>String.getChars</tt> call.
+     *
+     * @param value the string value to escape and append
+     * @param table the escape table of the entity set
+     * @return a reference to this <tt>HtmlStringBuffer</tt> object
+     */
+    HtmlStringBuffer appendEscaped(String value, EscapeTable table) {
+        int start = 0;
+        int index = table.indexOfEscape(value, 0);
+
+        while (index != -1) {
+            appendSpan(value, start, index);
+            append(table.getEntity(value.charAt(index)));
+            start = index + 1;
+            index = table.indexOfEscape(value, start);
         }
 
-        if (requiresEscape) {
-            ClickUtils.appendHtmlEscapeString(string, this);
-
-        } else {
-            append(value);
-        }
+        appendSpan(value, start, value.length());
 
         return this;
     }
+
+    /**
+     * Append the characters of the given string between the start index,
+     * inclusive, and the end index, exclusive.
+     *
+     * @param value the string value to copy the characters from
+     * @param start the index of the first character to copy
+     * @param end the index after the last character to copy
+     */
+    private void appendSpan(String value, int start, int end) {
+        int length = end - start;
+        if (length <= 0) {
+            return;
+        }
+        int newCount = count + length;
+        if (newCount > characters.length) {
+            expandCapacity(newCount);
+        }
+        value.getChars(start, end, characters, count);
+        count = newCount;
+    }
 }
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.util;
+
+import java.util.Map;
+
+import org.apache.click.Page;
+import org.apache.click.service.ConfigService;
+import org.apache.click.service.MetricsService;
+import org.apache.click.service.PageMetrics;
+import org.apache.click.service.SessionFootprintAnalyzer;
+import org.apache.click.service.XmlConfigService;
+
+/**
+ * Provides a page lifecycle statistics Page, displaying the metrics recorded
+ * by the application {@link MetricsService}.
+ * <p/>
+ * The MetricsPage is not mapped by default. To enable it, configure the
+ * <tt>metrics-service</tt> and map the page in <tt>click.xml</tt>:
+ *
+ * <pre class="codeConfig">
+ * &lt;pages package="com.mycorp.page"&gt;
+ *     &lt;page path="<span class="blue">click/metrics.htm</span>" classname="<span class="red">org.apache.click.util.MetricsPage</span>"/&gt;
+ * &lt;/pages&gt;
+ *
+ * &lt;metrics-service/&gt; </pre>
+ *
+ * The page exposes internal application details, so production applications
+ * should subclass the MetricsPage and restrict access in
+ * {@link #onSecurityCheck()}.
+ * <p/>
+ * The template "<span class="blue">click/metrics.htm</span>" renders the
+ * <tt>metricsTable</tt> model value and can be customized to your needs.
+ */
+public class MetricsPage extends Page {
+
+    private static final long serialVersionUID = 1L;
+
+    // --------------------------------------------------------- Event Handlers
+
+    /**
+     * Add the rendered metrics table to the model under the name
+     * <tt>metricsTable</tt>.
+     *
+     * @see Page#onRender()
+     */
+    @Override
+    public void onRender() {
+        ConfigService configService =
+            ClickUtils.getConfigService(getContext().getServletContext());
+
+        MetricsService metricsService = null;
+        if (configService instanceof XmlConfigService) {
+            metricsService = ((XmlConfigService) configService).getMetricsService();
+        }
+
+        addModel("metricsTable", renderMetricsTable(metricsService));
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Render the metrics recorded by the given service as a HTML table, with
+     * a row per page class, the median and 95th percentile session state size
+     * in bytes, and the mean and 95th percentile latency in milliseconds of
+     * each lifecycle phase.
+     *
+     * @param metricsService the application metrics service
+     * @return the metrics HTML table
+     */
+    protected String renderMetricsTable(MetricsService metricsService) {
+        HtmlStringBuffer buffer = new HtmlStringBuffer(4096);
+
+        if (metricsService == null || !metricsService.isEnabled()) {
+            buffer.append("<p>Page metrics are not enabled. Add a");
+            buffer.append(" &lt;metrics-service/&gt; element to click.xml.</p>");
+            return buffer.toString();
+        }
+
+        buffer.elementStart("table");
+        buffer.appendAttribute("class", "metrics");
+        buffer.closeTag();
+        buffer.append("<tr><th>Page</th><th>Requests</th><th>Errors</th>");
+        buffer.append("<th>Mean size</th>");
+        buffer.append("<th>Session<br/>p50 / p95 bytes</th>");
+        for (String phase : MetricsService.PHASES) {
+            buffer.append("<th>").append(phase).append("<br/>mean / p95 ms</th>");
+        }
+        buffer.append("</tr>\n");
+
+        Map<String, PageMetrics> pageMetricsMap = metricsService.getPageMetrics();
+        for (PageMetrics pageMetrics : pageMetricsMap.values()) {
+            buffer.append("<tr><td>");
+            buffer.appendEscaped(pageMetrics.getPageClassName());
+            buffer.append("</td><td>").append(pageMetrics.getRequestCount());
+            buffer.append("</td><td>").append(pageMetrics.getExceptionCount());
+            buffer.append("</td><td>");
+            buffer.append(Math.round(pageMetrics.getResponseSizeHistogram().getMean()));
+            buffer.append("</td><td>");
+            PageMetrics.Histogram sessionHistogram =
+                pageMetrics.getSessionSizeHistogram(SessionFootprintAnalyzer.TOTAL);
+            if (sessionHistogram != null && sessionHistogram.getCount() > 0) {
+                buffer.append(sessionHistogram.getPercentile(50));
+                buffer.append(" / ");
+                buffer.append(sessionHistogram.getPercentile(95));
+            }
+            buffer.append("</td>");
+
+            for (String phase : MetricsService.PHASES) {
+                PageMetrics.Histogram histogram = pageMetrics.getPhaseHistogram(phase);
+                buffer.append("<td>");
+                if (histogram.getCount() > 0) {
+                    buffer.append(formatMillis(histogram.getMean()));
+                    buffer.append(" / ");
+                    buffer.append(formatMillis(histogram.getPercentile(95)));
+                }
+                buffer.append("</td>");
+            }
+            buffer.append("</tr>\n");
+        }
+
+        buffer.elementEnd("table");
+        return buffer.toString();
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Return the given nanoseconds value formatted as milliseconds with two
+     * decimals.
+     *
+     * @param nanos the value in nanoseconds
+     * @return the value formatted in milliseconds
+     */
+    private String formatMillis(double nanos) {
+        long hundredths = Math.round(nanos / 10000d);
+        long fraction = hundredths % 100;
+        return (hundredths / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
@@ -19,11 +19,15 @@
 package org.apache.click.util;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
+import org.apache.click.Context;
 import org.apache.click.Control;
 import org.apache.click.Page;
 import org.apache.click.control.Container;
@@ -36,7 +40,11 @@ import org.apache.click.element.CssStyle;
 import org.apache.click.element.Element;
 import org.apache.click.element.JsImport;
 import org.apache.click.element.JsScript;
+import org.apache.click.element.ResourceElement;
+import org.apache.click.service.ClickResourceService;
 import org.apache.click.service.LogService;
+import org.apache.click.service.ResourceService;
+import org.apache.commons.lang.StringUtils;
 
 /**
  * Provides a utility object for rendering a Page's HEAD elements and
@@ -97,6 +105,14 @@ import org.apache.click.service.LogService;
  * <li><span class="st">$jsImports</span> - this variable includes only Javascript elements</li>
  * </ul>
  *
+ * <h3>Import Bundles</h3>
+ * When the {@link ClickResourceService} <tt>bundleImports</tt> property is
+ * set, consecutive JavaScript and CSS imports of local resources are rendered
+ * as a single bundle import, see
+ * {@link ClickResourceService#getBundlePath(String, List)}. Imports with a
+ * conditional comment or extra attributes, and imports of external
+ * resources, are rendered as they are, and the import order is kept.
+ * <p/>
  * Please also see {@link org.apache.click.Page#getHeadElements()},
  * {@link org.apache.click.Control#getHeadElements()}.
  */
@@ -120,6 +136,9 @@ public class PageImports {
     /** The list of CSS styles. */
     protected List<CssStyle> cssStyles = new ArrayList<CssStyle>(2);
 
+    /** The set of imports and unique scripts and styles added. */
+    protected Set<Element> uniqueElements = new HashSet<Element>();
+
     /** The page instance. */
     protected final Page page;
 
@@ -148,28 +167,28 @@ public class PageImports {
         }
 
         if (element instanceof JsImport) {
-            if (jsImports.contains(element)) {
+            if (!uniqueElements.add(element)) {
                 return;
             }
             jsImports.add((JsImport) element);
 
         } else if (element instanceof JsScript) {
             if (((JsScript) element).isUnique()) {
-                if (jsScripts.contains(element)) {
+                if (!uniqueElements.add(element)) {
                     return;
                 }
             }
             jsScripts.add((JsScript) element);
 
         } else if (element instanceof CssImport) {
-            if (cssImports.contains(element)) {
+            if (!uniqueElements.add(element)) {
                 return;
             }
             cssImports.add((CssImport) element);
 
         } else if (element instanceof CssStyle) {
             if (((CssStyle) element).isUnique()) {
-                if (cssStyles.contains(element)) {
+                if (!uniqueElements.add(element)) {
                     return;
                 }
             }
@@ -329,6 +348,34 @@ public class PageImports {
         }
     }
 
+    /**
+     * Add a <tt>Link</tt> response header which asks the browser to preload
+     * the page's CSS and JavaScript imports, for example:
+     *
+     * <pre class="codeConfig">
+     * Link: &lt;/mycorp/click/control.css&gt;; rel=preload; as=style, &lt;/mycorp/click/control.js&gt;; rel=preload; as=script </pre>
+     *
+     * Imports with a conditional comment are not preloaded. If import
+     * bundling is enabled the bundles are preloaded.
+     *
+     * @see org.apache.click.Page#setPreloadImports(boolean)
+     *
+     * @param response the servlet response to add the header to
+     */
+    public void addPreloadHeaders(HttpServletResponse response) {
+        processPageControls();
+
+        HtmlStringBuffer buffer = new HtmlStringBuffer(
+            80 * (cssImports.size() + jsImports.size()));
+
+        appendPreloadLinks(getRenderImports(cssImports), "style", buffer);
+        appendPreloadLinks(getRenderImports(jsImports), "script", buffer);
+
+        if (buffer.length() > 0) {
+            response.addHeader("Link", buffer.toString());
+        }
+    }
+
     /**
      * Process the HEAD elements of the given list of Controls. You can retrieve
      * the processed HEAD elements through {@link #getHeadElements} and
@@ -461,10 +508,7 @@ public class PageImports {
      */
     protected void renderCssElements(HtmlStringBuffer buffer) {
         // First include all the imports e.g. <link href="...">
-        for (CssImport cssImport : cssImports) {
-            cssImport.render(buffer);
-            buffer.append('\n');
-        }
+        renderImports(cssImports, buffer);
 
         // Then include all the styles e.g. <style>...</style>
         for (CssStyle cssStyle : cssStyles) {
@@ -481,10 +525,7 @@ public class PageImports {
      */
     protected void renderJsElements(HtmlStringBuffer buffer) {
         // First include all the imports e.g. <script src="...">
-        for (JsImport jsImport : jsImports) {
-            jsImport.render(buffer);
-            buffer.append('\n');
-        }
+        renderImports(jsImports, buffer);
 
         // Then include all the scripts e.g. <script>...</script>
         for (JsScript jsScript : jsScripts) {
@@ -493,6 +534,60 @@ public class PageImports {
         }
     }
 
+    /**
+     * Render the given JavaScript or CSS imports, replacing consecutive
+     * imports of local resources with a bundle import when import bundling
+     * is enabled.
+     *
+     * @param imports the JsImport or CssImport elements to render
+     * @param buffer the specified buffer to render the imports to
+     */
+    protected void renderImports(List<? extends ResourceElement> imports,
+            HtmlStringBuffer buffer) {
+
+        for (ResourceElement element : getRenderImports(imports)) {
+            element.render(buffer);
+            buffer.append('\n');
+        }
+    }
+
+    /**
+     * Return the JavaScript or CSS imports to render, replacing consecutive
+     * imports of local resources with a bundle import when import bundling
+     * is enabled.
+     *
+     * @param imports the JsImport or CssImport elements
+     * @return the imports to render
+     */
+    protected List<? extends ResourceElement> getRenderImports(
+            List<? extends ResourceElement> imports) {
+
+        ClickResourceService bundler = (imports.size() > 1) ? getImportBundler() : null;
+        if (bundler == null) {
+            return imports;
+        }
+
+        String contextPath = page.getContext().getRequest().getContextPath();
+        List<ResourceElement> result = new ArrayList<ResourceElement>(imports.size());
+        List<ResourceElement> run = new ArrayList<ResourceElement>(imports.size());
+
+        for (ResourceElement element : imports) {
+            if (isBundleable(element, contextPath)) {
+                run.add(element);
+
+            } else {
+                addBundle(bundler, contextPath, run, result);
+                run.clear();
+
+                result.add(element);
+            }
+        }
+
+        addBundle(bundler, contextPath, run, result);
+
+        return result;
+    }
+
     /**
      * Process the Page's set of control HEAD elements.
      */
@@ -528,6 +623,129 @@ public class PageImports {
         }
     }
 
+    // Private Methods --------------------------------------------------------
+
+    /**
+     * Return the resource service if it bundles imports, otherwise null.
+     *
+     * @return the import bundling resource service, or null
+     */
+    private ClickResourceService getImportBundler() {
+        if (!Context.hasThreadLocalContext()) {
+            return null;
+        }
+
+        ResourceService resourceService =
+            ClickUtils.getConfigService().getResourceService();
+
+        if (resourceService instanceof ClickResourceService) {
+            ClickResourceService clickResourceService =
+                (ClickResourceService) resourceService;
+            if (clickResourceService.isBundleImports()) {
+                return clickResourceService;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return true if the import is a plain import of a local resource.
+     *
+     * @param element the JsImport or CssImport element
+     * @param contextPath the application context path
+     * @return true if the import can be bundled
+     */
+    private boolean isBundleable(ResourceElement element, String contextPath) {
+        if (StringUtils.isNotBlank(element.getConditionalComment())) {
+            return false;
+        }
+
+        String path = getImportPath(element);
+        if (path == null || !path.startsWith(contextPath + "/") || path.indexOf('?') != -1) {
+            return false;
+        }
+
+        for (String name : element.getAttributes().keySet()) {
+            if (!"src".equals(name) && !"href".equals(name) && !"type".equals(name)
+                && !"rel".equals(name) && !"id".equals(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the src of a JsImport or the href of a CssImport.
+     *
+     * @param element the JsImport or CssImport element
+     * @return the path of the imported resource
+     */
+    private String getImportPath(ResourceElement element) {
+        if (element instanceof JsImport) {
+            return ((JsImport) element).getSrc();
+        } else {
+            return ((CssImport) element).getHref();
+        }
+    }
+
+    /**
+     * Add the given run of imports to the result as a single bundle import,
+     * or as separate imports if they cannot be bundled.
+     *
+     * @param bundler the import bundling resource service
+     * @param contextPath the application context path
+     * @param run the imports to bundle
+     * @param result the list of imports to render
+     */
+    private void addBundle(ClickResourceService bundler, String contextPath,
+            List<ResourceElement> run, List<ResourceElement> result) {
+
+        String bundlePath = null;
+        if (run.size() > 1) {
+            List<String> resourcePaths = new ArrayList<String>(run.size());
+            for (ResourceElement element : run) {
+                resourcePaths.add(getImportPath(element).substring(contextPath.length()));
+            }
+            bundlePath = bundler.getBundlePath(contextPath, resourcePaths);
+        }
+
+        if (bundlePath == null) {
+            result.addAll(run);
+
+        } else if (run.get(0) instanceof JsImport) {
+            result.add(new JsImport(bundlePath, false));
+
+        } else {
+            result.add(new CssImport(bundlePath, false));
+        }
+    }
+
+    /**
+     * Append a preload link for each of the given imports to the buffer.
+     *
+     * @param imports the JsImport or CssImport elements
+     * @param type the preload destination type, "script" or "style"
+     * @param buffer the buffer to append the links to
+     */
+    private void appendPreloadLinks(List<? extends ResourceElement> imports,
+            String type, HtmlStringBuffer buffer) {
+
+        for (ResourceElement element : imports) {
+            String path = getImportPath(element);
+            if (path == null || StringUtils.isNotBlank(element.getConditionalComment())) {
+                continue;
+            }
+
+            if (buffer.length() > 0) {
+                buffer.append(", ");
+            }
+            buffer.append('<');
+            buffer.append(element.getVersionedResourcePath(path));
+            buffer.append(">; rel=preload; as=");
+            buffer.append(type);
+        }
+    }
+
     // Internal Classes -------------------------------------------------------
 
     /**
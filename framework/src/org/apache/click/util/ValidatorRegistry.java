@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.util;
+
+import java.text.DecimalFormat;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Provides a shared registry of precompiled validation resources, used by
+ * the Field controls to avoid recompiling the same regular expressions,
+ * number formats and message formats on every request.
+ * <p/>
+ * The registry caches:
+ * <ul>
+ * <li>compiled regular expression {@link Pattern}s, keyed by pattern string</li>
+ * <li>{@link NumberFormat} prototypes, keyed by locale and decimal pattern</li>
+ * <li>{@link MessageFormat} prototypes, keyed by message pattern</li>
+ * </ul>
+ * Patterns are immutable and thread safe and are shared directly. Number
+ * and message formats are not thread safe, so the registry returns a clone
+ * of the cached prototype, which avoids parsing the pattern and loading the
+ * locale data again.
+ * <p/>
+ * Each cache is bounded to {@link #MAX_ENTRIES} entries, and is cleared when
+ * the bound is reached, to protect against applications which build
+ * patterns or messages dynamically.
+ */
+public final class ValidatorRegistry {
+
+    // -------------------------------------------------------------- Constants
+
+    /** The maximum number of entries of each cache. */
+    public static final int MAX_ENTRIES = 1000;
+
+    /** The compiled regular expression patterns, keyed by pattern string. */
+    private static final Map<String, Pattern> PATTERN_CACHE =
+        new ConcurrentHashMap<String, Pattern>();
+
+    /** The number format prototypes, keyed by locale and pattern. */
+    private static final Map<String, NumberFormat> NUMBER_FORMAT_CACHE =
+        new ConcurrentHashMap<String, NumberFormat>();
+
+    /** The message format prototypes, keyed by message pattern. */
+    private static final Map<String, MessageFormat> MESSAGE_FORMAT_CACHE =
+        new ConcurrentHashMap<String, MessageFormat>();
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Disallow instantiation.
+     */
+    private ValidatorRegistry() {
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Return the compiled regular expression pattern for the given pattern
+     * string.
+     *
+     * @param regex the regular expression pattern string
+     * @return the compiled regular expression pattern
+     * @throws java.util.regex.PatternSyntaxException if the pattern cannot be
+     * compiled
+     */
+    public static Pattern getPattern(String regex) {
+        if (regex == null) {
+            throw new IllegalArgumentException("Null regex parameter");
+        }
+
+        Pattern pattern = PATTERN_CACHE.get(regex);
+        if (pattern == null) {
+            pattern = Pattern.compile(regex);
+            put(PATTERN_CACHE, regex, pattern);
+        }
+        return pattern;
+    }
+
+    /**
+     * Return true if the given value matches the given regular expression
+     * pattern string.
+     *
+     * @param regex the regular expression pattern string
+     * @param value the value to match
+     * @return true if the value matches the pattern
+     */
+    public static boolean matches(String regex, CharSequence value) {
+        return getPattern(regex).matcher(value).matches();
+    }
+
+    /**
+     * Return a new NumberFormat for the given locale. If a pattern is given
+     * and the locale format is a DecimalFormat, the pattern is applied to the
+     * format.
+     * <p/>
+     * The returned format is a clone of a cached prototype and can be freely
+     * modified by the caller.
+     *
+     * @param locale the number format locale
+     * @param pattern the decimal format pattern, may be null
+     * @return a new NumberFormat for the given locale and pattern
+     */
+    public static NumberFormat getNumberFormat(Locale locale, String pattern) {
+        if (locale == null) {
+            throw new IllegalArgumentException("Null locale parameter");
+        }
+
+        String key = (pattern == null)
+            ? locale.toString() : locale.toString() + '|' + pattern;
+
+        NumberFormat format = NUMBER_FORMAT_CACHE.get(key);
+        if (format == null) {
+            format = NumberFormat.getInstance(locale);
+            if (pattern != null && format instanceof DecimalFormat) {
+                ((DecimalFormat) format).applyPattern(pattern);
+            }
+            put(NUMBER_FORMAT_CACHE, key, format);
+        }
+        return (NumberFormat) format.clone();
+    }
+
+    /**
+     * Format the given message pattern with the given arguments, as
+     * <tt>MessageFormat.format(pattern, args)</tt> would, without parsing the
+     * message pattern again for every call.
+     *
+     * @param pattern the message pattern
+     * @param args the message arguments
+     * @return the formatted message
+     */
+    public static String formatMessage(String pattern, Object... args) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("Null pattern parameter");
+        }
+
+        // Messages without arguments placeholders don't require formatting,
+        // apart from unquoting
+        if (pattern.indexOf('{') == -1 && pattern.indexOf('\'') == -1) {
+            return pattern;
+        }
+
+        MessageFormat format = MESSAGE_FORMAT_CACHE.get(pattern);
+        if (format == null) {
+            format = new MessageFormat(pattern);
+            put(MESSAGE_FORMAT_CACHE, pattern, format);
+        }
+        return ((MessageFormat) format.clone()).format(args);
+    }
+
+    /**
+     * Remove all the cached patterns and formats.
+     */
+    public static void clear() {
+        PATTERN_CACHE.clear();
+        NUMBER_FORMAT_CACHE.clear();
+        MESSAGE_FORMAT_CACHE.clear();
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Put the given value in the given cache, clearing the cache first if it
+     * reached its maximum size.
+     *
+     * @param cache the cache to add the value to
+     * @param key the cache key
+     * @param value the value to cache
+     */
+    private static <T> void put(Map<String, T> cache, String key, T value) {
+        if (cache.size() >= MAX_ENTRIES) {
+            cache.clear();
+        }
+        cache.put(key, value);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.click.service.CommonsFileUploadService;
+import org.apache.click.service.FileUploadService;
+import org.apache.click.service.FileUploadSink;
+import org.apache.click.service.StreamedFileItem;
+import org.apache.click.service.StreamingFileUploadService;
+import org.apache.click.servlet.MockRequest;
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadBase;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Provides tests for ClickRequestWrapper multipart request handling.
+ */
+public class ClickRequestWrapperTest extends TestCase {
+
+    /** The content of the uploaded file. */
+    private static final String CONTENT = "uploaded file content";
+
+    /** The uploaded file. */
+    private File file;
+
+    /**
+     * Create the uploaded file.
+     *
+     * @throws Exception if the file cannot be created
+     */
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("upload", ".txt");
+        FileWriter writer = new FileWriter(file);
+        writer.write(CONTENT);
+        writer.close();
+    }
+
+    /**
+     * Delete the uploaded file.
+     */
+    @Override
+    protected void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Check that the default service parses the request eagerly.
+     *
+     * @throws Exception if the file item cannot be read
+     */
+    public void testCommonsUpload() throws Exception {
+        MockRequest request = createRequest();
+
+        ClickRequestWrapper wrapper =
+            new ClickRequestWrapper(request, new CommonsFileUploadService());
+
+        assertFalse(wrapper.setFileUploadSink("upload", new RecordingSink()));
+        assertEquals("value", wrapper.getParameter("param"));
+
+        FileItem fileItem = wrapper.getFileItemMap().get("upload")[0];
+        assertEquals(CONTENT, fileItem.getString());
+    }
+
+    /**
+     * Check that the streaming service pipes registered uploads to their sink
+     * and stores the other uploads as regular file items.
+     */
+    public void testStreamingUploadToSink() {
+        MockRequest request = createRequest();
+        request.addFile("other", file, "text/plain");
+
+        ClickRequestWrapper wrapper =
+            new ClickRequestWrapper(request, new StreamingFileUploadService());
+
+        RecordingSink sink = new RecordingSink();
+        assertTrue(wrapper.setFileUploadSink("upload", sink));
+
+        assertEquals("value", wrapper.getParameter("param"));
+        assertEquals(CONTENT, sink.content);
+        assertEquals(file.getName(), sink.name);
+
+        FileItem fileItem = wrapper.getFileItemMap().get("upload")[0];
+        assertTrue(fileItem instanceof StreamedFileItem);
+        assertEquals(file.getName(), fileItem.getName());
+        assertEquals("text/plain", fileItem.getContentType());
+        assertEquals(CONTENT.length(), fileItem.getSize());
+
+        FileItem otherItem = wrapper.getFileItemMap().get("other")[0];
+        assertFalse(otherItem instanceof StreamedFileItem);
+        assertEquals(CONTENT, otherItem.getString());
+
+        // Sinks cannot be registered once the request is parsed
+        assertFalse(wrapper.setFileUploadSink("other", sink));
+    }
+
+    /**
+     * Check that the streamed file size is counted when the sink does not
+     * read the content, and that size limits are reported as upload errors.
+     */
+    public void testStreamingUploadLimits() {
+        MockRequest request = createRequest();
+        ClickRequestWrapper wrapper =
+            new ClickRequestWrapper(request, new StreamingFileUploadService());
+
+        wrapper.setFileUploadSink("upload", new FileUploadSink() {
+            public void receive(FileItemStream item, InputStream stream) {
+            }
+        });
+        assertEquals(CONTENT.length(), wrapper.getFileItemMap().get("upload")[0].getSize());
+
+        request = createRequest();
+        StreamingFileUploadService service = new StreamingFileUploadService();
+        service.setFileSizeMax(CONTENT.length() - 1);
+        wrapper = new ClickRequestWrapper(request, service);
+        wrapper.setFileUploadSink("upload", new RecordingSink());
+
+        assertEquals("value", wrapper.getParameter("param"));
+        assertNull(wrapper.getFileItemMap().get("upload"));
+        assertTrue(request.getAttribute(FileUploadService.UPLOAD_EXCEPTION)
+            instanceof FileUploadBase.FileSizeLimitExceededException);
+    }
+
+    /**
+     * Check that a sink failure is recorded as an upload error instead of
+     * failing the parameter access.
+     */
+    public void testStreamingUploadSinkFailure() {
+        MockRequest request = createRequest();
+        ClickRequestWrapper wrapper =
+            new ClickRequestWrapper(request, new StreamingFileUploadService());
+
+        final IOException failure = new IOException("connection reset");
+        wrapper.setFileUploadSink("upload", new FileUploadSink() {
+            public void receive(FileItemStream item, InputStream stream) throws IOException {
+                throw failure;
+            }
+        });
+
+        wrapper.getParameter("param");
+        assertNull(wrapper.getFileItemMap().get("upload"));
+
+        Object exception = request.getAttribute(FileUploadService.UPLOAD_EXCEPTION);
+        assertTrue(exception instanceof FileUploadException);
+        assertSame(failure, ((FileUploadException) exception).getCause());
+    }
+
+    // Private Methods --------------------------------------------------------
+
+    /**
+     * Create a multipart POST request with a parameter and an uploaded file.
+     *
+     * @return a multipart POST request
+     */
+    private MockRequest createRequest() {
+        MockRequest request = new MockRequest();
+        request.setMethod("POST");
+        request.setParameter("param", "value");
+        request.addFile("upload", file, "text/plain");
+        return request;
+    }
+
+    // Inner Classes ----------------------------------------------------------
+
+    /**
+     * Provides an upload sink which records the received content.
+     */
+    private static class RecordingSink implements FileUploadSink {
+
+        /** The received file name. */
+        String name;
+
+        /** The received content. */
+        String content;
+
+        public void receive(FileItemStream item, InputStream stream) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IOUtils.copy(stream, out);
+            name = item.getName();
+            content = out.toString();
+        }
+    }
+}
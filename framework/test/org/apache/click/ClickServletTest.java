@@ -20,9 +20,19 @@ package org.apache.click;
 
 import junit.framework.Assert;
 import junit.framework.TestCase;
+import org.apache.click.control.ActionLink;
 import org.apache.click.control.Form;
+import org.apache.click.pages.AjaxFactoryPage;
 import org.apache.click.pages.BinaryPage;
+import org.apache.click.pages.HeadFlushPage;
 import org.apache.click.pages.ListenerPage;
+import org.apache.click.pages.PrototypePage;
+import org.apache.click.pages.UnresettablePrototypePage;
+import org.apache.click.service.DefaultMetricsService;
+import org.apache.click.service.MetricsService;
+import org.apache.click.service.PageMetrics;
+import org.apache.click.servlet.MockRequest;
+import org.apache.click.servlet.MockResponse;
 
 /**
  * Provides tests for ClickServlet behavior.
@@ -61,4 +71,185 @@ public class ClickServletTest extends TestCase {
 
         container.stop();
     }
+
+    /**
+     * Check that ClickServlet records the page lifecycle metrics when the
+     * MetricsService is enabled.
+     */
+    public void testPageMetrics() {
+        MockContainer container = new MockContainer("web");
+        container.start();
+
+        DefaultMetricsService metricsService = new DefaultMetricsService();
+        metricsService.setJmxEnabled(false);
+        container.getClickServlet().metricsService = metricsService;
+
+        container.setParameter(Form.FORM_NAME, "form");
+        container.setParameter("save", "save");
+        container.setParameter("field", "one");
+        container.testPage(ListenerPage.class);
+
+        PageMetrics pageMetrics =
+            metricsService.getPageMetrics().get(ListenerPage.class.getName());
+
+        Assert.assertEquals(1, pageMetrics.getRequestCount());
+        Assert.assertEquals(1, pageMetrics.getPhaseHistogram(MetricsService.PHASE_INIT).getCount());
+        Assert.assertEquals(1, pageMetrics.getPhaseHistogram(MetricsService.PHASE_ACTION).getCount());
+        Assert.assertEquals(1, pageMetrics.getPhaseHistogram(MetricsService.PHASE_TEMPLATE).getCount());
+        Assert.assertEquals(1, pageMetrics.getPhaseHistogram(MetricsService.PHASE_DESTROY).getCount());
+        Assert.assertTrue(pageMetrics.getResponseSizeHistogram().getMax() > 0);
+
+        container.stop();
+    }
+
+    /**
+     * Check that ClickServlet sets preload Link headers for the page imports,
+     * and that the page HEAD elements are flushed before the body renders.
+     */
+    public void testPreloadAndFlushHeadElements() {
+        MockContainer container = new MockContainer("web");
+        container.start();
+
+        HeadFlushPage page = container.testPage(HeadFlushPage.class);
+
+        String contextPath = container.getRequest().getContextPath();
+        MockResponse response = container.getResponse();
+        Assert.assertEquals("<" + contextPath + "/assets/style.css>; rel=preload; as=style, <"
+            + contextPath + "/assets/script.js>; rel=preload; as=script",
+            response.getHeader("Link"));
+
+        Assert.assertNotNull(page.documentBeforeBody);
+        Assert.assertTrue(page.documentBeforeBody,
+            page.documentBeforeBody.indexOf("/assets/style.css") > 0);
+        Assert.assertTrue(page.documentBeforeBody.indexOf("<body>") == -1);
+
+        container.stop();
+    }
+
+    /**
+     * Check prototype pages are reused, with the state captured after
+     * construction restored for each request.
+     */
+    public void testPrototypePage() {
+        MockContainer container = new MockContainer("web");
+        container.start();
+
+        PrototypePage.instances = 0;
+
+        MockRequest request = container.getRequest();
+        request.setMethod("POST");
+        request.setParameter("id", "42");
+        request.setParameter("form_name", "form");
+        request.setParameter("name", "");
+
+        PrototypePage page = container.testPage(PrototypePage.class);
+        Assert.assertEquals("42", page.id);
+        Assert.assertFalse(page.form.isValid());
+        Assert.assertNotNull(page.name.getError());
+        Assert.assertEquals(Boolean.TRUE, page.getModel().get("posted"));
+        int controlCount = page.form.getControls().size();
+
+        request.setMethod("GET");
+        request.removeParameter("id");
+        request.removeParameter("form_name");
+        request.removeParameter("name");
+
+        PrototypePage reused = container.testPage(PrototypePage.class);
+        Assert.assertSame(page, reused);
+        Assert.assertEquals(1, PrototypePage.instances);
+        Assert.assertNull(reused.id);
+        Assert.assertTrue(reused.form.isValid());
+        Assert.assertNull(reused.name.getError());
+        Assert.assertEquals("default", reused.name.getValue());
+        Assert.assertFalse(reused.getModel().containsKey("posted"));
+        Assert.assertFalse(reused.getHeaders().containsKey("X-Posted"));
+        Assert.assertSame(reused.form, reused.getModel().get("form"));
+        Assert.assertEquals(controlCount, reused.form.getControls().size());
+        Assert.assertEquals(1, reused.group.getChildren().size());
+        Assert.assertEquals("Name", reused.column.getHeaderTitle());
+        Assert.assertEquals(1, reused.resets);
+        Assert.assertEquals("", reused.notes.toString());
+
+        // The Ajax targets of a reused page are registered for each request
+        request.setHeader("X-Requested-With", "XMLHttpRequest");
+        request.setParameter(ActionLink.ACTION_LINK, "link");
+
+        container.testPage(PrototypePage.class);
+        Assert.assertEquals("clicked", container.getResponse().getDocument());
+        Assert.assertEquals(1, PrototypePage.instances);
+
+        container.stop();
+    }
+
+    /**
+     * Check prototype pages which do not implement Resettable are not reused.
+     */
+    public void testUnresettablePrototypePage() {
+        MockContainer container = new MockContainer("web");
+        container.start();
+
+        UnresettablePrototypePage.instances = 0;
+
+        UnresettablePrototypePage page = container.testPage(UnresettablePrototypePage.class);
+        UnresettablePrototypePage next = container.testPage(UnresettablePrototypePage.class);
+        Assert.assertNotSame(page, next);
+        Assert.assertEquals(2, UnresettablePrototypePage.instances);
+
+        container.stop();
+    }
+
+    /**
+     * Check an Ajax request targeting a factory control is processed without
+     * initializing the page control tree.
+     */
+    public void testAjaxControlFactory() {
+        MockContainer container = new MockContainer("web");
+        container.start();
+
+        AjaxFactoryPage.inits = 0;
+
+        MockRequest request = container.getRequest();
+        request.setHeader("X-Requested-With", "XMLHttpRequest");
+        request.setParameter("form_name", "");
+        request.setParameter("name", "jo");
+
+        container.testPage(AjaxFactoryPage.class);
+        Assert.assertEquals("name=jo", container.getResponse().getDocument());
+        Assert.assertEquals(0, AjaxFactoryPage.inits);
+
+        // Ajax requests which don't target a factory control initialize the page
+        request.removeParameter("form_name");
+
+        container.testPage(AjaxFactoryPage.class);
+        Assert.assertEquals(1, AjaxFactoryPage.inits);
+
+        container.stop();
+    }
+
+    /**
+     * Check an Ajax request which targets neither a factory control nor a
+     * control of the page renders the page, as the factory controls leave no
+     * Ajax targets registered.
+     */
+    public void testAjaxControlFactoryFallback() {
+        MockContainer container = new MockContainer("web");
+        container.start();
+
+        AjaxFactoryPage.inits = 0;
+        AjaxFactoryPage.plainInit = true;
+
+        try {
+            MockRequest request = container.getRequest();
+            request.setHeader("X-Requested-With", "XMLHttpRequest");
+            request.setParameter("name", "jo");
+
+            container.testPage(AjaxFactoryPage.class);
+            Assert.assertEquals(1, AjaxFactoryPage.inits);
+            Assert.assertTrue(container.getResponse().getDocument().contains("<form"));
+
+        } finally {
+            AjaxFactoryPage.plainInit = false;
+            container.stop();
+        }
+    }
 }
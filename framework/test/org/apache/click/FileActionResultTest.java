@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import junit.framework.TestCase;
+
+import org.apache.click.servlet.MockRequest;
+import org.apache.click.servlet.MockResponse;
+
+/**
+ * Provides tests for FileActionResult.
+ */
+public class FileActionResultTest extends TestCase {
+
+    /** The file to stream. */
+    private File file;
+
+    /**
+     * Create the file to stream.
+     */
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("click", ".txt");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("0123456789".getBytes("ISO-8859-1"));
+        out.close();
+    }
+
+    /**
+     * Delete the streamed file.
+     */
+    @Override
+    protected void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Check the whole file is streamed with validator headers.
+     */
+    public void testFullFile() throws Exception {
+        MockContext context = MockContext.initContext();
+
+        FileActionResult result = new FileActionResult(file, "text/plain");
+        result.setBufferSize(3);
+        result.setFilename("digits.txt");
+        MockResponse response = render(result, context);
+
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals("0123456789", content(response));
+        assertEquals("10", response.getHeader("Content-Length"));
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals("attachment; filename=\"digits.txt\"",
+            response.getHeader("Content-Disposition"));
+        assertNotNull(response.getHeader("ETag"));
+        assertNull(response.getHeader("Pragma"));
+    }
+
+    /**
+     * Check single, suffix and multiple byte ranges.
+     */
+    public void testRanges() throws Exception {
+        MockContext context = MockContext.initContext();
+        MockRequest request = context.getMockRequest();
+
+        request.setHeader("Range", "bytes=2-4");
+        MockResponse response = render(new FileActionResult(file, "text/plain"), context);
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("bytes 2-4/10", response.getHeader("Content-Range"));
+        assertEquals("234", content(response));
+
+        request.setHeader("Range", "bytes=-3");
+        response = render(new FileActionResult(file, "text/plain"), context);
+        assertEquals("789", content(response));
+
+        request.setHeader("Range", "bytes=0-1,8-");
+        response = render(new FileActionResult(file, "text/plain"), context);
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges"));
+        String body = content(response);
+        assertTrue(body, body.contains("Content-Range: bytes 0-1/10\r\n\r\n01\r\n"));
+        assertTrue(body, body.contains("Content-Range: bytes 8-9/10\r\n\r\n89\r\n"));
+
+        request.setHeader("Range", "bytes=20-");
+        response = render(new FileActionResult(file, "text/plain"), context);
+        assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus());
+        assertEquals("bytes */10", response.getHeader("Content-Range"));
+
+        // A changed file is sent whole when resuming
+        request.setHeader("Range", "bytes=2-4");
+        request.setHeader("If-Range", "\"changed\"");
+        response = render(new FileActionResult(file, "text/plain"), context);
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals("0123456789", content(response));
+    }
+
+    /**
+     * Check conditional requests and preconditions.
+     */
+    public void testConditionalRequests() throws Exception {
+        MockContext context = MockContext.initContext();
+        MockRequest request = context.getMockRequest();
+
+        String etag = render(new FileActionResult(file, "text/plain"), context).getHeader("ETag");
+
+        request.setHeader("If-None-Match", etag);
+        MockResponse response = render(new FileActionResult(file, "text/plain"), context);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        assertEquals("", content(response));
+
+        request.setHeader("If-None-Match", "\"other\"");
+        request.setHeader("If-Match", "\"other\"");
+        response = render(new FileActionResult(file, "text/plain"), context);
+        assertEquals(HttpServletResponse.SC_PRECONDITION_FAILED, response.getStatus());
+    }
+
+    /**
+     * Check the file is handed to the container when it supports sendfile.
+     */
+    public void testSendFile() throws Exception {
+        MockContext context = MockContext.initContext();
+        MockRequest request = context.getMockRequest();
+        request.setAttribute(FileActionResult.SENDFILE_SUPPORT, Boolean.TRUE);
+        request.setHeader("Range", "bytes=5-");
+
+        MockResponse response = render(new FileActionResult(file, "text/plain"), context);
+        assertEquals("", content(response));
+        assertEquals(file.getAbsolutePath(),
+            request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(Long.valueOf(5), request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(Long.valueOf(10), request.getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private MockResponse render(FileActionResult result, MockContext context) {
+        MockResponse response = (MockResponse) context.getResponse();
+        response.reset();
+        response.setStatus(HttpServletResponse.SC_OK);
+        result.render(context);
+        return response;
+    }
+
+    private String content(MockResponse response) throws IOException {
+        return new String(response.getBinaryContent(), "ISO-8859-1");
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.ajax;
+
+import junit.framework.TestCase;
+
+import org.apache.click.MockContext;
+import org.apache.click.control.Label;
+import org.apache.click.servlet.MockResponse;
+
+/**
+ * Provides tests for PartialActionResult.
+ */
+public class PartialActionResultTest extends TestCase {
+
+    /**
+     * Check the control and HTML fragments are rendered as one JSON object,
+     * in the order they were added.
+     */
+    public void testRender() {
+        MockContext context = MockContext.initContext();
+
+        Label label = new Label("label", "Total: 3");
+        label.setId("total");
+
+        PartialActionResult result = new PartialActionResult();
+        result.add(label);
+        result.add("message", "<p class=\"info\">Saved\n</p>");
+        result.render(context);
+
+        MockResponse response = (MockResponse) context.getResponse();
+        assertEquals("application/json", response.getContentType());
+        assertEquals("{\"total\":\"Total: 3\","
+            + "\"message\":\"<p class=\\\"info\\\">Saved\\n<\\/p>\"}",
+            response.getDocument());
+    }
+
+    /**
+     * Check controls without an id are rejected.
+     */
+    public void testAddControlWithoutId() {
+        MockContext.initContext();
+
+        try {
+            new PartialActionResult().add(new Label());
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -19,9 +19,16 @@
 package org.apache.click.control;
 
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import junit.framework.TestCase;
+import org.apache.click.ClickServlet;
 import org.apache.click.MockContext;
+import org.apache.click.servlet.MockRequest;
+import org.apache.click.servlet.MockResponse;
+import org.apache.click.servlet.MockServletConfig;
+import org.apache.click.servlet.MockServletContext;
+import org.apache.click.servlet.MockSession;
 
 /**
  * Test AbstractLink behavior.
@@ -101,4 +108,152 @@ public class AbstractLinkTest extends TestCase {
         assertEquals("Steve", link.getParameter("name"));
         assertEquals("myval", link.getValue());
     }
+
+    /**
+     * Check that an ActionLink rendered for many rows reuses its link
+     * template and renders the same href as before.
+     */
+    public void testActionLinkTemplate() {
+        MockContext.initContext();
+
+        ActionLink link = new ActionLink("edit");
+        link.setParameter("page", "2");
+        link.setParameter("id", "1");
+        link.setValue("1");
+
+        assertEquals("/mock/mock.htm?actionLink=edit&amp;value=1&amp;page=2&amp;id=1",
+            hrefOf(link));
+
+        link.setValue("2");
+        link.setParameter("id", "2");
+        assertEquals("/mock/mock.htm?actionLink=edit&amp;value=2&amp;page=2&amp;id=2",
+            hrefOf(link));
+
+        // The changed 'id' parameter is now encoded on every render
+        LinkTemplate template = link.getLinkTemplate();
+        assertTrue(template.getVariableParameters().contains("id"));
+        assertFalse(template.getVariableParameters().contains("page"));
+
+        link.setValue("a b");
+        link.setParameter("id", "a&b");
+        assertSame(template, link.getLinkTemplate());
+        assertEquals("/mock/mock.htm?actionLink=edit&amp;value=a+b&amp;page=2&amp;id=a%26b",
+            link.getHref());
+
+        // Changing a constant parameter compiles a new template
+        link.setParameter("page", "3");
+        assertEquals("/mock/mock.htm?actionLink=edit&amp;value=a+b&amp;page=3&amp;id=a%26b",
+            link.getHref());
+        assertNotSame(template, link.getLinkTemplate());
+
+        // A new request compiles a new template
+        template = link.getLinkTemplate();
+        MockContext.initContext();
+        assertNotSame(template, link.getLinkTemplate());
+    }
+
+    /**
+     * Check that a PageLink renders its href through the link template.
+     */
+    public void testPageLinkTemplate() {
+        MockContext.initContext();
+
+        PageLink link = new PageLink("view", org.apache.click.pages.ListenerPage.class);
+        String path = link.getContext().getPagePath(org.apache.click.pages.ListenerPage.class);
+
+        assertEquals("/mock" + path, link.getHref());
+
+        link.setParameter("id", "1");
+        assertEquals("/mock" + path + "?id=1", hrefOf(link));
+
+        link.setParameter("id", new String[] {"1", "2"});
+        assertEquals("/mock" + path + "?id=1&amp;id=2", hrefOf(link));
+
+        link.setParameter("id", null);
+        assertEquals("/mock" + path, hrefOf(link));
+    }
+
+    /**
+     * Check that links which override getHref render the overridden href.
+     */
+    public void testOverriddenHref() {
+        MockContext.initContext();
+
+        ActionLink actionLink = new ActionLink("edit") {
+            @Override
+            public String getHref(Object value) {
+                return "/custom/" + value;
+            }
+        };
+        actionLink.setValue("1");
+        assertEquals("/custom/1", hrefOf(actionLink));
+
+        PageLink pageLink = new PageLink("view", org.apache.click.pages.ListenerPage.class) {
+            @Override
+            public String getHref() {
+                return "/custom/view";
+            }
+        };
+        assertEquals("/custom/view", hrefOf(pageLink));
+
+        // The overridden href does not need a target page class
+        pageLink = new PageLink("view") {
+            @Override
+            public String getHref() {
+                return "/custom/view";
+            }
+        };
+        assertEquals("/custom/view", hrefOf(pageLink));
+    }
+
+    /**
+     * Check that links encode their full href when the response rewrites
+     * URLs with the session ID.
+     */
+    public void testRewrittenHref() {
+        MockServletContext servletContext = new MockServletContext();
+        MockServletConfig servletConfig =
+            new MockServletConfig("click-servlet", servletContext);
+        MockRequest request = new MockRequest(Locale.getDefault(),
+            MockServletContext.DEFAULT_CONTEXT_PATH, "/mock.htm", servletContext,
+            new MockSession(servletContext));
+
+        MockResponse response = new MockResponse() {
+            @Override
+            public String encodeURL(String url) {
+                int index = url.indexOf('?');
+                if (index == -1) {
+                    return url + ";jsessionid=1";
+                }
+                return url.substring(0, index) + ";jsessionid=1" + url.substring(index);
+            }
+        };
+
+        MockContext.initContext(servletConfig, request, response, new ClickServlet());
+
+        ActionLink actionLink = new ActionLink("edit");
+        actionLink.setParameter("id", "1");
+        actionLink.setValue("1");
+        assertEquals("/mock/mock.htm;jsessionid=1?actionLink=edit&amp;value=1&amp;id=1",
+            hrefOf(actionLink));
+
+        PageLink pageLink = new PageLink("view", org.apache.click.pages.ListenerPage.class);
+        String path = pageLink.getContext().getPagePath(org.apache.click.pages.ListenerPage.class);
+        pageLink.setParameter("id", "1");
+        assertEquals("/mock" + path + ";jsessionid=1?id=1", hrefOf(pageLink));
+    }
+
+    /**
+     * Return the href attribute rendered by the given link.
+     *
+     * @param link the link to render
+     * @return the rendered href attribute
+     */
+    private String hrefOf(AbstractLink link) {
+        String html = link.toString();
+        int start = html.indexOf("href=\"") + 6;
+        String href = html.substring(start, html.indexOf('"', start));
+        assertEquals(link.getHref(), href);
+        return href;
+    }
 }
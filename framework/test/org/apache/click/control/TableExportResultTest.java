@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.control;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import junit.framework.TestCase;
+
+import org.apache.click.Context;
+import org.apache.click.MockContext;
+import org.apache.click.dataprovider.PagingDataProvider;
+import org.apache.click.servlet.MockResponse;
+
+/**
+ * Provides tests for TableExportResult.
+ */
+public class TableExportResultTest extends TestCase {
+
+    /**
+     * Check the table row list is exported as CSV, using the column header
+     * titles and formats.
+     */
+    public void testCsv() {
+        MockContext context = MockContext.initContext(Locale.ENGLISH);
+
+        List<Item> items = new ArrayList<Item>();
+        items.add(new Item("plain", 1));
+        items.add(new Item("with, \"quote\"", 2));
+
+        Table table = new Table("items");
+        table.addColumn(new Column("name"));
+        Column total = new Column("total");
+        total.setFormat("#{0}");
+        table.addColumn(total);
+        table.setRowList(items);
+        table.setPageSize(1);
+
+        new TableExportResult(table, TableExportResult.CSV).render(context);
+
+        MockResponse response = (MockResponse) context.getResponse();
+        assertEquals("text/csv", response.getContentType());
+        assertEquals("attachment; filename=\"items.csv\"",
+            response.getHeader("Content-Disposition"));
+        assertEquals("Name,Total\r\nplain,#1\r\n\"with, \"\"quote\"\"\",#2\r\n",
+            response.getDocument());
+        assertEquals(1, table.getPageSize());
+    }
+
+    /**
+     * Check decorators are only exported when enabled, and values which
+     * start with a formula character are prefixed.
+     */
+    public void testDecoratorsAndFormulas() {
+        MockContext context = MockContext.initContext(Locale.ENGLISH);
+
+        List<Item> items = new ArrayList<Item>();
+        items.add(new Item("=HYPERLINK(\"http://example.com\")", -1));
+        items.add(new Item("@SUM(A1)", 2));
+
+        Table table = new Table("items");
+        Column name = new Column("name");
+        name.setDecorator(new Decorator() {
+            public String render(Object row, Context context) {
+                return "<b>" + ((Item) row).getName() + "</b>";
+            }
+        });
+        table.addColumn(name);
+        table.addColumn(new Column("total"));
+        table.setRowList(items);
+
+        new TableExportResult(table, TableExportResult.TSV).render(context);
+
+        MockResponse response = (MockResponse) context.getResponse();
+        assertEquals("Name\tTotal\r\n'=HYPERLINK(\"http://example.com\")\t-1\r\n"
+            + "'@SUM(A1)\t2\r\n", response.getDocument());
+
+        context = MockContext.initContext(Locale.ENGLISH);
+        TableExportResult export = new TableExportResult(table, TableExportResult.CSV);
+        export.setExportDecorators(true);
+        export.render(context);
+
+        response = (MockResponse) context.getResponse();
+        assertEquals("Name,Total\r\n\"<b>=HYPERLINK(\"\"http://example.com\"\")</b>\",-1\r\n"
+            + "<b>@SUM(A1)</b>,2\r\n", response.getDocument());
+    }
+
+    /**
+     * Check a PagingDataProvider is counted once and loaded in chunks, and
+     * numbers are typed in the spreadsheet XML.
+     */
+    public void testPagingDataProvider() {
+        MockContext context = MockContext.initContext(Locale.ENGLISH);
+
+        final Table table = new Table("items");
+        table.addColumn(new Column("name"));
+        table.addColumn(new Column("total"));
+
+        final int[] calls = new int[2];
+        table.setDataProvider(new PagingDataProvider<Item>() {
+            public List<Item> getData() {
+                calls[0]++;
+                List<Item> items = new ArrayList<Item>();
+                for (int i = table.getFirstRow(); i < table.getLastRow(); i++) {
+                    items.add(new Item("item<" + i + ">", i));
+                }
+                return items;
+            }
+
+            public int size() {
+                calls[1]++;
+                return 5;
+            }
+        });
+
+        TableExportResult export = new TableExportResult(table, TableExportResult.XML_SPREADSHEET);
+        export.setChunkSize(2);
+        export.setColumnNames("total", "name");
+        export.render(context);
+
+        assertEquals(3, calls[0]);
+        assertEquals(1, calls[1]);
+
+        String document = ((MockResponse) context.getResponse()).getDocument();
+        assertTrue(document, document.contains("<Row><Cell><Data ss:Type=\"Number\">4</Data></Cell>"
+            + "<Cell><Data ss:Type=\"String\">item&lt;4&gt;</Data></Cell></Row>"));
+        assertTrue(document, document.endsWith("</Workbook>\n"));
+    }
+
+    /**
+     * Provides an exported row.
+     */
+    public static class Item {
+        private String name;
+        private int total;
+
+        public Item(String name, int total) {
+            this.name = name;
+            this.total = total;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+    }
+}
@@ -18,6 +18,10 @@
  */
 package org.apache.click.control;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -26,6 +30,10 @@ import java.util.Locale;
 import java.util.Map;
 import junit.framework.TestCase;
 import org.apache.click.MockContext;
+import org.apache.click.dataprovider.CachingPagingDataProvider;
+import org.apache.click.dataprovider.KeysetDataProvider;
+import org.apache.click.dataprovider.PagingDataProvider;
+import org.apache.click.dataprovider.RowCountCache;
 
 /**
  * Test Table behavior.
@@ -260,4 +268,152 @@ public class TableTest extends TestCase {
         assertTrue(table.toString().contains("<th class=\"sortable\"><a href=\"/mock/mock.htm?actionLink=table-controlLink&amp;column=name&amp;page=0\">Name"));
     }
 
+    /**
+     * Check keyset paging seeks from the row keys of the current page,
+     * without a total row count.
+     */
+    public void testKeysetPaging() {
+        MockContext context = MockContext.initContext(Locale.ENGLISH, "/mock.htm");
+
+        final List<Foo> foos = new ArrayList<Foo>();
+        for (int i = 0; i < 25; i++) {
+            foos.add(new Foo("foo" + (i < 10 ? "0" : "") + i));
+        }
+
+        final Table table = new Table("table");
+        table.setPageSize(10);
+        table.setShowBanner(true);
+        table.addColumn(new Column("name"));
+        table.setDataProvider(new KeysetDataProvider<Foo>() {
+            public List<Foo> getData() {
+                int index = 0;
+                if (table.getSeekKey() != null) {
+                    for (; index < foos.size(); index++) {
+                        if (foos.get(index).getName().equals(table.getSeekKey())) {
+                            break;
+                        }
+                    }
+                }
+                if (table.getSeekKey() == null) {
+                    return foos.subList(0, table.getPageSize() + 1);
+                } else if (table.isSeekPrevious()) {
+                    return foos.subList(Math.max(0, index - table.getPageSize()), index);
+                } else {
+                    return foos.subList(index + 1,
+                        Math.min(foos.size(), index + 2 + table.getPageSize()));
+                }
+            }
+
+            public String getRowKey(Foo foo) {
+                return foo.getName();
+            }
+        });
+
+        String html = table.toString();
+        assertEquals(10, table.getRowList().size());
+        assertTrue(table.hasNextPage());
+        assertTrue(html, html.contains("Displaying 1 to 10."));
+        assertTrue(html, html.contains("<strong>1</strong>"));
+        assertTrue(html, html.contains("key=foo09"));
+        assertFalse(html, html.contains("previous=true"));
+
+        // Seek the next page
+        context.getMockRequest().setParameter("actionLink", "table-controlLink");
+        context.getMockRequest().setParameter(Table.PAGE, "2");
+        context.getMockRequest().setParameter(Table.KEY, "foo19");
+        table.onProcess();
+        table.setRowList(null);
+
+        html = table.toString();
+        assertEquals("foo20", table.getFirstRowKey());
+        assertEquals("foo24", table.getLastRowKey());
+        assertFalse(table.hasNextPage());
+        assertEquals(25, table.getRowCount());
+        assertTrue(html, html.contains("Displaying 21 to 25."));
+        assertTrue(html, html.contains("<strong>3</strong>"));
+        assertTrue(html, html.contains("key=foo20"));
+        assertTrue(html, html.contains("previous=true"));
+
+        // Seek the previous page
+        table.setPageNumber(1);
+        table.setSeekKey("foo20");
+        table.setSeekPrevious(true);
+        table.setRowList(null);
+
+        assertEquals("foo10", table.getFirstRowKey());
+        assertEquals("foo19", table.getLastRowKey());
+        assertTrue(table.hasNextPage());
+
+        // Without a seek key the first page is displayed
+        table.setPageNumber(2);
+        table.setSeekKey(null);
+        table.setRowList(null);
+
+        assertEquals("foo00", table.getFirstRowKey());
+        assertEquals(0, table.getPageNumber());
+    }
+
+    /**
+     * Check row counts are cached until they expire.
+     */
+    public void testCachingPagingDataProvider() {
+        final int[] counts = new int[1];
+        PagingDataProvider<Foo> provider = new PagingDataProvider<Foo>() {
+            public List<Foo> getData() {
+                return new ArrayList<Foo>();
+            }
+
+            public int size() {
+                counts[0]++;
+                return 42;
+            }
+        };
+
+        RowCountCache cache = new RowCountCache(60 * 1000);
+        assertEquals(42, new CachingPagingDataProvider<Foo>(provider, cache, "foos").size());
+        assertEquals(42, new CachingPagingDataProvider<Foo>(provider, cache, "foos").size());
+        assertEquals(1, counts[0]);
+
+        new CachingPagingDataProvider<Foo>(provider, cache, "bars").size();
+        assertEquals(2, counts[0]);
+
+        cache.remove("foos");
+        new CachingPagingDataProvider<Foo>(provider, cache, "foos").size();
+        assertEquals(3, counts[0]);
+
+        RowCountCache expired = new RowCountCache(0);
+        new CachingPagingDataProvider<Foo>(provider, expired, "foos").size();
+        new CachingPagingDataProvider<Foo>(provider, expired, "foos").size();
+        assertEquals(5, counts[0]);
+    }
+
+    /**
+     * Check a row count cache is serialized without its row counts.
+     */
+    public void testRowCountCacheSerialization() throws Exception {
+        RowCountCache cache = new RowCountCache(60 * 1000, 10);
+        cache.getRowCount("foos", new PagingDataProvider<Foo>() {
+            public List<Foo> getData() {
+                return new ArrayList<Foo>();
+            }
+
+            public int size() {
+                return 42;
+            }
+        });
+        assertEquals(1, cache.size());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(cache);
+        out.close();
+
+        ObjectInputStream in = new ObjectInputStream(
+            new ByteArrayInputStream(bytes.toByteArray()));
+        RowCountCache copy = (RowCountCache) in.readObject();
+        in.close();
+
+        assertEquals(0, copy.size());
+    }
+
 }
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.pages;
+
+import org.apache.click.ActionResult;
+import org.apache.click.Control;
+import org.apache.click.Page;
+import org.apache.click.ajax.AjaxControlFactory;
+import org.apache.click.ajax.DefaultAjaxBehavior;
+import org.apache.click.control.Form;
+import org.apache.click.control.TextField;
+
+/**
+ * Page which registers an Ajax control factory, and counts its onInit events.
+ */
+public class AjaxFactoryPage extends Page {
+
+    public static int inits;
+
+    /** Initialize the page control tree without Ajax behaviors. */
+    public static boolean plainInit;
+
+    public AjaxFactoryPage() {
+        addAjaxControlFactory(new AjaxControlFactory() {
+            public Control createControl() {
+                Form form = new Form("form");
+                form.add(createNameField());
+                return form;
+            }
+        });
+    }
+
+    @Override
+    public void onInit() {
+        inits++;
+
+        Form form = new Form("form");
+        if (plainInit) {
+            form.add(new TextField("name"));
+        } else {
+            form.add(createNameField());
+        }
+        addControl(form);
+    }
+
+    private TextField createNameField() {
+        final TextField field = new TextField("name");
+        field.addBehavior(new DefaultAjaxBehavior() {
+            @Override
+            public ActionResult onAction(Control source) {
+                return new ActionResult("name=" + field.getValue(), ActionResult.TEXT);
+            }
+        });
+        return field;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.pages;
+
+import org.apache.click.Page;
+import org.apache.click.element.CssImport;
+import org.apache.click.element.JsImport;
+import org.apache.click.servlet.MockResponse;
+
+/**
+ * Page which preloads its imports and flushes its head elements, and records
+ * the response output rendered before the page body.
+ */
+public class HeadFlushPage extends Page {
+
+    public String documentBeforeBody;
+
+    public HeadFlushPage() {
+        setPreloadImports(true);
+        setFlushHeadElements(true);
+
+        getHeadElements().add(new CssImport("/assets/style.css"));
+        getHeadElements().add(new JsImport("/assets/script.js"));
+    }
+
+    @Override
+    public void onRender() {
+        addModel("probe", new Object() {
+            @Override
+            public String toString() {
+                documentBeforeBody =
+                    ((MockResponse) getContext().getResponse()).getDocument();
+                return "";
+            }
+        });
+    }
+}
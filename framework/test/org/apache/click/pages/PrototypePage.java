@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.pages;
+
+import org.apache.click.ActionResult;
+import org.apache.click.Control;
+import org.apache.click.Page;
+import org.apache.click.Resettable;
+import org.apache.click.ajax.DefaultAjaxBehavior;
+import org.apache.click.control.ActionLink;
+import org.apache.click.control.Column;
+import org.apache.click.control.Form;
+import org.apache.click.control.Option;
+import org.apache.click.control.OptionGroup;
+import org.apache.click.control.Select;
+import org.apache.click.control.Submit;
+import org.apache.click.control.Table;
+import org.apache.click.control.TextField;
+
+/**
+ * Page which is reused as a prototype, and counts its instances.
+ */
+public class PrototypePage extends Page implements Resettable {
+
+    public static int instances;
+
+    public String id;
+
+    public Form form = new Form("form");
+
+    public TextField name = new TextField("name", true);
+
+    public ActionLink link = new ActionLink("link");
+
+    public Select select = new Select("select");
+
+    public OptionGroup group = new OptionGroup("group");
+
+    public Table table = new Table("table");
+
+    public Column column = new Column("name");
+
+    public int resets;
+
+    public StringBuilder notes = new StringBuilder();
+
+    public PrototypePage() {
+        instances++;
+        setPrototype(true);
+
+        name.setValue("default");
+        form.add(name);
+        group.add(new Option("default"));
+        select.add(group);
+        form.add(select);
+        form.add(new Submit("ok"));
+
+        column.setHeaderTitle("Name");
+        table.addColumn(column);
+
+        link.addBehavior(new DefaultAjaxBehavior() {
+            @Override
+            public ActionResult onAction(Control source) {
+                return new ActionResult("clicked", ActionResult.TEXT);
+            }
+        });
+    }
+
+    @Override
+    public void onPost() {
+        addModel("posted", Boolean.TRUE);
+        getHeaders().put("X-Posted", "true");
+        group.add(new Option("posted"));
+        column.setHeaderTitle("Posted");
+        notes.append("posted");
+    }
+
+    public void reset() {
+        resets++;
+        notes.setLength(0);
+    }
+}
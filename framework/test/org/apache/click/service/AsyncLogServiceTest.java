@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+/**
+ * Provides tests for AsyncLogService and LogMessage.
+ */
+public class AsyncLogServiceTest extends TestCase {
+
+    /**
+     * Check placeholder formatting and escaping.
+     */
+    public void testLogMessageFormat() {
+        assertEquals("a=1", LogMessage.format("{}={}", "a", 1));
+        assertEquals("a={}", LogMessage.format("{}={}", "a"));
+        assertEquals("{} a", LogMessage.format("\\{} {}", "a"));
+        assertEquals("list [1, 2]", LogMessage.format("list {}", new Object[] { new Object[] { 1, 2 } }));
+        assertEquals("plain", LogMessage.format("plain"));
+        assertEquals("null", LogMessage.format(null, "a"));
+    }
+
+    /**
+     * Check records are logged by the wrapped service in order, and the
+     * buffer is drained on destroy.
+     */
+    public void testWriteInOrder() throws Exception {
+        RecordingLogService recorder = new RecordingLogService();
+        recorder.setLevel(ConsoleLogService.DEBUG_LEVEL);
+
+        AsyncLogService logService = new AsyncLogService();
+        logService.setLogService(recorder);
+        logService.onInit(null);
+
+        for (int i = 0; i < 100; i++) {
+            logService.debug(new LogMessage("message {}", i));
+        }
+        logService.warn("done");
+        logService.onDestroy();
+
+        assertEquals(101, recorder.messages.size());
+        assertEquals(" [debug] message 0", recorder.messages.get(0));
+        assertEquals(" [debug] message 99", recorder.messages.get(99));
+        assertEquals(" [warn ] done", recorder.messages.get(100));
+        assertEquals(0, logService.getDroppedCount());
+    }
+
+    /**
+     * Check disabled levels are neither buffered nor formatted.
+     */
+    public void testDisabledLevel() throws Exception {
+        RecordingLogService recorder = new RecordingLogService();
+        recorder.setLevel(ConsoleLogService.INFO_LEVEL);
+
+        AsyncLogService logService = new AsyncLogService();
+        logService.setLogService(recorder);
+        logService.onInit(null);
+
+        Object arg = new Object() {
+            public String toString() {
+                fail("disabled message formatted");
+                return null;
+            }
+        };
+
+        assertFalse(logService.isDebugEnabled());
+        logService.debug(new LogMessage("value {}", arg));
+        logService.trace(new LogMessage("value {}", arg));
+        logService.info(new LogMessage("value {}", "ok"));
+        logService.onDestroy();
+
+        assertEquals(1, recorder.messages.size());
+        assertEquals(" [info ] value ok", recorder.messages.get(0));
+    }
+
+    /**
+     * Check deferred messages are formatted when logged, so later changes to
+     * their arguments are not written.
+     */
+    public void testMutableArguments() throws Exception {
+        RecordingLogService recorder = new RecordingLogService();
+        recorder.setLevel(ConsoleLogService.DEBUG_LEVEL);
+
+        AsyncLogService logService = new AsyncLogService();
+        logService.setLogService(recorder);
+        logService.onInit(null);
+
+        StringBuilder value = new StringBuilder("before");
+        logService.debug(new LogMessage("value {}", value));
+        value.setLength(0);
+        value.append("after");
+        logService.onDestroy();
+
+        assertEquals(1, recorder.messages.size());
+        assertEquals(" [debug] value before", recorder.messages.get(0));
+    }
+
+    /**
+     * Check the discard-new and discard-old drop policies.
+     */
+    public void testDropPolicy() throws Exception {
+        assertEquals("[ [info ] 0,  [info ] 1,  [info ] 2]",
+            logWhileBlocked(AsyncLogService.DISCARD_NEW).toString());
+
+        assertEquals("[ [info ] 0,  [info ] 8,  [info ] 9]",
+            logWhileBlocked(AsyncLogService.DISCARD_OLD).toString());
+    }
+
+    /**
+     * Check an invalid drop policy is rejected.
+     */
+    public void testInvalidDropPolicy() throws Exception {
+        AsyncLogService logService = new AsyncLogService();
+        logService.setDropPolicy("drop-all");
+        try {
+            logService.onInit(null);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Log ten messages to a two record buffer while the writer thread is
+     * blocked on the first message, and return the logged messages.
+     */
+    private List<String> logWhileBlocked(String dropPolicy) throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        RecordingLogService recorder = new RecordingLogService() {
+            protected void log(int level, String message, Throwable error) {
+                if (messages.isEmpty()) {
+                    writing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.log(level, message, error);
+            }
+        };
+
+        AsyncLogService logService = new AsyncLogService();
+        logService.setLogService(recorder);
+        logService.setBufferSize(2);
+        logService.setDropPolicy(dropPolicy);
+        logService.onInit(null);
+
+        logService.info("0");
+        writing.await();
+        for (int i = 1; i < 10; i++) {
+            logService.info(String.valueOf(i));
+        }
+        assertEquals(7, logService.getDroppedCount());
+
+        release.countDown();
+        logService.onDestroy();
+
+        List<String> messages = new ArrayList<String>(recorder.messages);
+        // The last message reports the dropped records
+        assertEquals(" [warn ] AsyncLogService buffer full, dropped 7 log messages",
+            messages.remove(messages.size() - 1));
+        return messages;
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Provides a console log service which records the logged messages.
+     */
+    static class RecordingLogService extends ConsoleLogService {
+
+        final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+
+        protected void log(int level, String message, Throwable error) {
+            messages.add(LEVELS[level + 1] + message);
+        }
+    }
+}
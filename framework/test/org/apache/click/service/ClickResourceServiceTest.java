@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+import org.apache.click.MockContainer;
+import org.apache.click.MockContext;
+import org.apache.click.Page;
+import org.apache.click.element.CssImport;
+import org.apache.click.element.JsImport;
+import org.apache.click.servlet.MockRequest;
+import org.apache.click.servlet.MockResponse;
+import org.apache.click.util.ClickUtils;
+import org.apache.click.util.PageImports;
+
+/**
+ * Provides tests for ClickResourceService import bundles.
+ */
+public class ClickResourceServiceTest extends TestCase {
+
+    /**
+     * Check the light CSS minification.
+     */
+    public void testMinify() {
+        ClickResourceService service = new ClickResourceService();
+
+        String css = "/* header */\n.a {\n  background: url(img/a.png);\n"
+            + "  content: \"/* kept */\";\n}\n.b { background: url('/abs.png') }\n"
+            + ".c { background: url(data:image/png;base64,AAA=) }\n";
+        assertEquals(".a {\nbackground: url(/ctx/css/img/a.png);\n"
+            + "content: \"/* kept */\";\n}\n.b { background: url('/abs.png') }\n"
+            + ".c { background: url(data:image/png;base64,AAA=) }\n",
+            service.minifyCss(css, "/ctx/css/"));
+    }
+
+    /**
+     * Check page imports are rendered as bundles, which are served with long
+     * cache headers.
+     */
+    public void testBundleImports() throws Exception {
+        File tmpdir = makeTmpDir();
+
+        PrintStream pstr = makePrintStream(tmpdir, "WEB-INF/click.xml");
+        pstr.println("<click-app>");
+        pstr.println(" <pages package='org.apache.click.pages'/>");
+        pstr.println(" <mode value='production'/>");
+        pstr.println(" <resource-service>");
+        pstr.println("  <property name='bundleImports' value='true'/>");
+        pstr.println(" </resource-service>");
+        pstr.println("</click-app>");
+        pstr.close();
+
+        makePrintStream(tmpdir, "assets/a.js").println("var a = 1");
+        makePrintStream(tmpdir, "assets/b.js").println("var b = `2\n\n    /* 3 */`;");
+        makePrintStream(tmpdir, "assets/a.css").println(".a { background: url(a.png) }");
+        makePrintStream(tmpdir, "assets/b.css").println(".b { color: red }");
+
+        MockContainer container = new MockContainer(tmpdir.getAbsolutePath());
+        container.start();
+
+        MockContext.initContext(container.getServletConfig(),
+            container.getRequest(), container.getResponse(), container.getClickServlet());
+
+        try {
+            String contextPath = container.getRequest().getContextPath();
+
+            PageImports pageImports = new PageImports(new Page());
+            pageImports.add(new JsImport("/assets/a.js"));
+            pageImports.add(new JsImport("/assets/b.js"));
+            pageImports.add(new JsImport("http://cdn.example.com/lib.js"));
+            pageImports.add(new JsImport("/assets/a.js"));
+            pageImports.add(new CssImport("/assets/a.css"));
+            pageImports.add(new CssImport("/assets/b.css"));
+
+            Map<String, Object> model = new HashMap<String, Object>();
+            pageImports.populateTemplateModel(model);
+
+            String jsElements = model.get("jsElements").toString();
+            Matcher matcher = Pattern.compile("src=\"" + contextPath
+                + "(/click/bundle/[0-9a-f]{16}\\.js)\\?resources=([^\"]+)\"").matcher(jsElements);
+            assertTrue(jsElements, matcher.find());
+            assertEquals("/assets/a.js,/assets/b.js", matcher.group(2));
+            assertTrue(jsElements.indexOf("http://cdn.example.com/lib.js") > matcher.end());
+
+            ClickResourceService service = (ClickResourceService)
+                ClickUtils.getConfigService(container.getServletContext()).getResourceService();
+
+            String jsBundlePath = matcher.group(1);
+            assertEquals("var a = 1\n;\nvar b = `2\n\n    /* 3 */`;\n;\n",
+                new String(service.bundleCache.get(jsBundlePath), "UTF-8"));
+
+            String headElements = model.get("headElements").toString();
+            matcher = Pattern.compile("href=\"" + contextPath
+                + "(/click/bundle/[0-9a-f]{16}\\.css)\\?resources=[^\"]+\"").matcher(headElements);
+            assertTrue(headElements, matcher.find());
+            assertEquals(".a { background: url(" + contextPath + "/assets/a.png) }\n"
+                + ".b { color: red }\n",
+                new String(service.bundleCache.get(matcher.group(1)), "UTF-8"));
+
+            // Serve the bundle
+            MockRequest request = container.getRequest();
+            request.setServletPath(matcher.group(1));
+            MockResponse response = new MockResponse();
+            service.renderResource(request, response);
+
+            assertEquals("text/css", response.getContentType());
+            assertEquals("public, max-age=31536000", response.getHeader("Cache-Control"));
+            assertTrue(response.getDocument().startsWith(".a {"));
+
+            // Rebuild a bundle which is not cached, as on another node
+            byte[] jsBundle = service.bundleCache.remove(jsBundlePath);
+            request.setServletPath(jsBundlePath);
+            request.setParameter(ClickResourceService.BUNDLE_RESOURCES,
+                "/assets/a.js,/assets/b.js");
+            response = new MockResponse();
+            service.renderResource(request, response);
+
+            assertEquals(200, response.getCode());
+            assertEquals(new String(jsBundle, "UTF-8"), response.getDocument());
+            assertNotNull(service.bundleCache.get(jsBundlePath));
+
+            // The bundle resources must match the bundle content
+            service.bundleCache.remove(jsBundlePath);
+            request.setParameter(ClickResourceService.BUNDLE_RESOURCES, "/assets/b.js");
+            response = new MockResponse();
+            service.renderResource(request, response);
+
+            assertEquals(404, response.getCode());
+            assertNull(service.bundleCache.get(jsBundlePath));
+
+        } finally {
+            container.stop();
+            deleteDir(tmpdir);
+        }
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private File makeTmpDir() throws IOException {
+        File tmpdir = File.createTempFile("click", "");
+        tmpdir.delete();
+        tmpdir.mkdir();
+        return tmpdir;
+    }
+
+    private PrintStream makePrintStream(File dir, String filename) throws IOException {
+        File file = new File(dir, filename);
+        file.getParentFile().mkdirs();
+        return new PrintStream(file) {
+            public void println(String line) {
+                super.println(line);
+                flush();
+            }
+        };
+    }
+
+    private void deleteDir(File dir) {
+        for (File f : dir.listFiles()) {
+            if (f.isDirectory()) {
+                deleteDir(f);
+            }
+            f.delete();
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+import org.apache.click.MockContext;
+import org.apache.click.Page;
+import org.apache.click.util.ErrorPage;
+
+/**
+ * Provides tests for DefaultMetricsService and PageMetrics.
+ */
+public class DefaultMetricsServiceTest extends TestCase {
+
+    /**
+     * Check the histogram count, mean, max and percentile approximations.
+     */
+    public void testHistogram() {
+        PageMetrics.Histogram histogram = new PageMetrics.Histogram();
+        assertEquals(0, histogram.getPercentile(95));
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getTotal());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 0.001);
+
+        // 50 falls in the [32, 64) bucket, 95 in the [64, 128) bucket capped by max
+        assertEquals(63, histogram.getPercentile(50));
+        assertEquals(100, histogram.getPercentile(95));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    /**
+     * Check that metrics are recorded per page class and exported over JMX.
+     *
+     * @throws Exception if the MBean cannot be read
+     */
+    public void testRecordAndJmxExport() throws Exception {
+        MockContext context = MockContext.initContext();
+
+        DefaultMetricsService service = new DefaultMetricsService();
+        service.onInit(context.getServletContext());
+
+        try {
+            service.recordPhase(Page.class, MetricsService.PHASE_INIT, 2000000);
+            service.recordPhase(Page.class, MetricsService.PHASE_INIT, 4000000);
+            service.recordPhase(Page.class, MetricsService.PHASE_REQUEST, 9000000);
+            service.recordResponseSize(Page.class, 1024);
+            service.recordSessionSize(Page.class, SessionFootprintAnalyzer.TOTAL, 3000);
+            service.recordException(ErrorPage.class, new IllegalStateException());
+
+            PageMetrics pageMetrics = service.getPageMetrics().get(Page.class.getName());
+            assertEquals(1, pageMetrics.getRequestCount());
+            assertEquals(2, pageMetrics.getPhaseHistogram(MetricsService.PHASE_INIT).getCount());
+            assertEquals(1024, pageMetrics.getResponseSizeHistogram().getMax());
+
+            PageMetrics errorMetrics = service.getPageMetrics().get(ErrorPage.class.getName());
+            assertEquals(1, errorMetrics.getExceptionCount());
+            assertEquals(IllegalStateException.class.getName(),
+                errorMetrics.getLastExceptionClassName());
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            Set<ObjectName> names = server.queryNames(new ObjectName(
+                DefaultMetricsService.JMX_DOMAIN + ":type=PageMetrics,page="
+                + ObjectName.quote(Page.class.getName()) + ",*"), null);
+            assertEquals(1, names.size());
+
+            ObjectName name = names.iterator().next();
+            assertEquals(Long.valueOf(1), server.getAttribute(name, "RequestCount"));
+            assertEquals(Long.valueOf(2), server.getAttribute(name, "onInitCount"));
+            assertEquals(3.0, ((Double) server.getAttribute(name, "onInitMeanMillis")).doubleValue(), 0.001);
+            assertEquals(Long.valueOf(3000), server.getAttribute(name, "SessionSizeP95"));
+
+            server.invoke(name, "reset", null, null);
+            assertEquals(0, pageMetrics.getRequestCount());
+            assertNull(pageMetrics.getSessionSizeHistogram(SessionFootprintAnalyzer.TOTAL));
+
+        } finally {
+            service.onDestroy();
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertTrue(server.queryNames(new ObjectName(
+            DefaultMetricsService.JMX_DOMAIN + ":type=PageMetrics,*"), null).isEmpty());
+    }
+}
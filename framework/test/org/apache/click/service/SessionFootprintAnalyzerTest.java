@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpSession;
+
+import junit.framework.TestCase;
+
+import org.apache.click.MockContext;
+import org.apache.click.Page;
+import org.apache.click.control.Form;
+import org.apache.click.servlet.MockRequest;
+import org.apache.click.util.ClickUtils;
+
+/**
+ * Provides tests for SessionFootprintAnalyzer.
+ */
+public class SessionFootprintAnalyzerTest extends TestCase {
+
+    /**
+     * Check the Click session state is measured per page and per control.
+     */
+    public void testAnalyze() {
+        MockContext context = MockContext.initContext();
+        MockRequest request = context.getMockRequest();
+        HttpSession session = request.getSession();
+        String path = ClickUtils.getResourcePath(request);
+
+        Map<String, Object> pageMap = new HashMap<String, Object>();
+        pageMap.put("table", new char[1000]);
+        pageMap.put("form", "small");
+        session.setAttribute(path, pageMap);
+        session.setAttribute(Page.class.getName(), new Page());
+        session.setAttribute(Form.SUBMIT_CHECK + "form" + path, "123");
+        session.setAttribute(Form.SUBMIT_CHECK + "form/other.htm", "456");
+        context.setFlashAttribute("message", "Saved");
+        session.setAttribute("user", new char[5000]);
+
+        SessionFootprintAnalyzer analyzer = new SessionFootprintAnalyzer(new ConsoleLogService());
+        Map<String, Long> footprint = analyzer.analyze(request, Page.class);
+
+        long table = footprint.get("control:table").longValue();
+        assertTrue(table > 2000);
+        assertTrue(footprint.get("control:form").longValue() < 100);
+        assertTrue(footprint.get(SessionFootprintAnalyzer.CONTROL_STATE).longValue() > table);
+        assertTrue(footprint.get(SessionFootprintAnalyzer.STATEFUL_PAGE).longValue() > 0);
+        assertTrue(footprint.get(SessionFootprintAnalyzer.FLASH).longValue() > 0);
+
+        long tokens = footprint.get(SessionFootprintAnalyzer.SUBMIT_TOKENS).longValue();
+        assertTrue(tokens > 0 && tokens < 20);
+
+        long total = footprint.get(SessionFootprintAnalyzer.TOTAL).longValue();
+        assertTrue(total < 5000);
+        assertEquals(0, analyzer.getOverrunCount());
+    }
+
+    /**
+     * Check oversized control and page state is evicted, and requests are
+     * sampled.
+     */
+    public void testBudgets() {
+        MockContext context = MockContext.initContext();
+        MockRequest request = context.getMockRequest();
+        HttpSession session = request.getSession();
+        String path = ClickUtils.getResourcePath(request);
+
+        Map<String, Object> pageMap = new HashMap<String, Object>();
+        pageMap.put("table", new char[1000]);
+        pageMap.put("form", "small");
+        session.setAttribute(path, pageMap);
+
+        SessionFootprintAnalyzer analyzer = new SessionFootprintAnalyzer(new ConsoleLogService());
+        analyzer.setSampleRate(2);
+        analyzer.setControlBudget(1000);
+        analyzer.setBudgetAction(SessionFootprintAnalyzer.EVICT);
+
+        assertNull(analyzer.analyze(request, Page.class));
+        assertNotNull(analyzer.analyze(request, Page.class));
+
+        assertEquals(1, analyzer.getOverrunCount());
+        Map<?, ?> keptMap = (Map<?, ?>) session.getAttribute(path);
+        assertFalse(keptMap.containsKey("table"));
+        assertTrue(keptMap.containsKey("form"));
+        assertEquals(2, pageMap.size());
+
+        analyzer.setSampleRate(1);
+        analyzer.setPageBudget(10);
+        session.setAttribute(Page.class.getName(), new Page());
+        analyzer.analyze(request, Page.class);
+
+        assertEquals(2, analyzer.getOverrunCount());
+        assertNull(session.getAttribute(path));
+        assertNull(session.getAttribute(Page.class.getName()));
+
+        try {
+            analyzer.setBudgetAction("drop");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.service;
+
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+import org.apache.velocity.io.VelocityWriter;
+
+/**
+ * Provides tests for VelocityWriterPool.
+ */
+public class VelocityWriterPoolTest extends TestCase {
+
+    /**
+     * Check the elastic pool grows to the render concurrency and is capped
+     * by the maximum size.
+     */
+    public void testElasticGrowth() {
+        VelocityWriterPool pool =
+            new VelocityWriterPool(VelocityWriterPool.ELASTIC, 0, 3, 60000);
+
+        VelocityWriter[] writers = new VelocityWriter[5];
+        for (int i = 0; i < writers.length; i++) {
+            assertNull(pool.get());
+            writers[i] = newWriter();
+        }
+        assertEquals(3, pool.getCapacity());
+        assertEquals(5, pool.getMisses());
+
+        for (int i = 0; i < writers.length; i++) {
+            pool.put(writers[i]);
+        }
+        assertEquals(3, pool.getSize());
+
+        assertSame(writers[2], pool.get());
+        assertSame(writers[1], pool.get());
+        assertEquals(2, pool.getHits());
+    }
+
+    /**
+     * Check idle writers are trimmed to the peak concurrency of the last
+     * interval.
+     */
+    public void testTrim() {
+        VelocityWriterPool pool =
+            new VelocityWriterPool(VelocityWriterPool.ELASTIC, 1, 10, 0);
+
+        VelocityWriter[] writers = new VelocityWriter[4];
+        for (int i = 0; i < writers.length; i++) {
+            pool.get();
+            writers[i] = newWriter();
+        }
+        assertEquals(4, pool.getCapacity());
+
+        // Each put ends the interval, shrinking the pool as renders finish
+        for (int i = 0; i < writers.length; i++) {
+            pool.put(writers[i]);
+        }
+        assertEquals(1, pool.getCapacity());
+        assertEquals(1, pool.getSize());
+        assertTrue(pool.getResizes() >= 2);
+    }
+
+    /**
+     * Check the per thread mode reuses the thread's writer.
+     */
+    public void testThreadMode() throws Exception {
+        final VelocityWriterPool pool =
+            new VelocityWriterPool(VelocityWriterPool.THREAD, 0, 1, 60000);
+
+        assertNull(pool.get());
+        VelocityWriter writer = newWriter();
+        pool.put(writer);
+        assertSame(writer, pool.get());
+        pool.put(writer);
+
+        final VelocityWriter[] other = new VelocityWriter[1];
+        Thread thread = new Thread() {
+            public void run() {
+                other[0] = pool.get();
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertNull(other[0]);
+        assertEquals(1, pool.getHits());
+        assertEquals(2, pool.getMisses());
+    }
+
+    /**
+     * Check clear releases the writers held by other threads in per thread
+     * mode.
+     */
+    public void testThreadModeClear() throws Exception {
+        final VelocityWriterPool pool =
+            new VelocityWriterPool(VelocityWriterPool.THREAD, 0, 1, 60000);
+
+        final CountDownLatch pooled = new CountDownLatch(1);
+        final CountDownLatch cleared = new CountDownLatch(1);
+        final VelocityWriter[] found = new VelocityWriter[1];
+
+        Thread thread = new Thread() {
+            public void run() {
+                pool.put(newWriter());
+                pooled.countDown();
+                try {
+                    cleared.await();
+                    found[0] = pool.get();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        thread.start();
+
+        pooled.await();
+        pool.clear();
+        cleared.countDown();
+        thread.join();
+
+        assertNull(found[0]);
+    }
+
+    /**
+     * Check invalid modes are rejected.
+     */
+    public void testInvalidMode() {
+        try {
+            new VelocityWriterPool("fixed", 0, 1, 0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private VelocityWriter newWriter() {
+        return new VelocityWriter(new StringWriter(), 64, true);
+    }
+}
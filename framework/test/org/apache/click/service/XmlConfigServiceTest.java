@@ -19,7 +19,9 @@
 package org.apache.click.service;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
@@ -28,6 +30,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Properties;
 
 import javax.servlet.ServletContext;
 import javax.servlet.UnavailableException;
@@ -47,6 +50,7 @@ import org.apache.click.util.ClickUtils;
 import org.apache.click.util.ErrorPage;
 import org.apache.click.util.Format;
 import org.apache.click.util.MessagesMap;
+import org.apache.commons.io.IOUtils;
 
 /**
  * Tests for the XmlConfigService class.
@@ -106,6 +110,282 @@ public class XmlConfigServiceTest extends TestCase {
         deleteDir(tmpdir);
     }
 
+    public void testTemplateWarmUp() throws Exception {
+        File tmpdir = makeTmpDir();
+
+        PrintStream pstr = makeXmlStream(tmpdir, "WEB-INF/click.xml");
+        pstr.println("<click-app>");
+        pstr.println(" <pages package='org.apache.click.pages'/>");
+        pstr.println(" <mode value='production'/>");
+        pstr.println(" <template-service>");
+        pstr.println("  <property name='warmUp' value='true'/>");
+        pstr.println(" </template-service>");
+        pstr.println("</click-app>");
+        pstr.close();
+
+        pstr = new PrintStream(makeFile(tmpdir, "panel/customer-panel.htm"));
+        pstr.println("#if ($customer) $customer.name #end");
+        pstr.close();
+
+        pstr = new PrintStream(makeFile(tmpdir, "broken.htm"));
+        pstr.println("#if ($customer");
+        pstr.close();
+
+        MockContainer container = new MockContainer(tmpdir.getAbsolutePath());
+        container.start();
+        ServletContext servletContext = container.getServletContext();
+        ConfigService config = ClickUtils.getConfigService(servletContext);
+
+        List<String> templates = ((XmlConfigService) config).getTemplatePathList();
+        assertTrue(templates.contains("/panel/customer-panel.htm"));
+        assertTrue(templates.contains("/broken.htm"));
+
+        assertTrue(TemplateWarmUp.isReady(servletContext));
+        TemplateWarmUp warmUp =
+            ((VelocityTemplateService) config.getTemplateService()).templateWarmUp;
+        assertTrue(warmUp.isReady());
+        assertEquals(Collections.singleton("/broken.htm"), warmUp.getFailures().keySet());
+
+        container.stop();
+
+        deleteDir(tmpdir);
+    }
+
+    public void testDeployManifest() throws Exception {
+        File tmpdir = makeTmpDir();
+
+        PrintStream pstr = makeXmlStream(tmpdir, "WEB-INF/click.xml");
+        pstr.println("<click-app>");
+        pstr.println(" <pages package='org.apache.click.pages'/>");
+        pstr.println("</click-app>");
+        pstr.close();
+
+        MockContainer container = new MockContainer(tmpdir.getAbsolutePath());
+        container.start();
+        container.stop();
+
+        File manifestFile = new File(tmpdir, DeployManifest.MANIFEST_PATH);
+        assertTrue(manifestFile.exists());
+
+        Properties manifest = new Properties();
+        FileInputStream fis = new FileInputStream(manifestFile);
+        manifest.load(fis);
+        fis.close();
+
+        File tableCss = new File(tmpdir, "click/table.css");
+        String tableCssHash = manifest.getProperty("click/table.css");
+        assertNotNull(tableCssHash);
+        assertEquals(tableCssHash, ClickUtils.toContentHash(readFile(tableCss)));
+
+        // Simulate older deployed versions of table.css and control.css,
+        // where control.css was modified after it was deployed
+        pstr = new PrintStream(tableCss);
+        pstr.print("old");
+        pstr.close();
+        manifest.setProperty("click/table.css", ClickUtils.toContentHash("old".getBytes()));
+
+        File controlCss = new File(tmpdir, "click/control.css");
+        pstr = new PrintStream(controlCss);
+        pstr.print("custom");
+        pstr.close();
+        manifest.setProperty("click/control.css", ClickUtils.toContentHash("old".getBytes()));
+
+        // Simulate an unchanged control.js missing from the manifest
+        String controlJsHash = manifest.getProperty("click/control.js");
+        assertNotNull(controlJsHash);
+        manifest.remove("click/control.js");
+
+        FileOutputStream fos = new FileOutputStream(manifestFile);
+        manifest.store(fos, null);
+        fos.close();
+
+        container = new MockContainer(tmpdir.getAbsolutePath());
+        container.start();
+        container.stop();
+
+        assertEquals(tableCssHash, ClickUtils.toContentHash(readFile(tableCss)));
+        assertEquals("custom", new String(readFile(controlCss)));
+
+        manifest = new Properties();
+        fis = new FileInputStream(manifestFile);
+        manifest.load(fis);
+        fis.close();
+        assertEquals(controlJsHash, manifest.getProperty("click/control.js"));
+
+        deleteDir(tmpdir);
+    }
+
+    public void testDeployControlManifest() throws Exception {
+        File tmpdir = makeTmpDir();
+
+        PrintStream pstr = makeXmlStream(tmpdir, "WEB-INF/click.xml");
+        pstr.println("<click-app>");
+        pstr.println(" <pages package='org.apache.click.pages'/>");
+        pstr.println(" <controls>");
+        pstr.println("  <control classname='org.apache.click.service.XmlConfigServiceTest$DeployControl'/>");
+        pstr.println(" </controls>");
+        pstr.println("</click-app>");
+        pstr.close();
+
+        MockContainer container = new MockContainer(tmpdir.getAbsolutePath());
+        container.start();
+        container.stop();
+
+        File manifestFile = new File(tmpdir, DeployManifest.MANIFEST_PATH);
+        Properties manifest = new Properties();
+        FileInputStream fis = new FileInputStream(manifestFile);
+        manifest.load(fis);
+        fis.close();
+
+        File dtd = new File(tmpdir, "click/test/click.dtd");
+        String dtdHash = manifest.getProperty("click/test/click.dtd");
+        assertNotNull(dtdHash);
+        assertEquals(dtdHash, ClickUtils.toContentHash(readFile(dtd)));
+
+        // Simulate an older deployed version of the control file
+        pstr = new PrintStream(dtd);
+        pstr.print("old");
+        pstr.close();
+        manifest.setProperty("click/test/click.dtd", ClickUtils.toContentHash("old".getBytes()));
+
+        FileOutputStream fos = new FileOutputStream(manifestFile);
+        manifest.store(fos, null);
+        fos.close();
+
+        container = new MockContainer(tmpdir.getAbsolutePath());
+        container.start();
+        container.stop();
+
+        assertEquals(dtdHash, ClickUtils.toContentHash(readFile(dtd)));
+
+        deleteDir(tmpdir);
+    }
+
+    static public class DeployControl extends AbstractControl {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void onDeploy(ServletContext servletContext) {
+            ClickUtils.deployFile(servletContext, "/org/apache/click/click.dtd", "click/test");
+        }
+    }
+
+    public void testDeployMemory() throws Exception {
+        File tmpdir = makeTmpDir();
+
+        PrintStream pstr = makeXmlStream(tmpdir, "WEB-INF/click.xml");
+        pstr.println("<click-app>");
+        pstr.println(" <pages package='org.apache.click.pages'/>");
+        pstr.println(" <mode value='production'/>");
+        pstr.println(" <deploy mode='memory'/>");
+        pstr.println("</click-app>");
+        pstr.close();
+
+        MockContainer container = new MockContainer(tmpdir.getAbsolutePath());
+        container.start();
+        ConfigService config = ClickUtils.getConfigService(container.getServletContext());
+
+        assertEquals(XmlConfigService.DEPLOY_MEMORY, ((XmlConfigService) config).getDeployMode());
+        assertFalse(new File(tmpdir, "click").exists());
+
+        ClickResourceService resourceService =
+            (ClickResourceService) config.getResourceService();
+        assertEquals("META-INF/resources/click/table.css",
+            resourceService.resourceIndex.get("/click/table.css"));
+        assertNotNull(resourceService.resourceCache.get("/click/table.css"));
+
+        container.stop();
+
+        deleteDir(tmpdir);
+    }
+
+    public void testPageManifest() throws Exception {
+        File tmpdir = makeTmpDir();
+
+        PrintStream pstr = makeXmlStream(tmpdir, "WEB-INF/click.xml");
+        pstr.println("<click-app>");
+        pstr.println(" <pages package='org.apache.click.pages'/>");
+        pstr.println(" <mode value='production'/>");
+        pstr.println("</click-app>");
+        pstr.close();
+
+        makeFile(tmpdir, "BinaryPage.htm").createNewFile();
+        makeFile(tmpdir, "unmapped.htm").createNewFile();
+
+        // Scan the pages and create the manifest
+        MockContainer container = new MockContainer(tmpdir.getAbsolutePath());
+        container.start();
+
+        PageManifest manifest = PageManifest.create(container.getServletContext());
+        assertEquals(Collections.singletonMap("/BinaryPage.htm", BinaryPage.class.getName()),
+            manifest.getPageClassNames());
+        assertTrue(manifest.getTemplates().contains("/unmapped.htm"));
+        manifest.save(tmpdir);
+
+        container.stop();
+
+        // The page classes are loaded from the manifest, not scanned
+        File manifestFile = new File(tmpdir, PageManifest.MANIFEST_PATH);
+        setManifestPage(manifestFile, "/BinaryPage.htm", ListenerPage.class.getName());
+
+        container = new MockContainer(tmpdir.getAbsolutePath());
+        container.start();
+        ConfigService config = ClickUtils.getConfigService(container.getServletContext());
+
+        assertEquals(ListenerPage.class, config.getPageClass("/BinaryPage.htm"));
+
+        container.stop();
+
+        // A manifest is stale when templates were added after it was created
+        makeFile(tmpdir, "ListenerPage.htm").createNewFile();
+
+        container = new MockContainer(tmpdir.getAbsolutePath());
+        container.start();
+        config = ClickUtils.getConfigService(container.getServletContext());
+
+        assertEquals(BinaryPage.class, config.getPageClass("/BinaryPage.htm"));
+        assertTrue(((XmlConfigService) config).getTemplatePathList().contains("/ListenerPage.htm"));
+        assertEquals(ListenerPage.class, config.getPageClass("/ListenerPage.htm"));
+
+        manifest = PageManifest.create(container.getServletContext());
+        manifest.save(tmpdir);
+
+        container.stop();
+
+        // A manifest with a missing class is stale
+        setManifestPage(manifestFile, "/BinaryPage.htm", "org.apache.click.pages.Missing");
+
+        container = new MockContainer(tmpdir.getAbsolutePath());
+        container.start();
+        config = ClickUtils.getConfigService(container.getServletContext());
+
+        assertEquals(BinaryPage.class, config.getPageClass("/BinaryPage.htm"));
+        assertEquals(ListenerPage.class, config.getPageClass("/ListenerPage.htm"));
+
+        container.stop();
+
+        // A manifest created from another click.xml is stale
+        manifest.save(tmpdir);
+        setManifestPage(manifestFile, "/ListenerPage.htm", BinaryPage.class.getName());
+
+        pstr = makeXmlStream(tmpdir, "WEB-INF/click.xml");
+        pstr.println("<click-app>");
+        pstr.println(" <pages package='org.apache.click.pages' autobinding='none'/>");
+        pstr.println(" <mode value='production'/>");
+        pstr.println("</click-app>");
+        pstr.close();
+
+        container = new MockContainer(tmpdir.getAbsolutePath());
+        container.start();
+        config = ClickUtils.getConfigService(container.getServletContext());
+
+        assertEquals(ListenerPage.class, config.getPageClass("/ListenerPage.htm"));
+
+        container.stop();
+
+        deleteDir(tmpdir);
+    }
+
     public void testExcludes() throws Exception {
         File tmpdir = makeTmpDir();
 
@@ -700,6 +980,19 @@ public class XmlConfigServiceTest extends TestCase {
     }
 
 
+    private void setManifestPage(File manifestFile, String path, String classname)
+            throws Exception {
+
+        Properties entries = new Properties();
+        FileInputStream in = new FileInputStream(manifestFile);
+        entries.load(in);
+        in.close();
+        entries.setProperty(PageManifest.PAGE_PREFIX + path, classname);
+        FileOutputStream out = new FileOutputStream(manifestFile);
+        entries.store(out, null);
+        out.close();
+    }
+
     private File makeTmpDir() throws IOException {
         File tmpdir = File.createTempFile("click", "");
         tmpdir.delete();
@@ -714,6 +1007,15 @@ public class XmlConfigServiceTest extends TestCase {
         return pstr;
     }
 
+    private byte[] readFile(File file) throws IOException {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            return IOUtils.toByteArray(fis);
+        } finally {
+            fis.close();
+        }
+    }
+
     private File makeFile(File dir, String filename) {
         File file = new File(dir, filename);
         file.getParentFile().mkdirs();
@@ -78,4 +78,55 @@ public class HtmlStringBufferTest extends TestCase {
         assertEquals(" disabled=\"disabled\"", buffer.toString());
     }
 
+    /**
+     * Check that appendUrlEncoded encodes values exactly as URLEncoder.
+     */
+    public void testAppendUrlEncoded() throws Exception {
+        String[] values = {
+            "", "abcXYZ019", "a b+c", ".-*_~!'()", "<script>&amp;",
+            "\u00e9t\u00e9", "\u20ac 100", "\ud83d\ude00", "bad\ud83d", "\ude00bad"
+        };
+
+        for (String value : values) {
+            HtmlStringBuffer buffer = new HtmlStringBuffer(2);
+            buffer.appendUrlEncoded(value, null);
+            assertEquals(java.net.URLEncoder.encode(value, "UTF-8"), buffer.toString());
+
+            buffer = new HtmlStringBuffer();
+            buffer.appendUrlEncoded(value, "ISO-8859-1");
+            assertEquals(java.net.URLEncoder.encode(value, "ISO-8859-1"), buffer.toString());
+        }
+    }
+
+    /**
+     * Check that clean spans and escaped characters are appended in order
+     * for the XML and HTML entity sets.
+     */
+    public void testAppendEscapedSpans() {
+        HtmlStringBuffer buffer = new HtmlStringBuffer(4);
+        buffer.appendEscaped("Smith & Sons <\"Ltd\"> 'plc'");
+        assertEquals("Smith &amp; Sons &lt;&quot;Ltd&quot;&gt; &#039;plc&#039;",
+            buffer.toString());
+
+        buffer = new HtmlStringBuffer(4);
+        buffer.appendEscaped("&&");
+        buffer.appendEscaped("");
+        buffer.appendEscaped("plain text");
+        assertEquals("&amp;&amp;plain text", buffer.toString());
+
+        // The HTML entity set escapes non ASCII characters but not quotes
+        buffer = new HtmlStringBuffer(4);
+        buffer.appendHtmlEscaped("\u20ac 10 & caf\u00e9's");
+        assertEquals("&euro; 10 &amp; caf&eacute;'s", buffer.toString());
+        assertEquals("caf&eacute;", ClickUtils.escapeHtml("caf\u00e9"));
+
+        // Characters between 64 and 127 are never escaped
+        StringBuilder ascii = new StringBuilder();
+        for (char ch = 64; ch < 128; ch++) {
+            ascii.append(ch);
+        }
+        buffer = new HtmlStringBuffer(4);
+        buffer.appendEscaped(ascii);
+        assertEquals(ascii.toString(), buffer.toString());
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click.util;
+
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import junit.framework.TestCase;
+
+/**
+ * Tests for ValidatorRegistry.
+ */
+public class ValidatorRegistryTest extends TestCase {
+
+    /**
+     * Check that compiled patterns are shared.
+     */
+    public void testGetPattern() {
+        Pattern pattern = ValidatorRegistry.getPattern("[0-9]+");
+        assertSame(pattern, ValidatorRegistry.getPattern("[0-9]+"));
+
+        assertTrue(ValidatorRegistry.matches("[0-9]+", "123"));
+        assertFalse(ValidatorRegistry.matches("[0-9]+", "12a"));
+
+        try {
+            ValidatorRegistry.getPattern("[0-9");
+            fail();
+        } catch (java.util.regex.PatternSyntaxException expected) {
+        }
+    }
+
+    /**
+     * Check that number formats are independent copies of the locale format.
+     */
+    public void testGetNumberFormat() throws Exception {
+        NumberFormat format = ValidatorRegistry.getNumberFormat(Locale.GERMANY, null);
+        NumberFormat other = ValidatorRegistry.getNumberFormat(Locale.GERMANY, null);
+        assertNotSame(format, other);
+        assertEquals(1234.5, format.parse("1.234,5").doubleValue(), 0.0001);
+
+        // Changing a returned format does not change the cached prototype
+        format.setMaximumFractionDigits(0);
+        assertEquals("1.234,5",
+            ValidatorRegistry.getNumberFormat(Locale.GERMANY, null).format(1234.5));
+
+        NumberFormat patterned = ValidatorRegistry.getNumberFormat(Locale.US, "0.00");
+        assertEquals("3.10", patterned.format(3.1));
+    }
+
+    /**
+     * Check that messages are formatted as MessageFormat would.
+     */
+    public void testFormatMessage() {
+        String[] patterns = {
+            "plain message", "{0} is required", "{0} must be at least {1} characters",
+            "It''s {0}", "'{0}' is quoted"
+        };
+        for (String pattern : patterns) {
+            assertEquals(MessageFormat.format(pattern, "Name", 5),
+                ValidatorRegistry.formatMessage(pattern, "Name", 5));
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+import org.apache.click.service.ConfigService;
+import org.apache.click.util.ClickUtils;
+
+/**
+ * Provides a build tool which records the classes loaded when every page of
+ * a web application is rendered once, to reduce the class loading cost of
+ * the first requests after the application starts.
+ * <p/>
+ * The application is started in a {@link MockContainer} and each page of
+ * {@link ConfigService#getPageClassList()} is requested once. The
+ * application is run in an isolated class loader created from the
+ * <tt>java.class.path</tt>, which records every class it loads. The tool
+ * writes:
+ * <ul>
+ * <li>a JDK class list, with one <tt>java/lang/String</tt> style name per
+ * line, which can be used to dump an application class data sharing
+ * archive</li>
+ * <li>optionally, the <tt>WEB-INF/click-preload.txt</tt> list of the
+ * application, framework and library classes, which the
+ * {@link ClickServlet} loads in parallel at startup</li>
+ * </ul>
+ * For example:
+ *
+ * <pre class="codeHtml">
+ * java -cp click.jar:click-mock.jar:... org.apache.click.ClassListBuilder build/web app.classlist -preload
+ *
+ * java -Xshare:dump -XX:SharedClassListFile=app.classlist -XX:SharedArchiveFile=app.jsa -cp ...
+ * java -Xshare:auto -XX:SharedArchiveFile=app.jsa ... </pre>
+ *
+ * Please note the archive must be dumped with the same class path the
+ * servlet container is started with, and classes loaded by the container's
+ * web application class loader are only archived by JDKs which support
+ * custom class loaders in class lists. Pages which fail to render without
+ * request parameters still contribute the classes loaded up to the failure.
+ */
+public class ClassListBuilder {
+
+    // -------------------------------------------------------- Public methods
+
+    /**
+     * Record the classes loaded by the given web application directory and
+     * write the class lists.
+     *
+     * @param args the web application directory, the class list file and
+     * the optional <tt>-preload</tt> flag
+     * @throws Exception if the application could not be crawled or the
+     * class lists could not be written
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || args.length > 3
+            || (args.length == 3 && !"-preload".equals(args[2]))) {
+            System.err.println("usage: ClassListBuilder <webapp-dir> <classlist-file> [-preload]");
+            System.exit(1);
+        }
+
+        Map<String, Boolean> classes = record(args[0]);
+
+        writeClassList(classes, new File(args[1]));
+
+        System.out.println("wrote " + classes.size() + " classes to " + args[1]);
+
+        if (args.length == 3) {
+            File preloadFile = new File(args[0], "WEB-INF/click-preload.txt");
+            int count = writePreloadList(classes, preloadFile);
+
+            System.out.println("wrote " + count + " classes to " + preloadFile);
+        }
+    }
+
+    /**
+     * Start the given web application in an isolated class loader, request
+     * each page once and return the loaded class names in load order. The
+     * map value is true if the class was loaded from the class path, and
+     * false if it was loaded by the JDK.
+     *
+     * @param webappPath the web application directory
+     * @return the loaded class names in load order
+     * @throws Exception if the application could not be crawled
+     */
+    public static Map<String, Boolean> record(String webappPath) throws Exception {
+        RecordingClassLoader classLoader = new RecordingClassLoader(
+            getClassPath(), ClassLoader.getSystemClassLoader().getParent());
+
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader);
+
+        try {
+            Class<?> crawlerClass = classLoader.loadClass(ClassListBuilder.class.getName());
+            Method crawl = crawlerClass.getMethod("crawl", String.class);
+            crawl.invoke(null, webappPath);
+
+        } catch (InvocationTargetException ite) {
+            Throwable cause = ite.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw ite;
+
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+
+        return classLoader.getClasses();
+    }
+
+    /**
+     * Start the given web application, request each page once and stop the
+     * application. This method is invoked in the recording class loader.
+     *
+     * @param webappPath the web application directory
+     * @return the number of pages rendered without error
+     */
+    public static int crawl(String webappPath) {
+        MockContainer container = new MockContainer(webappPath);
+        container.start();
+
+        int count = 0;
+        try {
+            ConfigService configService =
+                ClickUtils.getConfigService(container.getServletContext());
+
+            for (Class<? extends Page> pageClass : configService.getPageClassList()) {
+                try {
+                    container.testPage(pageClass);
+                    count++;
+
+                } catch (Throwable t) {
+                    System.err.println("could not render " + pageClass.getName()
+                        + ": " + t);
+                }
+            }
+
+        } finally {
+            container.stop();
+        }
+
+        return count;
+    }
+
+    /**
+     * Write the JDK class list of the given classes.
+     *
+     * @param classes the loaded class names
+     * @param file the class list file
+     * @throws IOException if the file could not be written
+     */
+    public static void writeClassList(Map<String, Boolean> classes, File file)
+        throws IOException {
+
+        List<String> lines = new ArrayList<String>();
+        for (String classname : classes.keySet()) {
+            lines.add(classname.replace('.', '/'));
+        }
+        writeLines(lines, file);
+    }
+
+    /**
+     * Write the preload list of the given classes loaded from the class path,
+     * returning the number of classes written.
+     *
+     * @param classes the loaded class names
+     * @param file the preload list file
+     * @return the number of classes written
+     * @throws IOException if the file could not be written
+     */
+    public static int writePreloadList(Map<String, Boolean> classes, File file)
+        throws IOException {
+
+        List<String> lines = new ArrayList<String>();
+        for (Map.Entry<String, Boolean> entry : classes.entrySet()) {
+            if (entry.getValue().booleanValue()
+                && !entry.getKey().equals(ClassListBuilder.class.getName())) {
+                lines.add(entry.getKey());
+            }
+        }
+        writeLines(lines, file);
+        return lines.size();
+    }
+
+    // -------------------------------------------------------- Private methods
+
+    /**
+     * Return the <tt>java.class.path</tt> entries as URLs.
+     *
+     * @return the class path URLs
+     * @throws MalformedURLException if a class path entry is invalid
+     */
+    private static URL[] getClassPath() throws MalformedURLException {
+        List<URL> urls = new ArrayList<URL>();
+        StringTokenizer tokenizer = new StringTokenizer(
+            System.getProperty("java.class.path"), File.pathSeparator);
+        while (tokenizer.hasMoreTokens()) {
+            urls.add(new File(tokenizer.nextToken()).toURI().toURL());
+        }
+        return urls.toArray(new URL[urls.size()]);
+    }
+
+    /**
+     * Write the given lines to the file using UTF-8.
+     *
+     * @param lines the lines to write
+     * @param file the file to write
+     * @throws IOException if the file could not be written
+     */
+    private static void writeLines(List<String> lines, File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null) {
+            dir.mkdirs();
+        }
+
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+            new FileOutputStream(file), "UTF-8"));
+        try {
+            for (String line : lines) {
+                writer.print(line);
+                writer.print('\n');
+            }
+        } finally {
+            writer.close();
+        }
+        if (writer.checkError()) {
+            throw new IOException("could not write " + file);
+        }
+    }
+
+    // -------------------------------------------------------- Inner classes
+
+    /**
+     * Provides a class loader which records the names of the classes it
+     * loads, and whether they were defined from its class path.
+     */
+    static class RecordingClassLoader extends URLClassLoader {
+
+        /** The loaded class names in load order. */
+        private final Map<String, Boolean> classes =
+            Collections.synchronizedMap(new LinkedHashMap<String, Boolean>());
+
+        /**
+         * Create a recording class loader for the given class path.
+         *
+         * @param urls the class path URLs
+         * @param parent the parent class loader, which loads the JDK classes
+         */
+        RecordingClassLoader(URL[] urls, ClassLoader parent) {
+            super(urls, parent);
+        }
+
+        /**
+         * Return the loaded class names in load order.
+         *
+         * @return the loaded class names
+         */
+        Map<String, Boolean> getClasses() {
+            synchronized (classes) {
+                return new LinkedHashMap<String, Boolean>(classes);
+            }
+        }
+
+        /**
+         * @see ClassLoader#loadClass(String, boolean)
+         *
+         * @param name the class name
+         * @param resolve the resolve the class flag
+         * @return the loaded class
+         * @throws ClassNotFoundException if the class is not found
+         */
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve)
+            throws ClassNotFoundException {
+
+            Class<?> loadedClass = super.loadClass(name, resolve);
+
+            if (name.charAt(0) != '[' && !classes.containsKey(name)) {
+                classes.put(name, Boolean.valueOf(loadedClass.getClassLoader() == this));
+            }
+
+            return loadedClass;
+        }
+    }
+}
@@ -0,0 +1,748 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.click.servlet.MockRequest;
+import org.apache.click.servlet.MockResponse;
+import org.apache.click.servlet.MockSession;
+import org.apache.click.util.ClickUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Provides a multi-threaded load driver which replays scripted page requests
+ * against the ClickServlet of a started {@link MockContainer}, and reports
+ * throughput, latency percentiles, error counts and allocation per request.
+ * <p/>
+ * Each client thread has its own {@link MockSession} and creates a new
+ * request and response for every page request, so sessions and the
+ * thread local Context are exercised as they would be in a servlet
+ * container. For example:
+ *
+ * <pre class="prettyprint">
+ * MockContainer container = new MockContainer("web");
+ * container.start();
+ *
+ * MockLoadDriver driver = new MockLoadDriver(container);
+ * driver.setThreads(8);
+ * driver.setIterations(500);
+ *
+ * MockLoadReport report = driver.run(new MockLoadDriver.Script() {
+ *     public void execute(MockLoadDriver.Client client) {
+ *         client.get(CustomerListPage.class);
+ *         client.setParameter("name", "Smith").post("/customer-edit.htm");
+ *     }
+ * });
+ *
+ * System.out.println(report);
+ * container.stop();
+ * </pre>
+ *
+ * Scripts can also be recorded as plain text, one request per line, using
+ * {@link RecordedScript#parse(String)}:
+ *
+ * <pre class="codeConfig">
+ * GET /customer-list.htm
+ * POST /customer-edit.htm?name=Smith&amp;age=42 </pre>
+ *
+ * Please note the driver uses platform threads and requests are dispatched
+ * directly to the ClickServlet, so the report measures the framework and the
+ * application pages without any network or servlet container overhead.
+ */
+public class MockLoadDriver {
+
+    // -------------------------------------------------------- Private variables
+
+    /** The started container to drive. */
+    private final MockContainer container;
+
+    /** The number of client threads, default is 4. */
+    private int threads = 4;
+
+    /** The number of measured script iterations per thread, default is 100. */
+    private int iterations = 100;
+
+    /** The number of unmeasured warmup iterations per thread, default is 10. */
+    private int warmupIterations = 10;
+
+    /** The measurement duration in milliseconds, default is 0 (not used). */
+    private long duration;
+
+    // -------------------------------------------------------- Constructors
+
+    /**
+     * Create a new load driver for the given started container.
+     *
+     * @param container the started container to drive
+     */
+    public MockLoadDriver(MockContainer container) {
+        if (container == null) {
+            throw new IllegalArgumentException("container cannot be null");
+        }
+        this.container = container;
+    }
+
+    // -------------------------------------------------------- Public getters/setters
+
+    /**
+     * Return the number of client threads.
+     *
+     * @return the number of client threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Set the number of client threads.
+     *
+     * @param threads the number of client threads
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Return the number of measured script iterations per thread.
+     *
+     * @return the number of measured script iterations per thread
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Set the number of measured script iterations per thread. The iterations
+     * are ignored if a {@link #setDuration(long) duration} is set.
+     *
+     * @param iterations the number of measured script iterations per thread
+     */
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * Return the number of unmeasured warmup iterations per thread.
+     *
+     * @return the number of unmeasured warmup iterations per thread
+     */
+    public int getWarmupIterations() {
+        return warmupIterations;
+    }
+
+    /**
+     * Set the number of unmeasured warmup iterations per thread. Warmup
+     * iterations run before the measurement starts, allowing templates to be
+     * loaded and the JIT compiler to settle.
+     *
+     * @param warmupIterations the number of warmup iterations per thread
+     */
+    public void setWarmupIterations(int warmupIterations) {
+        this.warmupIterations = warmupIterations;
+    }
+
+    /**
+     * Return the measurement duration in milliseconds.
+     *
+     * @return the measurement duration in milliseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Set the measurement duration in milliseconds. If the duration is
+     * greater than zero each thread repeats the script until the duration
+     * elapsed, instead of running a fixed number of iterations.
+     *
+     * @param duration the measurement duration in milliseconds
+     */
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    // -------------------------------------------------------- Public methods
+
+    /**
+     * Run the given script concurrently on the configured number of client
+     * threads and return the load report.
+     *
+     * @param script the script to execute by each client
+     * @return the load report
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public MockLoadReport run(Script script) throws InterruptedException {
+        if (script == null) {
+            throw new IllegalArgumentException("script cannot be null");
+        }
+        if (container.getClickServlet() == null) {
+            throw new IllegalStateException("Container has not been started yet. Call start() first.");
+        }
+
+        final CountDownLatch ready = new CountDownLatch(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        List<Worker> workers = new ArrayList<Worker>(threads);
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(new Client(i), script, ready, start, done);
+            workers.add(worker);
+            Thread thread = new Thread(worker, "MockLoadDriver-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        ready.await();
+        long startTime = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - startTime;
+
+        int requestCount = 0;
+        long errorCount = 0;
+        long allocatedBytes = 0;
+        for (Worker worker : workers) {
+            requestCount += worker.client.latencyCount;
+            errorCount += worker.client.errors.get();
+            if (worker.allocatedBytes < 0) {
+                allocatedBytes = -1;
+            } else if (allocatedBytes >= 0) {
+                allocatedBytes += worker.allocatedBytes;
+            }
+        }
+
+        long[] latencies = new long[requestCount];
+        int offset = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.client.latencies, 0, latencies, offset,
+                worker.client.latencyCount);
+            offset += worker.client.latencyCount;
+        }
+
+        return new MockLoadReport(threads, latencies, errorCount, elapsed,
+            allocatedBytes);
+    }
+
+    // -------------------------------------------------------- Inner classes
+
+    /**
+     * Provides the script of page requests executed by each client on every
+     * iteration.
+     */
+    public interface Script {
+
+        /**
+         * Execute the page requests of one iteration using the given client.
+         *
+         * @param client the client to issue page requests with
+         * @throws Exception if the script fails, counted as an error
+         */
+        void execute(Client client) throws Exception;
+    }
+
+    /**
+     * Provides a simulated browser, with its own session, used by a
+     * {@link Script} to issue page requests. A client is confined to a single
+     * thread.
+     */
+    public class Client {
+
+        /** The client index. */
+        private final int index;
+
+        /** The client session. */
+        private final MockSession session;
+
+        /** The parameters for the next request. */
+        private final Map<String, String[]> parameters =
+            new LinkedHashMap<String, String[]>();
+
+        /** The number of errors. */
+        private final AtomicLong errors = new AtomicLong();
+
+        /** The request latencies in nanoseconds. */
+        private long[] latencies = new long[256];
+
+        /** The number of recorded latencies. */
+        private int latencyCount;
+
+        /** Indicates if latencies are recorded. */
+        private boolean recording;
+
+        /** The last response. */
+        private MockResponse lastResponse;
+
+        /**
+         * Create a new client with the given index.
+         *
+         * @param index the client index
+         */
+        Client(int index) {
+            this.index = index;
+            this.session = new MockSession(container.getServletContext());
+        }
+
+        /**
+         * Return the client index, between 0 and the number of threads - 1.
+         *
+         * @return the client index
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Return the client session.
+         *
+         * @return the client session
+         */
+        public MockSession getSession() {
+            return session;
+        }
+
+        /**
+         * Return the response of the last request, or null if no request
+         * was made.
+         *
+         * @return the response of the last request
+         */
+        public MockResponse getLastResponse() {
+            return lastResponse;
+        }
+
+        /**
+         * Set the parameter for the next request.
+         *
+         * @param name the parameter name
+         * @param value the parameter value
+         * @return this client, to enable method chaining
+         */
+        public Client setParameter(String name, String value) {
+            parameters.put(name, new String[] {value});
+            return this;
+        }
+
+        /**
+         * Set the parameter values for the next request.
+         *
+         * @param name the parameter name
+         * @param values the parameter values
+         * @return this client, to enable method chaining
+         */
+        public Client setParameter(String name, String[] values) {
+            parameters.put(name, values);
+            return this;
+        }
+
+        /**
+         * Request (GET) the given page class.
+         *
+         * @param pageClass the page class to request
+         * @return the response
+         */
+        public MockResponse get(Class<? extends Page> pageClass) {
+            return request("GET", getPagePath(pageClass));
+        }
+
+        /**
+         * Submit (POST) the given page class.
+         *
+         * @param pageClass the page class to submit
+         * @return the response
+         */
+        public MockResponse post(Class<? extends Page> pageClass) {
+            return request("POST", getPagePath(pageClass));
+        }
+
+        /**
+         * Request (GET) the given path. The path can include a query string.
+         *
+         * @param path the page path
+         * @return the response
+         */
+        public MockResponse get(String path) {
+            return request("GET", path);
+        }
+
+        /**
+         * Submit (POST) the given path. The path can include a query string.
+         *
+         * @param path the page path
+         * @return the response
+         */
+        public MockResponse post(String path) {
+            return request("POST", path);
+        }
+
+        /**
+         * Dispatch a request with the given method and path to the
+         * ClickServlet, and record its latency. The pending parameters are
+         * cleared after the request.
+         * <p/>
+         * The request is counted as an error if the ClickServlet throws an
+         * exception, the response status is 400 or above, or the path is not
+         * mapped to a page.
+         *
+         * @param method the HTTP method
+         * @param path the page path, optionally including a query string
+         * @return the response
+         */
+        public MockResponse request(String method, String path) {
+            if (StringUtils.isBlank(path)) {
+                throw new IllegalArgumentException("path cannot be blank");
+            }
+
+            MockRequest request = new MockRequest(getLocale(),
+                container.getServletContext(), session);
+            request.setMethod(method);
+
+            String servletPath = path;
+            int queryIndex = path.indexOf('?');
+            if (queryIndex != -1) {
+                servletPath = path.substring(0, queryIndex);
+                addQueryParameters(request, path.substring(queryIndex + 1));
+            }
+            if (servletPath.charAt(0) != '/') {
+                servletPath = '/' + servletPath;
+            }
+            request.setServletPath(servletPath);
+
+            for (Map.Entry<String, String[]> entry : parameters.entrySet()) {
+                request.setParameter(entry.getKey(), entry.getValue());
+            }
+            parameters.clear();
+
+            MockResponse response = new MockResponse();
+            lastResponse = response;
+
+            ClickServlet clickServlet = container.getClickServlet();
+            boolean notFound =
+                clickServlet.getConfigService().getPageClass(servletPath) == null;
+
+            long start = System.nanoTime();
+            try {
+                clickServlet.service(request, response);
+                if (notFound || response.isError() || response.getStatus() >= 400) {
+                    errors.incrementAndGet();
+                }
+            } catch (Exception e) {
+                errors.incrementAndGet();
+            } finally {
+                if (recording) {
+                    recordLatency(System.nanoTime() - start);
+                }
+            }
+
+            return response;
+        }
+
+        // ---------------------------------------------------- Private methods
+
+        /**
+         * Return the path mapped to the given page class.
+         *
+         * @param pageClass the page class
+         * @return the page path
+         */
+        private String getPagePath(Class<? extends Page> pageClass) {
+            String path = container.getClickServlet().getConfigService()
+                .getPagePath(pageClass);
+            if (path == null) {
+                throw new IllegalArgumentException("The class "
+                    + pageClass.getName() + " was not mapped by Click");
+            }
+            return path;
+        }
+
+        /**
+         * Return the locale of the container request.
+         *
+         * @return the container locale
+         */
+        private Locale getLocale() {
+            MockRequest request = container.getRequest();
+            if (request != null && request.getLocale() != null) {
+                return request.getLocale();
+            }
+            return Locale.getDefault();
+        }
+
+        /**
+         * Record the given latency.
+         *
+         * @param latency the latency in nanoseconds
+         */
+        private void recordLatency(long latency) {
+            if (latencyCount == latencies.length) {
+                long[] grown = new long[latencies.length * 2];
+                System.arraycopy(latencies, 0, grown, 0, latencyCount);
+                latencies = grown;
+            }
+            latencies[latencyCount++] = latency;
+        }
+    }
+
+    /**
+     * Provides a script of page requests recorded as text. Each line holds
+     * an HTTP method followed by the page path and an optional query string,
+     * for example <tt>"POST /edit.htm?id=1&amp;name=Smith"</tt>. Blank lines
+     * and lines starting with <tt>'#'</tt> are ignored.
+     */
+    public static class RecordedScript implements Script {
+
+        /** The recorded steps, as method and path pairs. */
+        private final List<String[]> steps = new ArrayList<String[]>();
+
+        /**
+         * Create a new empty recorded script.
+         */
+        public RecordedScript() {
+        }
+
+        /**
+         * Parse the given recorded script text.
+         *
+         * @param text the recorded script text
+         * @return the recorded script
+         */
+        public static RecordedScript parse(String text) {
+            RecordedScript script = new RecordedScript();
+            if (text == null) {
+                return script;
+            }
+            String[] lines = StringUtils.split(text, "\r\n");
+            for (String line : lines) {
+                line = line.trim();
+                if (line.length() == 0 || line.charAt(0) == '#') {
+                    continue;
+                }
+                String[] tokens = StringUtils.split(line);
+                if (tokens.length != 2) {
+                    throw new IllegalArgumentException("Invalid script line: "
+                        + line);
+                }
+                script.add(tokens[0], tokens[1]);
+            }
+            return script;
+        }
+
+        /**
+         * Add a request step to the script.
+         *
+         * @param method the HTTP method, GET or POST
+         * @param path the page path, optionally including a query string
+         * @return this script, to enable method chaining
+         */
+        public RecordedScript add(String method, String path) {
+            if (StringUtils.isBlank(method)) {
+                throw new IllegalArgumentException("method cannot be blank");
+            }
+            if (StringUtils.isBlank(path)) {
+                throw new IllegalArgumentException("path cannot be blank");
+            }
+            steps.add(new String[] {method.toUpperCase(), path});
+            return this;
+        }
+
+        /**
+         * Return the number of recorded steps.
+         *
+         * @return the number of recorded steps
+         */
+        public int size() {
+            return steps.size();
+        }
+
+        /**
+         * Execute the recorded steps in order.
+         *
+         * @param client the client to issue page requests with
+         */
+        public void execute(Client client) {
+            for (String[] step : steps) {
+                client.request(step[0], step[1]);
+            }
+        }
+    }
+
+    // -------------------------------------------------------- Private methods
+
+    /**
+     * Add the parameters of the given query string to the request.
+     *
+     * @param request the request to add parameters to
+     * @param query the URL encoded query string
+     */
+    private static void addQueryParameters(MockRequest request, String query) {
+        Map<String, List<String>> values = new LinkedHashMap<String, List<String>>();
+        for (String pair : StringUtils.split(query, '&')) {
+            int index = pair.indexOf('=');
+            String name = index == -1 ? pair : pair.substring(0, index);
+            String value = index == -1 ? "" : pair.substring(index + 1);
+            name = ClickUtils.decodeURL(name);
+            value = ClickUtils.decodeURL(value);
+            List<String> list = values.get(name);
+            if (list == null) {
+                list = new ArrayList<String>(1);
+                values.put(name, list);
+            }
+            list.add(value);
+        }
+        for (Map.Entry<String, List<String>> entry : values.entrySet()) {
+            List<String> list = entry.getValue();
+            request.setParameter(entry.getKey(),
+                list.toArray(new String[list.size()]));
+        }
+    }
+
+    /**
+     * Return the bytes allocated by the current thread, or -1 if the JVM
+     * does not support thread allocation measurement.
+     *
+     * @return the bytes allocated by the current thread, or -1
+     */
+    private static long getAllocatedBytes() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            Class<?> beanClass =
+                Class.forName("com.sun.management.ThreadMXBean");
+            if (!beanClass.isInstance(bean)) {
+                return -1;
+            }
+            Method method = beanClass.getMethod("getThreadAllocatedBytes",
+                new Class[] {Long.TYPE});
+            Object bytes = method.invoke(bean,
+                new Object[] {Long.valueOf(Thread.currentThread().getId())});
+            return ((Long) bytes).longValue();
+
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Provides the runnable executing the script for a single client.
+     */
+    private class Worker implements Runnable {
+
+        /** The client of this worker. */
+        private final Client client;
+
+        /** The script to execute. */
+        private final Script script;
+
+        /** The latch counted down once the warmup completed. */
+        private final CountDownLatch ready;
+
+        /** The latch awaited before the measurement starts. */
+        private final CountDownLatch start;
+
+        /** The latch counted down once the measurement completed. */
+        private final CountDownLatch done;
+
+        /** The bytes allocated during the measurement, or -1. */
+        private volatile long allocatedBytes = -1;
+
+        /**
+         * Create a new worker.
+         *
+         * @param client the client of this worker
+         * @param script the script to execute
+         * @param ready the latch counted down once warmed up
+         * @param start the latch awaited before measuring
+         * @param done the latch counted down once finished
+         */
+        Worker(Client client, Script script, CountDownLatch ready,
+            CountDownLatch start, CountDownLatch done) {
+            this.client = client;
+            this.script = script;
+            this.ready = ready;
+            this.start = start;
+            this.done = done;
+        }
+
+        /**
+         * Run the warmup iterations, wait for the other workers and run the
+         * measured iterations.
+         */
+        public void run() {
+            boolean warmedUp = false;
+            try {
+                for (int i = 0; i < warmupIterations; i++) {
+                    execute();
+                }
+                client.errors.set(0);
+                client.recording = true;
+
+                warmedUp = true;
+                ready.countDown();
+                start.await();
+
+                long allocatedStart = getAllocatedBytes();
+                if (duration > 0) {
+                    long deadline = System.nanoTime() + duration * 1000000L;
+                    while (System.nanoTime() < deadline) {
+                        execute();
+                    }
+                } else {
+                    for (int i = 0; i < iterations; i++) {
+                        execute();
+                    }
+                }
+                long allocatedEnd = getAllocatedBytes();
+                if (allocatedStart >= 0 && allocatedEnd >= 0) {
+                    allocatedBytes = allocatedEnd - allocatedStart;
+                }
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+            } finally {
+                if (!warmedUp) {
+                    ready.countDown();
+                }
+                client.recording = false;
+                done.countDown();
+            }
+        }
+
+        /**
+         * Execute the script once, counting a script failure as an error.
+         */
+        private void execute() {
+            try {
+                script.execute(client);
+            } catch (Exception e) {
+                client.errors.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click;
+
+import java.util.Arrays;
+
+/**
+ * Provides the results of a {@link MockLoadDriver} run: throughput, latency
+ * percentiles, error count and allocation per request.
+ * <p/>
+ * Latencies are measured around each request dispatched to the ClickServlet,
+ * so they exclude the time spent by the scripts between requests.
+ */
+public class MockLoadReport {
+
+    // -------------------------------------------------------- Private variables
+
+    /** The number of client threads. */
+    private final int threads;
+
+    /** The sorted request latencies in nanoseconds. */
+    private final long[] latencies;
+
+    /** The number of failed requests and script executions. */
+    private final long errorCount;
+
+    /** The measured wall clock time in nanoseconds. */
+    private final long elapsedNanos;
+
+    /** The bytes allocated by the client threads, or -1 if not supported. */
+    private final long allocatedBytes;
+
+    // -------------------------------------------------------- Constructors
+
+    /**
+     * Create a new report for the given measurements.
+     *
+     * @param threads the number of client threads
+     * @param latencies the request latencies in nanoseconds
+     * @param errorCount the number of failed requests and script executions
+     * @param elapsedNanos the measured wall clock time in nanoseconds
+     * @param allocatedBytes the bytes allocated by the client threads, or -1
+     * if allocation measurement is not supported by the JVM
+     */
+    public MockLoadReport(int threads, long[] latencies, long errorCount,
+        long elapsedNanos, long allocatedBytes) {
+
+        this.threads = threads;
+        this.latencies = latencies.clone();
+        Arrays.sort(this.latencies);
+        this.errorCount = errorCount;
+        this.elapsedNanos = elapsedNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    // -------------------------------------------------------- Public methods
+
+    /**
+     * Return the number of client threads.
+     *
+     * @return the number of client threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Return the number of measured requests.
+     *
+     * @return the number of measured requests
+     */
+    public long getRequestCount() {
+        return latencies.length;
+    }
+
+    /**
+     * Return the number of failed requests and script executions. A request
+     * fails if the ClickServlet throws an exception or the response status
+     * is 400 or above, and a script execution fails if the script throws
+     * an exception.
+     *
+     * @return the number of failures
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Return the measured wall clock time in milliseconds.
+     *
+     * @return the measured wall clock time in milliseconds
+     */
+    public double getElapsedMillis() {
+        return elapsedNanos / 1000000d;
+    }
+
+    /**
+     * Return the throughput in requests per second.
+     *
+     * @return the throughput in requests per second
+     */
+    public double getThroughput() {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return latencies.length * 1000000000d / elapsedNanos;
+    }
+
+    /**
+     * Return the mean request latency in milliseconds.
+     *
+     * @return the mean request latency in milliseconds
+     */
+    public double getMeanLatency() {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        double total = 0;
+        for (long latency : latencies) {
+            total += latency;
+        }
+        return total / latencies.length / 1000000d;
+    }
+
+    /**
+     * Return the maximum request latency in milliseconds.
+     *
+     * @return the maximum request latency in milliseconds
+     */
+    public double getMaxLatency() {
+        return getLatencyPercentile(100);
+    }
+
+    /**
+     * Return the request latency, in milliseconds, below which the given
+     * percentage of the requests completed.
+     *
+     * @param percent the percentile, between 0 and 100
+     * @return the latency percentile in milliseconds
+     */
+    public double getLatencyPercentile(double percent) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(latencies.length * percent / 100d);
+        int index = Math.min(Math.max(rank - 1, 0), latencies.length - 1);
+        return latencies[index] / 1000000d;
+    }
+
+    /**
+     * Return the mean number of bytes allocated by the client threads per
+     * request, or -1 if the JVM does not support thread allocation
+     * measurement. Allocations made by the scripts are included.
+     *
+     * @return the mean number of bytes allocated per request, or -1
+     */
+    public long getAllocatedBytesPerRequest() {
+        if (allocatedBytes < 0 || latencies.length == 0) {
+            return -1;
+        }
+        return allocatedBytes / latencies.length;
+    }
+
+    /**
+     * Return a one line summary of the report.
+     *
+     * @return a one line summary of the report
+     */
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder(200);
+        buffer.append("threads=").append(threads);
+        buffer.append(", requests=").append(getRequestCount());
+        buffer.append(", errors=").append(errorCount);
+        buffer.append(", throughput=").append(format(getThroughput())).append("/s");
+        buffer.append(", mean=").append(format(getMeanLatency())).append("ms");
+        buffer.append(", p50=").append(format(getLatencyPercentile(50))).append("ms");
+        buffer.append(", p95=").append(format(getLatencyPercentile(95))).append("ms");
+        buffer.append(", p99=").append(format(getLatencyPercentile(99))).append("ms");
+        buffer.append(", max=").append(format(getMaxLatency())).append("ms");
+        if (allocatedBytes >= 0) {
+            buffer.append(", alloc=").append(getAllocatedBytesPerRequest()).append("B/req");
+        }
+        return buffer.toString();
+    }
+
+    // -------------------------------------------------------- Private methods
+
+    /**
+     * Return the given value rounded to two decimals.
+     *
+     * @param value the value to format
+     * @return the formatted value
+     */
+    private String format(double value) {
+        return String.valueOf(Math.round(value * 100) / 100d);
+    }
+}
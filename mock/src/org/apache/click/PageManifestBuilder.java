@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.click.service.PageManifest;
+
+/**
+ * Provides a build tool which creates the
+ * {@link org.apache.click.service.PageManifest page manifest} of a web
+ * application, so that the application does not have to scan for automapped
+ * pages when it starts in <tt>production</tt> or <tt>profile</tt> mode.
+ * <p/>
+ * The application is started in a {@link MockContainer}, with the pages
+ * scanned as usual, and the resulting page mapping is written to
+ * <tt>WEB-INF/click-pages.properties</tt>. The application's page classes
+ * and libraries must be on the class path. For example:
+ *
+ * <pre class="codeHtml">
+ * java -cp click.jar:click-mock.jar:... org.apache.click.PageManifestBuilder build/web </pre>
+ *
+ * The <tt>page-manifest</tt> Ant target runs this tool for the web
+ * application directory given by the <tt>webapp.dir</tt> property.
+ * <p/>
+ * Please note the container is started with the <tt>memory</tt> resource
+ * deploy mode, so no Click resources are deployed to the web application
+ * directory.
+ */
+public class PageManifestBuilder {
+
+    // -------------------------------------------------------- Public methods
+
+    /**
+     * Create the page manifest of the given web application directory.
+     *
+     * @param args the web application directory
+     * @throws IOException if the page manifest could not be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: PageManifestBuilder <webapp-dir>");
+            System.exit(1);
+        }
+
+        PageManifest manifest = build(args[0]);
+
+        System.out.println("wrote " + manifest.getPageClassNames().size()
+            + " automapped pages and " + manifest.getTemplates().size()
+            + " templates to " + new File(args[0], PageManifest.MANIFEST_PATH));
+    }
+
+    /**
+     * Create and save the page manifest of the given web application
+     * directory. Any existing manifest is replaced.
+     *
+     * @param webappPath the web application directory
+     * @return the saved page manifest
+     * @throws IOException if the page manifest could not be written
+     */
+    public static PageManifest build(String webappPath) throws IOException {
+        File rootDir = new File(webappPath);
+
+        // Remove the existing manifest so the pages are scanned
+        new File(rootDir, PageManifest.MANIFEST_PATH).delete();
+
+        String deployMode = System.getProperty("click.deploy");
+        System.setProperty("click.deploy", "memory");
+
+        MockContainer container = new MockContainer(webappPath);
+        try {
+            container.start();
+
+            PageManifest manifest =
+                PageManifest.create(container.getServletContext());
+            manifest.save(rootDir);
+
+            return manifest;
+
+        } finally {
+            container.stop();
+
+            if (deployMode != null) {
+                System.setProperty("click.deploy", deployMode);
+            } else {
+                System.clearProperty("click.deploy");
+            }
+        }
+    }
+}
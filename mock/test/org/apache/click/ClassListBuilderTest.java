@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import org.apache.click.pages.TestPage;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Tests for ClassListBuilder.
+ */
+public class ClassListBuilderTest extends TestCase {
+
+    /**
+     * Check the classes loaded by the page crawl are recorded and written
+     * to the class lists.
+     */
+    public void testRecord() throws Exception {
+        Map<String, Boolean> classes = ClassListBuilder.record("web");
+
+        assertEquals(Boolean.TRUE, classes.get(TestPage.class.getName()));
+        assertEquals(Boolean.TRUE, classes.get(ClickServlet.class.getName()));
+        assertEquals(Boolean.FALSE, classes.get(String.class.getName()));
+
+        File classList = File.createTempFile("click", ".classlist");
+        File preloadList = File.createTempFile("click", ".txt");
+        try {
+            ClassListBuilder.writeClassList(classes, classList);
+            List<?> lines = readLines(classList);
+            assertTrue(lines.contains("org/apache/click/pages/TestPage"));
+            assertTrue(lines.contains("java/lang/String"));
+
+            ClassListBuilder.writePreloadList(classes, preloadList);
+            lines = readLines(preloadList);
+            assertTrue(lines.contains("org.apache.click.pages.TestPage"));
+            assertFalse(lines.contains("java.lang.String"));
+            assertFalse(lines.contains(ClassListBuilder.class.getName()));
+
+        } finally {
+            classList.delete();
+            preloadList.delete();
+        }
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private List<?> readLines(File file) throws Exception {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            return IOUtils.readLines(in, "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click;
+
+import junit.framework.TestCase;
+import org.apache.click.pages.TestPage;
+import org.apache.click.servlet.MockResponse;
+
+/**
+ * Tests for MockLoadDriver.
+ */
+public class MockLoadDriverTest extends TestCase {
+
+    /** The started container. */
+    private MockContainer container;
+
+    @Override
+    protected void setUp() {
+        container = new MockContainer("web");
+        container.start();
+    }
+
+    @Override
+    protected void tearDown() {
+        container.stop();
+    }
+
+    /**
+     * Check that each client request renders the page with its own
+     * parameters and that all requests are counted.
+     */
+    public void testRunScript() throws Exception {
+        MockLoadDriver driver = new MockLoadDriver(container);
+        driver.setThreads(4);
+        driver.setIterations(25);
+        driver.setWarmupIterations(2);
+
+        MockLoadReport report = driver.run(new MockLoadDriver.Script() {
+            public void execute(MockLoadDriver.Client client) {
+                String value = "client-" + client.getIndex();
+                MockResponse response =
+                    client.setParameter("myparam", value).get(TestPage.class);
+                if (response.getDocument().indexOf(value) == -1) {
+                    throw new IllegalStateException("Unexpected document");
+                }
+                // The ClickServlet must not leave a Context bound to the client thread
+                if (Context.hasThreadLocalContext()) {
+                    throw new IllegalStateException("Context not removed");
+                }
+            }
+        });
+
+        assertEquals(4, report.getThreads());
+        assertEquals(100, report.getRequestCount());
+        assertEquals(0, report.getErrorCount());
+        assertTrue(report.getThroughput() > 0);
+        assertTrue(report.getLatencyPercentile(50) <= report.getLatencyPercentile(99));
+        assertTrue(report.getLatencyPercentile(99) <= report.getMaxLatency());
+    }
+
+    /**
+     * Check that recorded scripts are parsed and that failing requests are
+     * counted as errors.
+     */
+    public void testRecordedScript() throws Exception {
+        MockLoadDriver.RecordedScript script = MockLoadDriver.RecordedScript.parse(
+            "# recorded session\n"
+            + "GET /test.htm?myparam=a%20b\n"
+            + "\n"
+            + "POST /missing.htm\n");
+        assertEquals(2, script.size());
+
+        MockLoadDriver driver = new MockLoadDriver(container);
+        driver.setThreads(2);
+        driver.setIterations(5);
+        driver.setWarmupIterations(0);
+
+        MockLoadReport report = driver.run(script);
+        assertEquals(20, report.getRequestCount());
+        assertEquals(10, report.getErrorCount());
+    }
+
+    /**
+     * Check the report percentile calculation.
+     */
+    public void testReportPercentiles() {
+        long[] latencies = new long[100];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[latencies.length - i - 1] = (i + 1) * 1000000L;
+        }
+        MockLoadReport report = new MockLoadReport(1, latencies, 0, 1000000000L, -1);
+
+        assertEquals(100, report.getRequestCount());
+        assertEquals(100.0, report.getThroughput(), 0.001);
+        assertEquals(50.0, report.getLatencyPercentile(50), 0.001);
+        assertEquals(99.0, report.getLatencyPercentile(99), 0.001);
+        assertEquals(100.0, report.getMaxLatency(), 0.001);
+        assertEquals(50.5, report.getMeanLatency(), 0.001);
+        assertEquals(-1, report.getAllocatedBytesPerRequest());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.click;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.PrintStream;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+import org.apache.click.pages.TestPage;
+import org.apache.click.service.PageManifest;
+
+/**
+ * Tests for PageManifestBuilder.
+ */
+public class PageManifestBuilderTest extends TestCase {
+
+    /**
+     * Check the builder writes the automapped pages of the web application.
+     */
+    public void testBuild() throws Exception {
+        File tmpdir = File.createTempFile("click", "");
+        tmpdir.delete();
+        tmpdir.mkdir();
+
+        try {
+            PrintStream pstr = new PrintStream(makeFile(tmpdir, "WEB-INF/click.xml"));
+            pstr.println("<click-app>");
+            pstr.println(" <pages package='org.apache.click.pages'/>");
+            pstr.println(" <mode value='production'/>");
+            pstr.println("</click-app>");
+            pstr.close();
+
+            makeFile(tmpdir, "test.htm").createNewFile();
+
+            PageManifest manifest = PageManifestBuilder.build(tmpdir.getAbsolutePath());
+            assertEquals(TestPage.class.getName(),
+                manifest.getPageClassNames().get("/test.htm"));
+
+            Properties entries = new Properties();
+            FileInputStream in =
+                new FileInputStream(new File(tmpdir, PageManifest.MANIFEST_PATH));
+            entries.load(in);
+            in.close();
+
+            assertEquals(TestPage.class.getName(), entries.getProperty("page./test.htm"));
+            assertEquals("/test.htm", entries.getProperty("templates"));
+            assertFalse(new File(tmpdir, "click").exists());
+
+        } finally {
+            deleteDir(tmpdir);
+        }
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private File makeFile(File dir, String filename) {
+        File file = new File(dir, filename);
+        file.getParentFile().mkdirs();
+        return file;
+    }
+
+    private void deleteDir(File dir) {
+        for (File f : dir.listFiles()) {
+            if (f.isDirectory()) {
+                deleteDir(f);
+            }
+            f.delete();
+        }
+        dir.delete();
+    }
+}